@@ -35,6 +35,7 @@ public @interface Id {
      * 若 keyType 类型是 sequence， value 则代表的是
      * sequence 序列的 sql 内容
      * 例如：select SEQ_USER_ID.nextval as id from dual
+     * 也可以直接配置序列名称，例如：SEQ_USER_ID，此时会批量预取序列值并缓存
      *
      * 若 keyType 是 Generator，value 则代表的是使用的那个 keyGenerator 的名称
      *
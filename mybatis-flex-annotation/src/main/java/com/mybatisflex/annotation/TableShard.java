@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.annotation;
+
+import com.mybatisflex.core.enums.ShardType;
+
+import java.lang.annotation.*;
+
+/**
+ * 分表配置，与 @Table 一起使用，物理表的名称为：表名 + "_" + 分片的序号
+ * <p>
+ * insert、update、deleteById、selectOneById 等根据 entity 或主键的操作，会根据分片字段的值直接定位到物理表；
+ * 根据主键操作时，分片字段必须为主键之一。
+ */
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+public @interface TableShard {
+
+    /**
+     * 分片字段的列名
+     */
+    String column();
+
+    /**
+     * 分表策略
+     */
+    ShardType type() default ShardType.HashMod;
+
+    /**
+     * 分表的数量，HashMod 时有效
+     */
+    int count() default 1;
+
+    /**
+     * 每张表的数据范围，Range 时有效
+     */
+    long range() default 0;
+
+    /**
+     * 分片所在的数据源名称（FlexDataSource 中的名称），分片的序号对数据源数量取模来选择数据源，不配置时使用默认的数据源
+     * <p>
+     * 配置数据源时，主键不能使用 insert 之前执行的序列
+     */
+    String[] dataSources() default {};
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.enums;
+
+/**
+ * 分表策略
+ */
+public enum ShardType {
+
+    /**
+     * 对分片值取模，例如 count = 4 时，物理表为 order_0 ~ order_3
+     */
+    HashMod,
+
+    /**
+     * 按分片值的范围分表，例如 range = 1000000 时，0 ~ 999999 在 order_0 中，1000000 ~ 1999999 在 order_1 中
+     */
+    Range,
+
+    /**
+     * 按年分表，例如 order_2023
+     */
+    Year,
+
+    /**
+     * 按月分表，例如 order_202310
+     */
+    Month,
+
+    /**
+     * 按天分表，例如 order_20231017
+     */
+    Day,
+}
@@ -17,6 +17,7 @@ package com.mybatisflex.processer;
 
 
 import com.mybatisflex.annotation.Column;
+import com.mybatisflex.annotation.Id;
 import com.mybatisflex.annotation.Table;
 
 import javax.annotation.processing.AbstractProcessor;
@@ -24,11 +25,14 @@ import javax.annotation.processing.Filer;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.RoundEnvironment;
 import javax.lang.model.SourceVersion;
-import javax.lang.model.element.Element;
-import javax.lang.model.element.ElementKind;
-import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
 import javax.tools.Diagnostic;
+import javax.tools.FileObject;
 import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
 import java.io.*;
 import java.util.*;
 import java.util.function.Consumer;
@@ -63,8 +67,80 @@ public class QueryEntityProcesser extends AbstractProcessor {
     private static final String columnsTemplate = "        public QueryColumn @property = new QueryColumn(this, \"@columnName\");\n";
     private static final String allColumnsTemplate = "\n        public QueryColumn[] ALL_COLUMNS = new QueryColumn[]{@allColumns};\n\n";
 
+    private static final String tableInfoDescriptorTemplate = "package @package;\n" +
+            "\n" +
+            "import com.mybatisflex.core.enums.KeyType;\n" +
+            "import com.mybatisflex.core.table.EntityAccessor;\n" +
+            "import com.mybatisflex.core.table.TableInfo;\n" +
+            "import com.mybatisflex.core.table.TableInfoDescriptor;\n" +
+            "\n" +
+            "// Auto generate by mybatis-flex, do not modify it.\n" +
+            "public class @descriptorClass extends TableInfoDescriptor {\n" +
+            "\n" +
+            "    private static final String[] PROPERTIES = new String[]{@properties};\n" +
+            "\n" +
+            "    public @descriptorClass() {\n" +
+            "        super(@entityClass.class, \"@tableName\", \"@schema\", @useCached, @camelToUnderline);\n" +
+            "        fields(@fieldsHash);\n" +
+            "@columns" +
+            "    }\n" +
+            "\n" +
+            "    @Override\n" +
+            "    protected EntityAccessor createEntityAccessor(TableInfo tableInfo) {\n" +
+            "        return isMatched(tableInfo, PROPERTIES) ? new Accessor(tableInfo) : null;\n" +
+            "    }\n" +
+            "\n" +
+            "    private static class Accessor extends GeneratedEntityAccessor {\n" +
+            "\n" +
+            "        private Accessor(TableInfo tableInfo) {\n" +
+            "            super(tableInfo);\n" +
+            "        }\n" +
+            "\n" +
+            "        @Override\n" +
+            "        public Object get(Object entity, int index) {\n" +
+            "            @entityClass e = (@entityClass) entity;\n" +
+            "            switch (index) {\n" +
+            "@getCases" +
+            "                default:\n" +
+            "                    return fallback().get(entity, index);\n" +
+            "            }\n" +
+            "        }\n" +
+            "\n" +
+            "        @Override\n" +
+            "        public void set(Object entity, int index, Object value) {\n" +
+            "            @entityClass e = (@entityClass) entity;\n" +
+            "            switch (index) {\n" +
+            "@setCases" +
+            "                default:\n" +
+            "                    fallback().set(entity, index, value);\n" +
+            "            }\n" +
+            "        }\n" +
+            "    }\n" +
+            "}\n";
+
+    private static final String TABLE_INFO_DESCRIPTOR_SERVICE = "META-INF/services/com.mybatisflex.core.table.TableInfoDescriptor";
+
+    /**
+     * 与 TableInfos 中支持映射到数据库的数据类型保持一致
+     */
+    private static final Set<String> supportColumnTypes = new HashSet<>(Arrays.asList(
+            "int", Integer.class.getName(),
+            "short", Short.class.getName(),
+            "long", Long.class.getName(),
+            "float", Float.class.getName(),
+            "double", Double.class.getName(),
+            "boolean", Boolean.class.getName(),
+            "java.util.Date", "java.sql.Date", "java.time.LocalDate", "java.time.LocalDateTime", "java.time.LocalTime",
+            "byte[]", "java.lang.Byte[]",
+            "java.math.BigInteger", "java.math.BigDecimal",
+            "char", String.class.getName()
+    ));
+
     protected Filer filer;
 
+    //已生成的 TableInfoDescriptor，在最后一轮写入到 META-INF/services 中
+    private final Set<String> descriptorClassNames = new LinkedHashSet<>();
+
     @Override
     public synchronized void init(ProcessingEnvironment processingEnvironment) {
         super.init(processingEnvironment);
@@ -85,6 +161,7 @@ public class QueryEntityProcesser extends AbstractProcessor {
             String genPath = props.getProperties().getProperty("processer.genPath", "");
             final String genPackage = props.getProperties().getProperty("processer.package");
             String className = props.getProperties().getProperty("processer.className", "Tables");
+            boolean genTableInfo = !"false".equalsIgnoreCase(props.getProperties().getProperty("processer.genTableInfo", ""));
 
             StringBuilder guessPackage = new StringBuilder();
 
@@ -128,6 +205,10 @@ public class QueryEntityProcesser extends AbstractProcessor {
 
                 String entityClassName = entityClassElement.getSimpleName().toString();
                 tablesContent.append(buildClass(entityClassName, tableName, propertyAndColumns));
+
+                if (genTableInfo) {
+                    genTableInfoDescriptor(classElement, table);
+                }
             });
 
             if (tablesContent.length() > 0) {
@@ -135,12 +216,273 @@ public class QueryEntityProcesser extends AbstractProcessor {
                 genClass(genPath, realGenPackage, className, tablesContent.toString());
             }
 
+        } else if (!descriptorClassNames.isEmpty()) {
+            genTableInfoDescriptorService();
         }
 
 
         return false;
     }
 
+
+    /**
+     * 为 entity 生成 TableInfoDescriptor，使得运行时无需通过反射来构建 TableInfo
+     * 只为 public 的顶级类生成，其他的 entity 在运行时依然使用反射
+     */
+    private void genTableInfoDescriptor(TypeElement classElement, Table table) {
+        if (classElement.getKind() != ElementKind.CLASS
+                || classElement.getNestingKind() != NestingKind.TOP_LEVEL
+                || !classElement.getModifiers().contains(Modifier.PUBLIC)
+                || classElement.getModifiers().contains(Modifier.ABSTRACT)) {
+            return;
+        }
+
+        String entityClassName = classElement.getQualifiedName().toString();
+        String packageName = entityClassName.contains(".") ? entityClassName.substring(0, entityClassName.lastIndexOf(".")) : "";
+        String descriptorClassName = classElement.getSimpleName() + "TableInfoDescriptor";
+
+        //字段与 TableInfos 反射时的顺序保持一致：先当前类，再父类
+        List<VariableElement> fields = new ArrayList<>();
+        Map<String, ExecutableElement> methods = new HashMap<>();
+        TypeElement typeElement = classElement;
+        while (typeElement != null && !Object.class.getName().equals(typeElement.getQualifiedName().toString())) {
+            for (Element element : typeElement.getEnclosedElements()) {
+                if (element.getKind() == ElementKind.FIELD && !element.getModifiers().contains(Modifier.STATIC)) {
+                    fields.add((VariableElement) element);
+                } else if (element.getKind() == ElementKind.METHOD
+                        && element.getModifiers().contains(Modifier.PUBLIC)
+                        && !element.getModifiers().contains(Modifier.STATIC)) {
+                    ExecutableElement method = (ExecutableElement) element;
+                    methods.putIfAbsent(method.getSimpleName() + "(" + (method.getParameters().isEmpty()
+                            ? "" : typeName(method.getParameters().get(0).asType())) + ")", method);
+                }
+            }
+            Element superElement = processingEnv.getTypeUtils().asElement(typeElement.getSuperclass());
+            typeElement = superElement instanceof TypeElement ? (TypeElement) superElement : null;
+        }
+
+        StringBuilder columns = new StringBuilder();
+        List<String> idProperties = new ArrayList<>();
+        List<String> columnProperties = new ArrayList<>();
+        Map<String, String> propertyTypes = new HashMap<>();
+        //与 TableInfos 运行时计算的摘要保持一致：@Table 的属性，以及所有可映射字段的名称、类型和 @Column、@Id 的属性
+        int fieldsHash = tableHash(table);
+        for (VariableElement field : fields) {
+            String fieldType = typeName(field.asType());
+            if (!supportColumnTypes.contains(fieldType)) {
+                continue;
+            }
+
+            Column column = field.getAnnotation(Column.class);
+            Id id = field.getAnnotation(Id.class);
+            fieldsHash += fieldHash(field.getSimpleName().toString(), fieldType, column, id);
+            if (column != null && column.ignore()) {
+                continue;
+            }
+
+            String property = field.getSimpleName().toString();
+            String columnName = column != null && column.value().trim().length() > 0
+                    ? column.value()
+                    : (table.camelToUnderline() ? camelToUnderline(property) : property);
+            String column_ = "\"" + escape(columnName) + "\"";
+
+            if (column != null) {
+                if (column.isLogicDelete()) {
+                    columns.append("        logicDelete(").append(column_).append(");\n");
+                }
+                if (column.version()) {
+                    columns.append("        version(").append(column_).append(");\n");
+                }
+                if (column.onInsertValue().trim().length() > 0) {
+                    columns.append("        onInsert(").append(column_).append(", \"")
+                            .append(escape(column.onInsertValue().trim())).append("\");\n");
+                }
+                if (column.onUpdateValue().trim().length() > 0) {
+                    columns.append("        onUpdate(").append(column_).append(", \"")
+                            .append(escape(column.onUpdateValue().trim())).append("\");\n");
+                }
+                if (column.isLarge()) {
+                    columns.append("        large(").append(column_).append(");\n");
+                }
+            }
+
+            if (id != null) {
+                columns.append("        id(").append(column_).append(", \"").append(property).append("\", ")
+                        .append(fieldType).append(".class, KeyType.").append(id.keyType().name()).append(", \"")
+                        .append(escape(id.value())).append("\", ").append(id.before()).append(");\n");
+                idProperties.add(property);
+            } else {
+                columns.append("        column(").append(column_).append(", \"").append(property).append("\", ")
+                        .append(fieldType).append(".class);\n");
+                columnProperties.add(property);
+            }
+            propertyTypes.put(property, fieldType);
+        }
+
+        //与 TableInfoDescriptor 保持一致：未配置 @Id 时，使用名称为 id 的属性作为主键
+        if (idProperties.isEmpty() && columnProperties.remove("id")) {
+            idProperties.add("id");
+        }
+
+        List<String> properties = new ArrayList<>(idProperties);
+        properties.addAll(columnProperties);
+
+        StringJoiner propertiesString = new StringJoiner(", ");
+        StringBuilder getCases = new StringBuilder();
+        StringBuilder setCases = new StringBuilder();
+        for (int i = 0; i < properties.size(); i++) {
+            String property = properties.get(i);
+            String type = propertyTypes.get(property);
+            propertiesString.add("\"" + property + "\"");
+
+            String name = Character.toUpperCase(property.charAt(0)) + property.substring(1);
+            ExecutableElement getter = "boolean".equals(type) ? methods.get("is" + name + "()") : null;
+            if (getter == null) {
+                getter = methods.get("get" + name + "()");
+            }
+            if (getter != null && type.equals(typeName(getter.getReturnType()))) {
+                getCases.append("                case ").append(i).append(":\n")
+                        .append("                    return e.").append(getter.getSimpleName()).append("();\n");
+            }
+
+            ExecutableElement setter = methods.get("set" + name + "(" + type + ")");
+            if (setter != null) {
+                setCases.append("                case ").append(i).append(":\n");
+                if (isPrimitive(type)) {
+                    //只直接处理对应的包装类型，null 以及其他类型交给 fallback：只允许拓宽转换，否则抛出异常
+                    String wrapperType = wrapperType(type);
+                    setCases.append("                    if (value instanceof ").append(wrapperType).append(") {\n")
+                            .append("                        e.").append(setter.getSimpleName()).append("((").append(wrapperType).append(") value);\n")
+                            .append("                        return;\n")
+                            .append("                    }\n")
+                            .append("                    fallback().set(entity, index, value);\n");
+                } else {
+                    setCases.append("                    e.").append(setter.getSimpleName()).append("((").append(type).append(") value);\n");
+                }
+                setCases.append("                    return;\n");
+            }
+        }
+
+        String content = tableInfoDescriptorTemplate
+                .replace("@package", packageName)
+                .replace("@descriptorClass", descriptorClassName)
+                .replace("@entityClass", classElement.getSimpleName())
+                .replace("@tableName", escape(table.value()))
+                .replace("@schema", escape(table.schema()))
+                .replace("@useCached", String.valueOf(table.useCached()))
+                .replace("@camelToUnderline", String.valueOf(table.camelToUnderline()))
+                .replace("@properties", propertiesString.toString())
+                .replace("@fieldsHash", String.valueOf(fieldsHash))
+                .replace("@columns", columns)
+                .replace("@getCases", getCases)
+                .replace("@setCases", setCases);
+        if (packageName.isEmpty()) {
+            content = content.substring(content.indexOf('\n') + 1);
+        }
+
+        String qualifiedDescriptorName = packageName.isEmpty() ? descriptorClassName : packageName + "." + descriptorClassName;
+        try (Writer writer = filer.createSourceFile(qualifiedDescriptorName, classElement).openWriter()) {
+            writer.write(content);
+            descriptorClassNames.add(qualifiedDescriptorName);
+        } catch (IOException e) {
+            printMessage(">>>>> mybatis-flex can not generate TableInfoDescriptor for: " + entityClassName + ", " + e);
+        }
+    }
+
+
+    /**
+     * 增量编译时只会处理本次编译的 entity，因此需要与已经存在的 service 文件合并，否则会丢失其他 entity 的 TableInfoDescriptor；
+     * 已经删除的 entity 残留的配置，会在运行时加载失败后被忽略
+     */
+    private void genTableInfoDescriptorService() {
+        Set<String> allClassNames = new LinkedHashSet<>();
+        try {
+            FileObject existing = filer.getResource(StandardLocation.CLASS_OUTPUT, "", TABLE_INFO_DESCRIPTOR_SERVICE);
+            try (BufferedReader reader = new BufferedReader(existing.openReader(true))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (line.length() > 0 && !line.startsWith("#")) {
+                        allClassNames.add(line);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            //首次编译时文件不存在
+        }
+        allClassNames.addAll(descriptorClassNames);
+
+        try (Writer writer = filer.createResource(StandardLocation.CLASS_OUTPUT, "", TABLE_INFO_DESCRIPTOR_SERVICE).openWriter()) {
+            for (String descriptorClassName : allClassNames) {
+                writer.write(descriptorClassName);
+                writer.write("\n");
+            }
+        } catch (IOException e) {
+            printMessage(">>>>> mybatis-flex can not generate " + TABLE_INFO_DESCRIPTOR_SERVICE + ", " + e);
+        }
+    }
+
+
+    /**
+     * 类型的名称，与运行时 Field.getType() 一致：忽略泛型以及 type-use 注解（例如：java.lang.@Nullable Integer）
+     */
+    private String typeName(TypeMirror type) {
+        TypeMirror erasure = processingEnv.getTypeUtils().erasure(type);
+        switch (erasure.getKind()) {
+            case ARRAY:
+                return typeName(((ArrayType) erasure).getComponentType()) + "[]";
+            case DECLARED:
+                return ((TypeElement) ((DeclaredType) erasure).asElement()).getQualifiedName().toString();
+            default:
+                return erasure.getKind().isPrimitive() ? erasure.getKind().name().toLowerCase() : erasure.toString();
+        }
+    }
+
+
+    private static boolean isPrimitive(String type) {
+        return !type.contains(".") && !type.endsWith("[]");
+    }
+
+
+    private static String wrapperType(String type) {
+        if ("int".equals(type)) {
+            return "java.lang.Integer";
+        } else if ("char".equals(type)) {
+            return "java.lang.Character";
+        } else {
+            return "java.lang." + Character.toUpperCase(type.charAt(0)) + type.substring(1);
+        }
+    }
+
+
+    /**
+     * 与 TableInfos.tableHash 保持一致
+     */
+    private static int tableHash(Table table) {
+        return table == null ? 0 : ("@Table:" + table.value() + "," + table.schema() + "," + table.useCached() + "," + table.camelToUnderline()).hashCode();
+    }
+
+    /**
+     * 与 TableInfos.fieldHash 保持一致
+     */
+    private static int fieldHash(String name, String type, Column column, Id id) {
+        StringBuilder sb = new StringBuilder(name).append(':').append(type);
+        if (column != null) {
+            sb.append("@Column:").append(column.value()).append(',').append(column.onUpdateValue()).append(',').append(column.onInsertValue())
+                    .append(',').append(column.ignore()).append(',').append(column.isLarge()).append(',').append(column.isLogicDelete())
+                    .append(',').append(column.version());
+        }
+        if (id != null) {
+            sb.append("@Id:").append(id.keyType().name()).append(',').append(id.value()).append(',').append(id.before());
+        }
+        return sb.toString().hashCode();
+    }
+
+    private static String escape(String string) {
+        return string.replace("\\", "\\\\").replace("\"", "\\\"")
+                .replace("\n", "\\n").replace("\r", "\\r");
+    }
+
     private String buildClass(String entityClass, String tableName, Map<String, String> propertyAndColumns) {
 
         // tableDefTemplate = "    public static final @entityClassTableDef @tableField = new @entityClassTableDef(\"@tableName\");\n";
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.benchmark;
+
+import com.mybatisflex.benchmark.mapper.AccountMapper;
+import com.mybatisflex.benchmark.model.Account;
+import com.mybatisflex.core.mybatis.FlexConfiguration;
+import com.mybatisflex.core.mybatis.FlexSqlSessionFactoryBuilder;
+import org.apache.ibatis.logging.nologging.NoLoggingImpl;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Date;
+
+/**
+ * benchmark 公用的初始化工具：H2 内存数据库、SqlSessionFactory 以及测试数据
+ */
+public class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+
+    /**
+     * 创建一个 H2 内存数据库，并初始化 rowCount 条 tb_account 数据，id 从 1 开始
+     *
+     * @param name     数据库名称，不同的 benchmark 使用不同的名称，避免相互影响
+     * @param rowCount 初始化的数据条数
+     */
+    public static DataSource createDataSource(String name, int rowCount) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS `tb_account`");
+                statement.execute("CREATE TABLE `tb_account` (" +
+                        "`id` BIGINT PRIMARY KEY, " +
+                        "`user_name` VARCHAR(100) NOT NULL, " +
+                        "`age` INTEGER, " +
+                        "`birthday` DATETIME)");
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO `tb_account`(`id`, `user_name`, `age`, `birthday`) VALUES (?, ?, ?, ?)")) {
+                for (int i = 0; i < rowCount; i++) {
+                    ps.setLong(1, i + 1);
+                    ps.setString(2, "user" + i);
+                    ps.setInt(3, 18 + i % 50);
+                    ps.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        return dataSource;
+    }
+
+
+    /**
+     * 创建 SqlSessionFactory，并关闭 SQL 日志输出，避免日志影响测试结果
+     * 一级缓存的范围设置为 STATEMENT，否则同一个 SqlSession 中重复的查询会直接命中缓存，测不到真实的查询和映射
+     */
+    public static SqlSessionFactory createSqlSessionFactory(DataSource dataSource) {
+        Environment environment = new Environment("benchmark", new JdbcTransactionFactory(), dataSource);
+        FlexConfiguration configuration = new FlexConfiguration(environment);
+        configuration.setLogImpl(NoLoggingImpl.class);
+        configuration.setLocalCacheScope(LocalCacheScope.STATEMENT);
+        configuration.addMapper(AccountMapper.class);
+
+        //FlexConfiguration 在构造时已经使用 StdOutImpl 创建了 RowMapper 的 MappedStatement，这里统一替换掉
+        for (String id : configuration.getMappedStatementNames()) {
+            if (id.indexOf('.') > 0) {
+                MappedStatement ms = configuration.getMappedStatement(id);
+                SystemMetaObject.forObject(ms).setValue("statementLog", new NoLoggingImpl(ms.getId()));
+            }
+        }
+
+        return new FlexSqlSessionFactoryBuilder().build(configuration);
+    }
+
+
+    public static Account newAccount(long id) {
+        Account account = new Account();
+        account.setId(id);
+        account.setUserName("user" + id);
+        account.setAge((int) (18 + id % 50));
+        account.setBirthday(new Date());
+        return account;
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.benchmark;
+
+import com.mybatisflex.core.key.IKeyGenerator;
+import com.mybatisflex.core.key.impl.SegmentKeyGenerator;
+import com.mybatisflex.core.key.impl.SnowFlakeKeyGenerator;
+import com.mybatisflex.core.key.impl.ULIDKeyGenerator;
+import com.mybatisflex.core.key.impl.UUIDKeyGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内置主键生成器的吞吐量，多线程下的表现可以通过 -t 参数指定线程数，例如：-t 4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyGeneratorBenchmark {
+
+    private IKeyGenerator uuid;
+    private IKeyGenerator snowFlake;
+    private IKeyGenerator ulid;
+    private IKeyGenerator segment;
+
+
+    @Setup
+    public void setup() throws SQLException {
+        DataSource dataSource = BenchmarkSupport.createDataSource("keyGenerator", 0);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS flex_id_segment");
+            statement.execute("CREATE TABLE flex_id_segment (biz_tag VARCHAR(64) PRIMARY KEY, max_id BIGINT NOT NULL)");
+        }
+
+        uuid = new UUIDKeyGenerator();
+        snowFlake = new SnowFlakeKeyGenerator(1, 1);
+        ulid = new ULIDKeyGenerator();
+        segment = new SegmentKeyGenerator(dataSource, "benchmark");
+    }
+
+
+    @Benchmark
+    public Object uuid() {
+        return uuid.generate(null, "id");
+    }
+
+    @Benchmark
+    public Object snowFlakeId() {
+        return snowFlake.generate(null, "id");
+    }
+
+    @Benchmark
+    public Object ulid() {
+        return ulid.generate(null, "id");
+    }
+
+    @Benchmark
+    public Object segment() {
+        return segment.generate(null, "id");
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.benchmark;
+
+import com.mybatisflex.benchmark.mapper.AccountMapper;
+import com.mybatisflex.benchmark.model.Account;
+import org.apache.ibatis.session.SqlSession;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 H2 内存数据库的 {@link com.mybatisflex.core.BaseMapper} 端到端 CRUD
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperCrudBenchmark {
+
+    private static final int ROW_COUNT = 1000;
+
+    private SqlSession sqlSession;
+    private AccountMapper accountMapper;
+    private Account updateAccount;
+    private long nextId;
+
+
+    @Setup
+    public void setup() {
+        sqlSession = BenchmarkSupport.createSqlSessionFactory(
+                BenchmarkSupport.createDataSource("mapper_crud", ROW_COUNT)).openSession(true);
+        accountMapper = sqlSession.getMapper(AccountMapper.class);
+
+        updateAccount = BenchmarkSupport.newAccount(1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        sqlSession.close();
+    }
+
+
+    @Benchmark
+    public Account selectOneById() {
+        nextId = nextId % ROW_COUNT + 1;
+        return accountMapper.selectOneById(nextId);
+    }
+
+    @Benchmark
+    public int update() {
+        return accountMapper.update(updateAccount);
+    }
+
+    /**
+     * insert 之后立即删除，保证表的数据量不会随着测试的进行而增长
+     */
+    @Benchmark
+    public int insertAndDelete() {
+        Account account = BenchmarkSupport.newAccount(ROW_COUNT + 1);
+        accountMapper.insert(account);
+        return accountMapper.deleteById(account.getId());
+    }
+}
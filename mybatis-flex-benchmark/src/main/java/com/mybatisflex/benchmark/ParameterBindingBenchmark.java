@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.benchmark;
+
+import com.mybatisflex.core.FlexConsts;
+import com.mybatisflex.core.mybatis.FlexConfiguration;
+import com.mybatisflex.core.mybatis.SqlArgsParameterHandler;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SqlArgsParameterHandler#setParameters(PreparedStatement)} 的参数绑定
+ * <p>
+ * PreparedStatement 使用空实现，只统计 mybatis-flex 自身的开销，不包含 JDBC 驱动
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParameterBindingBenchmark {
+
+    @Param({"4", "32"})
+    private int argCount;
+
+    private SqlArgsParameterHandler parameterHandler;
+    private PreparedStatement preparedStatement;
+
+
+    @Setup
+    public void setup() {
+        FlexConfiguration configuration = new FlexConfiguration();
+
+        Object[] sqlArgs = new Object[argCount];
+        StringBuilder sql = new StringBuilder("SELECT * FROM tb_account WHERE 1 = 1");
+        for (int i = 0; i < argCount; i++) {
+            switch (i % 4) {
+                case 0:
+                    sqlArgs[i] = (long) i;
+                    break;
+                case 1:
+                    sqlArgs[i] = "value" + i;
+                    break;
+                case 2:
+                    sqlArgs[i] = new Date();
+                    break;
+                default:
+                    sqlArgs[i] = new byte[]{(byte) i};
+            }
+            sql.append(" AND c").append(i).append(" = ?");
+        }
+
+        Map<String, Object> parameter = new HashMap<>();
+        parameter.put(FlexConsts.SQL_ARGS, sqlArgs);
+
+        MappedStatement ms = new MappedStatement.Builder(configuration, "benchmark.setParameters"
+                , new StaticSqlSource(configuration, sql.toString()), SqlCommandType.SELECT).build();
+        BoundSql boundSql = new BoundSql(configuration, sql.toString(), Collections.emptyList(), parameter);
+
+        parameterHandler = new SqlArgsParameterHandler(ms, parameter, boundSql);
+        preparedStatement = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader()
+                , new Class[]{PreparedStatement.class}, (proxy, method, args) -> null);
+    }
+
+
+    @Benchmark
+    public PreparedStatement setParameters() {
+        parameterHandler.setParameters(preparedStatement);
+        return preparedStatement;
+    }
+}
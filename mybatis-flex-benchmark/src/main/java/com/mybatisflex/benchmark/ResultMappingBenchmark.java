@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.benchmark;
+
+import com.mybatisflex.benchmark.mapper.AccountMapper;
+import com.mybatisflex.benchmark.model.Account;
+import com.mybatisflex.core.querywrapper.QueryWrapper;
+import com.mybatisflex.core.row.ColumnarResult;
+import com.mybatisflex.core.row.Row;
+import com.mybatisflex.core.row.RowMapper;
+import org.apache.ibatis.session.SqlSession;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同一个查询结果分别映射为 {@link Row}、{@link ColumnarResult} 和 entity 的对比
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultMappingBenchmark {
+
+    @Param({"1", "100", "1000"})
+    private int rowCount;
+
+    private SqlSession sqlSession;
+    private AccountMapper accountMapper;
+    private RowMapper rowMapper;
+
+
+    @Setup
+    public void setup() {
+        sqlSession = BenchmarkSupport.createSqlSessionFactory(
+                BenchmarkSupport.createDataSource("result_mapping_" + rowCount, rowCount)).openSession(true);
+        accountMapper = sqlSession.getMapper(AccountMapper.class);
+        rowMapper = sqlSession.getMapper(RowMapper.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        sqlSession.close();
+    }
+
+
+    @Benchmark
+    public List<Account> selectEntities() {
+        return accountMapper.selectListByQuery(QueryWrapper.create());
+    }
+
+    @Benchmark
+    public List<Row> selectRows() {
+        return rowMapper.selectListByQuery("tb_account", QueryWrapper.create());
+    }
+
+    @Benchmark
+    public ColumnarResult selectColumns() {
+        return rowMapper.selectColumnsByQuery("tb_account", QueryWrapper.create());
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.benchmark;
+
+import com.mybatisflex.core.dialect.CommonsDialectImpl;
+import com.mybatisflex.core.dialect.IDialect;
+import com.mybatisflex.core.querywrapper.BoundQuery;
+import com.mybatisflex.core.querywrapper.CPI;
+import com.mybatisflex.core.querywrapper.CompiledQuery;
+import com.mybatisflex.core.querywrapper.QueryColumn;
+import com.mybatisflex.core.querywrapper.QueryCondition;
+import com.mybatisflex.core.querywrapper.QueryWrapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QueryWrapper 的构建以及 {@link CommonsDialectImpl#buildSelectSql(QueryWrapper)} 的 SQL 生成，
+ * 以及预编译查询 {@link CompiledQuery} 的参数绑定
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlBuildBenchmark {
+
+    private static final QueryColumn ID = new QueryColumn("tb_account", "id");
+    private static final QueryColumn USER_NAME = new QueryColumn("tb_account", "user_name");
+    private static final QueryColumn AGE = new QueryColumn("tb_account", "age");
+    private static final QueryColumn BIRTHDAY = new QueryColumn("tb_account", "birthday");
+    private static final QueryColumn ARTICLE_ACCOUNT_ID = new QueryColumn("tb_article", "account_id");
+    private static final QueryColumn ARTICLE_TITLE = new QueryColumn("tb_article", "title");
+
+    private IDialect dialect;
+    private QueryWrapper simpleQuery;
+    private QueryWrapper joinQuery;
+    private CompiledQuery compiledQuery;
+    private QueryWrapper largeOrQuery;
+
+
+    @Setup
+    public void setup() {
+        dialect = new CommonsDialectImpl();
+        simpleQuery = simpleQuery();
+        joinQuery = joinQuery();
+
+        QueryCondition condition = ID.eq(0);
+        for (int i = 1; i < 500; i++) {
+            condition = condition.or(ID.eq(i));
+        }
+        largeOrQuery = QueryWrapper.create().select(ID, USER_NAME).from("tb_account").where(condition);
+
+        compiledQuery = CompiledQuery.compile(QueryWrapper.create()
+                .select(ID, USER_NAME, AGE)
+                .from("tb_account")
+                .where(AGE.ge(CompiledQuery.param("age")))
+                .and(USER_NAME.like(CompiledQuery.param("name")))
+                .and(ID.in(CompiledQuery.param("id1"), CompiledQuery.param("id2"), CompiledQuery.param("id3")
+                        , CompiledQuery.param("id4"), CompiledQuery.param("id5")))
+                .orderBy(ID.desc()));
+    }
+
+
+    @Benchmark
+    public QueryWrapper buildSimpleQueryWrapper() {
+        return simpleQuery();
+    }
+
+    @Benchmark
+    public QueryWrapper buildJoinQueryWrapper() {
+        return joinQuery();
+    }
+
+    @Benchmark
+    public String buildSimpleSelectSql() {
+        return dialect.buildSelectSql(simpleQuery);
+    }
+
+    @Benchmark
+    public String buildJoinSelectSql() {
+        return dialect.buildSelectSql(joinQuery);
+    }
+
+    /**
+     * 500 个 or 条件
+     */
+    @Benchmark
+    public void buildLargeOrSelectSql(Blackhole blackhole) {
+        blackhole.consume(dialect.buildSelectSql(largeOrQuery));
+        blackhole.consume(CPI.getValueArray(largeOrQuery));
+    }
+
+    /**
+     * 完整的一次查询准备：构建 QueryWrapper、生成 SQL 以及收集参数
+     */
+    @Benchmark
+    public void buildAndRender(Blackhole blackhole) {
+        QueryWrapper queryWrapper = simpleQuery();
+        blackhole.consume(dialect.buildSelectSql(queryWrapper));
+        blackhole.consume(CPI.getValueArray(queryWrapper));
+    }
+
+    /**
+     * 和 buildAndRender 相同的查询，使用预编译查询只绑定参数
+     */
+    @Benchmark
+    public void bindCompiledQuery(Blackhole blackhole) {
+        BoundQuery boundQuery = compiledQuery.bind()
+                .set("age", 18)
+                .set("name", "michael")
+                .set("id1", 1).set("id2", 2).set("id3", 3).set("id4", 4).set("id5", 5);
+        blackhole.consume(boundQuery.getSql());
+        blackhole.consume(boundQuery.getArgs());
+    }
+
+
+    private static QueryWrapper simpleQuery() {
+        return QueryWrapper.create()
+                .select(ID, USER_NAME, AGE)
+                .from("tb_account")
+                .where(AGE.ge(18))
+                .and(USER_NAME.like("michael"))
+                .and(ID.in(1, 2, 3, 4, 5))
+                .orderBy(ID.desc());
+    }
+
+    private static QueryWrapper joinQuery() {
+        return QueryWrapper.create()
+                .select(ID, USER_NAME, BIRTHDAY, ARTICLE_TITLE)
+                .from("tb_account")
+                .leftJoin("tb_article").on(ARTICLE_ACCOUNT_ID.eq(ID))
+                .where(AGE.between(18, 30).or(BIRTHDAY.isNotNull(null)))
+                .and(USER_NAME.likeRight("m").and(ARTICLE_TITLE.ne("flex")))
+                .orderBy(BIRTHDAY.desc(), ID.asc());
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.benchmark;
+
+import com.mybatisflex.benchmark.model.Account;
+import com.mybatisflex.core.javassist.ModifyAttrsRecordProxyFactory;
+import com.mybatisflex.core.table.TableInfo;
+import com.mybatisflex.core.table.TableInfos;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TableInfo#obtainInsertValues(Object)} 和 {@link TableInfo#obtainUpdateValues(Object, boolean, boolean)}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableInfoBenchmark {
+
+    private TableInfo tableInfo;
+    private Account account;
+    private Account partialAccount;
+    private Account proxyAccount;
+
+
+    @Setup
+    public void setup() {
+        tableInfo = TableInfos.ofEntityClass(Account.class);
+
+        account = BenchmarkSupport.newAccount(1);
+
+        partialAccount = new Account();
+        partialAccount.setId(1L);
+        partialAccount.setAge(20);
+
+        proxyAccount = ModifyAttrsRecordProxyFactory.getInstance().get(Account.class);
+        proxyAccount.setId(1L);
+        proxyAccount.setUserName("michael");
+    }
+
+
+    @Benchmark
+    public Object[] obtainInsertValues() {
+        return tableInfo.obtainInsertValues(account);
+    }
+
+    @Benchmark
+    public Object[] obtainUpdateValues() {
+        return tableInfo.obtainUpdateValues(account, false, false);
+    }
+
+    @Benchmark
+    public Object[] obtainUpdateValuesIgnoreNulls() {
+        return tableInfo.obtainUpdateValues(partialAccount, true, true);
+    }
+
+    @Benchmark
+    public Object[] obtainUpdateValuesModifyAttrs() {
+        return tableInfo.obtainUpdateValues(proxyAccount, false, true);
+    }
+}
@@ -13,19 +13,10 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package com.mybatisflex.core.table;
+package com.mybatisflex.benchmark.mapper;
 
-import org.apache.ibatis.reflection.ReflectorFactory;
-
-public abstract class BaseReflectorFactory implements ReflectorFactory {
-    @Override
-    public boolean isClassCacheEnabled() {
-        return true;
-    }
-
-    @Override
-    public void setClassCacheEnabled(boolean classCacheEnabled) {
-
-    }
+import com.mybatisflex.benchmark.model.Account;
+import com.mybatisflex.core.BaseMapper;
 
+public interface AccountMapper extends BaseMapper<Account> {
 }
@@ -16,18 +16,25 @@
 package com.mybatisflex.core;
 
 import com.mybatisflex.core.exception.FlexExceptions;
+import com.mybatisflex.core.paginate.CountCache;
 import com.mybatisflex.core.paginate.Page;
+import com.mybatisflex.core.paginate.PaginateExecutor;
 import com.mybatisflex.core.provider.EntitySqlProvider;
-import com.mybatisflex.core.querywrapper.QueryColumn;
+import com.mybatisflex.core.querywrapper.BoundQuery;
 import com.mybatisflex.core.querywrapper.QueryWrapper;
 import com.mybatisflex.core.querywrapper.CPI;
 import org.apache.ibatis.annotations.*;
 import org.apache.ibatis.builder.annotation.ProviderContext;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSessionFactory;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public interface BaseMapper<T> {
 
@@ -44,6 +51,9 @@ public interface BaseMapper<T> {
 
     /**
      * 批量插入 entity 数据，只会根据第一条数据来构建插入的字段内容
+     * <p>
+     * 参数数量超过方言支持的最大参数数量时，自动拆分为多条 insert 语句在同一个 session 中依次执行；
+     * 自动提交（autocommit）时每条语句会单独提交，需要整体回滚时请在外层开启事务
      *
      * @param entities 插入的数据列表
      * @return 返回影响的行数
@@ -53,6 +63,30 @@ public interface BaseMapper<T> {
     @InsertProvider(type = EntitySqlProvider.class, method = FlexConsts.METHOD_INSERT_BATCH)
     int insertBatch(@Param(FlexConsts.ENTITIES) List<T> entities);
 
+    /**
+     * 分批插入 entity 数据，每批数据构建一条 insert 语句执行
+     * 参数数量超过当前 mapper 所属配置的方言支持的最大参数数量时，每批数据会再被拆分，避免超出数据库对 sql 参数数量的限制
+     *
+     * @param entities 插入的数据列表
+     * @param size     每批插入的数量
+     * @return 返回影响的行数
+     * @see com.mybatisflex.core.dialect.IDialect#getMaxParameterCount()
+     */
+    default int insertBatch(List<T> entities, int size) {
+        if (size <= 0) {
+            throw FlexExceptions.wrap("insertBatch size must be greater than 0.");
+        }
+        if (entities == null || entities.isEmpty()) {
+            return 0;
+        }
+
+        int total = 0;
+        for (int i = 0; i < entities.size(); i += size) {
+            total += insertBatch(entities.subList(i, Math.min(i + size, entities.size())));
+        }
+        return total;
+    }
+
     /**
      * 根据 id 删除数据
      * 如果是多个主键的情况下，需要传入数组 new Object[]{100,101}
@@ -75,6 +109,31 @@ public interface BaseMapper<T> {
     @DeleteProvider(type = EntitySqlProvider.class, method = "deleteBatchByIds")
     int deleteBatchByIds(@Param(FlexConsts.PRIMARY_VALUE) Collection<? extends Serializable> ids);
 
+    /**
+     * 根据多个 id 分批删除数据，每批数据构建一条 delete 语句执行
+     * 每批的参数数量超出方言支持的最大参数数量时，执行器会继续拆分，避免超出数据库对 sql 参数数量的限制
+     *
+     * @param ids  id 集合，多个主键的情况下，每个元素为主键值的数组
+     * @param size 每批删除的数量
+     * @return 返回影响的行数
+     */
+    default int deleteBatchByIds(Collection<? extends Serializable> ids, int size) {
+        if (size <= 0) {
+            throw FlexExceptions.wrap("deleteBatchByIds size must be greater than 0.");
+        }
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+
+        List<? extends Serializable> idList = ids instanceof List ? (List<? extends Serializable>) ids : new ArrayList<>(ids);
+
+        int total = 0;
+        for (int i = 0; i < idList.size(); i += size) {
+            total += deleteBatchByIds(idList.subList(i, Math.min(i + size, idList.size())));
+        }
+        return total;
+    }
+
 
     /**
      * 根据 map 构建的条件来删除数据
@@ -206,6 +265,73 @@ public interface BaseMapper<T> {
     @SelectProvider(type = EntitySqlProvider.class, method = "selectListByIds")
     List<T> selectListByIds(@Param(FlexConsts.PRIMARY_VALUE) Collection<? extends Serializable> ids);
 
+    /**
+     * 根据多个主键分批查询多条数据，每批数据构建一条 IN 查询语句执行，并合并所有的结果
+     * 每批的参数数量超出方言支持的最大参数数量时，执行器会继续拆分，避免超出数据库对 sql 参数数量的限制
+     *
+     * @param ids  主键列表，多个主键的情况下，每个元素为主键值的数组
+     * @param size 每批查询的数量
+     * @return 数据列表
+     * @see com.mybatisflex.core.dialect.IDialect#getMaxParameterCount()
+     */
+    default List<T> selectListByIds(Collection<? extends Serializable> ids, int size) {
+        if (size <= 0) {
+            throw FlexExceptions.wrap("selectListByIds size must be greater than 0.");
+        }
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<? extends Serializable> idList = ids instanceof List ? (List<? extends Serializable>) ids : new ArrayList<>(ids);
+        if (idList.size() <= size) {
+            return selectListByIds(idList);
+        }
+
+        List<T> list = new ArrayList<>(idList.size());
+        for (int i = 0; i < idList.size(); i += size) {
+            list.addAll(selectListByIds(idList.subList(i, Math.min(i + size, idList.size()))));
+        }
+        return list;
+    }
+
+    /**
+     * 根据多个主键分批并行查询多条数据，每批数据通过 {@link PaginateExecutor} 在不同的线程中同时查询，并按顺序合并所有的结果
+     * <p>
+     * 每批查询都从 sqlSessionFactory 打开自己的 sqlSession（数据库连接），不会使用当前 mapper 所绑定的 sqlSession，
+     * 因此并行查询不会参与当前线程的事务
+     *
+     * @param sqlSessionFactory 用于打开 sqlSession，当前 mapper 需要已经添加到其配置中
+     * @param ids               主键列表，多个主键的情况下，每个元素为主键值的数组
+     * @param size              每批查询的数量
+     * @return 数据列表
+     */
+    default List<T> selectListByIds(SqlSessionFactory sqlSessionFactory, Collection<? extends Serializable> ids, int size) {
+        if (size <= 0) {
+            throw FlexExceptions.wrap("selectListByIds size must be greater than 0.");
+        }
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<? extends Serializable> idList = ids instanceof List ? (List<? extends Serializable>) ids : new ArrayList<>(ids);
+        Class<BaseMapper<T>> mapperClass = (Class<BaseMapper<T>>) PaginateExecutor.getMapperClass(this);
+        List<CompletableFuture<List<T>>> futures = new ArrayList<>();
+        for (int i = 0; i < idList.size(); i += size) {
+            List<? extends Serializable> chunk = idList.subList(i, Math.min(i + size, idList.size()));
+            futures.add(PaginateExecutor.supplyAsync(sqlSessionFactory, mapperClass, mapper -> mapper.selectListByIds(chunk)));
+        }
+
+        List<T> list = new ArrayList<>(idList.size());
+        try {
+            for (CompletableFuture<List<T>> future : futures) {
+                list.addAll(future.join());
+            }
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : FlexExceptions.wrap(e.getCause());
+        }
+        return list;
+    }
+
 
     /**
      * 根据 map 来构建查询条件，查询多条数据
@@ -229,6 +355,42 @@ public interface BaseMapper<T> {
     List<T> selectListByQuery(@Param(FlexConsts.QUERY) QueryWrapper queryWrapper);
 
 
+    /**
+     * 通过预编译的查询来查询数据列表，sql 只会构建一次，每次查询只需要绑定参数
+     *
+     * @param boundQuery 绑定了参数的查询，通过 {@link com.mybatisflex.core.querywrapper.CompiledQuery#bind()} 创建
+     * @return 数据列表
+     * @see com.mybatisflex.core.querywrapper.CompiledQuery#compile(Class, QueryWrapper)
+     */
+    @SelectProvider(type = EntitySqlProvider.class, method = "selectListByCompiledQuery")
+    List<T> selectListByCompiledQuery(@Param(FlexConsts.QUERY) BoundQuery boundQuery);
+
+
+    /**
+     * 通过预编译的查询来查询 1 条数据，limit 需要在编译查询时指定
+     *
+     * @param boundQuery 绑定了参数的查询
+     * @return entity 数据
+     */
+    default T selectOneByCompiledQuery(BoundQuery boundQuery) {
+        List<T> entities = selectListByCompiledQuery(boundQuery);
+        return entities == null || entities.isEmpty() ? null : entities.get(0);
+    }
+
+
+    /**
+     * 根据 query 来构建条件，通过 cursor 流式读取数据，适用于导出等大数据量的查询
+     * 注意：cursor 需要在 sqlSession 关闭之前读取完毕，并在使用后关闭；
+     * postgresql 等数据库需要在事务中执行，否则驱动会一次性读取全部数据
+     *
+     * @param queryWrapper 查询条件
+     * @return 数据的 cursor
+     * @see com.mybatisflex.core.provider.EntitySqlProvider#selectListByQuery(Map, ProviderContext)
+     */
+    @SelectProvider(type = EntitySqlProvider.class, method = "selectListByQuery")
+    Cursor<T> selectCursorByQuery(@Param(FlexConsts.QUERY) QueryWrapper queryWrapper);
+
+
     /**
      * 根据 queryWrapper 来查询数据量
      *
@@ -262,15 +424,15 @@ public interface BaseMapper<T> {
      * @return page 数据
      */
     default Page<T> paginate(@Param("page") Page<T> page, @Param("query") QueryWrapper queryWrapper) {
-        List<QueryColumn> groupByColumns = CPI.getGroupByColumns(queryWrapper);
-
         // 只有 totalRow 小于 0 的时候才会去查询总量
         // 这样方便用户做总数缓存，而非每次都要去查询总量
         // 一般的分页场景中，只有第一页的时候有必要去查询总量，第二页以后是不需要的
         if (page.getTotalRow() < 0) {
-            //清除group by 去查询数据
-            CPI.setGroupByColumns(queryWrapper, null);
-            long count = selectCountByQuery(queryWrapper);
+            //数量查询使用 queryWrapper 的副本，清除 group by 和 keyset 条件，不修改调用方的 queryWrapper
+            QueryWrapper countWrapper = CPI.copy(queryWrapper);
+            CPI.setGroupByColumns(countWrapper, null);
+            countWrapper.seekAfter((Object[]) null);
+            long count = CountCache.getCount(this, countWrapper, () -> selectCountByQuery(countWrapper));
             page.setTotalRow(count);
         }
 
@@ -278,12 +440,61 @@ public interface BaseMapper<T> {
             return page;
         }
 
-        //恢复数量查询清除的 groupBy
-        CPI.setGroupByColumns(queryWrapper, groupByColumns);
-        int offset = page.getPageSize() * (page.getPageNumber() - 1);
-        queryWrapper.limit(offset, page.getPageSize());
-        List<T> rows = selectListByQuery(queryWrapper);
+        //afterKeys 不为空时使用 keyset 分页，通过上一页最后一条数据定位，无需扫描 offset 之前的数据
+        QueryWrapper listWrapper = CPI.copy(queryWrapper);
+        listWrapper.seekAfter(page.getAfterKeys());
+        if (page.getAfterKeys() != null) {
+            listWrapper.limit(null, page.getPageSize());
+        } else {
+            int offset = page.getPageSize() * (page.getPageNumber() - 1);
+            listWrapper.limit(offset, page.getPageSize());
+        }
+        List<T> rows = selectListByQuery(listWrapper);
         page.setList(rows);
         return page;
     }
+
+
+    /**
+     * 异步分页查询，总量和数据通过 {@link PaginateExecutor} 在不同的线程中同时查询
+     * <p>
+     * 每个查询都从 sqlSessionFactory 打开自己的 sqlSession（数据库连接），不会使用当前 mapper 所绑定的 sqlSession，
+     * 因此异步查询不会参与当前线程的事务
+     *
+     * @param sqlSessionFactory 用于打开 sqlSession，当前 mapper 需要已经添加到其配置中
+     * @param page              page，其包含了页码、每页的数据量，可能包含数据总量
+     * @param queryWrapper      查询条件
+     * @return page 数据
+     */
+    default CompletableFuture<Page<T>> paginateAsync(SqlSessionFactory sqlSessionFactory, Page<T> page, QueryWrapper queryWrapper) {
+        //count 和 list 使用各自的 queryWrapper 副本，避免并发修改同一个 queryWrapper，也不修改调用方的 queryWrapper
+        QueryWrapper listWrapper = CPI.copy(queryWrapper);
+        listWrapper.seekAfter(page.getAfterKeys());
+        if (page.getAfterKeys() != null) {
+            listWrapper.limit(null, page.getPageSize());
+        } else {
+            listWrapper.limit(page.getPageSize() * (page.getPageNumber() - 1), page.getPageSize());
+        }
+
+        Class<BaseMapper<T>> mapperClass = (Class<BaseMapper<T>>) PaginateExecutor.getMapperClass(this);
+        CompletableFuture<List<T>> listFuture = PaginateExecutor.supplyAsync(sqlSessionFactory, mapperClass
+                , mapper -> mapper.selectListByQuery(listWrapper));
+        if (page.getTotalRow() >= 0) {
+            return listFuture.thenApply(list -> {
+                page.setList(list);
+                return page;
+            });
+        }
+
+        QueryWrapper countWrapper = CPI.copy(queryWrapper);
+        CPI.setGroupByColumns(countWrapper, null);
+        countWrapper.seekAfter((Object[]) null);
+        CompletableFuture<Long> countFuture = PaginateExecutor.supplyAsync(sqlSessionFactory, mapperClass
+                , mapper -> CountCache.getCount(mapper, countWrapper, () -> mapper.selectCountByQuery(countWrapper)));
+        return countFuture.thenCombine(listFuture, (count, list) -> {
+            page.setTotalRow(count);
+            page.setList(list);
+            return page;
+        });
+    }
 }
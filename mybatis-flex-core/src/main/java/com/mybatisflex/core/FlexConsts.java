@@ -37,6 +37,11 @@ public class FlexConsts {
     public static final String ENTITIES = "$$entities";
     public static final String IGNORE_NULLS = "$$ignoreNulls";
 
+    /**
+     * 当前 FlexConfiguration 的方言，由 FlexDialectSqlSource 放入 Provider 的参数中
+     */
+    public static final String DIALECT = "$$dialect";
+
     public static final String METHOD_INSERT_BATCH = "insertBatch";
 
     /**
@@ -35,6 +35,16 @@ public class FlexGlobalConfig {
      */
     private SqlSessionFactory sqlSessionFactory;
 
+    /**
+     * cursor（流式）查询时默认使用的 fetchSize
+     */
+    private int cursorFetchSize = 1000;
+
+    /**
+     * 主键为序列（value 配置为序列名称）时，每次从数据库预取的序列值数量
+     */
+    private int sequenceCacheSize = 20;
+
 
 
     public DbType getDbType() {
@@ -53,6 +63,22 @@ public class FlexGlobalConfig {
         this.sqlSessionFactory = sqlSessionFactory;
     }
 
+    public int getCursorFetchSize() {
+        return cursorFetchSize;
+    }
+
+    public void setCursorFetchSize(int cursorFetchSize) {
+        this.cursorFetchSize = cursorFetchSize;
+    }
+
+    public int getSequenceCacheSize() {
+        return sequenceCacheSize;
+    }
+
+    public void setSequenceCacheSize(int sequenceCacheSize) {
+        this.sequenceCacheSize = sequenceCacheSize;
+    }
+
 
     /////static factory methods/////
     private static ConcurrentHashMap<String, FlexGlobalConfig> globalConfigs = new ConcurrentHashMap();
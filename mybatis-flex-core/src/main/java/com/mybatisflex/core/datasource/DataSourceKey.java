@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.datasource;
+
+/**
+ * 当前线程的数据源路由信息，由 {@link FlexDataSource} 在获取连接时读取
+ * <p>
+ * 可以通过 {@link #use(String)} 手动指定数据源，例如：
+ * <pre>
+ * DataSourceKey.use("replica1");
+ * try {
+ *     ...
+ * } finally {
+ *     DataSourceKey.clear();
+ * }
+ * </pre>
+ */
+public class DataSourceKey {
+
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+    static class State {
+        //指定的数据源名称
+        String key;
+        //当前执行的是否为查询
+        boolean read;
+        //强制使用主库的嵌套次数
+        int primaryDepth;
+        //优先使用从库的嵌套次数
+        int replicaDepth;
+        //最后一次写入的时间
+        long lastWriteNanos;
+        //是否正在通过 DataSourceRoutingExecutor 执行 sql
+        boolean routing;
+    }
+
+
+    private DataSourceKey() {
+    }
+
+
+    static State state() {
+        return STATE.get();
+    }
+
+
+    /**
+     * 指定当前线程使用的数据源
+     *
+     * @param dataSourceKey 数据源的名称
+     */
+    public static void use(String dataSourceKey) {
+        STATE.get().key = dataSourceKey;
+    }
+
+    public static String get() {
+        return STATE.get().key;
+    }
+
+    public static void clear() {
+        STATE.get().key = null;
+    }
+
+
+    /**
+     * 指定当前正在执行的 sql 所使用的数据源，例如分表所在的数据源
+     * 只在数据源为 FlexDataSource 时有效，sql 执行完成后自动恢复
+     */
+    public static void useForCurrentStatement(String dataSourceKey) {
+        State state = STATE.get();
+        if (state.routing) {
+            state.key = dataSourceKey;
+        }
+    }
+
+
+    /**
+     * 当前线程强制使用主库，支持嵌套调用，必须与 {@link #clearPrimary()} 成对使用
+     */
+    public static void usePrimary() {
+        STATE.get().primaryDepth++;
+    }
+
+    public static void clearPrimary() {
+        State state = STATE.get();
+        if (state.primaryDepth > 0) {
+            state.primaryDepth--;
+        }
+    }
+
+
+    /**
+     * 当前线程获取的连接都按照查询处理，优先使用从库，例如只读的 session 在执行 sql 之前获取的连接
+     * 支持嵌套调用，必须与 {@link #clearReplica()} 成对使用
+     */
+    public static void useReplica() {
+        STATE.get().replicaDepth++;
+    }
+
+    public static void clearReplica() {
+        State state = STATE.get();
+        if (state.replicaDepth > 0) {
+            state.replicaDepth--;
+        }
+    }
+}
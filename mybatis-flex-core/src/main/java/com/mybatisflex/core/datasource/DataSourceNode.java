@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.datasource;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * FlexDataSource 中的一个数据源，记录其活跃连接数、执行耗时以及健康状态
+ */
+class DataSourceNode {
+
+    final String name;
+    final DataSource dataSource;
+    final int weight;
+    final boolean replica;
+
+    final AtomicInteger activeCount = new AtomicInteger();
+    //sql 执行耗时的指数移动平均值，单位：纳秒
+    private volatile long latencyNanos;
+
+    private volatile int failureCount;
+    private volatile int ejectCount;
+    private volatile long ejectedUntilMillis;
+
+
+    DataSourceNode(String name, DataSource dataSource, int weight, boolean replica) {
+        this.name = name;
+        this.dataSource = dataSource;
+        this.weight = weight;
+        this.replica = replica;
+    }
+
+
+    long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    void recordLatency(long nanos) {
+        long latency = latencyNanos;
+        //并发时可能丢失部分记录，对平均值的影响可以忽略
+        latencyNanos = latency == 0 ? nanos : latency + (nanos - latency) / 5;
+    }
+
+
+    boolean isEjected(long nowMillis) {
+        return ejectedUntilMillis > nowMillis;
+    }
+
+    void onSuccess() {
+        if (failureCount != 0 || ejectCount != 0) {
+            synchronized (this) {
+                failureCount = 0;
+                ejectCount = 0;
+            }
+        }
+    }
+
+    /**
+     * 连续失败次数达到阈值后摘除一段时间，再次被摘除时时间翻倍
+     */
+    synchronized void onFailure(int failureThreshold, long ejectMillis, long maxEjectMillis) {
+        if (++failureCount < failureThreshold) {
+            return;
+        }
+        failureCount = 0;
+        long millis = ejectMillis << Math.min(ejectCount++, 20);
+        ejectedUntilMillis = System.currentTimeMillis() + Math.min(millis, maxEjectMillis);
+    }
+
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.datasource;
+
+import com.mybatisflex.annotation.UseDataSource;
+import com.mybatisflex.core.FlexConsts;
+import com.mybatisflex.core.querywrapper.CPI;
+import com.mybatisflex.core.querywrapper.QueryWrapper;
+import com.mybatisflex.core.util.CollectionUtil;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 数据源为 {@link FlexDataSource} 时，在执行 sql 之前设置 {@link DataSourceKey}，供获取连接时选择数据源
+ * <p>
+ * 数据源的优先级：QueryWrapper.datasource(...) > Mapper 方法上的 @UseDataSource > Mapper 上的 @UseDataSource > DataSourceKey.use(...) > 读写分离
+ */
+public class DataSourceRoutingExecutor implements Executor {
+
+    private static final String NONE = "";
+    private static final Map<String, String> ANNOTATION_KEYS = new ConcurrentHashMap<>();
+
+    private final Executor delegate;
+    //当前 session 是否执行过写入，执行过写入的 session 不再读取从库
+    private boolean written;
+
+    public DataSourceRoutingExecutor(Executor delegate) {
+        this.delegate = delegate;
+    }
+
+
+    private interface SqlCall<R> {
+        R call() throws SQLException;
+    }
+
+
+    private <R> R route(MappedStatement ms, Object parameter, SqlCall<R> call) throws SQLException {
+        boolean read = ms.getSqlCommandType() == SqlCommandType.SELECT;
+        String key = getDataSourceKey(ms, parameter);
+
+        DataSourceKey.State state = DataSourceKey.state();
+        String prevKey = state.key;
+        boolean prevRead = state.read;
+        boolean prevRouting = state.routing;
+        if (key != null) {
+            state.key = key;
+        }
+        state.read = read && !written;
+        state.routing = true;
+        try {
+            return call.call();
+        } finally {
+            state.key = prevKey;
+            state.read = prevRead;
+            state.routing = prevRouting;
+            if (!read) {
+                written = true;
+                state.lastWriteNanos = System.nanoTime();
+            }
+        }
+    }
+
+
+    private static String getDataSourceKey(MappedStatement ms, Object parameter) {
+        if (parameter instanceof Map && ((Map<?, ?>) parameter).containsKey(FlexConsts.QUERY)) {
+            Object queryWrapper = ((Map<?, ?>) parameter).get(FlexConsts.QUERY);
+            if (queryWrapper instanceof QueryWrapper) {
+                String datasource = CPI.getDatasource((QueryWrapper) queryWrapper);
+                if (datasource != null) {
+                    return datasource;
+                }
+            }
+        }
+        String key = CollectionUtil.computeIfAbsent(ANNOTATION_KEYS, ms.getId(), DataSourceRoutingExecutor::getAnnotationKey);
+        return key == NONE ? null : key;
+    }
+
+
+    private static String getAnnotationKey(String statementId) {
+        int index = statementId.lastIndexOf('.');
+        if (index <= 0) {
+            return NONE;
+        }
+        Class<?> mapperClass;
+        try {
+            mapperClass = Resources.classForName(statementId.substring(0, index));
+        } catch (ClassNotFoundException e) {
+            return NONE;
+        }
+        String methodName = statementId.substring(index + 1);
+        for (Method method : mapperClass.getMethods()) {
+            if (method.getName().equals(methodName) && method.isAnnotationPresent(UseDataSource.class)) {
+                return method.getAnnotation(UseDataSource.class).value();
+            }
+        }
+        UseDataSource annotation = mapperClass.getAnnotation(UseDataSource.class);
+        return annotation != null ? annotation.value() : NONE;
+    }
+
+
+    @Override
+    public int update(MappedStatement ms, Object parameter) throws SQLException {
+        return route(ms, parameter, () -> delegate.update(ms, parameter));
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey cacheKey, BoundSql boundSql) throws SQLException {
+        return route(ms, parameter, () -> delegate.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql));
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
+        return route(ms, parameter, () -> delegate.query(ms, parameter, rowBounds, resultHandler));
+    }
+
+    @Override
+    public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+        return route(ms, parameter, () -> delegate.queryCursor(ms, parameter, rowBounds));
+    }
+
+    @Override
+    public List<BatchResult> flushStatements() throws SQLException {
+        return delegate.flushStatements();
+    }
+
+    @Override
+    public void commit(boolean required) throws SQLException {
+        delegate.commit(required);
+    }
+
+    @Override
+    public void rollback(boolean required) throws SQLException {
+        delegate.rollback(required);
+    }
+
+    @Override
+    public CacheKey createCacheKey(MappedStatement ms, Object parameterObject, RowBounds rowBounds, BoundSql boundSql) {
+        return delegate.createCacheKey(ms, parameterObject, rowBounds, boundSql);
+    }
+
+    @Override
+    public boolean isCached(MappedStatement ms, CacheKey key) {
+        return delegate.isCached(ms, key);
+    }
+
+    @Override
+    public void clearLocalCache() {
+        delegate.clearLocalCache();
+    }
+
+    @Override
+    public void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType) {
+        delegate.deferLoad(ms, resultObject, property, key, targetType);
+    }
+
+    @Override
+    public Transaction getTransaction() {
+        return delegate.getTransaction();
+    }
+
+    @Override
+    public void close(boolean forceRollback) {
+        delegate.close(forceRollback);
+    }
+
+    @Override
+    public boolean isClosed() {
+        return delegate.isClosed();
+    }
+
+    @Override
+    public void setExecutorWrapper(Executor executor) {
+        delegate.setExecutorWrapper(executor);
+    }
+}
@@ -0,0 +1,435 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.datasource;
+
+import com.mybatisflex.core.exception.FlexExceptions;
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * 支持读写分离的数据源，由一个主库以及多个从库（或其他命名的数据源）组成，在获取连接时根据 {@link DataSourceKey} 选择数据源：
+ * <ul>
+ *     <li>通过 QueryWrapper.datasource(...)、@UseDataSource 或 DataSourceKey.use(...) 指定了数据源时，使用指定的数据源</li>
+ *     <li>查询语句使用从库；当前线程在 stickyMillis 内执行过写入时，使用主库，保证能读到刚写入的数据</li>
+ *     <li>写入语句、事务（例如 spring 事务管理器获取的连接）以及其他未知的情况，使用主库</li>
+ * </ul>
+ * 从库按权重随机选取两个，使用 活跃连接数 * 平均耗时 较小的一个；获取连接连续失败的从库会被暂时摘除，所有从库都不可用时使用主库。
+ * <p>
+ * 一个 SqlSession 只会使用第一次获取的连接，因此手动打开的 SqlSession 中先查询后写入时，需要通过 {@link DataSourceKey#usePrimary()} 指定主库；
+ * 在从库的连接上执行写入，或者在其他数据源的连接上执行指定了数据源的 sql 时，会抛出异常。
+ */
+public class FlexDataSource implements DataSource {
+
+    private final DataSourceNode primary;
+    private final Map<String, DataSourceNode> nodes = new ConcurrentHashMap<>();
+    private volatile DataSourceNode[] replicas = new DataSourceNode[0];
+
+    private long stickyNanos = TimeUnit.SECONDS.toNanos(1);
+    private int failureThreshold = 3;
+    private long ejectMillis = 5000;
+    private long maxEjectMillis = 60000;
+
+
+    public FlexDataSource(String primaryName, DataSource primaryDataSource) {
+        this.primary = new DataSourceNode(primaryName, primaryDataSource, 1, false);
+        this.nodes.put(primaryName, primary);
+    }
+
+
+    /**
+     * 添加从库
+     *
+     * @param name       数据源名称
+     * @param dataSource 数据源
+     * @param weight     权重
+     */
+    public synchronized FlexDataSource addReplica(String name, DataSource dataSource, int weight) {
+        if (weight <= 0) {
+            throw FlexExceptions.wrap("The weight of replica \"%s\" must be greater than 0.", name);
+        }
+        DataSourceNode node = new DataSourceNode(name, dataSource, weight, true);
+        putNode(node);
+        DataSourceNode[] newReplicas = new DataSourceNode[replicas.length + 1];
+        System.arraycopy(replicas, 0, newReplicas, 0, replicas.length);
+        newReplicas[replicas.length] = node;
+        replicas = newReplicas;
+        return this;
+    }
+
+    public FlexDataSource addReplica(String name, DataSource dataSource) {
+        return addReplica(name, dataSource, 1);
+    }
+
+    /**
+     * 添加其他的数据源，只有通过名称指定时才会使用
+     */
+    public synchronized FlexDataSource addDataSource(String name, DataSource dataSource) {
+        putNode(new DataSourceNode(name, dataSource, 1, false));
+        return this;
+    }
+
+    private void putNode(DataSourceNode node) {
+        if (nodes.containsKey(node.name)) {
+            throw FlexExceptions.wrap("The datasource \"%s\" already exists.", node.name);
+        }
+        nodes.put(node.name, node);
+    }
+
+
+    public DataSource getPrimaryDataSource() {
+        return primary.dataSource;
+    }
+
+    public DataSource getDataSource(String name) {
+        DataSourceNode node = nodes.get(name);
+        return node != null ? node.dataSource : null;
+    }
+
+    public List<String> getReplicaNames() {
+        List<String> names = new ArrayList<>(replicas.length);
+        for (DataSourceNode replica : replicas) {
+            names.add(replica.name);
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * 当前可用（未被摘除）的从库
+     */
+    public List<String> getAvailableReplicaNames() {
+        long now = System.currentTimeMillis();
+        List<String> names = new ArrayList<>(replicas.length);
+        for (DataSourceNode replica : replicas) {
+            if (!replica.isEjected(now)) {
+                names.add(replica.name);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * 写入后多长时间内，当前线程的查询仍然使用主库，默认为 1000 毫秒，设置为 0 时不启用
+     */
+    public void setStickyMillis(long stickyMillis) {
+        this.stickyNanos = TimeUnit.MILLISECONDS.toNanos(stickyMillis);
+    }
+
+    /**
+     * 从库获取连接连续失败多少次后被摘除，默认为 3
+     */
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    /**
+     * 从库第一次被摘除的时间，之后每次被摘除时间翻倍，最长为 maxEjectMillis
+     */
+    public void setEjectMillis(long ejectMillis) {
+        this.ejectMillis = ejectMillis;
+    }
+
+    public void setMaxEjectMillis(long maxEjectMillis) {
+        this.maxEjectMillis = maxEjectMillis;
+    }
+
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(null, null, false);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection(username, password, true);
+    }
+
+
+    private Connection getConnection(String username, String password, boolean withUser) throws SQLException {
+        DataSourceKey.State state = DataSourceKey.state();
+        if (state.key != null) {
+            DataSourceNode node = nodes.get(state.key);
+            if (node == null) {
+                throw FlexExceptions.wrap("The datasource \"%s\" not exists.", state.key);
+            }
+            return open(node, username, password, withUser);
+        }
+
+        if ((state.read || state.replicaDepth > 0) && state.primaryDepth == 0 && replicas.length > 0
+                && (state.lastWriteNanos == 0 || System.nanoTime() - state.lastWriteNanos >= stickyNanos)) {
+            Connection connection = openReplica(username, password, withUser);
+            if (connection != null) {
+                return connection;
+            }
+        }
+        return open(primary, username, password, withUser);
+    }
+
+
+    private Connection openReplica(String username, String password, boolean withUser) {
+        DataSourceNode[] replicas = this.replicas;
+        boolean[] excluded = new boolean[replicas.length];
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < replicas.length; i++) {
+            int index = selectReplica(replicas, excluded, now);
+            if (index < 0) {
+                return null;
+            }
+            try {
+                return open(replicas[index], username, password, withUser);
+            } catch (SQLException e) {
+                excluded[index] = true;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * 按权重随机选取两个从库，返回 (活跃连接数 + 1) * 平均耗时 较小的一个
+     */
+    private static int selectReplica(DataSourceNode[] replicas, boolean[] excluded, long now) {
+        int totalWeight = 0;
+        for (int i = 0; i < replicas.length; i++) {
+            if (!excluded[i] && !replicas[i].isEjected(now)) {
+                totalWeight += replicas[i].weight;
+            }
+        }
+        if (totalWeight == 0) {
+            return -1;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = pick(replicas, excluded, now, random.nextInt(totalWeight));
+        int second = pick(replicas, excluded, now, random.nextInt(totalWeight));
+        return cost(replicas[second]) < cost(replicas[first]) ? second : first;
+    }
+
+    private static int pick(DataSourceNode[] replicas, boolean[] excluded, long now, int random) {
+        int index = 0;
+        for (int i = 0; i < replicas.length; i++) {
+            if (!excluded[i] && !replicas[i].isEjected(now)) {
+                index = i;
+                random -= replicas[i].weight;
+                if (random < 0) {
+                    break;
+                }
+            }
+        }
+        return index;
+    }
+
+    private static double cost(DataSourceNode node) {
+        return (node.activeCount.get() + 1) * (double) Math.max(node.getLatencyNanos(), 1);
+    }
+
+
+    private Connection open(DataSourceNode node, String username, String password, boolean withUser) throws SQLException {
+        Connection connection;
+        try {
+            connection = withUser ? node.dataSource.getConnection(username, password) : node.dataSource.getConnection();
+        } catch (SQLException | RuntimeException e) {
+            if (node.replica) {
+                node.onFailure(failureThreshold, ejectMillis, maxEjectMillis);
+            }
+            throw e;
+        }
+        node.onSuccess();
+        return new RoutingConnection(node, connection).proxy;
+    }
+
+
+    /**
+     * 记录连接的活跃数以及 sql 的执行耗时
+     */
+    private static class RoutingConnection implements InvocationHandler {
+
+        private final DataSourceNode node;
+        private final Connection connection;
+        private final Connection proxy;
+        private boolean closed;
+
+        private RoutingConnection(DataSourceNode node, Connection connection) {
+            this.node = node;
+            this.connection = connection;
+            this.proxy = (Connection) Proxy.newProxyInstance(FlexDataSource.class.getClassLoader()
+                    , new Class[]{Connection.class}, this);
+            node.activeCount.incrementAndGet();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        node.activeCount.decrementAndGet();
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            boolean createStatement = "createStatement".equals(name) || "prepareStatement".equals(name) || "prepareCall".equals(name);
+            if (createStatement) {
+                checkRoute();
+            }
+
+            Object result;
+            try {
+                result = method.invoke(connection, args);
+            } catch (Throwable t) {
+                throw ExceptionUtil.unwrapThrowable(t);
+            }
+
+            switch (name) {
+                case "createStatement":
+                    return new TimingStatement(this, (Statement) result, Statement.class).proxy;
+                case "prepareStatement":
+                    return new TimingStatement(this, (Statement) result, PreparedStatement.class).proxy;
+                case "prepareCall":
+                    return new TimingStatement(this, (Statement) result, CallableStatement.class).proxy;
+                default:
+                    return result;
+            }
+        }
+
+        /**
+         * 一个 SqlSession 只使用一个连接，执行的 sql 与连接所在的数据源不一致时，抛出异常
+         */
+        private void checkRoute() {
+            DataSourceKey.State state = DataSourceKey.state();
+            if (!state.routing) {
+                return;
+            }
+            if (state.key != null) {
+                if (!state.key.equals(node.name)) {
+                    throw FlexExceptions.wrap("The connection of current SqlSession belongs to datasource \"%s\", " +
+                            "can not execute sql on datasource \"%s\" with it.", node.name, state.key);
+                }
+            } else if (node.replica && !state.read) {
+                throw FlexExceptions.wrap("The connection of current SqlSession has been routed to replica \"%s\" by a previous query, " +
+                        "can not write with it. Please use DataSourceKey.usePrimary() before opening the SqlSession.", node.name);
+            }
+        }
+    }
+
+
+    /**
+     * 统计 execute* 方法的耗时
+     */
+    private static class TimingStatement implements InvocationHandler {
+
+        private final RoutingConnection connection;
+        private final Statement statement;
+        private final Statement proxy;
+
+        private TimingStatement(RoutingConnection connection, Statement statement, Class<? extends Statement> statementClass) {
+            this.connection = connection;
+            this.statement = statement;
+            this.proxy = (Statement) Proxy.newProxyInstance(FlexDataSource.class.getClassLoader()
+                    , new Class[]{statementClass}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "getConnection":
+                    return connection.proxy;
+                default:
+                    break;
+            }
+            boolean execute = name.startsWith("execute");
+            long start = execute ? System.nanoTime() : 0;
+            try {
+                return method.invoke(statement, args);
+            } catch (Throwable t) {
+                throw ExceptionUtil.unwrapThrowable(t);
+            } finally {
+                if (execute) {
+                    connection.node.recordLatency(System.nanoTime() - start);
+                }
+            }
+        }
+    }
+
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary.dataSource.getParentLogger();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        return primary.dataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.dataSource.isWrapperFor(iface);
+    }
+}
@@ -37,6 +37,17 @@ public class CommonsDialectImpl implements IDialect {
 
     protected KeywordWrap keywordWrap = KeywordWrap.BACKQUOTE;
     private LimitOffsetProcesser limitOffsetProcesser = LimitOffsetProcesser.MYSQL;
+    private int maxParameterCount = DEFAULT_MAX_PARAMETER_COUNT;
+    private int maxInListSize;
+    private Integer cursorFetchSize;
+    private boolean cursorRequireTransaction;
+    private boolean supportRowValue = true;
+    private SequenceProcesser sequenceProcesser;
+
+    /**
+     * 大部分 jdbc 驱动都能支持 32767 个参数
+     */
+    public static final int DEFAULT_MAX_PARAMETER_COUNT = 32767;
 
     public CommonsDialectImpl() {
     }
@@ -55,6 +66,102 @@ public class CommonsDialectImpl implements IDialect {
         return keywordWrap.wrap(keyword);
     }
 
+    @Override
+    public int getMaxParameterCount() {
+        return maxParameterCount;
+    }
+
+    public void setMaxParameterCount(int maxParameterCount) {
+        this.maxParameterCount = maxParameterCount;
+    }
+
+    @Override
+    public int getMaxInListSize() {
+        return maxInListSize;
+    }
+
+    public void setMaxInListSize(int maxInListSize) {
+        this.maxInListSize = maxInListSize;
+    }
+
+    @Override
+    public Integer getCursorFetchSize(Integer fetchSize) {
+        return cursorFetchSize != null ? cursorFetchSize : fetchSize;
+    }
+
+    public void setCursorFetchSize(Integer cursorFetchSize) {
+        this.cursorFetchSize = cursorFetchSize;
+    }
+
+    @Override
+    public boolean isCursorRequireTransaction() {
+        return cursorRequireTransaction;
+    }
+
+    public void setCursorRequireTransaction(boolean cursorRequireTransaction) {
+        this.cursorRequireTransaction = cursorRequireTransaction;
+    }
+
+    public boolean isSupportRowValue() {
+        return supportRowValue;
+    }
+
+    public void setSupportRowValue(boolean supportRowValue) {
+        this.supportRowValue = supportRowValue;
+    }
+
+    public SequenceProcesser getSequenceProcesser() {
+        return sequenceProcesser;
+    }
+
+    public void setSequenceProcesser(SequenceProcesser sequenceProcesser) {
+        this.sequenceProcesser = sequenceProcesser;
+    }
+
+    @Override
+    public String forSequenceNextValues(String sequence, int count) {
+        return sequenceProcesser != null ? sequenceProcesser.process(sequence, count) : null;
+    }
+
+    @Override
+    public String forKeysetCondition(String[] columns, boolean[] descs) {
+        //(k1, k2) > (?, ?)
+        if (isRowValueKeyset(descs)) {
+            StringJoiner sqlColumns = new StringJoiner(", ", "(", ")");
+            StringJoiner sqlValues = new StringJoiner(", ", "(", ")");
+            for (String column : columns) {
+                sqlColumns.add(column);
+                sqlValues.add("?");
+            }
+            return sqlColumns + (descs[0] ? " < " : " > ") + sqlValues;
+        }
+
+        return IDialect.super.forKeysetCondition(columns, descs);
+    }
+
+    @Override
+    public Object[] forKeysetValues(Object[] values, boolean[] descs) {
+        return isRowValueKeyset(descs) ? values : IDialect.super.forKeysetValues(values, descs);
+    }
+
+    /**
+     * 只有单个字段，或者数据库支持行值比较并且所有字段的排序方向相同时，才使用行值比较
+     */
+    private boolean isRowValueKeyset(boolean[] descs) {
+        if (descs.length == 1) {
+            return true;
+        }
+        if (!supportRowValue) {
+            return false;
+        }
+        for (boolean desc : descs) {
+            if (desc != descs[0]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public String forInsertRow(String tableName, Row row) {
         StringBuilder fields = new StringBuilder();
@@ -130,32 +237,7 @@ public class CommonsDialectImpl implements IDialect {
         sql.append("DELETE FROM ");
         sql.append(wrap(tableName));
         sql.append(" WHERE ");
-
-        //多主键的场景
-        if (primaryKeys.length > 1) {
-            for (int i = 0; i < ids.length / primaryKeys.length; i++) {
-                if (i > 0) {
-                    sql.append(" OR ");
-                }
-                sql.append("(");
-                for (int j = 0; j < primaryKeys.length; j++) {
-                    if (j > 0) {
-                        sql.append(" AND ");
-                    }
-                    sql.append(wrap(primaryKeys[j])).append(" = ?");
-                }
-                sql.append(")");
-            }
-        }
-        // 单主键
-        else {
-            for (int i = 0; i < ids.length; i++) {
-                if (i > 0) {
-                    sql.append(" OR ");
-                }
-                sql.append(wrap(primaryKeys[0])).append(" = ?");
-            }
-        }
+        buildPrimaryKeysInCondition(sql, primaryKeys, ids.length / primaryKeys.length);
         return sql.toString();
     }
 
@@ -239,7 +321,7 @@ public class CommonsDialectImpl implements IDialect {
             if (i > 0) {
                 sql.append(" AND ");
             }
-            sql.append('`').append(primaryKeys[i]).append("` = ?");
+            sql.append(wrap(primaryKeys[i])).append(" = ?");
         }
         return sql.toString();
     }
@@ -447,32 +529,7 @@ public class CommonsDialectImpl implements IDialect {
         sql.append("(");
 
         String[] primaryKeys = tableInfo.getPrimaryKeys();
-
-        //多主键的场景
-        if (primaryKeys.length > 1) {
-            for (int i = 0; i < primaryValues.length / primaryKeys.length; i++) {
-                if (i > 0) {
-                    sql.append(" OR ");
-                }
-                sql.append("(");
-                for (int j = 0; j < primaryKeys.length; j++) {
-                    if (j > 0) {
-                        sql.append(" AND ");
-                    }
-                    sql.append(wrap(primaryKeys[j])).append(" = ?");
-                }
-                sql.append(")");
-            }
-        }
-        // 单主键
-        else {
-            for (int i = 0; i < primaryValues.length; i++) {
-                if (i > 0) {
-                    sql.append(" OR ");
-                }
-                sql.append(wrap(primaryKeys[0])).append(" = ?");
-            }
-        }
+        buildPrimaryKeysInCondition(sql, primaryKeys, primaryValues.length / primaryKeys.length);
 
         if (StringUtil.isNotBlank(logicDeleteColumn)) {
             sql.append(") AND ").append(wrap(logicDeleteColumn)).append(" = ").append(FlexConsts.DEL_STATUS_NORMAL);
@@ -517,9 +574,13 @@ public class CommonsDialectImpl implements IDialect {
 
     @Override
     public String forUpdateEntity(TableInfo tableInfo, Object entity, boolean ignoreNulls) {
+        return forUpdateEntity(tableInfo, entity, ignoreNulls, tableInfo.obtainUpdateColumns(entity, ignoreNulls, false));
+    }
+
+    @Override
+    public String forUpdateEntity(TableInfo tableInfo, Object entity, boolean ignoreNulls, Set<String> modifyAttrs) {
         StringBuilder sql = new StringBuilder();
 
-        Set<String> modifyAttrs = tableInfo.obtainUpdateColumns(entity, ignoreNulls, false);
         String[] primaryKeys = tableInfo.getPrimaryKeys();
 
         sql.append("UPDATE ").append(wrap(tableInfo.getTableName())).append(" SET ");
@@ -656,9 +717,31 @@ public class CommonsDialectImpl implements IDialect {
             sql.append(" AND (");
         }
 
-        //多主键的场景
-        if (primaryKeys.length > 1) {
-            for (int i = 0; i < primaryValues.length / primaryKeys.length; i++) {
+        buildPrimaryKeysInCondition(sql, primaryKeys, primaryValues.length / primaryKeys.length);
+
+        if (StringUtil.isNotBlank(logicDeleteColumn)) {
+            sql.append(")");
+        }
+
+        return sql.toString();
+    }
+
+
+    /**
+     * 构建多个主键值的查询条件
+     * <p>
+     * 单主键：{@code id IN (?, ?, ?)}；
+     * 多主键：支持行值比较时为 {@code (k1, k2) IN ((?, ?), (?, ?))}，否则为 {@code (k1 = ? AND k2 = ?) OR (k1 = ? AND k2 = ?)}；
+     * IN 列表超出 {@link #getMaxInListSize()} 时，拆分为 {@code (id IN (?, ?) OR id IN (?, ?))}
+     *
+     * @param sql         sql
+     * @param primaryKeys 主键
+     * @param rowCount    主键值的组数
+     */
+    protected void buildPrimaryKeysInCondition(StringBuilder sql, String[] primaryKeys, int rowCount) {
+        //多主键且不支持行值比较
+        if (primaryKeys.length > 1 && (!supportRowValue || rowCount == 1)) {
+            for (int i = 0; i < rowCount; i++) {
                 if (i > 0) {
                     sql.append(" OR ");
                 }
@@ -671,22 +754,55 @@ public class CommonsDialectImpl implements IDialect {
                 }
                 sql.append(")");
             }
+            return;
         }
-        // 单主键
-        else {
-            for (int i = 0; i < primaryValues.length; i++) {
-                if (i > 0) {
-                    sql.append(" OR ");
+
+        if (rowCount == 1) {
+            sql.append(wrap(primaryKeys[0])).append(" = ?");
+            return;
+        }
+
+        StringBuilder columns = new StringBuilder();
+        StringBuilder row = new StringBuilder();
+        if (primaryKeys.length == 1) {
+            columns.append(wrap(primaryKeys[0]));
+            row.append('?');
+        } else {
+            columns.append('(');
+            row.append('(');
+            for (int j = 0; j < primaryKeys.length; j++) {
+                if (j > 0) {
+                    columns.append(", ");
+                    row.append(", ");
                 }
-                sql.append(wrap(primaryKeys[0])).append(" = ?");
+                columns.append(wrap(primaryKeys[j]));
+                row.append('?');
             }
+            columns.append(')');
+            row.append(')');
         }
 
-        if (StringUtil.isNotBlank(logicDeleteColumn)) {
-            sql.append(wrap(logicDeleteColumn)).append(" )");
+        int groupSize = maxInListSize > 0 ? maxInListSize : rowCount;
+        if (groupSize < rowCount) {
+            sql.append('(');
+        }
+        for (int offset = 0; offset < rowCount; offset += groupSize) {
+            if (offset > 0) {
+                sql.append(" OR ");
+            }
+            sql.append(columns).append(" IN (");
+            int end = Math.min(rowCount, offset + groupSize);
+            for (int i = offset; i < end; i++) {
+                if (i > offset) {
+                    sql.append(", ");
+                }
+                sql.append(row);
+            }
+            sql.append(')');
+        }
+        if (groupSize < rowCount) {
+            sql.append(')');
         }
-
-        return sql.toString();
     }
 
 
@@ -706,9 +822,10 @@ public class CommonsDialectImpl implements IDialect {
     protected void buildWhereSql(StringBuilder sqlBuilder, QueryWrapper queryWrapper, List<QueryTable> queryTables) {
         QueryCondition whereQueryCondition = CPI.getWhereQueryCondition(queryWrapper);
         if (whereQueryCondition != null) {
-            String whereSql = whereQueryCondition.toSql(queryTables, this);
-            if (StringUtil.isNotBlank(whereSql)) {
-                sqlBuilder.append(" WHERE ").append(whereSql);
+            int length = sqlBuilder.length();
+            sqlBuilder.append(" WHERE ");
+            if (!CPI.appendConditionSql(whereQueryCondition, sqlBuilder, queryTables, this)) {
+                sqlBuilder.setLength(length);
             }
         }
     }
@@ -734,9 +851,10 @@ public class CommonsDialectImpl implements IDialect {
     protected void buildHavingSql(StringBuilder sqlBuilder, QueryWrapper queryWrapper, List<QueryTable> queryTables) {
         QueryCondition havingQueryCondition = CPI.getHavingQueryCondition(queryWrapper);
         if (havingQueryCondition != null) {
-            String havingSql = havingQueryCondition.toSql(queryTables, this);
-            if (StringUtil.isNotBlank(havingSql)) {
-                sqlBuilder.append(" HAVING ").append(havingSql);
+            int length = sqlBuilder.length();
+            sqlBuilder.append(" HAVING ");
+            if (!CPI.appendConditionSql(havingQueryCondition, sqlBuilder, queryTables, this)) {
+                sqlBuilder.setLength(length);
             }
         }
     }
@@ -17,28 +17,30 @@ package com.mybatisflex.core.dialect;
 
 
 import com.mybatisflex.core.FlexGlobalConfig;
-import com.mybatisflex.core.util.ObjectUtil;
-import org.apache.ibatis.util.MapUtil;
-
-import java.util.EnumMap;
-import java.util.Map;
+import com.mybatisflex.core.exception.FlexExceptions;
+import com.mybatisflex.core.mybatis.FlexConfiguration;
+import org.apache.ibatis.session.Configuration;
 
 /**
  * 方言工厂类，用于创建方言
+ * <p>
+ * 方言的读取是无锁的：已创建的方言保存在按 {@link DbType#ordinal()} 索引的数组中，新增或覆盖方言时复制整个数组（copy-on-write）；
+ * Mapper 的 SQL 使用 {@link com.mybatisflex.core.mybatis.FlexConfiguration#getDialect()} 的方言构建，
+ * 通过 {@link #setHintDbType(DbType)} 设置了当前线程的 dbType 时优先使用 hint，否则使用配置绑定的 dbType。
  */
 public class DialectFactory {
 
     /**
      * 数据库类型和方言的映射关系，可以通过其读取指定的方言，亦可能通过其扩展其他方言
-     * 比如，在 mybatis-flex 实现的方言中有 bug 或者 有自己的独立实现，可以添加自己的方言实现到
-     * 此 map 中，用于覆盖系统的方言实现
+     * 比如，在 mybatis-flex 实现的方言中有 bug 或者 有自己的独立实现，可以通过 {@link #registerDialect(DbType, IDialect)}
+     * 添加自己的方言实现，用于覆盖系统的方言实现
      */
-    private static Map<DbType, IDialect> dialectMap = new EnumMap<>(DbType.class);
+    private static volatile IDialect[] dialects = new IDialect[DbType.values().length];
 
     /**
      * 通过设置当前线程的数据库类型，以达到在代码执行时随时切换方言的功能
      */
-    private static ThreadLocal<DbType> dbTypeThreadLocal = new ThreadLocal<>();
+    private static final ThreadLocal<DbType> dbTypeThreadLocal = new ThreadLocal<>();
 
 
     /**
@@ -47,8 +49,53 @@ public class DialectFactory {
      * @return IDialect
      */
     public static IDialect getDialect() {
-        DbType dbType = ObjectUtil.requireNonNullElse(dbTypeThreadLocal.get(), FlexGlobalConfig.getDefaultConfig().getDbType());
-        return MapUtil.computeIfAbsent(dialectMap, dbType, DialectFactory::createDialectByDbType);
+        return getDialect(getDbType());
+    }
+
+    /**
+     * 获取指定数据库类型的方言
+     *
+     * @param dbType 数据库类型
+     * @return IDialect
+     */
+    public static IDialect getDialect(DbType dbType) {
+        if (dbType == null) {
+            throw FlexExceptions.wrap("dbType can not be null, use DialectFactory.getDialect() for the default dialect.");
+        }
+        IDialect dialect = dialects[dbType.ordinal()];
+        return dialect != null ? dialect : createAndRegister(dbType);
+    }
+
+    /**
+     * 获取 mybatis 配置所绑定的方言，不是 FlexConfiguration 时使用默认的方言
+     *
+     * @param configuration mybatis 配置
+     * @return IDialect
+     */
+    public static IDialect getConfigurationDialect(Configuration configuration) {
+        return configuration instanceof FlexConfiguration ? ((FlexConfiguration) configuration).getDialect() : getDialect();
+    }
+
+    /**
+     * 获取当前线程正在使用的 dbType，优先使用 hint 设置的 dbType
+     *
+     * @return dbType
+     */
+    public static DbType getDbType() {
+        DbType dbType = getHintDbType();
+        if (dbType != null) {
+            return dbType;
+        }
+        FlexGlobalConfig defaultConfig = FlexGlobalConfig.getDefaultConfig();
+        if (defaultConfig == null) {
+            //还未创建任何 SqlSessionFactory，和 FlexGlobalConfig 的默认值保持一致
+            return DbType.MYSQL;
+        }
+        if (defaultConfig.getDbType() == null) {
+            throw FlexExceptions.wrap("Can not detect the database type of the default environment, " +
+                    "please set it by FlexConfiguration.setDbType(...) before building the SqlSessionFactory.");
+        }
+        return defaultConfig.getDbType();
     }
 
     /**
@@ -57,6 +104,10 @@ public class DialectFactory {
      * @param dbType
      */
     public static void setHintDbType(DbType dbType) {
+        if (dbType == null) {
+            clearHintDbType();
+            return;
+        }
         dbTypeThreadLocal.set(dbType);
     }
 
@@ -84,15 +135,29 @@ public class DialectFactory {
      * @param dbType  数据库类型
      * @param dialect 方言的实现
      */
-    public static void registerDialect(DbType dbType, IDialect dialect) {
-        dialectMap.put(dbType, dialect);
+    public static synchronized void registerDialect(DbType dbType, IDialect dialect) {
+        IDialect[] newDialects = dialects.clone();
+        newDialects[dbType.ordinal()] = dialect;
+        dialects = newDialects;
+    }
+
+
+    private static synchronized IDialect createAndRegister(DbType dbType) {
+        IDialect dialect = dialects[dbType.ordinal()];
+        if (dialect == null) {
+            dialect = createDialectByDbType(dbType);
+            registerDialect(dbType, dialect);
+        }
+        return dialect;
     }
 
 
     private static IDialect createDialectByDbType(DbType dbType) {
         switch (dbType) {
             case MYSQL:
+                return withCursorFetchSize(new CommonsDialectImpl(KeywordWrap.BACKQUOTE, LimitOffsetProcesser.MYSQL), Integer.MIN_VALUE);
             case H2:
+                return withSequence(new CommonsDialectImpl(KeywordWrap.BACKQUOTE, LimitOffsetProcesser.MYSQL), SequenceProcesser.H2);
             case MARIADB:
             case GBASE:
             case OSCAR:
@@ -105,37 +170,90 @@ public class DialectFactory {
                 return new CommonsDialectImpl(KeywordWrap.BACKQUOTE, LimitOffsetProcesser.MYSQL);
             case ORACLE:
             case DM:
+                return withMaxInListSize(withSequence(withoutRowValue(new CommonsDialectImpl(KeywordWrap.DOUBLE_QUOTATION, LimitOffsetProcesser.ORACLE)), SequenceProcesser.ORACLE), 1000);
             case GAUSS:
-                return new CommonsDialectImpl(KeywordWrap.DOUBLE_QUOTATION, LimitOffsetProcesser.ORACLE);
-            case POSTGRE_SQL:
+                return withoutRowValue(new CommonsDialectImpl(KeywordWrap.DOUBLE_QUOTATION, LimitOffsetProcesser.ORACLE));
             case SQLITE:
-            case HSQL:
+                return withMaxParameterCount(new CommonsDialectImpl(KeywordWrap.DOUBLE_QUOTATION, LimitOffsetProcesser.POSTGRESQL), 999);
+            case POSTGRE_SQL:
             case KINGBASE_ES:
+            case HIGH_GO:
+            case OPENGAUSS:
+                return withSequence(withCursorRequireTransaction(new CommonsDialectImpl(KeywordWrap.DOUBLE_QUOTATION, LimitOffsetProcesser.POSTGRESQL)), SequenceProcesser.POSTGRESQL);
+            case REDSHIFT:
+                return withCursorRequireTransaction(new CommonsDialectImpl(KeywordWrap.DOUBLE_QUOTATION, LimitOffsetProcesser.POSTGRESQL));
+            case HSQL:
             case PHOENIX:
             case SAP_HANA:
             case IMPALA:
-            case HIGH_GO:
             case VERTICA:
-            case REDSHIFT:
-            case OPENGAUSS:
             case TDENGINE:
             case UXDB:
                 return new CommonsDialectImpl(KeywordWrap.DOUBLE_QUOTATION, LimitOffsetProcesser.POSTGRESQL);
             case ORACLE_12C:
+                return withMaxInListSize(withSequence(withoutRowValue(new CommonsDialectImpl(KeywordWrap.DOUBLE_QUOTATION, LimitOffsetProcesser.DERBY)), SequenceProcesser.ORACLE), 1000);
             case FIREBIRD:
-                return new CommonsDialectImpl(KeywordWrap.DOUBLE_QUOTATION, LimitOffsetProcesser.DERBY);
+                return withoutRowValue(new CommonsDialectImpl(KeywordWrap.DOUBLE_QUOTATION, LimitOffsetProcesser.DERBY));
             case SQL_SERVER:
-                return new CommonsDialectImpl(KeywordWrap.SQUARE_BRACKETS, LimitOffsetProcesser.DERBY);
+                return withMaxParameterCount(withoutRowValue(new CommonsDialectImpl(KeywordWrap.SQUARE_BRACKETS, LimitOffsetProcesser.DERBY)), 2000);
             case SQL_SERVER2005:
-                return new CommonsDialectImpl(KeywordWrap.SQUARE_BRACKETS, LimitOffsetProcesser.DB2);
+                return withMaxParameterCount(withoutRowValue(new CommonsDialectImpl(KeywordWrap.SQUARE_BRACKETS, LimitOffsetProcesser.DB2)), 2000);
             case INFORMIX:
-                return new CommonsDialectImpl(KeywordWrap.DOUBLE_QUOTATION, LimitOffsetProcesser.INFORMIX);
+                return withoutRowValue(new CommonsDialectImpl(KeywordWrap.DOUBLE_QUOTATION, LimitOffsetProcesser.INFORMIX));
             case DB2:
-                return new CommonsDialectImpl(KeywordWrap.DOUBLE_QUOTATION, LimitOffsetProcesser.DB2);
+                return withoutRowValue(new CommonsDialectImpl(KeywordWrap.DOUBLE_QUOTATION, LimitOffsetProcesser.DB2));
             case SYBASE:
-                return new CommonsDialectImpl(KeywordWrap.DOUBLE_QUOTATION, LimitOffsetProcesser.SYBASE);
+                return withoutRowValue(new CommonsDialectImpl(KeywordWrap.DOUBLE_QUOTATION, LimitOffsetProcesser.SYBASE));
             default:
                 return new CommonsDialectImpl();
         }
     }
+
+    /**
+     * SqlServer 最多支持 2100 个参数，低版本 SQLite 最多支持 999 个参数
+     */
+    private static CommonsDialectImpl withMaxParameterCount(CommonsDialectImpl dialect, int maxParameterCount) {
+        dialect.setMaxParameterCount(maxParameterCount);
+        return dialect;
+    }
+
+    /**
+     * oracle 以及兼容 oracle 的达梦，IN 列表最多支持 1000 个值（ORA-01795）
+     */
+    private static CommonsDialectImpl withMaxInListSize(CommonsDialectImpl dialect, int maxInListSize) {
+        dialect.setMaxInListSize(maxInListSize);
+        return dialect;
+    }
+
+    /**
+     * mysql 驱动只有在 fetchSize 为 Integer.MIN_VALUE 时才会流式读取数据
+     */
+    private static CommonsDialectImpl withCursorFetchSize(CommonsDialectImpl dialect, int cursorFetchSize) {
+        dialect.setCursorFetchSize(cursorFetchSize);
+        return dialect;
+    }
+
+    /**
+     * postgresql 及其衍生数据库的驱动，只有在关闭 autoCommit 时 fetchSize 才会生效
+     */
+    private static CommonsDialectImpl withCursorRequireTransaction(CommonsDialectImpl dialect) {
+        dialect.setCursorRequireTransaction(true);
+        return dialect;
+    }
+
+    /**
+     * oracle、sqlserver、db2 等数据库不支持 (k1, k2) > (?, ?) 这样的行值比较，keyset 分页时需要展开条件
+     */
+    private static CommonsDialectImpl withoutRowValue(CommonsDialectImpl dialect) {
+        dialect.setSupportRowValue(false);
+        return dialect;
+    }
+
+    /**
+     * 支持一次查询多个序列值的数据库，用于序列值的预取
+     */
+    private static CommonsDialectImpl withSequence(CommonsDialectImpl dialect, SequenceProcesser sequenceProcesser) {
+        dialect.setSequenceProcesser(sequenceProcesser);
+        return dialect;
+    }
 }
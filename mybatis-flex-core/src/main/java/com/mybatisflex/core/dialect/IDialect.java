@@ -20,11 +20,100 @@ import com.mybatisflex.core.row.Row;
 import com.mybatisflex.core.table.TableInfo;
 
 import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
 
 public interface IDialect {
 
     String wrap(String keyword);
 
+    /**
+     * 一条 sql 最多允许的参数数量，批量插入等操作会根据此数量对数据进行分批
+     *
+     * @return 参数的最大数量
+     */
+    default int getMaxParameterCount() {
+        return CommonsDialectImpl.DEFAULT_MAX_PARAMETER_COUNT;
+    }
+
+    /**
+     * IN 列表中最多允许的值数量，超出时拆分为多组 IN 条件，0 表示不限制
+     *
+     * @return IN 列表的最大长度
+     */
+    default int getMaxInListSize() {
+        return 0;
+    }
+
+    /**
+     * cursor（流式）查询时使用的 fetchSize，返回 null 时使用配置的 fetchSize
+     * 例如 mysql 只有 fetchSize 为 Integer.MIN_VALUE 时才会逐行读取数据
+     *
+     * @param fetchSize 配置的 fetchSize
+     * @return 实际使用的 fetchSize
+     */
+    default Integer getCursorFetchSize(Integer fetchSize) {
+        return fetchSize;
+    }
+
+    /**
+     * cursor 查询时是否需要关闭 autoCommit，例如 postgresql 在 autoCommit 开启时会忽略 fetchSize，一次性读取全部数据
+     */
+    default boolean isCursorRequireTransaction() {
+        return false;
+    }
+
+    /**
+     * 构建 keyset 分页的条件，默认展开为：(k1 > ? OR (k1 = ? AND k2 > ?))
+     * 支持行值比较的数据库可以使用：(k1, k2) > (?, ?)
+     *
+     * @param columns 排序字段
+     * @param descs   排序字段是否为倒序
+     * @return 条件 sql
+     */
+    default String forKeysetCondition(String[] columns, boolean[] descs) {
+        //(k1 > ? OR (k1 = ? AND k2 > ?))
+        StringJoiner sql = new StringJoiner(" OR ", "(", ")");
+        for (int i = 0; i < columns.length; i++) {
+            StringJoiner item = new StringJoiner(" AND ", i > 0 ? "(" : "", i > 0 ? ")" : "");
+            for (int j = 0; j < i; j++) {
+                item.add(columns[j] + " = ?");
+            }
+            item.add(columns[i] + (descs[i] ? " < ?" : " > ?"));
+            sql.add(item.toString());
+        }
+        return sql.toString();
+    }
+
+    /**
+     * 构建 keyset 分页条件的参数，需要和 {@link #forKeysetCondition(String[], boolean[])} 的问号保持一致
+     *
+     * @param values 上一页最后一条数据的排序字段值
+     * @param descs  排序字段是否为倒序
+     * @return 参数
+     */
+    default Object[] forKeysetValues(Object[] values, boolean[] descs) {
+        Object[] expandedValues = new Object[values.length * (values.length + 1) / 2];
+        int index = 0;
+        for (int i = 0; i < values.length; i++) {
+            for (int j = 0; j <= i; j++) {
+                expandedValues[index++] = values[j];
+            }
+        }
+        return expandedValues;
+    }
+
+    /**
+     * 构建一次查询 count 个序列值的 sql
+     *
+     * @param sequence 序列名称
+     * @param count    序列值数量
+     * @return sql，当前数据库不支持时返回 null
+     */
+    default String forSequenceNextValues(String sequence, int count) {
+        return null;
+    }
+
     String forInsertRow(String tableName, Row row);
 
     String forInsertBatchWithFirstRowColumns(String tableName, List<Row> rows);
@@ -71,6 +160,15 @@ public interface IDialect {
 
     String forUpdateEntity(TableInfo tableInfo, Object entity, boolean ignoreNulls);
 
+    /**
+     * 使用已经计算好的 update 列构建 sql，避免再次计算
+     *
+     * @param updateColumns {@link TableInfo#obtainUpdateColumns(Object, boolean, boolean)} 的结果
+     */
+    default String forUpdateEntity(TableInfo tableInfo, Object entity, boolean ignoreNulls, Set<String> updateColumns) {
+        return forUpdateEntity(tableInfo, entity, ignoreNulls);
+    }
+
     String forUpdateEntityByQuery(TableInfo tableInfo, Object entity, boolean ignoreNulls, QueryWrapper queryWrapper);
 
     String forSelectOneEntityById(TableInfo tableInfo);
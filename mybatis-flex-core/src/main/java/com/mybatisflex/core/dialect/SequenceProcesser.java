@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.dialect;
+
+/**
+ * 序列（sequence）的处理器，用于构建一次查询多个序列值的 sql
+ */
+public interface SequenceProcesser {
+
+    /**
+     * 构建查询 count 个序列值的 sql，查询结果的每一行为一个序列值
+     *
+     * @param sequence 序列名称
+     * @param count    序列值数量
+     * @return sql
+     */
+    String process(String sequence, int count);
+
+
+    /**
+     * Oracle 的处理器
+     * 适合  {@link DbType#ORACLE,DbType#ORACLE_12C,DbType#DM}
+     */
+    SequenceProcesser ORACLE = (sequence, count) ->
+            "SELECT " + sequence + ".NEXTVAL FROM DUAL CONNECT BY LEVEL <= " + count;
+
+    /**
+     * Postgresql 的处理器
+     * 适合  {@link DbType#POSTGRE_SQL,DbType#KINGBASE_ES,DbType#HIGH_GO,DbType#OPENGAUSS}
+     */
+    SequenceProcesser POSTGRESQL = (sequence, count) ->
+            "SELECT nextval('" + sequence + "') FROM generate_series(1, " + count + ")";
+
+    /**
+     * H2 的处理器
+     * 适合  {@link DbType#H2}
+     */
+    SequenceProcesser H2 = (sequence, count) ->
+            "SELECT NEXT VALUE FOR " + sequence + " FROM SYSTEM_RANGE(1, " + count + ")";
+}
@@ -0,0 +1,192 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.javassist;
+
+import com.mybatisflex.core.table.EntityAccessor;
+import com.mybatisflex.core.table.EntityAccessorFactory;
+import com.mybatisflex.core.table.ReflectorEntityAccessor;
+import com.mybatisflex.core.table.TableInfo;
+import com.mybatisflex.core.table.TableInfoDescriptor;
+import com.mybatisflex.core.util.StringUtil;
+import org.apache.ibatis.javassist.ClassClassPath;
+import org.apache.ibatis.javassist.ClassPool;
+import org.apache.ibatis.javassist.CtClass;
+import org.apache.ibatis.javassist.CtNewConstructor;
+import org.apache.ibatis.javassist.CtNewMethod;
+import org.apache.ibatis.javassist.LoaderClassPath;
+import org.apache.ibatis.logging.LogFactory;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 通过 javassist 为每个 entity 生成一个 EntityAccessor 的实现类，
+ * 生成的类直接调用 entity 的 getter 和 setter 方法，没有任何反射
+ * <p>
+ * 当 entity 不是 public 的时候，降级为 {@link ReflectorEntityAccessor}；
+ * 某个属性没有 public 的 getter/setter 时，该属性交由 ReflectorEntityAccessor 处理
+ */
+public class JavassistEntityAccessorFactory implements EntityAccessorFactory {
+
+    private static final String CLASS_NAME_SUFFIX = "$$FlexEntityAccessor";
+    private static final AtomicInteger classCounter = new AtomicInteger();
+
+    @Override
+    public EntityAccessor create(TableInfo tableInfo) {
+        Class<?> entityClass = tableInfo.getEntityClass();
+        Method[] getters = new Method[tableInfo.getProperties().length];
+        Method[] setters = new Method[getters.length];
+        if (Modifier.isPublic(entityClass.getModifiers())) {
+            findAccessMethods(tableInfo, getters, setters);
+            if (isAllNull(getters) && isAllNull(setters)) {
+                return new ReflectorEntityAccessor(tableInfo);
+            }
+            try {
+                return generate(tableInfo, getters, setters);
+            } catch (Throwable e) {
+                LogFactory.getLog(JavassistEntityAccessorFactory.class)
+                        .debug("Can not generate EntityAccessor for entity: " + entityClass.getName() + ", " + e);
+            }
+        }
+        return new ReflectorEntityAccessor(tableInfo);
+    }
+
+
+    private void findAccessMethods(TableInfo tableInfo, Method[] getters, Method[] setters) {
+        Class<?> entityClass = tableInfo.getEntityClass();
+        String[] properties = tableInfo.getProperties();
+        Class<?>[] propertyTypes = tableInfo.getPropertyTypes();
+        for (int i = 0; i < properties.length; i++) {
+            String name = StringUtil.firstCharToUpperCase(properties[i]);
+            Class<?> type = propertyTypes[i];
+
+            Method getter = type == boolean.class ? findMethod(entityClass, "is" + name) : null;
+            if (getter == null) {
+                getter = findMethod(entityClass, "get" + name);
+            }
+            if (getter != null && getter.getReturnType() == type) {
+                getters[i] = getter;
+            }
+            setters[i] = findMethod(entityClass, "set" + name, type);
+        }
+    }
+
+
+    private static boolean isAllNull(Method[] methods) {
+        for (Method method : methods) {
+            if (method != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private Method findMethod(Class<?> entityClass, String name, Class<?>... parameterTypes) {
+        try {
+            Method method = entityClass.getMethod(name, parameterTypes);
+            if (Modifier.isStatic(method.getModifiers()) || !Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+                return null;
+            }
+            return method;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+
+    /**
+     * 生成的类继承 {@link TableInfoDescriptor.GeneratedEntityAccessor}，没有 public getter/setter 的属性
+     * 在第一次访问时才创建 ReflectorEntityAccessor
+     */
+    private EntityAccessor generate(TableInfo tableInfo, Method[] getters, Method[] setters) throws Exception {
+        Class<?> entityClass = tableInfo.getEntityClass();
+        ClassPool pool = new ClassPool(true);
+        pool.appendClassPath(new ClassClassPath(EntityAccessor.class));
+        if (entityClass.getClassLoader() != null) {
+            pool.appendClassPath(new LoaderClassPath(entityClass.getClassLoader()));
+        }
+
+        String className = entityClass.getName() + CLASS_NAME_SUFFIX + classCounter.incrementAndGet();
+        CtClass ctClass = pool.makeClass(className);
+        ctClass.setSuperclass(pool.get(TableInfoDescriptor.GeneratedEntityAccessor.class.getName()));
+        ctClass.addConstructor(CtNewConstructor.make("public " + ctClass.getSimpleName()
+                + "(" + TableInfo.class.getName() + " tableInfo) { super($1); }", ctClass));
+
+        String entityType = entityClass.getName();
+
+        StringBuilder getMethod = new StringBuilder();
+        getMethod.append("public Object get(Object entity, int index) {");
+        getMethod.append(entityType).append(" e = (").append(entityType).append(") $1;");
+        getMethod.append("switch ($2) {");
+        for (int i = 0; i < getters.length; i++) {
+            if (getters[i] == null) {
+                continue;
+            }
+            getMethod.append("case ").append(i).append(": return ($w) e.").append(getters[i].getName()).append("();");
+        }
+        getMethod.append("} return fallback().get($1, $2); }");
+
+        StringBuilder setMethod = new StringBuilder();
+        setMethod.append("public void set(Object entity, int index, Object value) {");
+        setMethod.append(entityType).append(" e = (").append(entityType).append(") $1;");
+        setMethod.append("switch ($2) {");
+        for (int i = 0; i < setters.length; i++) {
+            if (setters[i] == null) {
+                continue;
+            }
+            Class<?> type = setters[i].getParameterTypes()[0];
+            setMethod.append("case ").append(i).append(": ");
+            if (type.isPrimitive()) {
+                //只直接处理对应的包装类型，null 以及其他类型交给 fallback，与反射一样只允许拓宽转换，否则抛出异常
+                String wrapperType = wrapperTypeName(type);
+                setMethod.append("if ($3 instanceof ").append(wrapperType).append(") { e.").append(setters[i].getName())
+                        .append("(((").append(wrapperType).append(") $3).").append(type.getName()).append("Value()); return; } fallback().set($1, $2, $3); return;");
+            } else {
+                setMethod.append("e.").append(setters[i].getName())
+                        .append("((").append(typeName(type)).append(") $3); return;");
+            }
+        }
+        setMethod.append("} fallback().set($1, $2, $3); }");
+
+        ctClass.addMethod(CtNewMethod.make(getMethod.toString(), ctClass));
+        ctClass.addMethod(CtNewMethod.make(setMethod.toString(), ctClass));
+
+        Class<?> accessorClass = ctClass.toClass(entityClass);
+        ctClass.detach();
+
+        return (EntityAccessor) accessorClass.getDeclaredConstructor(TableInfo.class).newInstance(tableInfo);
+    }
+
+
+    private static String wrapperTypeName(Class<?> type) {
+        if (type == boolean.class) {
+            return "java.lang.Boolean";
+        } else if (type == char.class) {
+            return "java.lang.Character";
+        } else if (type == int.class) {
+            return "java.lang.Integer";
+        } else {
+            return "java.lang." + StringUtil.firstCharToUpperCase(type.getName());
+        }
+    }
+
+
+    private static String typeName(Class<?> type) {
+        return type.isArray() ? typeName(type.getComponentType()) + "[]" : type.getName();
+    }
+}
@@ -0,0 +1,245 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.javassist;
+
+import com.mybatisflex.core.table.TableInfo;
+import com.mybatisflex.core.table.TableInfos;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * 每个实例独立的修改记录
+ * <p>
+ * 对于 entity，使用 {@link TableInfo#getPropertyIndex(String)} 作为下标，记录在 long[] 位图中，遍历时按字段的顺序输出；
+ * 对于 row 以及不属于 TableInfo 的属性，则按名称记录。
+ * <p>
+ * 返回的是实时视图，非线程安全，和其所属的对象一样，不应在多个线程中同时修改。
+ */
+public class ModifyAttrs extends AbstractSet<String> implements Serializable {
+
+    private final Class<?> entityClass;
+    private transient TableInfo tableInfo;
+
+    private long[] bits;
+    private int bitCount;
+    private Set<String> names;
+
+
+    /**
+     * 按名称记录修改的字段，用于 row
+     */
+    public ModifyAttrs() {
+        this.entityClass = null;
+    }
+
+    /**
+     * 按 entity 属性的下标记录修改的属性
+     *
+     * @param entityClass entity 类
+     */
+    public ModifyAttrs(Class<?> entityClass) {
+        this.entityClass = entityClass;
+    }
+
+    /**
+     * 按 entity 属性的下标记录修改的属性
+     *
+     * @param tableInfo entity 的 TableInfo
+     */
+    public ModifyAttrs(TableInfo tableInfo) {
+        this.entityClass = tableInfo.getEntityClass();
+        this.tableInfo = tableInfo;
+    }
+
+
+    @Override
+    public boolean add(String attr) {
+        int index = indexOf(attr);
+        if (index < 0) {
+            if (names == null) {
+                names = new LinkedHashSet<>();
+            }
+            return names.add(attr);
+        }
+        return addIndex(index);
+    }
+
+    /**
+     * 直接通过属性的下标记录修改，用于生成的代理类的 setter 方法
+     *
+     * @param index 属性在 {@link TableInfo#getProperties()} 中的下标
+     * @return 之前未被记录时返回 true
+     */
+    public boolean addIndex(int index) {
+        int word = index >>> 6;
+        if (bits == null) {
+            bits = new long[(getTableInfo().getProperties().length + 63) >>> 6];
+        }
+        long mask = 1L << index;
+        if ((bits[word] & mask) != 0) {
+            return false;
+        }
+        bits[word] |= mask;
+        bitCount++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object attr) {
+        int index = indexOf(attr);
+        if (index < 0) {
+            return names != null && names.remove(attr);
+        }
+        return clearBit(index);
+    }
+
+    @Override
+    public boolean contains(Object attr) {
+        int index = indexOf(attr);
+        if (index < 0) {
+            return names != null && names.contains(attr);
+        }
+        return bits != null && (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    @Override
+    public void clear() {
+        if (bitCount > 0) {
+            Arrays.fill(bits, 0L);
+            bitCount = 0;
+        }
+        if (names != null) {
+            names.clear();
+        }
+    }
+
+    @Override
+    public int size() {
+        return names == null ? bitCount : bitCount + names.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new AttrIterator();
+    }
+
+
+    private int indexOf(Object attr) {
+        if (entityClass == null || !(attr instanceof String)) {
+            return -1;
+        }
+        return getTableInfo().getPropertyIndex((String) attr);
+    }
+
+    private TableInfo getTableInfo() {
+        if (tableInfo == null) {
+            tableInfo = TableInfos.ofEntityClass(entityClass);
+        }
+        return tableInfo;
+    }
+
+    private boolean clearBit(int index) {
+        long mask = 1L << index;
+        if (bits == null || (bits[index >>> 6] & mask) == 0) {
+            return false;
+        }
+        bits[index >>> 6] &= ~mask;
+        bitCount--;
+        return true;
+    }
+
+    private int nextSetBit(int from) {
+        if (bits == null) {
+            return -1;
+        }
+        int word = from >>> 6;
+        if (word >= bits.length) {
+            return -1;
+        }
+        long value = bits[word] & (-1L << from);
+        while (true) {
+            if (value != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(value);
+            }
+            if (++word == bits.length) {
+                return -1;
+            }
+            value = bits[word];
+        }
+    }
+
+
+    /**
+     * 先按下标的顺序遍历位图，再遍历按名称记录的字段
+     */
+    private class AttrIterator implements Iterator<String> {
+
+        private int nextIndex = nextSetBit(0);
+        private int lastIndex = -1;
+        private Iterator<String> namesIterator;
+
+        @Override
+        public boolean hasNext() {
+            if (nextIndex >= 0) {
+                return true;
+            }
+            if (namesIterator == null) {
+                if (names == null) {
+                    return false;
+                }
+                namesIterator = names.iterator();
+            }
+            return namesIterator.hasNext();
+        }
+
+        @Override
+        public String next() {
+            if (nextIndex >= 0) {
+                lastIndex = nextIndex;
+                nextIndex = nextSetBit(nextIndex + 1);
+                return getTableInfo().getProperties()[lastIndex];
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastIndex = -1;
+            return namesIterator.next();
+        }
+
+        @Override
+        public void remove() {
+            if (lastIndex >= 0) {
+                clearBit(lastIndex);
+                lastIndex = -1;
+            } else if (namesIterator != null) {
+                namesIterator.remove();
+            } else {
+                throw new IllegalStateException();
+            }
+        }
+    }
+}
@@ -16,32 +16,29 @@
 package com.mybatisflex.core.javassist;
 
 import java.io.Serializable;
-import java.util.LinkedHashSet;
 import java.util.Set;
 
 public interface ModifyAttrsRecord extends Serializable {
 
     /**
+     * 获取当前对象修改过的属性，返回的是当前对象自己的实时记录（{@link ModifyAttrs}），而非副本
+     * <p>
      * 注意：
      * 对于 entity 来说，这里存放的只是 属性的名称，而非字段
      * 对于 row 来说，存放的则是 字段 名称
      */
-    Set<String> modifyAttrs = new LinkedHashSet<>();
+    Set<String> obtainModifyAttrs();
 
     default void addModifyAttr(String attr) {
-        modifyAttrs.add(attr);
+        obtainModifyAttrs().add(attr);
     }
 
     default void removeModifyAttr(String attr) {
-        modifyAttrs.remove(attr);
-    }
-
-    default Set<String> obtainModifyAttrs() {
-        return new LinkedHashSet<>(modifyAttrs);
+        obtainModifyAttrs().remove(attr);
     }
 
     default void clearModifyFlag() {
-        modifyAttrs.clear();
+        obtainModifyAttrs().clear();
     }
 
 
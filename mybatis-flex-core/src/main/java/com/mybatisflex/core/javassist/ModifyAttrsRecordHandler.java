@@ -16,6 +16,7 @@
 package com.mybatisflex.core.javassist;
 
 
+import com.mybatisflex.core.table.TableInfo;
 import com.mybatisflex.core.util.StringUtil;
 import org.apache.ibatis.javassist.util.proxy.MethodHandler;
 
@@ -24,10 +25,23 @@ import java.lang.reflect.Method;
 
 public class ModifyAttrsRecordHandler implements MethodHandler {
 
+    /**
+     * 每个代理对象都有自己的 handler，修改记录也就不会在对象之间共享
+     */
+    private final ModifyAttrs modifyAttrs;
+
+    public ModifyAttrsRecordHandler(TableInfo tableInfo) {
+        this.modifyAttrs = new ModifyAttrs(tableInfo);
+    }
+
 
     @Override
     public Object invoke(Object self, Method originalMethod, Method proxyMethod, Object[] args) throws Throwable {
 
+        if (originalMethod.getDeclaringClass() == ModifyAttrsRecord.class) {
+            return invokeRecordMethod(originalMethod.getName(), args);
+        }
+
         if (originalMethod.getName().startsWith("set")){
             String property = StringUtil.firstCharToLowerCase(originalMethod.getName().substring(3));
             ((ModifyAttrsRecord) self).addModifyAttr(property);
@@ -37,6 +51,23 @@ public class ModifyAttrsRecordHandler implements MethodHandler {
     }
 
 
+    private Object invokeRecordMethod(String methodName, Object[] args) {
+        switch (methodName) {
+            case "addModifyAttr":
+                modifyAttrs.add((String) args[0]);
+                return null;
+            case "removeModifyAttr":
+                modifyAttrs.remove(args[0]);
+                return null;
+            case "clearModifyFlag":
+                modifyAttrs.clear();
+                return null;
+            default:
+                return modifyAttrs;
+        }
+    }
+
+
 
 
 }
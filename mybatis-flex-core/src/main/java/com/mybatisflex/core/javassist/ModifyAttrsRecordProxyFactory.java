@@ -15,17 +15,45 @@
  */
 package com.mybatisflex.core.javassist;
 
+import com.mybatisflex.core.table.TableInfo;
+import com.mybatisflex.core.table.TableInfos;
+import com.mybatisflex.core.util.StringUtil;
+import org.apache.ibatis.javassist.ClassClassPath;
+import org.apache.ibatis.javassist.ClassPool;
+import org.apache.ibatis.javassist.CtClass;
+import org.apache.ibatis.javassist.CtField;
+import org.apache.ibatis.javassist.CtNewConstructor;
+import org.apache.ibatis.javassist.CtNewMethod;
+import org.apache.ibatis.javassist.LoaderClassPath;
 import org.apache.ibatis.javassist.util.proxy.ProxyFactory;
 import org.apache.ibatis.javassist.util.proxy.ProxyObject;
 import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.util.MapUtil;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
-
+/**
+ * 创建用于记录修改属性的 entity 代理对象
+ * <p>
+ * 每个 entity 只会生成一次代理类：生成的类直接继承 entity，其 setter 方法在调用 super.setXxx 之后，
+ * 直接按预先计算好的下标记录修改，没有反射和字符串处理；
+ * 当 entity 不是 public 或者没有 public 的无参构造方法时，降级为 javassist 的 ProxyFactory + {@link ModifyAttrsRecordHandler}
+ */
 public class ModifyAttrsRecordProxyFactory {
 
+    private static final String CLASS_NAME_SUFFIX = "_$$_FlexModifyAttrsRecord";
+    private static final AtomicInteger classCounter = new AtomicInteger();
+
     private static ModifyAttrsRecordProxyFactory instance = new ModifyAttrsRecordProxyFactory();
 
+    private final Map<Class<?>, ProxyClass> proxyClasses = new ConcurrentHashMap<>();
+
     public static ModifyAttrsRecordProxyFactory getInstance(){
         return instance;
     }
@@ -33,29 +61,126 @@ public class ModifyAttrsRecordProxyFactory {
     private ModifyAttrsRecordProxyFactory(){}
 
     public <T> T get(Class<T> target) {
+        ProxyClass proxyClass = MapUtil.computeIfAbsent(proxyClasses, target, this::createProxyClass);
+
+        T proxyObject = null;
+        try {
+            proxyObject = (T) proxyClass.constructor.newInstance();
+            if (proxyObject instanceof ProxyObject) {
+                ((ProxyObject) proxyObject).setHandler(new ModifyAttrsRecordHandler(proxyClass.tableInfo));
+            }
+        } catch (Throwable e) {
+            LogFactory.getLog(ModifyAttrsRecordProxyFactory.class).error(e.toString(),e);
+        }
+
+        return proxyObject;
+    }
+
+
+    private ProxyClass createProxyClass(Class<?> target) {
+        TableInfo tableInfo = TableInfos.ofEntityClass(target);
+        if (Modifier.isPublic(target.getModifiers()) && !Modifier.isFinal(target.getModifiers())) {
+            try {
+                return new ProxyClass(generate(target, tableInfo), tableInfo);
+            } catch (Throwable e) {
+                LogFactory.getLog(ModifyAttrsRecordProxyFactory.class)
+                        .debug("Can not generate ModifyAttrsRecord class for entity: " + target.getName() + ", " + e);
+            }
+        }
+
         ProxyFactory factory = new ProxyFactory();
         factory.setSuperclass(target);
 
-
         Class<?>[] interfaces = Arrays.copyOf(target.getInterfaces(), target.getInterfaces().length + 1);
         interfaces[interfaces.length - 1] = ModifyAttrsRecord.class;
         factory.setInterfaces(interfaces);
 
-        final Class<?> proxyClass = factory.createClass();
+        return new ProxyClass(factory.createClass(), tableInfo);
+    }
 
-        T proxyObject = null;
-        try {
-            proxyObject = (T) proxyClass.newInstance();
-            ((ProxyObject) proxyObject).setHandler(new ModifyAttrsRecordHandler());
-        } catch (Throwable e) {
-            LogFactory.getLog(ModifyAttrsRecordProxyFactory.class).error(e.toString(),e);
+
+    private Class<?> generate(Class<?> target, TableInfo tableInfo) throws Exception {
+        target.getConstructor();
+
+        ClassPool pool = new ClassPool(true);
+        pool.appendClassPath(new ClassClassPath(ModifyAttrsRecord.class));
+        if (target.getClassLoader() != null) {
+            pool.appendClassPath(new LoaderClassPath(target.getClassLoader()));
         }
 
-        return proxyObject;
+        String className = target.getName() + CLASS_NAME_SUFFIX + classCounter.incrementAndGet();
+        CtClass ctClass = pool.makeClass(className, pool.get(target.getName()));
+        ctClass.addInterface(pool.get(ModifyAttrsRecord.class.getName()));
+
+        String modifyAttrsType = ModifyAttrs.class.getName();
+        ctClass.addField(CtField.make("public static " + TableInfo.class.getName() + " __tableInfo;", ctClass));
+        ctClass.addField(CtField.make("private final " + modifyAttrsType + " __modifyAttrs = new "
+                + modifyAttrsType + "(__tableInfo);", ctClass));
+        ctClass.addConstructor(CtNewConstructor.defaultConstructor(ctClass));
+        ctClass.addMethod(CtNewMethod.make("public java.util.Set obtainModifyAttrs() { return __modifyAttrs; }", ctClass));
+
+        for (Method method : target.getMethods()) {
+            if (!isSetter(method)) {
+                continue;
+            }
+
+            String property = StringUtil.firstCharToLowerCase(method.getName().substring(3));
+            int index = tableInfo.getPropertyIndex(property);
+            //entity 的构造方法中调用 setter 时 __modifyAttrs 还未初始化，与 ProxyFactory 一样不记录构造时的修改
+            String mark = index >= 0 ? "if (__modifyAttrs != null) __modifyAttrs.addIndex(" + index + ");"
+                    : "if (__modifyAttrs != null) __modifyAttrs.add(\"" + property + "\");";
+
+            Class<?> returnType = method.getReturnType();
+            StringBuilder setter = new StringBuilder("public ");
+            setter.append(typeName(returnType)).append(' ').append(method.getName())
+                    .append('(').append(typeName(method.getParameterTypes()[0])).append(" value) {");
+            if (returnType == void.class) {
+                setter.append("super.").append(method.getName()).append("($1);").append(mark).append('}');
+            } else {
+                setter.append(typeName(returnType)).append(" result = super.").append(method.getName()).append("($1);")
+                        .append(mark).append("return result;}");
+            }
+            ctClass.addMethod(CtNewMethod.make(setter.toString(), ctClass));
+        }
+
+        Class<?> proxyClass = ctClass.toClass(target);
+        ctClass.detach();
+
+        proxyClass.getField("__tableInfo").set(null, tableInfo);
+        return proxyClass;
     }
 
 
-}
+    private static boolean isSetter(Method method) {
+        int modifiers = method.getModifiers();
+        return method.getName().startsWith("set")
+                && method.getName().length() > 3
+                && method.getParameterCount() == 1
+                && !method.isBridge()
+                && !method.isSynthetic()
+                && !Modifier.isStatic(modifiers)
+                && !Modifier.isFinal(modifiers)
+                && method.getDeclaringClass() != Object.class
+                && Modifier.isPublic(method.getDeclaringClass().getModifiers());
+    }
 
 
+    private static String typeName(Class<?> type) {
+        return type.isArray() ? typeName(type.getComponentType()) + "[]" : type.getName();
+    }
+
 
+    private static class ProxyClass {
+        private final Constructor<?> constructor;
+        private final TableInfo tableInfo;
+
+        private ProxyClass(Class<?> proxyClass, TableInfo tableInfo) {
+            try {
+                this.constructor = proxyClass.getConstructor();
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+            this.tableInfo = tableInfo;
+        }
+    }
+}
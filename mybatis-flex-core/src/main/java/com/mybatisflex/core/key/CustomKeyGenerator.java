@@ -75,6 +75,11 @@ public class CustomKeyGenerator implements KeyGenerator {
 
 
     public Object convert(Object value, Class<?> targetClass) {
+        return convertValue(value, targetClass);
+    }
+
+
+    static Object convertValue(Object value, Class<?> targetClass) {
         if (value == null || (value.getClass() == String.class && StringUtil.isBlank((String) value)
                 && targetClass != String.class)) {
             return null;
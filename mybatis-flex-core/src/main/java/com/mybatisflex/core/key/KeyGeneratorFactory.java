@@ -15,19 +15,25 @@
  */
 package com.mybatisflex.core.key;
 
+import com.mybatisflex.core.key.impl.SegmentKeyGenerator;
+import com.mybatisflex.core.key.impl.SnowFlakeKeyGenerator;
+import com.mybatisflex.core.key.impl.ULIDKeyGenerator;
 import com.mybatisflex.core.key.impl.UUIDKeyGenerator;
+import com.mybatisflex.core.util.CollectionUtil;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class KeyGeneratorFactory {
 
-    private static final Map<String, IKeyGenerator> KEY_GENERATOR_MAP = new HashMap<>();
+    private static final Map<String, IKeyGenerator> KEY_GENERATOR_MAP = new ConcurrentHashMap<>();
     static {
         /** 内置了 uuid 的生成器，因此主键配置的时候可以直接配置为 @Id(keyType = KeyType.Generator, value = "uuid")
          * {@link com.mybatisflex.annotation.Id}
          */
-        register("uuid", new UUIDKeyGenerator());
+        register(KeyGenerators.uuid, new UUIDKeyGenerator());
+        register(KeyGenerators.ulid, new ULIDKeyGenerator());
+        register(KeyGenerators.segment, new SegmentKeyGenerator());
     }
 
 
@@ -38,7 +44,13 @@ public class KeyGeneratorFactory {
      * @return
      */
     public static IKeyGenerator getKeyGenerator(String name) {
-        return KEY_GENERATOR_MAP.get(name.trim());
+        String key = name.trim();
+        IKeyGenerator keyGenerator = KEY_GENERATOR_MAP.get(key);
+        //雪花算法的默认实例在第一次使用时才创建，未配置 workerId 和 dataCenterId 时会输出警告
+        if (keyGenerator == null && KeyGenerators.snowFlakeId.equals(key)) {
+            keyGenerator = CollectionUtil.computeIfAbsent(KEY_GENERATOR_MAP, key, k -> new SnowFlakeKeyGenerator());
+        }
+        return keyGenerator;
     }
 
 
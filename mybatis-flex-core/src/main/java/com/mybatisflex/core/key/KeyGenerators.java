@@ -0,0 +1,49 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.key;
+
+/**
+ * 内置主键生成器的名称，用于 @Id(keyType = KeyType.Generator, value = KeyGenerators.snowFlakeId)
+ * {@link com.mybatisflex.annotation.Id}
+ */
+public class KeyGenerators {
+
+    private KeyGenerators() {
+    }
+
+    /**
+     * 32 位的 uuid（不含 "-"）
+     */
+    public static final String uuid = "uuid";
+
+    /**
+     * 雪花算法生成的 long 类型 id
+     * <p>
+     * 集群部署时需要为每个节点配置不同的 workerId 和 dataCenterId，
+     * 参考 {@link com.mybatisflex.core.key.impl.SnowFlakeKeyGenerator#SnowFlakeKeyGenerator()}
+     */
+    public static final String snowFlakeId = "snowFlakeId";
+
+    /**
+     * 单调递增的 26 位 ULID 字符串
+     */
+    public static final String ulid = "ulid";
+
+    /**
+     * 号段模式（HiLo），从数据库中批量获取 long 类型 id
+     */
+    public static final String segment = "segment";
+}
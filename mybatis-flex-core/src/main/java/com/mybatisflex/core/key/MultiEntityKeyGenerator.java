@@ -40,6 +40,11 @@ public class MultiEntityKeyGenerator implements KeyGenerator {
     public void processBefore(Executor executor, MappedStatement ms, Statement stmt, Object parameter) {
         List<Object> entities = (List<Object>) ((Map) parameter).get(FlexConsts.ENTITIES);
         if (CollectionUtil.isNotEmpty(entities)) {
+            //序列主键一次获取所有数据需要的序列值
+            if (keyGenerator instanceof SequenceKeyGenerator) {
+                ((SequenceKeyGenerator) keyGenerator).processBatchBefore(executor, entities);
+                return;
+            }
             for (Object entity : entities) {
                 ((Map) parameter).put(FlexConsts.ENTITY, entity);
                 keyGenerator.processBefore(executor, ms, stmt, parameter);
@@ -75,6 +75,10 @@ public class MybatisKeyGeneratorUtil {
                     , tableInfo.getEntityClass().getName());
         }
 
+        //配置的是序列名称，预取序列值
+        if (SequenceKeyGenerator.isSequenceName(sequence)) {
+            return new SequenceKeyGenerator(ms.getConfiguration(), tableInfo, idInfo);
+        }
 
         String selectId = ms.getId() + SelectKeyGenerator.SELECT_KEY_SUFFIX;
         SqlSource sqlSource = ms.getLang().createSqlSource(ms.getConfiguration(), sequence.trim(), idInfo.getPropertyType());
@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.key;
+
+import com.mybatisflex.core.FlexConsts;
+import com.mybatisflex.core.FlexGlobalConfig;
+import com.mybatisflex.core.dialect.DialectFactory;
+import com.mybatisflex.core.exception.FlexExceptions;
+import com.mybatisflex.core.mybatis.FlexConfiguration;
+import com.mybatisflex.core.table.IdInfo;
+import com.mybatisflex.core.table.TableInfo;
+import com.mybatisflex.core.util.CollectionUtil;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 预取序列值的主键生成器
+ * 当主键类型配置为 KeyType#Sequence，并且 value 配置的是序列名称（而不是 sql）时，使用此生成器生成，例如：
+ * <pre>
+ * &#64;Id(keyType = KeyType.Sequence, value = "SEQ_USER_ID")
+ * </pre>
+ * 每次通过一条 sql 从数据库中获取 {@link FlexGlobalConfig#getSequenceCacheSize()} 个序列值并缓存在当前 JVM 中，
+ * 同一个 Configuration 中同一个序列的缓存被所有的 MappedStatement 共享，不同的 Configuration（可能是不同的数据库）各自缓存；
+ * 批量插入时，每一批数据只查询一次序列。
+ */
+public class SequenceKeyGenerator implements KeyGenerator {
+
+    /**
+     * 按 Configuration 实例区分的序列缓存，不能使用 environmentId，多个 SqlSessionFactory 的 environmentId 可能相同
+     */
+    private static final Map<Configuration, Map<String, SequenceValues>> SEQUENCE_VALUES_MAP = Collections.synchronizedMap(new WeakHashMap<>());
+
+    protected TableInfo tableInfo;
+    protected IdInfo idInfo;
+    protected String sequence;
+    private final Configuration configuration;
+    private final SequenceValues sequenceValues;
+
+
+    public SequenceKeyGenerator(Configuration configuration, TableInfo tableInfo, IdInfo idInfo) {
+        this.tableInfo = tableInfo;
+        this.idInfo = idInfo;
+        this.sequence = idInfo.getValue().trim();
+        this.configuration = configuration;
+
+        Map<String, SequenceValues> configurationSequenceValues = SEQUENCE_VALUES_MAP.computeIfAbsent(configuration
+                , key -> new ConcurrentHashMap<>());
+        this.sequenceValues = CollectionUtil.computeIfAbsent(configurationSequenceValues, sequence, key -> new SequenceValues());
+    }
+
+
+    /**
+     * value 中没有空白字符时，认为配置的是序列名称
+     */
+    public static boolean isSequenceName(String value) {
+        String name = value.trim();
+        for (int i = 0; i < name.length(); i++) {
+            if (Character.isWhitespace(name.charAt(i))) {
+                return false;
+            }
+        }
+        return !name.isEmpty();
+    }
+
+
+    @Override
+    public void processBefore(Executor executor, MappedStatement ms, Statement stmt, Object parameter) {
+        Object entity = ((Map) parameter).get(FlexConsts.ENTITY);
+        setId(entity, sequenceValues.take(1, getCacheSize(), count -> fetch(executor, count))[0]);
+    }
+
+
+    /**
+     * 为批量插入的数据设置主键，所有数据只查询一次序列
+     */
+    public void processBatchBefore(Executor executor, List<Object> entities) {
+        long[] ids = sequenceValues.take(entities.size(), getCacheSize(), count -> fetch(executor, count));
+        for (int i = 0; i < ids.length; i++) {
+            setId(entities.get(i), ids[i]);
+        }
+    }
+
+
+    @Override
+    public void processAfter(Executor executor, MappedStatement ms, Statement stmt, Object parameter) {
+        //do nothing
+    }
+
+
+    private void setId(Object entity, long id) {
+        tableInfo.getEntityAccessor().set(entity, tableInfo.getPropertyIndex(idInfo.getProperty())
+                , CustomKeyGenerator.convertValue(id, idInfo.getPropertyType()));
+    }
+
+
+    /**
+     * 每次预取的序列值数量，读取当前 Configuration 的全局配置
+     */
+    private int getCacheSize() {
+        FlexGlobalConfig config = configuration instanceof FlexConfiguration
+                ? ((FlexConfiguration) configuration).getGlobalConfig() : FlexGlobalConfig.getDefaultConfig();
+        return config != null ? config.getSequenceCacheSize() : 1;
+    }
+
+
+    private long[] fetch(Executor executor, int count) {
+        String sql = DialectFactory.getConfigurationDialect(configuration).forSequenceNextValues(sequence, count);
+        if (sql == null) {
+            throw FlexExceptions.wrap("The database type \"%s\" not support fetch sequence values by sequence name.\n" +
+                            "please config @Id(value=\"select ...\") at field: %s#%s"
+                    , configuration instanceof FlexConfiguration ? ((FlexConfiguration) configuration).getDbType() : DialectFactory.getDbType(), tableInfo.getEntityClass().getName(), idInfo.getProperty());
+        }
+
+        try {
+            Connection connection = executor.getTransaction().getConnection();
+            try (PreparedStatement ps = connection.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
+                long[] values = new long[count];
+                int index = 0;
+                while (index < count && rs.next()) {
+                    values[index++] = rs.getLong(1);
+                }
+                if (index == 0) {
+                    throw FlexExceptions.wrap("Can not fetch values of sequence \"%s\".", sequence);
+                }
+                return index == count ? values : Arrays.copyOf(values, index);
+            }
+        } catch (SQLException e) {
+            throw FlexExceptions.wrap(e);
+        }
+    }
+
+
+    /**
+     * 已经从数据库中获取，但还未使用的序列值
+     */
+    private static class SequenceValues {
+
+        private long[] values = new long[0];
+        private int position;
+
+        private synchronized long[] take(int count, int cacheSize, Fetcher fetcher) {
+            long[] result = new long[count];
+            int filled = 0;
+            while (filled < count) {
+                if (position == values.length) {
+                    values = fetcher.fetch(Math.max(cacheSize, count - filled));
+                    position = 0;
+                }
+                int length = Math.min(count - filled, values.length - position);
+                System.arraycopy(values, position, result, filled, length);
+                position += length;
+                filled += length;
+            }
+            return result;
+        }
+    }
+
+
+    private interface Fetcher {
+        long[] fetch(int count);
+    }
+}
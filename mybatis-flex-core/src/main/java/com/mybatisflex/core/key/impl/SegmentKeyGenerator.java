@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.key.impl;
+
+import com.mybatisflex.core.FlexGlobalConfig;
+import com.mybatisflex.core.exception.FlexExceptions;
+import com.mybatisflex.core.key.IKeyGenerator;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 号段模式（HiLo）的 id 生成器
+ * <p>
+ * 每次从数据库中预留 step 个 id（一个号段），号段内的 id 在内存中通过 AtomicLong 分配，
+ * 只有号段用完时才访问一次数据库。号段表的结构如下：
+ * <pre>
+ * CREATE TABLE flex_id_segment (
+ *     biz_tag VARCHAR(64) PRIMARY KEY,
+ *     max_id  BIGINT NOT NULL
+ * );
+ * </pre>
+ * 号段在独立的连接和事务中获取并立即提交，不受业务事务回滚的影响。
+ */
+public class SegmentKeyGenerator implements IKeyGenerator {
+
+    public static final String DEFAULT_TABLE_NAME = "flex_id_segment";
+    public static final String DEFAULT_BIZ_TAG = "default";
+    public static final int DEFAULT_STEP = 1000;
+
+    private volatile DataSource dataSource;
+    private final String bizTag;
+    private final int step;
+
+    private final String updateSql;
+    private final String insertSql;
+    private final String selectSql;
+
+    private volatile Segment segment = Segment.EMPTY;
+
+
+    /**
+     * 使用 {@link FlexGlobalConfig#getDefaultConfig()} 中的数据源，在第一次生成 id 时才获取
+     */
+    public SegmentKeyGenerator() {
+        this(null, DEFAULT_TABLE_NAME, DEFAULT_BIZ_TAG, DEFAULT_STEP);
+    }
+
+    public SegmentKeyGenerator(DataSource dataSource, String bizTag) {
+        this(dataSource, DEFAULT_TABLE_NAME, bizTag, DEFAULT_STEP);
+    }
+
+    /**
+     * @param dataSource 号段表所在的数据源，为 null 时使用默认的数据源
+     * @param tableName  号段表
+     * @param bizTag     业务标识，不同的业务标识使用不同的号段
+     * @param step       每次获取的 id 数量
+     */
+    public SegmentKeyGenerator(DataSource dataSource, String tableName, String bizTag, int step) {
+        if (step < 1) {
+            throw FlexExceptions.wrap("step must be greater than 0.");
+        }
+        this.dataSource = dataSource;
+        this.bizTag = bizTag;
+        this.step = step;
+        this.updateSql = "UPDATE " + tableName + " SET max_id = max_id + ? WHERE biz_tag = ?";
+        this.insertSql = "INSERT INTO " + tableName + " (biz_tag, max_id) VALUES (?, ?)";
+        this.selectSql = "SELECT max_id FROM " + tableName + " WHERE biz_tag = ?";
+    }
+
+
+    @Override
+    public Object generate(Object entity, String keyColumn) {
+        return nextId();
+    }
+
+
+    public long nextId() {
+        for (; ; ) {
+            Segment current = segment;
+            long id = current.next.getAndIncrement();
+            if (id <= current.max) {
+                return id;
+            }
+            synchronized (this) {
+                if (segment == current) {
+                    long max = allocate();
+                    segment = new Segment(max - step + 1, max);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * 在数据库中预留一个号段，返回号段的最大值
+     */
+    private long allocate() {
+        try (Connection connection = getDataSource().getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                long max = doAllocate(connection);
+                connection.commit();
+                return max;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw FlexExceptions.wrap(e, "Can not allocate id segment for biz_tag \"%s\".", bizTag);
+        }
+    }
+
+    private long doAllocate(Connection connection) throws SQLException {
+        if (executeUpdate(connection, updateSql, step, bizTag) == 0) {
+            try {
+                //第一次使用该业务标识，号段从 1 开始
+                executeUpdate(connection, insertSql, bizTag, step);
+                return step;
+            } catch (SQLException e) {
+                //其他节点已经插入了该业务标识
+                connection.rollback();
+                executeUpdate(connection, updateSql, step, bizTag);
+            }
+        }
+        try (PreparedStatement ps = connection.prepareStatement(selectSql)) {
+            ps.setString(1, bizTag);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("biz_tag \"" + bizTag + "\" not exists.");
+                }
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private static int executeUpdate(Connection connection, String sql, Object... args) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int i = 0; i < args.length; i++) {
+                ps.setObject(i + 1, args[i]);
+            }
+            return ps.executeUpdate();
+        }
+    }
+
+    private DataSource getDataSource() {
+        if (dataSource == null) {
+            FlexGlobalConfig config = FlexGlobalConfig.getDefaultConfig();
+            if (config == null || config.getSqlSessionFactory() == null) {
+                throw FlexExceptions.wrap("Can not find the default dataSource for SegmentKeyGenerator.");
+            }
+            dataSource = config.getSqlSessionFactory().getConfiguration().getEnvironment().getDataSource();
+        }
+        return dataSource;
+    }
+
+
+    private static class Segment {
+        private static final Segment EMPTY = new Segment(1, 0);
+
+        private final AtomicLong next;
+        private final long max;
+
+        private Segment(long start, long max) {
+            this.next = new AtomicLong(start);
+            this.max = max;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.key.impl;
+
+import com.mybatisflex.core.exception.FlexExceptions;
+import com.mybatisflex.core.key.IKeyGenerator;
+
+import org.apache.ibatis.logging.LogFactory;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 雪花算法 id 生成器，生成的 id 结构为：时间戳 | 数据中心 id | 机器 id | 序列号
+ * <p>
+ * 1、无锁实现：最后一次使用的时间戳和序列号保存在同一个 AtomicLong 中，通过 CAS 更新。
+ * 2、同一毫秒内序列号用完时，自旋等待到下一毫秒。
+ * 3、时钟回拨不超过 maxBackwardMillis 时，继续沿用最后一次的时间戳递增，保证 id 不重复且单调递增；
+ * 超过 maxBackwardMillis 时抛出异常。
+ */
+public class SnowFlakeKeyGenerator implements IKeyGenerator {
+
+    /**
+     * 默认的起始时间：2023-01-01 00:00:00 UTC
+     */
+    public static final long DEFAULT_EPOCH = 1672531200000L;
+
+    private final long epoch;
+    private final long workerId;
+    private final long dataCenterId;
+    private final int sequenceBits;
+    private final int workerIdShift;
+    private final int dataCenterIdShift;
+    private final int timestampShift;
+    private final long maxBackwardMillis;
+
+    //最后一次使用的时间戳（相对于 epoch）左移 sequenceBits 位后和序列号的组合
+    private final AtomicLong state = new AtomicLong();
+
+
+    /**
+     * 通过系统属性配置 workerId 和 dataCenterId，例如：-Dmybatis-flex.snowflake.workerId=1
+     */
+    public static final String WORKER_ID_PROPERTY = "mybatis-flex.snowflake.workerId";
+    public static final String DATA_CENTER_ID_PROPERTY = "mybatis-flex.snowflake.dataCenterId";
+
+
+    /**
+     * 优先使用系统属性 {@link #WORKER_ID_PROPERTY}、{@link #DATA_CENTER_ID_PROPERTY} 配置的 workerId 和 dataCenterId；
+     * 未配置时根据网卡的 mac 地址和当前进程的 pid 计算，多个节点之间依然可能重复，此时会输出警告日志，集群部署时需要为每个节点配置不同的值
+     */
+    public SnowFlakeKeyGenerator() {
+        this(defaultIds());
+    }
+
+    private SnowFlakeKeyGenerator(long[] ids) {
+        this(ids[0], ids[1]);
+    }
+
+    public SnowFlakeKeyGenerator(long workerId, long dataCenterId) {
+        this(workerId, dataCenterId, 5, 5, 12, DEFAULT_EPOCH, 2000);
+    }
+
+    /**
+     * @param workerId          机器 id
+     * @param dataCenterId      数据中心 id
+     * @param workerIdBits      机器 id 的位数
+     * @param dataCenterIdBits  数据中心 id 的位数
+     * @param sequenceBits      序列号的位数
+     * @param epoch             起始时间（毫秒）
+     * @param maxBackwardMillis 允许的最大时钟回拨（毫秒）
+     */
+    public SnowFlakeKeyGenerator(long workerId, long dataCenterId, int workerIdBits, int dataCenterIdBits
+            , int sequenceBits, long epoch, long maxBackwardMillis) {
+        if (workerIdBits < 0 || dataCenterIdBits < 0 || sequenceBits < 1
+                || workerIdBits + dataCenterIdBits + sequenceBits > 22) {
+            throw FlexExceptions.wrap("workerIdBits + dataCenterIdBits + sequenceBits must be less than or equal to 22.");
+        }
+        long maxWorkerId = ~(-1L << workerIdBits);
+        long maxDataCenterId = ~(-1L << dataCenterIdBits);
+        if (workerId < 0 || workerId > maxWorkerId) {
+            throw FlexExceptions.wrap("workerId must be between 0 and %s.", maxWorkerId);
+        }
+        if (dataCenterId < 0 || dataCenterId > maxDataCenterId) {
+            throw FlexExceptions.wrap("dataCenterId must be between 0 and %s.", maxDataCenterId);
+        }
+
+        this.epoch = epoch;
+        this.workerId = workerId;
+        this.dataCenterId = dataCenterId;
+        this.sequenceBits = sequenceBits;
+        this.workerIdShift = sequenceBits;
+        this.dataCenterIdShift = sequenceBits + workerIdBits;
+        this.timestampShift = sequenceBits + workerIdBits + dataCenterIdBits;
+        this.maxBackwardMillis = maxBackwardMillis;
+    }
+
+
+    @Override
+    public Object generate(Object entity, String keyColumn) {
+        return nextId();
+    }
+
+
+    public long nextId() {
+        for (; ; ) {
+            long current = state.get();
+            long lastTimestamp = current >>> sequenceBits;
+            long timestamp = System.currentTimeMillis() - epoch;
+
+            long next;
+            if (timestamp > lastTimestamp) {
+                next = timestamp << sequenceBits;
+            } else {
+                if (lastTimestamp - timestamp > maxBackwardMillis) {
+                    throw FlexExceptions.wrap("Clock moved backwards, refusing to generate id for %s milliseconds."
+                            , lastTimestamp - timestamp);
+                }
+                next = current + 1;
+                if ((next >>> sequenceBits) != lastTimestamp) {
+                    //当前毫秒的序列号已经用完
+                    Thread.yield();
+                    continue;
+                }
+            }
+
+            if (state.compareAndSet(current, next)) {
+                return ((next >>> sequenceBits) << timestampShift)
+                        | (dataCenterId << dataCenterIdShift)
+                        | (workerId << workerIdShift)
+                        | (next & ~(-1L << sequenceBits));
+            }
+        }
+    }
+
+
+    /**
+     * @return workerId 和 dataCenterId
+     */
+    private static long[] defaultIds() {
+        String workerId = System.getProperty(WORKER_ID_PROPERTY);
+        String dataCenterId = System.getProperty(DATA_CENTER_ID_PROPERTY);
+        if (workerId != null || dataCenterId != null) {
+            if (workerId == null || dataCenterId == null) {
+                throw FlexExceptions.wrap("The system properties \"%s\" and \"%s\" must be configured together."
+                        , WORKER_ID_PROPERTY, DATA_CENTER_ID_PROPERTY);
+            }
+            try {
+                return new long[]{Long.parseLong(workerId.trim()), Long.parseLong(dataCenterId.trim())};
+            } catch (NumberFormatException e) {
+                throw FlexExceptions.wrap(e, "The system properties \"%s\" and \"%s\" must be numbers."
+                        , WORKER_ID_PROPERTY, DATA_CENTER_ID_PROPERTY);
+            }
+        }
+
+        //mac 地址和 pid 一起计算出 10 位，高 5 位为 dataCenterId，低 5 位为 workerId
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        int index = name.indexOf('@');
+        String pid = index > 0 ? name.substring(0, index) : name;
+        byte[] mac = getMacAddress();
+        int hash = 31 * Arrays.hashCode(mac) + pid.hashCode();
+        hash ^= hash >>> 16;
+        long[] ids = {hash & 0x1F, (hash >>> 5) & 0x1F};
+
+        LogFactory.getLog(SnowFlakeKeyGenerator.class).warn(String.format(
+                "The workerId and dataCenterId of the snowflake key generator are not configured, " +
+                        "use workerId: %s, dataCenterId: %s computed from the mac address and pid %s, which may be duplicated between nodes. " +
+                        "Please configure them by the system properties \"%s\" and \"%s\", " +
+                        "or register a SnowFlakeKeyGenerator with explicit ids by KeyGeneratorFactory.register(...)."
+                , ids[0], ids[1], pid, WORKER_ID_PROPERTY, DATA_CENTER_ID_PROPERTY));
+        return ids;
+    }
+
+    private static byte[] getMacAddress() {
+        try {
+            NetworkInterface network = NetworkInterface.getByInetAddress(InetAddress.getLocalHost());
+            if (network != null && network.getHardwareAddress() != null) {
+                return network.getHardwareAddress();
+            }
+            Enumeration<NetworkInterface> networks = NetworkInterface.getNetworkInterfaces();
+            while (networks != null && networks.hasMoreElements()) {
+                network = networks.nextElement();
+                if (!network.isLoopback() && network.getHardwareAddress() != null) {
+                    return network.getHardwareAddress();
+                }
+            }
+        } catch (Exception e) {
+            //ignore
+        }
+        return new byte[0];
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.key.impl;
+
+import com.mybatisflex.core.key.IKeyGenerator;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 单调递增的 ULID 生成器，生成 26 位的 Crockford Base32 字符串：48 位毫秒时间戳 + 80 位随机数
+ * <p>
+ * 同一毫秒内（或者时钟回拨时）不再重新生成随机数，而是在上一个 ULID 的随机数上加 1，保证同一个 JVM 内生成的 ULID 严格递增；
+ * 随机数溢出时进位到时间戳。
+ */
+public class ULIDKeyGenerator implements IKeyGenerator {
+
+    private static final char[] ENCODING = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private long lastTimestamp = -1;
+    //80 位随机数的高 16 位和低 64 位
+    private long randomHigh;
+    private long randomLow;
+
+    @Override
+    public Object generate(Object entity, String keyColumn) {
+        return nextId();
+    }
+
+
+    public String nextId() {
+        long timestamp;
+        long high;
+        long low;
+        synchronized (this) {
+            timestamp = System.currentTimeMillis();
+            if (timestamp > lastTimestamp) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                lastTimestamp = timestamp;
+                randomHigh = random.nextInt() & 0xFFFF;
+                randomLow = random.nextLong();
+            } else {
+                timestamp = lastTimestamp;
+                if (++randomLow == 0 && (randomHigh = (randomHigh + 1) & 0xFFFF) == 0) {
+                    timestamp = ++lastTimestamp;
+                }
+            }
+            high = randomHigh;
+            low = randomLow;
+        }
+
+        char[] chars = new char[26];
+        //时间戳 48 位，编码为 10 个字符
+        for (int i = 9; i >= 0; i--) {
+            chars[i] = ENCODING[(int) (timestamp & 0x1F)];
+            timestamp >>>= 5;
+        }
+        //随机数 80 位，编码为 16 个字符，低 64 位占 12 个字符 + 4 位
+        for (int i = 25; i >= 14; i--) {
+            chars[i] = ENCODING[(int) (low & 0x1F)];
+            low >>>= 5;
+        }
+        chars[13] = ENCODING[(int) ((low & 0xF) | ((high & 0x1) << 4))];
+        high >>>= 1;
+        for (int i = 12; i >= 10; i--) {
+            chars[i] = ENCODING[(int) (high & 0x1F)];
+            high >>>= 5;
+        }
+        return new String(chars);
+    }
+}
@@ -21,8 +21,22 @@ import java.util.UUID;
 
 public class UUIDKeyGenerator implements IKeyGenerator {
 
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
     @Override
     public Object generate(Object entity, String keyColumn) {
-        return UUID.randomUUID().toString().replace("-", "");
+        //等同于 UUID.randomUUID().toString().replace("-", "")，但只创建一次字符串
+        UUID uuid = UUID.randomUUID();
+        char[] chars = new char[32];
+        toHex(uuid.getMostSignificantBits(), chars, 0);
+        toHex(uuid.getLeastSignificantBits(), chars, 16);
+        return new String(chars);
+    }
+
+    private static void toHex(long value, char[] chars, int offset) {
+        for (int i = offset + 15; i >= offset; i--) {
+            chars[i] = DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
     }
 }
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.mybatis;
+
+import com.mybatisflex.core.row.ColumnarResult;
+import org.apache.ibatis.executor.ErrorContext;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 返回值为 {@link ColumnarResult} 的查询，把整个结果集按列读取为一个 ColumnarResult
+ */
+public class ColumnarResultSetHandler extends DefaultResultSetHandler {
+
+    private final MappedStatement mappedStatement;
+
+    public ColumnarResultSetHandler(Executor executor, MappedStatement mappedStatement, ParameterHandler parameterHandler
+            , ResultHandler<?> resultHandler, BoundSql boundSql, RowBounds rowBounds) {
+        super(executor, mappedStatement, parameterHandler, resultHandler, boundSql, rowBounds);
+        this.mappedStatement = mappedStatement;
+    }
+
+
+    /**
+     * 是否为返回 ColumnarResult 的查询
+     */
+    public static boolean isColumnarStatement(MappedStatement ms) {
+        List<ResultMap> resultMaps = ms.getResultMaps();
+        return resultMaps != null && resultMaps.size() == 1 && resultMaps.get(0).getType() == ColumnarResult.class;
+    }
+
+
+    @Override
+    public List<Object> handleResultSets(Statement stmt) throws SQLException {
+        ErrorContext.instance().activity("handling results").object(mappedStatement.getId());
+
+        ResultSet rs = getFirstResultSet(stmt);
+        if (rs == null) {
+            return new ArrayList<>();
+        }
+        try {
+            boolean useLabel = mappedStatement.getConfiguration().isUseColumnLabel();
+            return Collections.singletonList(ColumnarResult.read(rs, useLabel));
+        } finally {
+            try {
+                rs.close();
+            } catch (SQLException e) {
+                // ignore
+            }
+        }
+    }
+
+
+    static ResultSet getFirstResultSet(Statement stmt) throws SQLException {
+        ResultSet rs = stmt.getResultSet();
+        while (rs == null) {
+            if (stmt.getMoreResults()) {
+                rs = stmt.getResultSet();
+            } else if (stmt.getUpdateCount() == -1) {
+                break;
+            }
+        }
+        return rs;
+    }
+}
@@ -0,0 +1,327 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.mybatis;
+
+import com.mybatisflex.core.FlexConsts;
+import com.mybatisflex.core.row.RowMapper;
+import com.mybatisflex.core.table.EntityCache;
+import com.mybatisflex.core.table.TableInfo;
+import org.apache.ibatis.binding.MapperMethod;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 为 {@code @Table(useCached = true)} 的 entity 提供 {@link EntityCache} 的 Executor
+ * <p>
+ * selectOneById、selectListByIds 优先从缓存中读取；update、deleteById、deleteBatchByIds（包括逻辑删除）清除对应主键的缓存，
+ * updateByQuery、deleteByQuery 以及 RowMapper、Db 对该表的修改清除整张表的缓存。
+ * 其他无法确定表名的写语句（RowMapper 的原生 SQL、xml 或者注解中自定义的 SQL 等），清除 SQL 中出现的所有缓存表，无法获取 SQL 时清除所有缓存表。
+ * 当前 session 修改过的表，在提交或回滚之前不再读写缓存，并在提交、回滚或关闭时再清除一次，避免缓存未提交或者被覆盖的数据。
+ * <p>
+ * 以下修改无法感知，使用缓存的表应避免：
+ * <ul>
+ * <li>不经过 MyBatis 的修改，例如直接使用 JDBC、其他应用或者数据库中的定时任务</li>
+ * <li>其他节点的修改，缓存只存在于当前 JVM 中，集群部署时只能依赖 ttl 过期</li>
+ * <li>触发器、外键级联、视图或者同义词等，SQL 中没有直接出现表名的修改</li>
+ * <li>存储过程等通过 select 语句执行的修改</li>
+ * </ul>
+ */
+public class EntityCacheExecutor implements Executor {
+
+    private static final String ROW_MAPPER_PREFIX = RowMapper.class.getName() + ".";
+
+    private final Executor delegate;
+    private final FlexConfiguration configuration;
+
+    private Set<String> dirtyTables;
+    private List<Runnable> pendingEvictions;
+
+    public EntityCacheExecutor(Executor delegate, FlexConfiguration configuration) {
+        this.delegate = delegate;
+        this.configuration = configuration;
+    }
+
+
+    @Override
+    public int update(MappedStatement ms, Object parameter) throws SQLException {
+        TableInfo tableInfo = configuration.getCachedTableInfo(ms.getId());
+        if (tableInfo != null) {
+            evict(ms, tableInfo, (Map) parameter);
+        } else if (ms.getId().startsWith(ROW_MAPPER_PREFIX) && parameter instanceof Map
+                && ((Map<?, ?>) parameter).containsKey(FlexConsts.TABLE_NAME)) {
+            String tableName = (String) ((Map<?, ?>) parameter).get(FlexConsts.TABLE_NAME);
+            if (tableName != null) {
+                markDirty(tableName, () -> EntityCache.invalidate(tableName));
+            } else {
+                invalidateBySql(ms, parameter);
+            }
+        } else if (!configuration.isUncachedWriteStatement(ms.getId())) {
+            invalidateBySql(ms, parameter);
+        }
+        return delegate.update(ms, parameter);
+    }
+
+
+    /**
+     * 无法确定修改的是哪张表时（RowMapper 的原生 SQL、xml 或者注解中自定义的 SQL 等），
+     * 清除 SQL 中出现的所有缓存表；无法获取 SQL 时，清除所有缓存表
+     */
+    private void invalidateBySql(MappedStatement ms, Object parameter) {
+        String sql;
+        try {
+            sql = ms.getBoundSql(parameter).getSql().toLowerCase();
+        } catch (RuntimeException e) {
+            sql = null;
+        }
+        for (String tableName : configuration.getCachedTableNames()) {
+            if (sql == null || containsTableName(sql, tableName.toLowerCase())) {
+                markDirty(tableName, () -> EntityCache.invalidate(tableName));
+            }
+        }
+    }
+
+
+    private static boolean containsTableName(String sql, String tableName) {
+        int index = sql.indexOf(tableName);
+        while (index >= 0) {
+            int end = index + tableName.length();
+            if ((index == 0 || !isIdentifierChar(sql.charAt(index - 1)))
+                    && (end == sql.length() || !isIdentifierChar(sql.charAt(end)))) {
+                return true;
+            }
+            index = sql.indexOf(tableName, index + 1);
+        }
+        return false;
+    }
+
+
+    private static boolean isIdentifierChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+
+    private void evict(MappedStatement ms, TableInfo tableInfo, Map params) {
+        String method = ms.getId().substring(ms.getId().lastIndexOf('.') + 1);
+        Runnable eviction;
+        switch (method) {
+            case "update":
+                Object[] primaryValues = tableInfo.obtainPrimaryValues(params.get(FlexConsts.ENTITY));
+                eviction = () -> EntityCache.evict(tableInfo, (Object) primaryValues);
+                break;
+            case "deleteById":
+                Object primaryValue = params.get(FlexConsts.PRIMARY_VALUE);
+                eviction = () -> EntityCache.evict(tableInfo, primaryValue);
+                break;
+            case "deleteBatchByIds":
+                if (tableInfo.getPrimaryKeys().length == 1) {
+                    Object[] ids = getPrimaryValues(params);
+                    eviction = () -> EntityCache.evict(tableInfo, ids);
+                    break;
+                }
+            default:
+                eviction = () -> EntityCache.invalidate(tableInfo.getTableName());
+                break;
+        }
+        markDirty(tableInfo.getTableName(), eviction);
+    }
+
+
+    private void markDirty(String tableName, Runnable eviction) {
+        if (dirtyTables == null) {
+            dirtyTables = new HashSet<>();
+            pendingEvictions = new ArrayList<>();
+        }
+        dirtyTables.add(tableName);
+        pendingEvictions.add(eviction);
+        eviction.run();
+    }
+
+
+    /**
+     * 提交、回滚或关闭时再清除一次缓存
+     */
+    private void flushEvictions() {
+        if (dirtyTables != null) {
+            pendingEvictions.forEach(Runnable::run);
+            dirtyTables = null;
+            pendingEvictions = null;
+        }
+    }
+
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
+        TableInfo tableInfo = configuration.getCachedTableInfo(ms.getId());
+        if (tableInfo == null
+                || resultHandler != Executor.NO_RESULT_HANDLER
+                || !EntityCache.isCached(tableInfo)
+                || (dirtyTables != null && dirtyTables.contains(tableInfo.getTableName()))) {
+            return delegate.query(ms, parameter, rowBounds, resultHandler);
+        }
+
+        Map params = (Map) parameter;
+        if (ms.getId().endsWith(".selectOneById")) {
+            Object primaryValue = params.get(FlexConsts.PRIMARY_VALUE);
+            E entity = EntityCache.get(tableInfo, primaryValue);
+            if (entity != null) {
+                List<E> list = new ArrayList<>(1);
+                list.add(entity);
+                return list;
+            }
+
+            long version = EntityCache.getVersion(tableInfo);
+            List<E> list = delegate.query(ms, parameter, rowBounds, resultHandler);
+            if (list.size() == 1) {
+                EntityCache.put(tableInfo, primaryValue, list.get(0), version);
+            }
+            return list;
+        }
+
+        //selectListByIds，只支持单主键
+        if (tableInfo.getPrimaryKeys().length != 1) {
+            return delegate.query(ms, parameter, rowBounds, resultHandler);
+        }
+
+        List<E> list = new ArrayList<>();
+        List<Object> missIds = new ArrayList<>();
+        for (Object id : getPrimaryValues(params)) {
+            E entity = EntityCache.get(tableInfo, id);
+            if (entity != null) {
+                list.add(entity);
+            } else {
+                missIds.add(id);
+            }
+        }
+        if (missIds.isEmpty()) {
+            return list;
+        }
+
+        MapperMethod.ParamMap<Object> missParams = new MapperMethod.ParamMap<>();
+        missParams.putAll(params);
+        missParams.put(FlexConsts.PRIMARY_VALUE, missIds);
+
+        long version = EntityCache.getVersion(tableInfo);
+        List<E> missEntities = delegate.query(ms, missParams, rowBounds, resultHandler);
+        for (E entity : missEntities) {
+            EntityCache.put(tableInfo, tableInfo.obtainPrimaryValues(entity), entity, version);
+        }
+        list.addAll(missEntities);
+        return list;
+    }
+
+
+    private static Object[] getPrimaryValues(Map params) {
+        Object primaryValue = params.get(FlexConsts.PRIMARY_VALUE);
+        if (primaryValue instanceof Collection) {
+            return ((Collection<?>) primaryValue).toArray();
+        }
+        return primaryValue instanceof Object[] ? (Object[]) primaryValue : new Object[]{primaryValue};
+    }
+
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey cacheKey, BoundSql boundSql) throws SQLException {
+        return delegate.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+    }
+
+    @Override
+    public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+        return delegate.queryCursor(ms, parameter, rowBounds);
+    }
+
+    @Override
+    public List<BatchResult> flushStatements() throws SQLException {
+        return delegate.flushStatements();
+    }
+
+    @Override
+    public void commit(boolean required) throws SQLException {
+        try {
+            delegate.commit(required);
+        } finally {
+            flushEvictions();
+        }
+    }
+
+    @Override
+    public void rollback(boolean required) throws SQLException {
+        try {
+            delegate.rollback(required);
+        } finally {
+            flushEvictions();
+        }
+    }
+
+    @Override
+    public CacheKey createCacheKey(MappedStatement ms, Object parameterObject, RowBounds rowBounds, BoundSql boundSql) {
+        return delegate.createCacheKey(ms, parameterObject, rowBounds, boundSql);
+    }
+
+    @Override
+    public boolean isCached(MappedStatement ms, CacheKey key) {
+        return delegate.isCached(ms, key);
+    }
+
+    @Override
+    public void clearLocalCache() {
+        delegate.clearLocalCache();
+    }
+
+    @Override
+    public void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType) {
+        delegate.deferLoad(ms, resultObject, property, key, targetType);
+    }
+
+    @Override
+    public Transaction getTransaction() {
+        return delegate.getTransaction();
+    }
+
+    @Override
+    public void close(boolean forceRollback) {
+        try {
+            delegate.close(forceRollback);
+        } finally {
+            flushEvictions();
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return delegate.isClosed();
+    }
+
+    @Override
+    public void setExecutorWrapper(Executor executor) {
+        delegate.setExecutorWrapper(executor);
+    }
+}
@@ -16,6 +16,12 @@
 package com.mybatisflex.core.mybatis;
 
 import com.mybatisflex.core.FlexConsts;
+import com.mybatisflex.core.FlexGlobalConfig;
+import com.mybatisflex.core.datasource.DataSourceRoutingExecutor;
+import com.mybatisflex.core.datasource.FlexDataSource;
+import com.mybatisflex.core.dialect.DbType;
+import com.mybatisflex.core.dialect.DialectFactory;
+import com.mybatisflex.core.dialect.IDialect;
 import com.mybatisflex.core.key.MultiEntityKeyGenerator;
 import com.mybatisflex.core.key.MultiRowKeyGenerator;
 import com.mybatisflex.core.key.MybatisKeyGeneratorUtil;
@@ -25,25 +31,66 @@ import com.mybatisflex.core.table.TableInfo;
 import com.mybatisflex.core.table.TableInfos;
 import com.mybatisflex.core.util.CollectionUtil;
 import com.mybatisflex.core.util.StringUtil;
+import org.apache.ibatis.builder.annotation.ProviderSqlSource;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.keygen.SelectKeyGenerator;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.logging.stdout.StdOutImpl;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.Environment;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.reflection.SystemMetaObject;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
 
+import java.lang.reflect.Method;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class FlexConfiguration extends Configuration {
 
+    /**
+     * 当前配置所使用的数据库类型，未手动设置时，在构建 SqlSessionFactory 时通过数据源识别
+     */
+    private volatile DbType dbType;
+
+    /**
+     * 当前配置的全局配置，在构建 SqlSessionFactory 时设置；多个 SqlSessionFactory 使用相同的 environmentId 时，
+     * 通过 {@link FlexGlobalConfig#getConfig(String)} 无法区分，需要通过配置本身获取
+     */
+    private volatile FlexGlobalConfig globalConfig;
+
+    /**
+     * 使用了 entity 缓存（{@code @Table(useCached = true)}）的 MappedStatement id 和其对应的 TableInfo
+     */
+    private final Map<String, TableInfo> cachedTableInfos = new ConcurrentHashMap<>();
+
+    /**
+     * 使用了 entity 缓存的表名
+     */
+    private final Set<String> cachedTableNames = ConcurrentHashMap.newKeySet();
+
+    /**
+     * BaseMapper 生成的、不会修改缓存数据的写语句（未使用缓存的表，以及 insert），执行时无需解析 SQL
+     */
+    private final Set<String> uncachedWriteStatements = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Mapper 方法返回值为 {@link Cursor} 的查询语句，执行时根据方言设置 fetchSize 以流式读取数据
+     */
+    private final Set<String> cursorStatements = ConcurrentHashMap.newKeySet();
+
 
     public FlexConfiguration(Environment environment) {
         super(environment);
@@ -66,6 +113,99 @@ public class FlexConfiguration extends Configuration {
     }
 
 
+    public DbType getDbType() {
+        return dbType;
+    }
+
+    public void setDbType(DbType dbType) {
+        this.dbType = dbType;
+    }
+
+    /**
+     * 获取当前配置的全局配置，未通过 FlexSqlSessionFactoryBuilder 构建时，按 environmentId 查找，找不到时返回默认的全局配置
+     */
+    public FlexGlobalConfig getGlobalConfig() {
+        if (globalConfig != null) {
+            return globalConfig;
+        }
+        FlexGlobalConfig config = environment != null ? FlexGlobalConfig.getConfig(environment.getId()) : null;
+        return config != null ? config : FlexGlobalConfig.getDefaultConfig();
+    }
+
+    public void setGlobalConfig(FlexGlobalConfig globalConfig) {
+        this.globalConfig = globalConfig;
+    }
+
+
+    /**
+     * 获取当前配置的方言，优先使用 {@link DialectFactory#setHintDbType(DbType)} 设置的 dbType，
+     * 未设置 hint 时使用配置绑定的 dbType，都没有时使用默认的方言
+     */
+    public IDialect getDialect() {
+        DbType hintDbType = DialectFactory.getHintDbType();
+        if (hintDbType != null) {
+            return DialectFactory.getDialect(hintDbType);
+        }
+        return dbType != null ? DialectFactory.getDialect(dbType) : DialectFactory.getDialect();
+    }
+
+
+    /**
+     * 获取使用了 entity 缓存的 MappedStatement 对应的 TableInfo
+     *
+     * @param mappedStatementId MappedStatement id
+     * @return TableInfo，未使用缓存时返回 null
+     */
+    public TableInfo getCachedTableInfo(String mappedStatementId) {
+        return cachedTableInfos.get(mappedStatementId);
+    }
+
+
+    /**
+     * 获取使用了 entity 缓存的表名
+     */
+    public Set<String> getCachedTableNames() {
+        return cachedTableNames;
+    }
+
+
+    /**
+     * 是否为 BaseMapper 生成的、不会修改缓存数据的写语句
+     *
+     * @param mappedStatementId MappedStatement id
+     */
+    public boolean isUncachedWriteStatement(String mappedStatementId) {
+        return uncachedWriteStatements.contains(mappedStatementId);
+    }
+
+
+    /**
+     * 是否为 Mapper 方法返回值为 {@link Cursor} 的查询语句
+     *
+     * @param mappedStatementId MappedStatement id
+     */
+    public boolean isCursorStatement(String mappedStatementId) {
+        return cursorStatements.contains(mappedStatementId);
+    }
+
+
+    /**
+     * 存在使用了 entity 缓存的表时，通过 EntityCacheExecutor 读写缓存
+     * 数据源为 FlexDataSource 时，通过 DataSourceRoutingExecutor 选择数据源
+     */
+    @Override
+    public Executor newExecutor(Transaction transaction, ExecutorType executorType) {
+        Executor executor = new ParameterLimitExecutor(super.newExecutor(transaction, executorType));
+        if (!cachedTableInfos.isEmpty()) {
+            executor = new EntityCacheExecutor(executor, this);
+        }
+        if (environment != null && environment.getDataSource() instanceof FlexDataSource) {
+            executor = new DataSourceRoutingExecutor(executor);
+        }
+        return executor;
+    }
+
+
     /**
      * 为原生 sql 设置参数
      */
@@ -82,6 +222,23 @@ public class FlexConfiguration extends Configuration {
         }
     }
 
+    /**
+     * 返回值为 Row 的查询，使用 RowResultSetHandler 创建紧凑存储的 Row
+     * 返回值为 ColumnarResult 的查询，使用 ColumnarResultSetHandler 按列读取
+     */
+    @Override
+    public ResultSetHandler newResultSetHandler(Executor executor, MappedStatement mappedStatement, RowBounds rowBounds, ParameterHandler parameterHandler, ResultHandler resultHandler, BoundSql boundSql) {
+        if (RowResultSetHandler.isRowStatement(mappedStatement)) {
+            ResultSetHandler resultSetHandler = new RowResultSetHandler(executor, mappedStatement, parameterHandler, resultHandler, boundSql, rowBounds);
+            return (ResultSetHandler) interceptorChain.pluginAll(resultSetHandler);
+        }
+        if (ColumnarResultSetHandler.isColumnarStatement(mappedStatement)) {
+            ResultSetHandler resultSetHandler = new ColumnarResultSetHandler(executor, mappedStatement, parameterHandler, resultHandler, boundSql, rowBounds);
+            return (ResultSetHandler) interceptorChain.pluginAll(resultSetHandler);
+        }
+        return super.newResultSetHandler(executor, mappedStatement, rowBounds, parameterHandler, resultHandler, boundSql);
+    }
+
     /**
      * 替换为 FlexRoutingStatementHandler，主要用来为实体类的多主键做支持
      * FlexRoutingStatementHandler 和 原生的 RoutingStatementHandler 对比，没有任何性能影响
@@ -105,12 +262,38 @@ public class FlexConfiguration extends Configuration {
                 && ms.getKeyGenerator() == NoKeyGenerator.INSTANCE) {
             ms = replaceEntityKeyGenerator(ms);
         }
-        //entity select
+        //entity select，selectCountByQuery 返回的是 long，不能替换为 entity 的 resultMap
         else if (StringUtil.endsWithAny(ms.getId(), "selectOneById", "selectListByIds"
-                , "selectListByQuery", "selectCountByQuery")) {
+                , "selectListByQuery", "selectCursorByQuery", "selectListByCompiledQuery")) {
             ms = replaceResultHandler(ms);
         }
 
+        //entity 缓存
+        if (StringUtil.endsWithAny(ms.getId(), ".selectOneById", ".selectListByIds", ".update", ".deleteById"
+                , ".deleteBatchByIds", ".updateByQuery", ".deleteByQuery")) {
+            TableInfo tableInfo = getTableInfo(ms);
+            if (tableInfo != null && tableInfo.isUseCached()) {
+                cachedTableInfos.put(ms.getId(), tableInfo);
+                cachedTableNames.add(tableInfo.getTableName());
+            } else if (tableInfo != null && ms.getSqlCommandType() != SqlCommandType.SELECT
+                    && ms.getSqlSource() instanceof ProviderSqlSource) {
+                uncachedWriteStatements.add(ms.getId());
+            }
+        } else if (StringUtil.endsWithAny(ms.getId(), ".insert", "." + FlexConsts.METHOD_INSERT_BATCH)
+                && ms.getSqlSource() instanceof ProviderSqlSource
+                && getTableInfo(ms) != null) {
+            uncachedWriteStatements.add(ms.getId());
+        }
+
+        if (ms.getSqlCommandType() == SqlCommandType.SELECT && isCursorMethod(ms)) {
+            cursorStatements.add(ms.getId());
+        }
+
+        //Provider 构建 SQL 时使用当前配置的方言
+        if (ms.getSqlSource() instanceof ProviderSqlSource) {
+            SystemMetaObject.forObject(ms).setValue("sqlSource", new FlexDialectSqlSource(this, ms.getSqlSource()));
+        }
+
         super.addMappedStatement(ms);
     }
 
@@ -232,6 +415,28 @@ public class FlexConfiguration extends Configuration {
                 .build();
     }
 
+    /**
+     * MappedStatement 对应的 Mapper 方法的返回值是否为 Cursor
+     */
+    private boolean isCursorMethod(MappedStatement ms) {
+        int index = ms.getId().lastIndexOf(".");
+        if (index <= 0) {
+            return false;
+        }
+        String methodName = ms.getId().substring(index + 1);
+        try {
+            for (Method method : Class.forName(ms.getId().substring(0, index)).getMethods()) {
+                if (method.getName().equals(methodName) && Cursor.class.isAssignableFrom(method.getReturnType())) {
+                    return true;
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            //xml 中的 namespace 不是 Mapper 接口
+        }
+        return false;
+    }
+
+
     private TableInfo getTableInfo(MappedStatement ms) {
         String mapperClassName = ms.getId().substring(0, ms.getId().lastIndexOf("."));
         try {
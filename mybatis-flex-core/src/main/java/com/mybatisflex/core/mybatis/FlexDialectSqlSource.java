@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.mybatis;
+
+import com.mybatisflex.core.FlexConsts;
+import org.apache.ibatis.binding.MapperMethod;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.SqlSource;
+
+/**
+ * 为 Provider 生成的 SQL 绑定 {@link FlexConfiguration} 自己的方言
+ * <p>
+ * 方言直接放入 Provider 的参数中，Provider 通过参数获取方言来构建 SQL；
+ * 多个数据库类型不同的 SqlSessionFactory 同时使用时，各自使用自己的方言，
+ * 通过 DialectFactory.setHintDbType 设置了当前线程的 dbType 时，使用 hint 的方言。
+ */
+public class FlexDialectSqlSource implements SqlSource {
+
+    private final FlexConfiguration configuration;
+    private final SqlSource delegate;
+
+    public FlexDialectSqlSource(FlexConfiguration configuration, SqlSource delegate) {
+        this.configuration = configuration;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public BoundSql getBoundSql(Object parameterObject) {
+        if (parameterObject instanceof MapperMethod.ParamMap) {
+            ((MapperMethod.ParamMap<Object>) parameterObject).put(FlexConsts.DIALECT, configuration.getDialect());
+        }
+        return delegate.getBoundSql(parameterObject);
+    }
+
+    public SqlSource getDelegate() {
+        return delegate;
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.mybatisflex.core.mybatis;
 
+import com.mybatisflex.core.FlexGlobalConfig;
 import com.mybatisflex.core.key.IMultiKeyGenerator;
 import com.mybatisflex.core.util.ArrayUtil;
 import org.apache.ibatis.executor.Executor;
@@ -60,9 +61,9 @@ public class FlexPreparedStatementHandler extends PreparedStatementHandler {
         if (keyGenerator instanceof Jdbc3KeyGenerator) {
             String[] keyColumnNames = mappedStatement.getKeyColumns();
             if (keyColumnNames == null) {
-                return connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS);
+                return prepareStatement(connection, sql, true, null, null);
             } else {
-                return connection.prepareStatement(sql, keyColumnNames);
+                return prepareStatement(connection, sql, false, keyColumnNames, null);
             }
         }
         // 多主键的场景
@@ -70,18 +71,73 @@ public class FlexPreparedStatementHandler extends PreparedStatementHandler {
             if (((IMultiKeyGenerator) keyGenerator).isNeedGeneratedKeys()) {
                 String[] keyColumnNames = ((IMultiKeyGenerator) keyGenerator).getKeyColumnNames();
                 if (ArrayUtil.isNotEmpty(keyColumnNames)) {
-                    return connection.prepareStatement(sql, keyColumnNames);
+                    return prepareStatement(connection, sql, false, keyColumnNames, null);
                 } else {
-                    return connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS);
+                    return prepareStatement(connection, sql, true, null, null);
                 }
             }
         }
 
         if (mappedStatement.getResultSetType() == ResultSetType.DEFAULT) {
-            return connection.prepareStatement(sql);
+            return prepareStatement(connection, sql, false, null, null);
         } else {
-            return connection.prepareStatement(sql, mappedStatement.getResultSetType().getValue(), ResultSet.CONCUR_READ_ONLY);
+            return prepareStatement(connection, sql, false, null, mappedStatement.getResultSetType().getValue());
+        }
+    }
+
+
+    /**
+     * 通过 {@link StatementCache} 创建 PreparedStatement，cursor 查询会修改 fetchSize，因此不参与缓存
+     */
+    private PreparedStatement prepareStatement(Connection connection, String sql, boolean returnGeneratedKeys
+            , String[] keyColumnNames, Integer resultSetType) throws SQLException {
+        StatementCache.StatementCreator creator = () -> {
+            if (returnGeneratedKeys) {
+                return connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS);
+            } else if (keyColumnNames != null) {
+                return connection.prepareStatement(sql, keyColumnNames);
+            } else if (resultSetType != null) {
+                return connection.prepareStatement(sql, resultSetType, ResultSet.CONCUR_READ_ONLY);
+            } else {
+                return connection.prepareStatement(sql);
+            }
+        };
+
+        if (isCursorStatement()) {
+            return creator.create();
         }
+        return StatementCache.prepareStatement(connection, sql, returnGeneratedKeys, keyColumnNames, resultSetType, creator);
+    }
+
+
+    /**
+     * cursor 查询（Mapper 方法返回值为 Cursor）根据方言设置 fetchSize，使数据库驱动能够流式读取数据
+     */
+    @Override
+    protected void setFetchSize(Statement stmt) throws SQLException {
+        if (!isCursorStatement()) {
+            super.setFetchSize(stmt);
+            return;
+        }
+
+        FlexConfiguration flexConfiguration = (FlexConfiguration) configuration;
+        Integer fetchSize = mappedStatement.getFetchSize();
+        if (fetchSize == null) {
+            //使用当前配置自己的全局配置，environmentId 相同的多个 SqlSessionFactory 互不影响
+            FlexGlobalConfig globalConfig = flexConfiguration.getGlobalConfig();
+            fetchSize = globalConfig != null ? globalConfig.getCursorFetchSize() : null;
+        }
+
+        fetchSize = flexConfiguration.getDialect().getCursorFetchSize(fetchSize);
+        if (fetchSize != null) {
+            stmt.setFetchSize(fetchSize);
+        }
+    }
+
+
+    private boolean isCursorStatement() {
+        return configuration instanceof FlexConfiguration
+                && ((FlexConfiguration) configuration).isCursorStatement(mappedStatement.getId());
     }
 
 
@@ -16,6 +16,7 @@
 package com.mybatisflex.core.mybatis;
 
 import com.mybatisflex.core.FlexGlobalConfig;
+import com.mybatisflex.core.datasource.FlexDataSource;
 import com.mybatisflex.core.dialect.DbType;
 import com.mybatisflex.core.dialect.DbTypeUtil;
 import com.mybatisflex.core.exception.FlexExceptions;
@@ -63,7 +64,12 @@ public class FlexSqlSessionFactoryBuilder extends SqlSessionFactoryBuilder {
 
         SqlSessionFactory sessionFactory = super.build(configuration);
 
-        DbType dbType = getDbType(configuration);
+        //未手动设置 dbType 时，通过数据源的 jdbc url 识别
+        DbType dbType = ((FlexConfiguration) configuration).getDbType();
+        if (dbType == null) {
+            dbType = getDbType(configuration);
+            ((FlexConfiguration) configuration).setDbType(dbType);
+        }
 
         //设置全局配置的 sessionFactory 和 dbType
         initGlobalConfig(configuration, sessionFactory, dbType);
@@ -85,6 +91,7 @@ public class FlexSqlSessionFactoryBuilder extends SqlSessionFactoryBuilder {
 
         String environmentId = config.getEnvironment().getId();
         FlexGlobalConfig.setConfig(environmentId, flexGlobalConfig);
+        ((FlexConfiguration) config).setGlobalConfig(flexGlobalConfig);
     }
 
 
@@ -93,6 +100,9 @@ public class FlexSqlSessionFactoryBuilder extends SqlSessionFactoryBuilder {
      */
     private DbType getDbType(Configuration configuration) {
         DataSource dataSource = configuration.getEnvironment().getDataSource();
+        if (dataSource instanceof FlexDataSource) {
+            dataSource = ((FlexDataSource) dataSource).getPrimaryDataSource();
+        }
         String jdbcUrl = getJdbcUrl(dataSource);
         if (StringUtil.isNotBlank(jdbcUrl)){
             return DbTypeUtil.parseDbType(jdbcUrl);
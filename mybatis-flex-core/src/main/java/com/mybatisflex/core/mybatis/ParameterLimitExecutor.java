@@ -0,0 +1,260 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.mybatis;
+
+import com.mybatisflex.core.FlexConsts;
+import com.mybatisflex.core.row.Row;
+import com.mybatisflex.core.table.TableInfos;
+import com.mybatisflex.core.util.ClassUtil;
+import org.apache.ibatis.binding.MapperMethod;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 根据配置的方言支持的最大参数数量（{@link com.mybatisflex.core.dialect.IDialect#getMaxParameterCount()}），
+ * 把参数过多的 insertBatch、deleteBatchByIds 拆分为多条语句，selectListByIds 拆分为多次查询并合并结果，在同一个 session 中依次执行
+ * <p>
+ * 拆分后的语句不会额外开启事务：自动提交（autocommit）时每条语句单独提交，需要原子性时由外层事务保证
+ * <p>
+ * 方言来自 MappedStatement 所属的 {@link FlexConfiguration}，多个数据库类型不同的配置各自按自己的限制拆分。
+ */
+public class ParameterLimitExecutor implements Executor {
+
+    private static final String INSERT_BATCH_SUFFIX = "." + FlexConsts.METHOD_INSERT_BATCH;
+    private static final String INSERT_BATCH_ROWS_SUFFIX = ".insertBatchWithFirstRowColumns";
+    private static final String DELETE_BATCH_BY_IDS_SUFFIX = ".deleteBatchByIds";
+    private static final String SELECT_LIST_BY_IDS_SUFFIX = ".selectListByIds";
+
+    private final Executor delegate;
+
+    public ParameterLimitExecutor(Executor delegate) {
+        this.delegate = delegate;
+    }
+
+
+    @Override
+    public int update(MappedStatement ms, Object parameter) throws SQLException {
+        if (parameter instanceof MapperMethod.ParamMap) {
+            Map<String, Object> params = (Map<String, Object>) parameter;
+            String id = ms.getId();
+            if (id.endsWith(INSERT_BATCH_SUFFIX) && params.containsKey(FlexConsts.ENTITIES)) {
+                List<?> entities = (List<?>) params.get(FlexConsts.ENTITIES);
+                if (entities != null && !entities.isEmpty()) {
+                    int valueCount = TableInfos.ofEntityClass(ClassUtil.getUsefulClass(entities.get(0).getClass())).getInsertValueCount();
+                    return updateInChunks(ms, params, FlexConsts.ENTITIES, entities, entities, getChunkSize(ms, valueCount));
+                }
+            } else if (id.endsWith(INSERT_BATCH_ROWS_SUFFIX) && params.containsKey(FlexConsts.ROWS)) {
+                List<Row> rows = (List<Row>) params.get(FlexConsts.ROWS);
+                if (rows != null && !rows.isEmpty()) {
+                    return updateInChunks(ms, params, FlexConsts.ROWS, rows, rows, getChunkSize(ms, rows.get(0).obtainModifyAttrs().size()));
+                }
+            } else if (id.endsWith(DELETE_BATCH_BY_IDS_SUFFIX) && params.containsKey(FlexConsts.PRIMARY_VALUE)
+                    && params.get(FlexConsts.PRIMARY_VALUE) instanceof Collection) {
+                Collection<?> ids = (Collection<?>) params.get(FlexConsts.PRIMARY_VALUE);
+                if (!ids.isEmpty()) {
+                    List<?> idList = toList(ids);
+                    return updateInChunks(ms, params, FlexConsts.PRIMARY_VALUE, ids, idList, getIdsChunkSize(ms, params, idList));
+                }
+            }
+        }
+        return delegate.update(ms, parameter);
+    }
+
+
+    private int updateInChunks(MappedStatement ms, Map<String, Object> params, String key, Object value, List<?> list, int size) throws SQLException {
+        if (list.size() <= size) {
+            return delegate.update(ms, params);
+        }
+
+        int total = 0;
+        for (int i = 0; i < list.size(); i += size) {
+            int result = delegate.update(ms, chunkParams(params, key, value, list.subList(i, Math.min(i + size, list.size()))));
+            //BATCH 模式下不返回影响的行数
+            if (result == BatchExecutor.BATCH_UPDATE_RETURN_VALUE) {
+                total = result;
+            } else if (total != BatchExecutor.BATCH_UPDATE_RETURN_VALUE) {
+                total += result;
+            }
+        }
+        return total;
+    }
+
+
+    /**
+     * 每条语句最多包含的数据条数
+     */
+    static int getChunkSize(MappedStatement ms, int valueCount) {
+        int maxParameterCount = ((FlexConfiguration) ms.getConfiguration()).getDialect().getMaxParameterCount();
+        return maxParameterCount <= 0 ? Integer.MAX_VALUE : Math.max(1, maxParameterCount / Math.max(1, valueCount));
+    }
+
+
+    /**
+     * 每条 deleteBatchByIds、selectListByIds 语句最多包含的主键数量
+     * <p>
+     * 多主键时，集合中的元素为主键值的数组；Row 的多个主键也可能直接展开在集合中，此时每批的数量为主键数量的整数倍
+     */
+    static int getIdsChunkSize(MappedStatement ms, Map<String, Object> params, List<?> ids) {
+        Object firstId = ids.get(0);
+        if (firstId instanceof Object[]) {
+            return getChunkSize(ms, ((Object[]) firstId).length);
+        }
+        Object primaryKey = params.containsKey(FlexConsts.PRIMARY_KEY) ? params.get(FlexConsts.PRIMARY_KEY) : null;
+        int keyCount = primaryKey instanceof String ? ((String) primaryKey).split(",").length : 1;
+        int size = getChunkSize(ms, 1);
+        return keyCount <= 1 || size == Integer.MAX_VALUE ? size : Math.max(1, size / keyCount) * keyCount;
+    }
+
+    private static List<?> toList(Collection<?> collection) {
+        return collection instanceof List ? (List<?>) collection : new ArrayList<>(collection);
+    }
+
+
+    /**
+     * 每批使用新的参数，原参数中的列表（包括 param1 等别名）替换为当前批次的数据
+     */
+    static MapperMethod.ParamMap<Object> chunkParams(Map<String, Object> params, String key, Object list, Object chunk) {
+        MapperMethod.ParamMap<Object> chunkParams = new MapperMethod.ParamMap<>();
+        for (Map.Entry<String, Object> entry : params.entrySet()) {
+            chunkParams.put(entry.getKey(), entry.getValue() == list ? chunk : entry.getValue());
+        }
+        chunkParams.put(key, chunk);
+        chunkParams.remove(FlexConsts.SQL_ARGS);
+        return chunkParams;
+    }
+
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey cacheKey, BoundSql boundSql) throws SQLException {
+        return delegate.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
+        if (resultHandler == Executor.NO_RESULT_HANDLER && parameter instanceof MapperMethod.ParamMap && ms.getId().endsWith(SELECT_LIST_BY_IDS_SUFFIX)) {
+            Map<String, Object> params = (Map<String, Object>) parameter;
+            Object ids = params.containsKey(FlexConsts.PRIMARY_VALUE) ? params.get(FlexConsts.PRIMARY_VALUE) : null;
+            if (ids instanceof Collection && !((Collection<?>) ids).isEmpty()) {
+                List<?> idList = toList((Collection<?>) ids);
+                int size = getIdsChunkSize(ms, params, idList);
+                if (idList.size() > size) {
+                    List<E> list = new ArrayList<>(idList.size());
+                    for (int i = 0; i < idList.size(); i += size) {
+                        list.addAll(queryWithArgs(ms, chunkParams(params, FlexConsts.PRIMARY_VALUE, ids, idList.subList(i, Math.min(i + size, idList.size())))
+                                , rowBounds, resultHandler));
+                    }
+                    return list;
+                }
+            }
+        }
+        return queryWithArgs(ms, parameter, rowBounds, resultHandler);
+    }
+
+
+    /**
+     * Provider 通过 {@link FlexConsts#SQL_ARGS} 设置的参数不在 BoundSql 的 parameterMappings 中，
+     * mybatis 创建的缓存 key 不包含这些参数，sql 相同而参数不同的查询（例如拆分后数量相同的两批主键）会错误地命中一级缓存，
+     * 因此在缓存 key 中追加这些参数
+     */
+    private <E> List<E> queryWithArgs(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
+        BoundSql boundSql = ms.getBoundSql(parameter);
+        CacheKey cacheKey = delegate.createCacheKey(ms, parameter, rowBounds, boundSql);
+        if (parameter instanceof Map && ((Map<?, ?>) parameter).containsKey(FlexConsts.SQL_ARGS)) {
+            Object sqlArgs = ((Map<?, ?>) parameter).get(FlexConsts.SQL_ARGS);
+            if (sqlArgs instanceof Object[]) {
+                for (Object arg : (Object[]) sqlArgs) {
+                    cacheKey.update(arg);
+                }
+            }
+        }
+        return delegate.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+    }
+
+    @Override
+    public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+        return delegate.queryCursor(ms, parameter, rowBounds);
+    }
+
+    @Override
+    public List<BatchResult> flushStatements() throws SQLException {
+        return delegate.flushStatements();
+    }
+
+    @Override
+    public void commit(boolean required) throws SQLException {
+        delegate.commit(required);
+    }
+
+    @Override
+    public void rollback(boolean required) throws SQLException {
+        delegate.rollback(required);
+    }
+
+    @Override
+    public CacheKey createCacheKey(MappedStatement ms, Object parameterObject, RowBounds rowBounds, BoundSql boundSql) {
+        return delegate.createCacheKey(ms, parameterObject, rowBounds, boundSql);
+    }
+
+    @Override
+    public boolean isCached(MappedStatement ms, CacheKey key) {
+        return delegate.isCached(ms, key);
+    }
+
+    @Override
+    public void clearLocalCache() {
+        delegate.clearLocalCache();
+    }
+
+    @Override
+    public void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType) {
+        delegate.deferLoad(ms, resultObject, property, key, targetType);
+    }
+
+    @Override
+    public Transaction getTransaction() {
+        return delegate.getTransaction();
+    }
+
+    @Override
+    public void close(boolean forceRollback) {
+        delegate.close(forceRollback);
+    }
+
+    @Override
+    public boolean isClosed() {
+        return delegate.isClosed();
+    }
+
+    @Override
+    public void setExecutorWrapper(Executor executor) {
+        delegate.setExecutorWrapper(executor);
+    }
+}
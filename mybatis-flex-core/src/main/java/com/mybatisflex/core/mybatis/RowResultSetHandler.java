@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.mybatis;
+
+import com.mybatisflex.core.row.Row;
+import com.mybatisflex.core.row.RowSchema;
+import org.apache.ibatis.executor.ErrorContext;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
+import org.apache.ibatis.executor.resultset.ResultSetWrapper;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.session.AutoMappingBehavior;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.type.TypeHandler;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 返回值为 {@link Row} 的查询，使用紧凑存储的 Row：同一个结果集的所有 Row 共享一个 {@link RowSchema}，每个 Row 只保存值数组
+ * <p>
+ * 列名、TypeHandler 以及 null 值的处理和 mybatis 自动映射到 Map 的结果保持一致；
+ * 使用了 ResultHandler、RowBounds 分页的查询以及 cursor 查询，依然由 {@link DefaultResultSetHandler} 处理
+ */
+public class RowResultSetHandler extends DefaultResultSetHandler {
+
+    private final Configuration configuration;
+    private final MappedStatement mappedStatement;
+    private final ResultHandler<?> resultHandler;
+    private final RowBounds rowBounds;
+
+    public RowResultSetHandler(Executor executor, MappedStatement mappedStatement, ParameterHandler parameterHandler
+            , ResultHandler<?> resultHandler, BoundSql boundSql, RowBounds rowBounds) {
+        super(executor, mappedStatement, parameterHandler, resultHandler, boundSql, rowBounds);
+        this.configuration = mappedStatement.getConfiguration();
+        this.mappedStatement = mappedStatement;
+        this.resultHandler = resultHandler;
+        this.rowBounds = rowBounds;
+    }
+
+
+    /**
+     * 是否为返回 Row 的查询
+     */
+    public static boolean isRowStatement(MappedStatement ms) {
+        List<ResultMap> resultMaps = ms.getResultMaps();
+        if (resultMaps == null || resultMaps.size() != 1 || ms.getResultSets() != null) {
+            return false;
+        }
+        ResultMap resultMap = resultMaps.get(0);
+        return resultMap.getType() == Row.class
+                && resultMap.getResultMappings().isEmpty()
+                && !resultMap.hasNestedResultMaps()
+                && ms.getConfiguration().getAutoMappingBehavior() != AutoMappingBehavior.NONE
+                && !Boolean.FALSE.equals(resultMap.getAutoMapping());
+    }
+
+
+    @Override
+    public List<Object> handleResultSets(Statement stmt) throws SQLException {
+        if (resultHandler != null || rowBounds.getOffset() != RowBounds.NO_ROW_OFFSET
+                || rowBounds.getLimit() != RowBounds.NO_ROW_LIMIT) {
+            return super.handleResultSets(stmt);
+        }
+
+        ErrorContext.instance().activity("handling results").object(mappedStatement.getId());
+
+        ResultSet rs = ColumnarResultSetHandler.getFirstResultSet(stmt);
+        if (rs == null) {
+            return new ArrayList<>();
+        }
+        try {
+            return handleRows(rs);
+        } finally {
+            try {
+                rs.close();
+            } catch (SQLException e) {
+                // ignore
+            }
+        }
+    }
+
+
+    private List<Object> handleRows(ResultSet rs) throws SQLException {
+        ResultSetWrapper rsw = new ResultSetWrapper(rs, configuration);
+        List<String> columnNames = rsw.getColumnNames();
+        int columnCount = columnNames.size();
+
+        //列名重复时 mybatis 通过列名读取到的都是第一列的值，因此只需要读取第一列
+        RowSchema schema = new RowSchema(columnNames.toArray(new String[0]));
+        int size = schema.size();
+        int[] columnIndexes = new int[size];
+        TypeHandler<?>[] typeHandlers = new TypeHandler[size];
+        for (int i = columnCount - 1; i >= 0; i--) {
+            columnIndexes[schema.indexOf(columnNames.get(i))] = i + 1;
+        }
+        for (int i = 0; i < size; i++) {
+            typeHandlers[i] = rsw.getTypeHandler(Object.class, schema.getColumn(i));
+        }
+
+        boolean callSettersOnNulls = configuration.isCallSettersOnNulls();
+        boolean returnInstanceForEmptyRow = configuration.isReturnInstanceForEmptyRow();
+
+        List<Object> rows = new ArrayList<>();
+        while (!rs.isClosed() && rs.next()) {
+            Object[] values = schema.newValues();
+            boolean foundValues = false;
+            for (int i = 0; i < size; i++) {
+                Object value = typeHandlers[i].getResult(rs, columnIndexes[i]);
+                if (value != null) {
+                    values[i] = value;
+                    foundValues = true;
+                } else if (callSettersOnNulls) {
+                    values[i] = null;
+                }
+            }
+            //和 mybatis 保持一致：所有的列都为 null 时，返回 null
+            rows.add(foundValues || returnInstanceForEmptyRow ? Row.ofSchema(schema, values) : null);
+        }
+        return rows;
+    }
+}
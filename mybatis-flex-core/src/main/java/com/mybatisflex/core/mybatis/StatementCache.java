@@ -0,0 +1,421 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.mybatis;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PreparedStatement 缓存
+ * <p>
+ * 每个物理连接（通过 {@link Connection#unwrap(Class)} 获取）有一个 LRU 缓存，key 为：sql + 主键返回方式 + resultSetType。SqlTemplateCache 返回的是同一个 sql 字符串实例，
+ * 因此对比 key 的开销很小。缓存的 PreparedStatement 被包装为代理对象，调用 close() 时并不会真正关闭，而是放回缓存中，
+ * 因此无需配置 REUSE 执行器，默认的 SIMPLE 执行器也能复用 PreparedStatement。
+ * 放回缓存时，queryTimeout、fetchSize、maxRows 等语句级别的设置会被恢复为创建时的值，避免影响下一个相同 sql 的 MappedStatement。
+ * <p>
+ * 连接的缓存保存在 ConcurrentHashMap 中，获取时不会加全局锁；key 弱引用物理连接，
+ * 被回收的连接的缓存会被自动移除，已关闭的连接的缓存也会被定期清除。
+ * <p>
+ * 默认关闭，可以通过 {@link #setEnable(boolean)} 开启；开启后，被淘汰的 PreparedStatement 才会被真正关闭。
+ */
+public class StatementCache {
+
+    private static final Map<ConnectionKey, StatementCache> caches = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Connection> collectedConnections = new ReferenceQueue<>();
+
+    /**
+     * 清除已关闭的连接的缓存的时间间隔
+     */
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final AtomicLong nextSweepTime = new AtomicLong(System.nanoTime() + SWEEP_INTERVAL_NANOS);
+
+    private static final LongAdder hitCount = new LongAdder();
+    private static final LongAdder missCount = new LongAdder();
+    private static final LongAdder evictionCount = new LongAdder();
+
+    private static volatile boolean enable = false;
+    private static volatile int maxSize = 64;
+
+
+    private final Map<StatementKey, CachedStatement> statements = new LinkedHashMap<StatementKey, CachedStatement>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<StatementKey, CachedStatement> eldest) {
+            if (size() > maxSize) {
+                evictionCount.increment();
+                eldest.getValue().evict();
+                return true;
+            }
+            return false;
+        }
+    };
+
+
+    /**
+     * 获取 PreparedStatement，若缓存中不存在（或者正在被使用），则通过 creator 创建
+     *
+     * @param connection           数据库连接
+     * @param sql                  sql
+     * @param returnGeneratedKeys  是否需要返回自增主键
+     * @param keyColumns           需要返回的主键列，可以为 null
+     * @param resultSetType        resultSetType，为 null 表示默认
+     * @param creator              PreparedStatement 的创建方法
+     * @return PreparedStatement
+     */
+    public static PreparedStatement prepareStatement(Connection connection, String sql, boolean returnGeneratedKeys
+            , String[] keyColumns, Integer resultSetType, StatementCreator creator) throws SQLException {
+        if (!enable) {
+            return creator.create();
+        }
+
+        expungeStaleCaches();
+
+        Connection physicalConnection = unwrap(connection);
+        ConnectionKey key = new ConnectionKey(physicalConnection, null);
+        StatementCache cache = caches.get(key);
+        if (cache == null) {
+            cache = caches.computeIfAbsent(new ConnectionKey(physicalConnection, collectedConnections), k -> new StatementCache());
+        }
+        return cache.get(new StatementKey(sql, returnGeneratedKeys, keyColumns, resultSetType), creator);
+    }
+
+
+    /**
+     * 移除已被回收的连接的缓存，并定期移除已关闭的连接的缓存
+     */
+    private static void expungeStaleCaches() {
+        Reference<? extends Connection> reference;
+        while ((reference = collectedConnections.poll()) != null) {
+            StatementCache cache = caches.remove(reference);
+            if (cache != null) {
+                cache.evictAll();
+            }
+        }
+
+        long sweepTime = nextSweepTime.get();
+        long now = System.nanoTime();
+        if (now - sweepTime >= 0 && nextSweepTime.compareAndSet(sweepTime, now + SWEEP_INTERVAL_NANOS)) {
+            caches.entrySet().removeIf(entry -> {
+                Connection physicalConnection = entry.getKey().get();
+                if (physicalConnection == null || isClosed(physicalConnection)) {
+                    entry.getValue().evictAll();
+                    return true;
+                }
+                return false;
+            });
+        }
+    }
+
+
+    private synchronized PreparedStatement get(StatementKey key, StatementCreator creator) throws SQLException {
+        CachedStatement cached = statements.get(key);
+        if (cached != null && !cached.inUse) {
+            if (!cached.statement.isClosed()) {
+                hitCount.increment();
+                cached.inUse = true;
+                return cached.proxy;
+            }
+            //连接池在归还连接时已关闭了 statement
+            statements.remove(key);
+        }
+
+        missCount.increment();
+        PreparedStatement statement = creator.create();
+        if (cached != null) {
+            //相同的 sql 正在被使用（例如 cursor 未关闭），不缓存新创建的 PreparedStatement
+            return statement;
+        }
+
+        try {
+            cached = new CachedStatement(this, statement);
+        } catch (SQLException e) {
+            //无法读取语句级别的设置时不缓存
+            return statement;
+        }
+        cached.inUse = true;
+        statements.put(key, cached);
+        return cached.proxy;
+    }
+
+
+    private static boolean isClosed(Connection connection) {
+        try {
+            return connection.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+
+    private static Connection unwrap(Connection connection) {
+        try {
+            if (connection.isWrapperFor(Connection.class)) {
+                Connection physicalConnection = connection.unwrap(Connection.class);
+                if (physicalConnection != null) {
+                    return physicalConnection;
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            //ignore
+        }
+        return connection;
+    }
+
+
+    /**
+     * 清空所有的缓存，并关闭未被使用的 PreparedStatement
+     */
+    public static void clear() {
+        for (StatementCache cache : caches.values()) {
+            cache.evictAll();
+        }
+        caches.clear();
+    }
+
+    private synchronized void evictAll() {
+        statements.values().forEach(CachedStatement::evict);
+        statements.clear();
+    }
+
+    public static long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public static long getMissCount() {
+        return missCount.sum();
+    }
+
+    public static long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public static boolean isEnable() {
+        return enable;
+    }
+
+    public static void setEnable(boolean enable) {
+        StatementCache.enable = enable;
+        if (!enable) {
+            clear();
+        }
+    }
+
+    public static int getMaxSize() {
+        return maxSize;
+    }
+
+    public static void setMaxSize(int maxSize) {
+        StatementCache.maxSize = maxSize;
+    }
+
+
+    public interface StatementCreator {
+        PreparedStatement create() throws SQLException;
+    }
+
+
+    /**
+     * 被缓存的 PreparedStatement，close() 时放回缓存
+     */
+    private static class CachedStatement implements InvocationHandler {
+
+        private final StatementCache cache;
+        private final PreparedStatement statement;
+        private final PreparedStatement proxy;
+        private boolean inUse;
+        private boolean evicted;
+
+        /**
+         * 创建时的语句级别设置，放回缓存时恢复
+         */
+        private final int queryTimeout;
+        private final int fetchSize;
+        private final int maxRows;
+        private final int fetchDirection;
+        private final int maxFieldSize;
+        private boolean settingsChanged;
+
+        private CachedStatement(StatementCache cache, PreparedStatement statement) throws SQLException {
+            this.cache = cache;
+            this.statement = statement;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(StatementCache.class.getClassLoader()
+                    , new Class[]{PreparedStatement.class}, this);
+            this.queryTimeout = statement.getQueryTimeout();
+            this.fetchSize = statement.getFetchSize();
+            this.maxRows = statement.getMaxRows();
+            this.fetchDirection = statement.getFetchDirection();
+            this.maxFieldSize = statement.getMaxFieldSize();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name) && method.getParameterCount() == 0) {
+                release();
+                return null;
+            }
+            if ("isClosed".equals(name) && method.getParameterCount() == 0) {
+                return !inUse || statement.isClosed();
+            }
+            if (isSettingMethod(name)) {
+                settingsChanged = true;
+            }
+            try {
+                return method.invoke(statement, args);
+            } catch (Throwable t) {
+                throw ExceptionUtil.unwrapThrowable(t);
+            }
+        }
+
+        private void release() throws SQLException {
+            boolean close;
+            synchronized (cache) {
+                inUse = false;
+                close = evicted;
+            }
+            if (close) {
+                statement.close();
+            } else {
+                try {
+                    statement.clearParameters();
+                    resetSettings();
+                } catch (SQLException e) {
+                    evict();
+                }
+            }
+        }
+
+        private void resetSettings() throws SQLException {
+            if (!settingsChanged) {
+                return;
+            }
+            statement.setQueryTimeout(queryTimeout);
+            statement.setFetchSize(fetchSize);
+            statement.setMaxRows(maxRows);
+            statement.setFetchDirection(fetchDirection);
+            statement.setMaxFieldSize(maxFieldSize);
+            settingsChanged = false;
+        }
+
+        private static boolean isSettingMethod(String name) {
+            switch (name) {
+                case "setQueryTimeout":
+                case "setFetchSize":
+                case "setMaxRows":
+                case "setLargeMaxRows":
+                case "setFetchDirection":
+                case "setMaxFieldSize":
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private void evict() {
+            evicted = true;
+            if (!inUse) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    //ignore
+                }
+            }
+        }
+    }
+
+
+    /**
+     * 按对象标识比较的连接弱引用
+     */
+    private static class ConnectionKey extends WeakReference<Connection> {
+        private final int hashCode;
+
+        private ConnectionKey(Connection connection, ReferenceQueue<Connection> queue) {
+            super(connection, queue);
+            this.hashCode = System.identityHashCode(connection);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ConnectionKey)) {
+                return false;
+            }
+            Connection connection = get();
+            return connection != null && connection == ((ConnectionKey) o).get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+
+    private static class StatementKey {
+        private final String sql;
+        private final boolean returnGeneratedKeys;
+        private final String[] keyColumns;
+        private final Integer resultSetType;
+        private final int hashCode;
+
+        private StatementKey(String sql, boolean returnGeneratedKeys, String[] keyColumns, Integer resultSetType) {
+            this.sql = sql;
+            this.returnGeneratedKeys = returnGeneratedKeys;
+            this.keyColumns = keyColumns;
+            this.resultSetType = resultSetType;
+            this.hashCode = Objects.hash(sql, returnGeneratedKeys, Arrays.hashCode(keyColumns), resultSetType);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof StatementKey)) {
+                return false;
+            }
+            StatementKey that = (StatementKey) o;
+            return returnGeneratedKeys == that.returnGeneratedKeys
+                    && sql.equals(that.sql)
+                    && Arrays.equals(keyColumns, that.keyColumns)
+                    && Objects.equals(resultSetType, that.resultSetType);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
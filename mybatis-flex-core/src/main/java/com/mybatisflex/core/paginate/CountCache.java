@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.paginate;
+
+import com.mybatisflex.core.BaseMapper;
+import com.mybatisflex.core.dialect.DialectFactory;
+import com.mybatisflex.core.dialect.IDialect;
+import com.mybatisflex.core.querywrapper.CPI;
+import com.mybatisflex.core.querywrapper.QueryWrapper;
+import com.mybatisflex.core.table.TableInfo;
+import com.mybatisflex.core.table.TableInfos;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 分页查询的总量（totalRow）缓存，默认关闭
+ * <p>
+ * 缓存的 key 为：表名 + 格式化后的 count sql + 参数，缓存在 ttl 之后过期；
+ * 数据变化后需要立即生效时，可以通过 {@link #invalidate(String)} 清除某张表的缓存。
+ */
+public class CountCache {
+
+    private static final Map<String, Entry> counts = new ConcurrentHashMap<>();
+
+    private static final LongAdder hitCount = new LongAdder();
+    private static final LongAdder missCount = new LongAdder();
+
+    private static volatile boolean enable = false;
+    private static volatile long ttl = 60 * 1000L;
+    private static volatile int maxSize = 1024;
+
+    private CountCache() {
+    }
+
+
+    /**
+     * 获取总量，缓存不存在或者已经过期时，通过 counter 查询并缓存
+     *
+     * @param namespace    表名，或者 entity 的 mapper
+     * @param countWrapper 查询总量的 queryWrapper，需要在执行查询之前调用，因为查询时 queryWrapper 可能会被修改
+     * @param counter      查询总量
+     * @return 总量
+     */
+    public static long getCount(Object namespace, QueryWrapper countWrapper, LongSupplier counter) {
+        if (!enable) {
+            return counter.getAsLong();
+        }
+
+        String key = buildKey(getTableName(namespace), countWrapper);
+        long now = System.currentTimeMillis();
+        Entry entry = counts.get(key);
+        if (entry != null && entry.expireAt > now) {
+            hitCount.increment();
+            return entry.count;
+        }
+
+        missCount.increment();
+        long count = counter.getAsLong();
+
+        if (entry == null && counts.size() >= maxSize) {
+            counts.values().removeIf(e -> e.expireAt <= now);
+            if (counts.size() >= maxSize) {
+                counts.clear();
+            }
+        }
+        counts.put(key, new Entry(count, now + ttl));
+        return count;
+    }
+
+
+    private static String buildKey(String tableName, QueryWrapper countWrapper) {
+        IDialect dialect = DialectFactory.getDialect();
+        String sql = dialect.forSelectCountByQuery(countWrapper);
+        return tableName + ':' + sql.replaceAll("\\s+", " ").trim() + ':' + Arrays.deepToString(CPI.getValueArray(countWrapper, dialect));
+    }
+
+
+    private static String getTableName(Object namespace) {
+        if (namespace instanceof String) {
+            return (String) namespace;
+        }
+        //mapper 一般为 jdk 动态代理，通过其实现的接口获取 TableInfo
+        for (Class<?> mapperClass : namespace.getClass().getInterfaces()) {
+            if (BaseMapper.class.isAssignableFrom(mapperClass)) {
+                TableInfo tableInfo = TableInfos.ofMapperClass(mapperClass);
+                if (tableInfo != null) {
+                    return tableInfo.getTableName();
+                }
+            }
+        }
+        return namespace.getClass().getName();
+    }
+
+
+    /**
+     * 清除某张表的缓存
+     *
+     * @param tableName 表名
+     */
+    public static void invalidate(String tableName) {
+        String prefix = tableName + ':';
+        counts.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    public static void clear() {
+        counts.clear();
+    }
+
+    public static int size() {
+        return counts.size();
+    }
+
+    public static long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public static long getMissCount() {
+        return missCount.sum();
+    }
+
+    public static boolean isEnable() {
+        return enable;
+    }
+
+    public static void setEnable(boolean enable) {
+        CountCache.enable = enable;
+    }
+
+    public static long getTtl() {
+        return ttl;
+    }
+
+    /**
+     * @param ttl 缓存的有效时间，单位：毫秒
+     */
+    public static void setTtl(long ttl) {
+        CountCache.ttl = ttl;
+    }
+
+    public static int getMaxSize() {
+        return maxSize;
+    }
+
+    public static void setMaxSize(int maxSize) {
+        CountCache.maxSize = maxSize;
+    }
+
+
+    private static class Entry {
+        private final long count;
+        private final long expireAt;
+
+        Entry(long count, long expireAt) {
+            this.count = count;
+            this.expireAt = expireAt;
+        }
+    }
+}
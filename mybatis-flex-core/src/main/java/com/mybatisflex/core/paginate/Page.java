@@ -28,6 +28,7 @@ public class Page<T> implements Serializable {
     private int pageSize = INIT_VALUE;                // result amount of this page
     private long totalPage = INIT_VALUE;              // total page
     private long totalRow = INIT_VALUE;               // total row
+    private Object[] afterKeys;                       // keyset: sort values of the last row of previous page
 
     public static Page of(int pageNumber, int pageSize) {
         return new Page(pageNumber, pageSize);
@@ -104,6 +105,20 @@ public class Page<T> implements Serializable {
         this.totalPage = totalRow % pageSize == 0 ? (totalRow / pageSize) : (totalRow / pageSize + 1);
     }
 
+    public Object[] getAfterKeys() {
+        return afterKeys;
+    }
+
+    /**
+     * 设置上一页最后一条数据的排序字段值，设置后使用 keyset（seek）分页，不再通过 offset 跳过前面的数据
+     * 参考 {@link com.mybatisflex.core.querywrapper.QueryWrapper#seekAfter(Object...)}
+     *
+     * @param afterKeys 排序字段值，顺序与 orderBy 一致
+     */
+    public void setAfterKeys(Object... afterKeys) {
+        this.afterKeys = afterKeys;
+    }
+
     public boolean isFirstPage() {
         return pageNumber == 1;
     }
@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.paginate;
+
+import com.mybatisflex.core.BaseMapper;
+import com.mybatisflex.core.datasource.DataSourceKey;
+import com.mybatisflex.core.dialect.DbType;
+import com.mybatisflex.core.dialect.DialectFactory;
+import com.mybatisflex.core.exception.FlexExceptions;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 异步分页（paginateAsync）时，用于同时执行 count 查询和数据查询的线程池，也用于 selectListByIds 分批并行查询
+ * 默认在 jdk 21 及以上使用虚拟线程，否则使用守护线程的 cachedThreadPool，可以通过 {@link #setExecutor(Executor)} 替换
+ * <p>
+ * mapper 可能绑定在一个非线程安全的 sqlSession 上（例如 MybatisFlexBootstrap.execute 中的 mapper），
+ * 因此每个异步任务都通过 {@link #supplyAsync(SqlSessionFactory, Class, Function)} 从 SqlSessionFactory 打开自己的 sqlSession。
+ */
+public class PaginateExecutor {
+
+    private static volatile Executor executor;
+
+    private PaginateExecutor() {
+    }
+
+    public static Executor getExecutor() {
+        if (executor == null) {
+            synchronized (PaginateExecutor.class) {
+                if (executor == null) {
+                    executor = createDefaultExecutor();
+                }
+            }
+        }
+        return executor;
+    }
+
+    public static void setExecutor(Executor executor) {
+        PaginateExecutor.executor = executor;
+    }
+
+
+    /**
+     * 在线程池中使用新的 sqlSession 执行 mapper 的方法，执行完成后关闭 sqlSession
+     * <p>
+     * 当前线程通过 DialectFactory.setHintDbType 和 DataSourceKey.use 设置的数据库类型和数据源会传递到执行的线程中
+     *
+     * @param sqlSessionFactory 用于打开 sqlSession
+     * @param mapperClass       mapper 的接口
+     * @param function          使用 mapper 执行的方法
+     * @return CompletableFuture
+     */
+    public static <M, R> CompletableFuture<R> supplyAsync(SqlSessionFactory sqlSessionFactory, Class<M> mapperClass, Function<M, R> function) {
+        if (sqlSessionFactory == null) {
+            throw FlexExceptions.wrap("sqlSessionFactory can not be null.");
+        }
+        DbType hintDbType = DialectFactory.getHintDbType();
+        String dataSourceKey = DataSourceKey.get();
+        return CompletableFuture.supplyAsync(() -> {
+            DialectFactory.setHintDbType(hintDbType);
+            if (dataSourceKey != null) {
+                DataSourceKey.use(dataSourceKey);
+            }
+            try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+                return function.apply(sqlSession.getMapper(mapperClass));
+            } finally {
+                DialectFactory.clearHintDbType();
+                DataSourceKey.clear();
+            }
+        }, getExecutor());
+    }
+
+
+    /**
+     * 获取 mapper 对象实现的 BaseMapper 子接口，mapper 一般为 mybatis 创建的 jdk 动态代理
+     *
+     * @param mapper mapper 对象
+     * @return mapper 的接口
+     */
+    public static Class<?> getMapperClass(Object mapper) {
+        for (Class<?> mapperClass : mapper.getClass().getInterfaces()) {
+            if (BaseMapper.class.isAssignableFrom(mapperClass)) {
+                return mapperClass;
+            }
+        }
+        throw FlexExceptions.wrap("Can not find the mapper interface of: " + mapper.getClass().getName());
+    }
+
+
+    private static Executor createDefaultExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (Exception e) {
+            //jdk 21 以下不支持虚拟线程
+        }
+
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "mybatis-flex-paginate-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -15,8 +15,9 @@
  */
 package com.mybatisflex.core.provider;
 
-import com.mybatisflex.core.dialect.DialectFactory;
+import com.mybatisflex.core.dialect.IDialect;
 import com.mybatisflex.core.exception.FlexExceptions;
+import com.mybatisflex.core.querywrapper.BoundQuery;
 import com.mybatisflex.core.querywrapper.QueryColumn;
 import com.mybatisflex.core.querywrapper.QueryCondition;
 import com.mybatisflex.core.querywrapper.QueryWrapper;
@@ -24,6 +25,7 @@ import com.mybatisflex.core.querywrapper.CPI;
 import com.mybatisflex.core.table.TableInfo;
 import com.mybatisflex.core.util.ArrayUtil;
 import com.mybatisflex.core.util.CollectionUtil;
+import com.mybatisflex.core.util.SqlArgsBuilder;
 import com.mybatisflex.core.util.StringUtil;
 import org.apache.ibatis.builder.annotation.ProviderContext;
 
@@ -31,6 +33,7 @@ import java.io.Serializable;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class EntitySqlProvider {
 
@@ -56,7 +59,7 @@ public class EntitySqlProvider {
             throw FlexExceptions.wrap("entity can not be null.");
         }
 
-        TableInfo tableInfo = ProviderUtil.getTableInfo(context);
+        TableInfo tableInfo = ProviderUtil.getTableInfo(context, params);
 
         //设置乐观锁版本字段的初始化
         tableInfo.initVersionValueIfNecessary(entity);
@@ -64,7 +67,7 @@ public class EntitySqlProvider {
         Object[] values = tableInfo.obtainInsertValues(entity);
         ProviderUtil.setSqlArgs(params, values);
 
-        return DialectFactory.getDialect().forInsertEntity(tableInfo, entity);
+        return SqlTemplateCache.getSql(context, ProviderUtil.getDialect(params), tableInfo.getTableName(), null, dialect -> dialect.forInsertEntity(tableInfo, entity));
     }
 
 
@@ -83,19 +86,19 @@ public class EntitySqlProvider {
             throw FlexExceptions.wrap("entities can not be null or empty.");
         }
 
-        TableInfo tableInfo = ProviderUtil.getTableInfo(context);
+        TableInfo tableInfo = ProviderUtil.getTableInfo(context, params);
         for (Object entity : entities) {
             tableInfo.initVersionValueIfNecessary(entity);
         }
 
-        Object[] values = new Object[0];
+        SqlArgsBuilder values = new SqlArgsBuilder(tableInfo.getInsertValueCount() * entities.size());
         for (Object entity : entities) {
-            values = ArrayUtil.concat(values, tableInfo.obtainInsertValues(entity));
+            values.addAll(tableInfo.obtainInsertValues(entity));
         }
 
-        ProviderUtil.setSqlArgs(params, values);
+        ProviderUtil.setSqlArgs(params, values.build());
 
-        return DialectFactory.getDialect().forInsertEntityBatch(tableInfo, entities);
+        return ProviderUtil.getDialect(params).forInsertEntityBatch(tableInfo, entities);
     }
 
 
@@ -113,10 +116,10 @@ public class EntitySqlProvider {
             throw FlexExceptions.wrap("primaryValues can not be null or empty.");
         }
 
-        TableInfo tableInfo = ProviderUtil.getTableInfo(context);
+        TableInfo tableInfo = ProviderUtil.getTableInfo(context, params);
         ProviderUtil.setSqlArgs(params, primaryValues);
 
-        return DialectFactory.getDialect().forDeleteEntityById(tableInfo);
+        return SqlTemplateCache.getSql(context, ProviderUtil.getDialect(params), tableInfo.getTableName(), null, dialect -> dialect.forDeleteEntityById(tableInfo));
     }
 
 
@@ -134,10 +137,11 @@ public class EntitySqlProvider {
             throw FlexExceptions.wrap("primaryValues can not be null or empty.");
         }
 
-        TableInfo tableInfo = ProviderUtil.getTableInfo(context);
+        TableInfo tableInfo = ProviderUtil.getTableInfo(context, params);
         ProviderUtil.setSqlArgs(params, primaryValues);
 
-        return DialectFactory.getDialect().forDeleteEntityBatchByIds(tableInfo, primaryValues);
+        return SqlTemplateCache.getSql(context, ProviderUtil.getDialect(params), tableInfo.getTableName(), primaryValues.length
+                , dialect -> dialect.forDeleteEntityBatchByIds(tableInfo, primaryValues));
     }
 
 
@@ -155,12 +159,13 @@ public class EntitySqlProvider {
             throw FlexExceptions.wrap("queryWrapper can not be null or empty.");
         }
 
-        ProviderUtil.setSqlArgs(params, CPI.getValueArray(queryWrapper));
+        IDialect dialect = ProviderUtil.getDialect(params);
+        ProviderUtil.setSqlArgs(params, CPI.getValueArray(queryWrapper, dialect));
 
         TableInfo tableInfo = ProviderUtil.getTableInfo(context);
         queryWrapper.from(tableInfo.getTableName());
 
-        return DialectFactory.getDialect().forDeleteEntityBatchByQuery(tableInfo, queryWrapper);
+        return dialect.forDeleteEntityBatchByQuery(tableInfo, queryWrapper);
     }
 
 
@@ -180,12 +185,19 @@ public class EntitySqlProvider {
 
         boolean ignoreNulls = ProviderUtil.isIgnoreNulls(params);
 
-        TableInfo tableInfo = ProviderUtil.getTableInfo(context);
-        Object[] updateValues = tableInfo.obtainUpdateValues(entity, ignoreNulls, false);
-        Object[] primaryValues = tableInfo.obtainPrimaryValues(entity);
-        ProviderUtil.setSqlArgs(params, ArrayUtil.concat(updateValues, primaryValues));
+        TableInfo tableInfo = ProviderUtil.getTableInfo(context, params);
+        //update 的列只计算一次，同时用于 sql 和参数
+        Set<String> updateColumns = tableInfo.obtainUpdateColumns(entity, ignoreNulls, false);
+        ProviderUtil.setSqlArgs(params, tableInfo.obtainUpdateValues(entity, updateColumns));
+
+        //乐观锁的版本号会直接拼接到 sql 中，此时不能缓存
+        if (StringUtil.isNotBlank(tableInfo.getVersionColumn())) {
+            return ProviderUtil.getDialect(params).forUpdateEntity(tableInfo, entity, ignoreNulls, updateColumns);
+        }
 
-        return DialectFactory.getDialect().forUpdateEntity(tableInfo, entity, ignoreNulls);
+        //更新的列（及其顺序）决定了 sql 的形状
+        Object shape = SqlTemplateCache.columnsShape(tableInfo, updateColumns);
+        return SqlTemplateCache.getSql(context, ProviderUtil.getDialect(params), tableInfo.getTableName(), shape, dialect -> dialect.forUpdateEntity(tableInfo, entity, ignoreNulls, updateColumns));
     }
 
 
@@ -214,9 +226,10 @@ public class EntitySqlProvider {
 
         Object[] values = tableInfo.obtainUpdateValues(entity, ignoreNulls, true);
 
-        ProviderUtil.setSqlArgs(params, ArrayUtil.concat(values, CPI.getValueArray(queryWrapper)));
+        IDialect dialect = ProviderUtil.getDialect(params);
+        ProviderUtil.setSqlArgs(params, ArrayUtil.concat(values, CPI.getValueArray(queryWrapper, dialect)));
 
-        return DialectFactory.getDialect().forUpdateEntityByQuery(tableInfo, entity, ignoreNulls, queryWrapper);
+        return dialect.forUpdateEntityByQuery(tableInfo, entity, ignoreNulls, queryWrapper);
     }
 
 
@@ -236,8 +249,8 @@ public class EntitySqlProvider {
 
         ProviderUtil.setSqlArgs(params, primaryValues);
 
-        TableInfo tableInfo = ProviderUtil.getTableInfo(context);
-        return DialectFactory.getDialect().forSelectOneEntityById(tableInfo);
+        TableInfo tableInfo = ProviderUtil.getTableInfo(context, params);
+        return SqlTemplateCache.getSql(context, ProviderUtil.getDialect(params), tableInfo.getTableName(), null, dialect -> dialect.forSelectOneEntityById(tableInfo));
     }
 
 
@@ -257,8 +270,9 @@ public class EntitySqlProvider {
 
         ProviderUtil.setSqlArgs(params, primaryValues);
 
-        TableInfo tableInfo = ProviderUtil.getTableInfo(context);
-        return DialectFactory.getDialect().forSelectEntityListByIds(tableInfo, primaryValues);
+        TableInfo tableInfo = ProviderUtil.getTableInfo(context, params);
+        return SqlTemplateCache.getSql(context, ProviderUtil.getDialect(params), tableInfo.getTableName(), primaryValues.length
+                , dialect -> dialect.forSelectEntityListByIds(tableInfo, primaryValues));
     }
 
 
@@ -283,14 +297,31 @@ public class EntitySqlProvider {
             queryWrapper.and(QueryCondition.create(new QueryColumn(tableInfo.getTableName(), logicDeleteColumn), 0));
         }
 
-        Object[] values = CPI.getValueArray(queryWrapper);
+        IDialect dialect = ProviderUtil.getDialect(params);
+        Object[] values = CPI.getValueArray(queryWrapper, dialect);
         ProviderUtil.setSqlArgs(params, values);
 
         queryWrapper.from(tableInfo.getTableName());
 
-        return DialectFactory.getDialect().forSelectListByQuery(queryWrapper);
+        return dialect.forSelectListByQuery(queryWrapper);
     }
 
+    /**
+     * selectListByCompiledQuery 的 sql 构建，sql 由 CompiledQuery 按方言缓存，这里只绑定参数
+     *
+     * @param params
+     * @param context
+     * @return sql
+     * @see com.mybatisflex.core.BaseMapper#selectListByCompiledQuery(BoundQuery)
+     */
+    public static String selectListByCompiledQuery(Map params, ProviderContext context) {
+        BoundQuery boundQuery = ProviderUtil.getBoundQuery(params);
+        IDialect dialect = ProviderUtil.getDialect(params);
+        ProviderUtil.setSqlArgs(params, boundQuery.getArgs(dialect));
+        return boundQuery.getSql(dialect);
+    }
+
+
     /**
      * selectCountByQuery 的 sql 构建
      *
@@ -313,11 +344,12 @@ public class EntitySqlProvider {
             queryWrapper.and(QueryCondition.create(new QueryColumn(tableInfo.getTableName(), logicDeleteColumn), 0));
         }
 
-        Object[] values = CPI.getValueArray(queryWrapper);
+        IDialect dialect = ProviderUtil.getDialect(params);
+        Object[] values = CPI.getValueArray(queryWrapper, dialect);
         ProviderUtil.setSqlArgs(params, values);
 
         queryWrapper.from(tableInfo.getTableName());
-        return DialectFactory.getDialect().forSelectCountByQuery(queryWrapper);
+        return dialect.forSelectCountByQuery(queryWrapper);
     }
 
 
@@ -16,14 +16,21 @@
 package com.mybatisflex.core.provider;
 
 import com.mybatisflex.core.FlexConsts;
+import com.mybatisflex.core.datasource.DataSourceKey;
+import com.mybatisflex.core.dialect.DialectFactory;
+import com.mybatisflex.core.dialect.IDialect;
 import com.mybatisflex.core.exception.FlexExceptions;
+import com.mybatisflex.core.querywrapper.BoundQuery;
 import com.mybatisflex.core.querywrapper.QueryWrapper;
 import com.mybatisflex.core.row.Row;
+import com.mybatisflex.core.shard.TableShardInfo;
 import com.mybatisflex.core.table.TableInfo;
 import com.mybatisflex.core.table.TableInfos;
 import com.mybatisflex.core.util.StringUtil;
 import org.apache.ibatis.builder.annotation.ProviderContext;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +43,13 @@ class ProviderUtil {
         return (String) params.get(FlexConsts.SQL);
     }
 
+    /**
+     * 当前 FlexConfiguration 的方言（已包含 hint 设置的 dbType），不是通过 FlexConfiguration 执行时使用默认的方言
+     */
+    public static IDialect getDialect(Map params) {
+        return params.containsKey(FlexConsts.DIALECT) ? (IDialect) params.get(FlexConsts.DIALECT) : DialectFactory.getDialect();
+    }
+
     public static void setSqlArgs(Map params, Object[] args) {
         params.put(FlexConsts.SQL_ARGS, args);
     }
@@ -64,16 +78,42 @@ class ProviderUtil {
         if (primaryValue.getClass().isArray()) {
             return (Object[]) primaryValue;
         } else if (primaryValue instanceof Collection) {
-            return ((Collection<?>) primaryValue).toArray();
+            return flatPrimaryValues(((Collection<?>) primaryValue).toArray());
         } else {
             return new Object[]{primaryValue};
         }
     }
 
+    /**
+     * 多主键时，集合中的每个元素为主键值的数组，需要展开为 sql 的参数
+     */
+    private static Object[] flatPrimaryValues(Object[] values) {
+        if (values.length == 0 || !(values[0] instanceof Object[])) {
+            return values;
+        }
+        List<Object> flatValues = new ArrayList<>(values.length * ((Object[]) values[0]).length);
+        for (Object value : values) {
+            if (value instanceof Object[]) {
+                flatValues.addAll(Arrays.asList((Object[]) value));
+            } else {
+                flatValues.add(value);
+            }
+        }
+        return flatValues.toArray();
+    }
+
     public static QueryWrapper getQueryWrapper(Map params) {
         return (QueryWrapper) params.get(FlexConsts.QUERY);
     }
 
+    public static BoundQuery getBoundQuery(Map params) {
+        BoundQuery boundQuery = (BoundQuery) params.get(FlexConsts.QUERY);
+        if (boundQuery == null) {
+            throw FlexExceptions.wrap("boundQuery can not be null.");
+        }
+        return boundQuery;
+    }
+
     public static Row getRow(Map params) {
         return (Row) params.get(FlexConsts.ROW);
     }
@@ -86,6 +126,40 @@ class ProviderUtil {
         return TableInfos.ofMapperClass(context.getMapperType());
     }
 
+    /**
+     * 分表时，根据 entity 或者主键定位到物理表，并指定物理表所在的数据源
+     */
+    public static TableInfo getTableInfo(ProviderContext context, Map params) {
+        TableInfo tableInfo = getTableInfo(context);
+        TableShardInfo shardInfo = tableInfo.getShardInfo();
+        if (shardInfo == null) {
+            return tableInfo;
+        }
+        long shardIndex;
+        switch (context.getMapperMethod().getName()) {
+            case "insert":
+            case "update":
+                shardIndex = shardInfo.routeByEntity(getEntity(params));
+                break;
+            case FlexConsts.METHOD_INSERT_BATCH:
+                shardIndex = shardInfo.routeByEntities(getEntities(params));
+                break;
+            case "deleteById":
+            case "deleteBatchByIds":
+            case "selectOneById":
+            case "selectListByIds":
+                shardIndex = shardInfo.routeByPrimaryValues(getPrimaryValues(params));
+                break;
+            default:
+                return tableInfo;
+        }
+        String dataSource = shardInfo.getDataSource(shardIndex);
+        if (dataSource != null) {
+            DataSourceKey.useForCurrentStatement(dataSource);
+        }
+        return shardInfo.getShardTableInfo(shardIndex);
+    }
+
     public static Object getEntity(Map params) {
         return params.get(FlexConsts.ENTITY);
     }
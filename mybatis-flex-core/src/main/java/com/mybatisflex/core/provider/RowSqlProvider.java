@@ -15,14 +15,16 @@
  */
 package com.mybatisflex.core.provider;
 
-import com.mybatisflex.core.dialect.DialectFactory;
+import com.mybatisflex.core.dialect.IDialect;
 import com.mybatisflex.core.exception.FlexExceptions;
+import com.mybatisflex.core.querywrapper.BoundQuery;
 import com.mybatisflex.core.querywrapper.CPI;
 import com.mybatisflex.core.querywrapper.QueryWrapper;
 import com.mybatisflex.core.row.Row;
 import com.mybatisflex.core.row.RowMapper;
 import com.mybatisflex.core.util.ArrayUtil;
 import com.mybatisflex.core.util.CollectionUtil;
+import com.mybatisflex.core.util.SqlArgsBuilder;
 
 import java.util.Collection;
 import java.util.List;
@@ -65,7 +67,7 @@ public class RowSqlProvider {
         String tableName = ProviderUtil.getTableName(params);
         Row row = ProviderUtil.getRow(params);
         ProviderUtil.setSqlArgs(params, row.obtainModifyValues());
-        return DialectFactory.getDialect().forInsertRow(tableName, row);
+        return ProviderUtil.getDialect(params).forInsertRow(tableName, row);
     }
 
     /**
@@ -87,15 +89,15 @@ public class RowSqlProvider {
         rows.forEach(row -> row.keep(modifyAttrs));
 
 
-        Object[] values = new Object[]{};
+        SqlArgsBuilder values = new SqlArgsBuilder(modifyAttrs.size() * rows.size());
         for (Row row : rows) {
-            values = ArrayUtil.concat(values, row.obtainModifyValues());
+            row.appendModifyValues(values);
         }
-        ProviderUtil.setSqlArgs(params, values);
+        ProviderUtil.setSqlArgs(params, values.build());
 
 
         //sql: INSERT INTO `tb_table`(`name`, `sex`) VALUES (?, ?),(?, ?),(?, ?)
-        return DialectFactory.getDialect().forInsertBatchWithFirstRowColumns(tableName, rows);
+        return ProviderUtil.getDialect(params).forInsertBatchWithFirstRowColumns(tableName, rows);
     }
 
     /**
@@ -116,7 +118,7 @@ public class RowSqlProvider {
             ProviderUtil.setSqlArgs(params, primaryValues);
         }
 
-        return DialectFactory.getDialect().forDeleteById(tableName, primaryKeys);
+        return ProviderUtil.getDialect(params).forDeleteById(tableName, primaryKeys);
     }
 
     /**
@@ -132,7 +134,7 @@ public class RowSqlProvider {
         Object[] primaryValues = ProviderUtil.getPrimaryValues(params);
 
         ProviderUtil.setSqlArgs(params, primaryValues);
-        return DialectFactory.getDialect().forDeleteBatchByIds(tableName, primaryKeys, primaryValues);
+        return ProviderUtil.getDialect(params).forDeleteBatchByIds(tableName, primaryKeys, primaryValues);
     }
 
 
@@ -147,11 +149,12 @@ public class RowSqlProvider {
         String tableName = ProviderUtil.getTableName(params);
         QueryWrapper queryWrapper = ProviderUtil.getQueryWrapper(params);
 
-        Object[] valueArray = CPI.getValueArray(queryWrapper);
+        IDialect dialect = ProviderUtil.getDialect(params);
+        Object[] valueArray = CPI.getValueArray(queryWrapper, dialect);
         ProviderUtil.setSqlArgs(params, valueArray);
 
         queryWrapper.from(tableName);
-        return DialectFactory.getDialect().forDeleteByQuery(queryWrapper);
+        return dialect.forDeleteByQuery(queryWrapper);
     }
 
     /**
@@ -165,7 +168,7 @@ public class RowSqlProvider {
         String tableName = ProviderUtil.getTableName(params);
         Row row = ProviderUtil.getRow(params);
         ProviderUtil.setSqlArgs(params, row.obtainModifyValuesAndPrimaryValues());
-        return DialectFactory.getDialect().forUpdateById(tableName, row);
+        return ProviderUtil.getDialect(params).forUpdateById(tableName, row);
     }
 
 
@@ -183,11 +186,12 @@ public class RowSqlProvider {
 
 
         Object[] modifyValues = data.obtainModifyValues();
-        Object[] valueArray = CPI.getValueArray(queryWrapper);
+        IDialect dialect = ProviderUtil.getDialect(params);
+        Object[] valueArray = CPI.getValueArray(queryWrapper, dialect);
 
         ProviderUtil.setSqlArgs(params, ArrayUtil.concat(modifyValues, valueArray));
 
-        return DialectFactory.getDialect().forUpdateByQuery(tableName, data, queryWrapper);
+        return dialect.forUpdateByQuery(tableName, data, queryWrapper);
     }
 
 
@@ -206,12 +210,16 @@ public class RowSqlProvider {
             throw FlexExceptions.wrap("rows can not be null or empty.");
         }
 
-        Object[] values = new Object[0];
+        int valueCount = 0;
         for (Row row : rows) {
-            values = ArrayUtil.concat(values, row.obtainModifyValuesAndPrimaryValues());
+            valueCount += row.obtainModifyValuesAndPrimaryValuesCount();
         }
-        ProviderUtil.setSqlArgs(params, values);
-        return DialectFactory.getDialect().forUpdateBatchById(tableName, rows);
+        SqlArgsBuilder values = new SqlArgsBuilder(valueCount);
+        for (Row row : rows) {
+            row.appendModifyValuesAndPrimaryValues(values);
+        }
+        ProviderUtil.setSqlArgs(params, values.build());
+        return ProviderUtil.getDialect(params).forUpdateBatchById(tableName, rows);
     }
 
 
@@ -229,7 +237,7 @@ public class RowSqlProvider {
 
         ProviderUtil.setSqlArgs(params, primaryValues);
 
-        return DialectFactory.getDialect().forSelectOneById(tableName, primaryKeys, primaryValues);
+        return ProviderUtil.getDialect(params).forSelectOneById(tableName, primaryKeys, primaryValues);
     }
 
 
@@ -244,11 +252,26 @@ public class RowSqlProvider {
         String tableName = ProviderUtil.getTableName(params);
         QueryWrapper queryWrapper = ProviderUtil.getQueryWrapper(params);
 
-        Object[] valueArray = CPI.getValueArray(queryWrapper);
+        IDialect dialect = ProviderUtil.getDialect(params);
+        Object[] valueArray = CPI.getValueArray(queryWrapper, dialect);
         ProviderUtil.setSqlArgs(params, valueArray);
 
         queryWrapper.from(tableName);
-        return DialectFactory.getDialect().forSelectListByQuery(queryWrapper);
+        return dialect.forSelectListByQuery(queryWrapper);
+    }
+
+    /**
+     * selectListByCompiledQuery 的 sql 构建，sql 由 CompiledQuery 按方言缓存，这里只绑定参数
+     *
+     * @param params
+     * @return sql
+     * @see RowMapper#selectListByCompiledQuery(BoundQuery)
+     */
+    public static String selectListByCompiledQuery(Map params) {
+        BoundQuery boundQuery = ProviderUtil.getBoundQuery(params);
+        IDialect dialect = ProviderUtil.getDialect(params);
+        ProviderUtil.setSqlArgs(params, boundQuery.getArgs(dialect));
+        return boundQuery.getSql(dialect);
     }
 
     /**
@@ -262,10 +285,12 @@ public class RowSqlProvider {
         String tableName = ProviderUtil.getTableName(params);
         QueryWrapper queryWrapper = ProviderUtil.getQueryWrapper(params);
 
-        Object[] valueArray = CPI.getValueArray(queryWrapper);
+        IDialect dialect = ProviderUtil.getDialect(params);
+        Object[] valueArray = CPI.getValueArray(queryWrapper, dialect);
         ProviderUtil.setSqlArgs(params, valueArray);
 
-        return DialectFactory.getDialect().forSelectCountByQuery(queryWrapper);
+        queryWrapper.from(tableName);
+        return dialect.forSelectCountByQuery(queryWrapper);
     }
 
 
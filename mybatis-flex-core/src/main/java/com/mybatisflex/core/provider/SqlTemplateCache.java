@@ -0,0 +1,249 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.provider;
+
+import com.mybatisflex.core.dialect.DbType;
+import com.mybatisflex.core.dialect.DialectFactory;
+import com.mybatisflex.core.dialect.IDialect;
+import com.mybatisflex.core.table.TableInfo;
+import org.apache.ibatis.builder.annotation.ProviderContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Provider 生成的 SQL 模板缓存
+ * <p>
+ * 对于只和 TableInfo、方言以及 "形状"（例如：更新的列、主键的数量）相关的 SQL，无需每次都重新构建，
+ * 缓存的 key 为：mapper 类 + mapper 方法 + 表名 + 方言 + 形状，分表时每个物理表有各自的缓存。
+ * <p>
+ * 缓存的数量有上限，超过 maxSize 时按写入的顺序逐个淘汰最早的 SQL；方言实例是 key 的一部分，
+ * 当通过 {@link DialectFactory#registerDialect(DbType, IDialect)} 替换了方言后，会使用新的方言重新构建 SQL。
+ */
+public class SqlTemplateCache {
+
+    private static final Map<TemplateKey, String> templates = new ConcurrentHashMap<>();
+    //写入的顺序，用于淘汰
+    private static final Queue<TemplateKey> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    private static final LongAdder hitCount = new LongAdder();
+    private static final LongAdder missCount = new LongAdder();
+    private static final LongAdder evictionCount = new LongAdder();
+
+    private static volatile boolean enable = true;
+    private static volatile int maxSize = 4096;
+
+    private SqlTemplateCache() {
+    }
+
+
+    /**
+     * 获取 SQL，若缓存中不存在，则通过 sqlBuilder 构建并缓存
+     *
+     * @param context    ProviderContext
+     * @param dialect    构建 SQL 所使用的方言
+     * @param shape      SQL 的形状，用于区分同一个方法生成的不同 SQL，为 null 表示该方法只会生成一种 SQL
+     * @param sqlBuilder SQL 构建器
+     * @return sql
+     */
+    public static String getSql(ProviderContext context, IDialect dialect, Object shape, Function<IDialect, String> sqlBuilder) {
+        return getSql(context, dialect, null, shape, sqlBuilder);
+    }
+
+
+    /**
+     * 获取 SQL，若缓存中不存在，则通过 sqlBuilder 构建并缓存
+     *
+     * @param context    ProviderContext
+     * @param dialect    构建 SQL 所使用的方言
+     * @param tableName  SQL 所操作的表，用于区分分表的物理表，为 null 表示 mapper 只操作一张表
+     * @param shape      SQL 的形状，用于区分同一个方法生成的不同 SQL，为 null 表示该方法只会生成一种 SQL
+     * @param sqlBuilder SQL 构建器
+     * @return sql
+     */
+    public static String getSql(ProviderContext context, IDialect dialect, String tableName, Object shape, Function<IDialect, String> sqlBuilder) {
+        if (!enable) {
+            return sqlBuilder.apply(dialect);
+        }
+
+        TemplateKey key = new TemplateKey(context.getMapperType(), context.getMapperMethod().getName(), tableName, dialect, shape);
+        String sql = templates.get(key);
+        if (sql != null) {
+            hitCount.increment();
+            return sql;
+        }
+
+        missCount.increment();
+        sql = sqlBuilder.apply(dialect);
+
+        if (templates.putIfAbsent(key, sql) == null) {
+            insertionOrder.offer(key);
+            while (templates.size() > maxSize) {
+                TemplateKey eldest = insertionOrder.poll();
+                if (eldest == null) {
+                    break;
+                }
+                if (templates.remove(eldest) != null) {
+                    evictionCount.increment();
+                }
+            }
+        }
+        return sql;
+    }
+
+
+    /**
+     * 由列在 {@link TableInfo#getProperties()} 中的下标组成的位图，作为 sql 的形状，无需复制列
+     * <p>
+     * 位图只能表示按下标顺序排列的列（update 的列总是如此），否则返回列的副本
+     *
+     * @param tableInfo TableInfo
+     * @param columns   列
+     * @return sql 的形状
+     */
+    public static Object columnsShape(TableInfo tableInfo, Collection<String> columns) {
+        int propertyCount = tableInfo.getProperties().length;
+        long[] words = propertyCount > 64 ? new long[(propertyCount + 63) >>> 6] : null;
+        long word = 0;
+        int lastIndex = -1;
+        for (String column : columns) {
+            int index = tableInfo.getColumnIndex(column);
+            if (index <= lastIndex) {
+                return new ArrayList<>(columns);
+            }
+            lastIndex = index;
+            if (words == null) {
+                word |= 1L << index;
+            } else {
+                words[index >>> 6] |= 1L << index;
+            }
+        }
+        return words == null ? (Object) word : new ColumnsShape(words);
+    }
+
+
+    /**
+     * 清空所有的 SQL 缓存
+     */
+    public static void clear() {
+        templates.clear();
+        insertionOrder.clear();
+    }
+
+    public static int size() {
+        return templates.size();
+    }
+
+    public static long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public static long getMissCount() {
+        return missCount.sum();
+    }
+
+    public static long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public static boolean isEnable() {
+        return enable;
+    }
+
+    public static void setEnable(boolean enable) {
+        SqlTemplateCache.enable = enable;
+        if (!enable) {
+            clear();
+        }
+    }
+
+    public static int getMaxSize() {
+        return maxSize;
+    }
+
+    public static void setMaxSize(int maxSize) {
+        SqlTemplateCache.maxSize = maxSize;
+    }
+
+
+    private static class ColumnsShape {
+        private final long[] words;
+        private final int hashCode;
+
+        private ColumnsShape(long[] words) {
+            this.words = words;
+            this.hashCode = Arrays.hashCode(words);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ColumnsShape && Arrays.equals(words, ((ColumnsShape) o).words);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+
+    private static class TemplateKey {
+        private final Class<?> mapperType;
+        private final String method;
+        private final String tableName;
+        private final IDialect dialect;
+        private final Object shape;
+        private final int hashCode;
+
+        private TemplateKey(Class<?> mapperType, String method, String tableName, IDialect dialect, Object shape) {
+            this.mapperType = mapperType;
+            this.method = method;
+            this.tableName = tableName;
+            this.dialect = dialect;
+            this.shape = shape;
+            this.hashCode = Objects.hash(mapperType, method, tableName, dialect, shape);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TemplateKey)) {
+                return false;
+            }
+            TemplateKey that = (TemplateKey) o;
+            return mapperType == that.mapperType
+                    && method.equals(that.method)
+                    && Objects.equals(tableName, that.tableName)
+                    && dialect == that.dialect
+                    && Objects.equals(shape, that.shape);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
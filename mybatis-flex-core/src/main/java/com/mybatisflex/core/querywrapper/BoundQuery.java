@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.querywrapper;
+
+import com.mybatisflex.core.dialect.DialectFactory;
+import com.mybatisflex.core.dialect.IDialect;
+
+import java.util.Map;
+
+/**
+ * 绑定了参数值的 {@link CompiledQuery}，非线程安全，每次查询创建一个新的实例即可
+ */
+public class BoundQuery {
+
+    private final CompiledQuery compiledQuery;
+    private final Object[] paramValues;
+
+    BoundQuery(CompiledQuery compiledQuery, Object[] paramValues) {
+        this.compiledQuery = compiledQuery;
+        this.paramValues = paramValues;
+    }
+
+    /**
+     * 设置参数的值
+     *
+     * @param name  参数名称，即 {@link CompiledQuery#param(String)} 的名称
+     * @param value 参数的值
+     */
+    public BoundQuery set(String name, Object value) {
+        paramValues[compiledQuery.indexOf(name)] = value;
+        return this;
+    }
+
+    public BoundQuery setAll(Map<String, ?> values) {
+        values.forEach(this::set);
+        return this;
+    }
+
+    public CompiledQuery getCompiledQuery() {
+        return compiledQuery;
+    }
+
+    /**
+     * 当前方言的 sql
+     */
+    public String getSql() {
+        return getSql(DialectFactory.getDialect());
+    }
+
+    /**
+     * 当前方言的 sql 参数
+     */
+    public Object[] getArgs() {
+        return getArgs(DialectFactory.getDialect());
+    }
+
+    /**
+     * 指定方言的 sql
+     */
+    public String getSql(IDialect dialect) {
+        return compiledQuery.getSql(dialect);
+    }
+
+    /**
+     * 指定方言的 sql 参数
+     */
+    public Object[] getArgs(IDialect dialect) {
+        return compiledQuery.getArgs(dialect, paramValues);
+    }
+}
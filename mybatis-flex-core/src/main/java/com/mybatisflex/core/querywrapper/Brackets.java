@@ -16,6 +16,7 @@
 package com.mybatisflex.core.querywrapper;
 
 import com.mybatisflex.core.dialect.IDialect;
+import com.mybatisflex.core.util.SqlArgsBuilder;
 
 import java.util.List;
 
@@ -49,27 +50,64 @@ public class Brackets extends QueryCondition {
     }
 
     @Override
-    public Object getValue() {
-        return checkEffective() ? WrapperUtil.getValues(childCondition) : null;
+    protected QueryCondition copy() {
+        Brackets copy = (Brackets) super.copy();
+        copy.childCondition = childCondition.copyChain();
+        return copy;
     }
 
+    /**
+     * 括号内没有任何生效的条件时，括号本身也不生效
+     */
     @Override
-    public String toSql(List<QueryTable> queryTables, IDialect dialect) {
-        StringBuilder sql = new StringBuilder();
-        if (checkEffective()) {
-            String childSql = childCondition.toSql(queryTables, dialect);
-            QueryCondition effectiveBefore = getEffectiveBefore();
-            if (effectiveBefore != null) {
-                childSql = effectiveBefore.connector + "(" + childSql + ")";
+    public boolean checkEffective() {
+        if (!super.checkEffective()) {
+            return false;
+        }
+        QueryCondition condition = childCondition;
+        while (condition != null) {
+            if (condition.checkEffective()) {
+                return true;
             }
-            sql.append(childSql);
+            condition = condition.next;
         }
+        return false;
+    }
+
+    @Override
+    public Object getValue() {
+        return checkEffective() ? WrapperUtil.getValues(childCondition) : null;
+    }
 
-        if (this.next != null) {
-            return sql + next.toSql(queryTables, dialect);
+    /**
+     * 括号前后还有其他条件时才需要添加括号，例如：(a OR b) AND c
+     */
+    @Override
+    protected boolean appendSql(StringBuilder sql, List<QueryTable> queryTables, IDialect dialect) {
+        if (!checkEffective()) {
+            return false;
+        }
+        boolean wrap = before != null || next != null;
+        if (wrap) {
+            sql.append("(");
+        }
+        childCondition.appendChainSql(sql, queryTables, dialect);
+        if (wrap) {
+            sql.append(")");
         }
+        return true;
+    }
+
+    @Override
+    protected int countValues() {
+        return checkEffective() ? childCondition.countChainValues() : 0;
+    }
 
-        return sql.toString();
+    @Override
+    protected void appendValues(SqlArgsBuilder values) {
+        if (checkEffective()) {
+            childCondition.appendChainValues(values);
+        }
     }
 
 
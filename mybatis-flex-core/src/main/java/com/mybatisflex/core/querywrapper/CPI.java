@@ -32,6 +32,18 @@ public class CPI {
         return queryWrapper.getValueArray();
     }
 
+    /**
+     * 获取 queryWrapper 的参数，dialect 需要和构建 sql 的方言一致
+     */
+    public static Object[] getValueArray(QueryWrapper queryWrapper, IDialect dialect) {
+        return queryWrapper.getValueArray(dialect);
+    }
+
+
+    public static QueryWrapper copy(QueryWrapper queryWrapper) {
+        return queryWrapper.copy();
+    }
+
 
     public static List<QueryTable> getQueryTables(QueryWrapper queryWrapper) {
         return queryWrapper.getQueryTables();
@@ -120,6 +132,10 @@ public class CPI {
     }
 
 
+    public static boolean appendConditionSql(QueryCondition queryCondition, StringBuilder sql, List<QueryTable> queryTables, IDialect dialect) {
+        return queryCondition.appendChainSql(sql, queryTables, dialect);
+    }
+
     public static String toConditionSql(QueryColumn queryColumn,List<QueryTable> queryTables, IDialect dialect) {
         return queryColumn.toConditionSql(queryTables,dialect);
     }
@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.querywrapper;
+
+import com.mybatisflex.core.dialect.DialectFactory;
+import com.mybatisflex.core.dialect.IDialect;
+import com.mybatisflex.core.exception.FlexExceptions;
+import com.mybatisflex.core.table.TableInfo;
+import com.mybatisflex.core.table.TableInfos;
+import com.mybatisflex.core.util.CollectionUtil;
+import com.mybatisflex.core.util.StringUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 预编译的查询，对于结构固定、只有参数值不同的查询，只需要构建一次，之后每次查询只需要绑定参数即可
+ * <p>
+ * 每种方言的 sql 只会构建一次，绑定参数时只会复制一个预先计算好大小的参数数组，例如：
+ * <pre>
+ * CompiledQuery query = CompiledQuery.compile(Account.class, QueryWrapper.create()
+ *         .where(ACCOUNT.AGE.ge(CompiledQuery.param("minAge")))
+ *         .and(ACCOUNT.USER_NAME.like(CompiledQuery.param("name"))));
+ *
+ * List&lt;Account&gt; accounts = accountMapper.selectListByCompiledQuery(query.bind()
+ *         .set("minAge", 18)
+ *         .set("name", "michael"));
+ * </pre>
+ * 注意：查询的结构（条件、in 的参数个数、limit 等）在编译时就已经确定，和值无关；CompiledQuery 是线程安全的，可以作为常量使用
+ */
+public class CompiledQuery {
+
+    private static final Object UNBOUND = new Object();
+
+    private final QueryWrapper queryWrapper;
+    private final String[] paramNames;
+    private final Map<String, Integer> paramIndexes;
+    private final Map<IDialect, Shape> shapes = new ConcurrentHashMap<>();
+
+
+    /**
+     * 创建命名参数占位符
+     *
+     * @param name 参数名称
+     */
+    public static QueryParam param(String name) {
+        if (StringUtil.isBlank(name)) {
+            throw FlexExceptions.wrap("param name can not be null or blank.");
+        }
+        return new QueryParam(name);
+    }
+
+
+    /**
+     * 编译查询，queryWrapper 需要通过 from 指定查询的表
+     */
+    public static CompiledQuery compile(QueryWrapper queryWrapper) {
+        QueryWrapper copy = queryWrapper.copy();
+        if (CollectionUtil.isEmpty(copy.getQueryTables())) {
+            throw FlexExceptions.wrap("the compiled query must specify the query table by QueryWrapper.from(...)");
+        }
+        return new CompiledQuery(copy);
+    }
+
+
+    /**
+     * 编译 entity 的查询，和 BaseMapper.selectListByQuery 一样，会自动添加表名以及逻辑删除的条件
+     */
+    public static CompiledQuery compile(Class<?> entityClass, QueryWrapper queryWrapper) {
+        TableInfo tableInfo = TableInfos.ofEntityClass(entityClass);
+        QueryWrapper copy = queryWrapper.copy();
+
+        String logicDeleteColumn = tableInfo.getLogicDeleteColumn();
+        if (StringUtil.isNotBlank(logicDeleteColumn)) {
+            copy.and(QueryCondition.create(new QueryColumn(tableInfo.getTableName(), logicDeleteColumn), 0));
+        }
+
+        copy.from(tableInfo.getTableName());
+        return new CompiledQuery(copy);
+    }
+
+
+    private CompiledQuery(QueryWrapper queryWrapper) {
+        this.queryWrapper = queryWrapper;
+
+        List<String> names = new ArrayList<>();
+        for (Object value : queryWrapper.getValueArray()) {
+            if (value instanceof QueryParam && !names.contains(((QueryParam) value).getName())) {
+                names.add(((QueryParam) value).getName());
+            }
+        }
+
+        this.paramNames = names.toArray(new String[0]);
+        this.paramIndexes = new HashMap<>(paramNames.length * 2);
+        for (int i = 0; i < paramNames.length; i++) {
+            paramIndexes.put(paramNames[i], i);
+        }
+    }
+
+
+    /**
+     * 创建一个新的参数绑定器
+     */
+    public BoundQuery bind() {
+        Object[] paramValues = new Object[paramNames.length];
+        Arrays.fill(paramValues, UNBOUND);
+        return new BoundQuery(this, paramValues);
+    }
+
+    public BoundQuery bind(Map<String, ?> values) {
+        return bind().setAll(values);
+    }
+
+    public List<String> getParamNames() {
+        return Collections.unmodifiableList(Arrays.asList(paramNames));
+    }
+
+    /**
+     * 当前方言的 sql
+     */
+    public String getSql() {
+        return getSql(DialectFactory.getDialect());
+    }
+
+
+    int indexOf(String name) {
+        Integer index = paramIndexes.get(name);
+        if (index == null) {
+            throw FlexExceptions.wrap("the param \"%s\" is not defined in the compiled query, defined params: %s"
+                    , name, Arrays.toString(paramNames));
+        }
+        return index;
+    }
+
+    String getSql(IDialect dialect) {
+        return getShape(dialect).sql;
+    }
+
+    Object[] getArgs(IDialect dialect, Object[] paramValues) {
+        Shape shape = getShape(dialect);
+        Object[] args = shape.values.clone();
+        for (int i = 0; i < shape.positions.length; i++) {
+            Object value = paramValues[shape.ordinals[i]];
+            if (value == UNBOUND) {
+                throw FlexExceptions.wrap("the param \"%s\" of the compiled query is not bound.", paramNames[shape.ordinals[i]]);
+            }
+            args[shape.positions[i]] = shape.params[i].apply(value);
+        }
+        return args;
+    }
+
+
+    /**
+     * 构建 sql 以及参数时，部分条件（例如：keyset 分页）依赖于当前的方言，因此每种方言单独构建
+     */
+    private Shape getShape(IDialect dialect) {
+        Shape shape = shapes.get(dialect);
+        return shape != null ? shape : CollectionUtil.computeIfAbsent(shapes, dialect, this::buildShape);
+    }
+
+    private Shape buildShape(IDialect dialect) {
+        String sql = dialect.forSelectListByQuery(queryWrapper);
+        Object[] values = queryWrapper.getValueArray(dialect);
+
+        int count = 0;
+        for (Object value : values) {
+            if (value instanceof QueryParam) {
+                count++;
+            }
+        }
+
+        int[] positions = new int[count];
+        int[] ordinals = new int[count];
+        QueryParam[] params = new QueryParam[count];
+        for (int i = 0, j = 0; i < values.length; i++) {
+            if (values[i] instanceof QueryParam) {
+                positions[j] = i;
+                params[j] = (QueryParam) values[i];
+                ordinals[j] = indexOf(params[j].getName());
+                values[i] = null;
+                j++;
+            }
+        }
+        return new Shape(sql, values, positions, ordinals, params);
+    }
+
+
+    private static class Shape {
+        private final String sql;
+        private final Object[] values;
+        private final int[] positions;
+        private final int[] ordinals;
+        private final QueryParam[] params;
+
+        private Shape(String sql, Object[] values, int[] positions, int[] ordinals, QueryParam[] params) {
+            this.sql = sql;
+            this.values = values;
+            this.positions = positions;
+            this.ordinals = ordinals;
+            this.params = params;
+        }
+    }
+}
@@ -86,7 +86,8 @@ public class Join implements Serializable {
         //left join xxx as xxx2 on xxx2.id = xxx3.other
         List<QueryTable> newQueryTables = new ArrayList<>(queryTables);
         newQueryTables.add(queryTable);
-        sql.append(" ON ").append(on.toSql(newQueryTables, dialect));
+        sql.append(" ON ");
+        on.appendChainSql(sql, newQueryTables, dialect);
         return sql.toString();
     }
 }
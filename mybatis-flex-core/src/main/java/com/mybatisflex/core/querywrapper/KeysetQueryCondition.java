@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.querywrapper;
+
+import com.mybatisflex.core.dialect.DialectFactory;
+import com.mybatisflex.core.dialect.IDialect;
+import com.mybatisflex.core.util.SqlArgsBuilder;
+
+import java.util.List;
+
+/**
+ * keyset（seek）分页的条件，根据排序字段和上一页最后一条数据的值来定位下一页数据
+ * 例如：WHERE (k1, k2) > (?, ?) ORDER BY k1, k2 LIMIT n
+ * 具体的 sql 由 {@link IDialect#forKeysetCondition(String[], boolean[])} 构建
+ */
+public class KeysetQueryCondition extends QueryCondition {
+
+    private final QueryColumn[] columns;
+    private final boolean[] descs;
+    private Object[] keyValues;
+
+    public KeysetQueryCondition(QueryColumn[] columns, boolean[] descs) {
+        this.columns = columns;
+        this.descs = descs;
+        this.effective = false;
+    }
+
+    public void setKeyValues(Object[] keyValues) {
+        this.keyValues = keyValues;
+        this.effective = keyValues != null && keyValues.length > 0;
+    }
+
+    public Object[] getKeyValues() {
+        return keyValues;
+    }
+
+    /**
+     * 排序字段的值，实际的 sql 参数由方言决定，参考 {@link #appendValues(SqlArgsBuilder)}
+     */
+    @Override
+    public Object getValue() {
+        return checkEffective() ? keyValues : null;
+    }
+
+    @Override
+    protected int countValues() {
+        return checkEffective() ? keyValues.length : 0;
+    }
+
+    /**
+     * 部分数据库不支持行值比较，展开后的条件需要重复使用排序字段的值，因此参数和构建 sql 时使用同一个方言
+     */
+    @Override
+    protected void appendValues(SqlArgsBuilder values) {
+        if (checkEffective()) {
+            IDialect dialect = values.getDialect() != null ? values.getDialect() : DialectFactory.getDialect();
+            values.addAll(dialect.forKeysetValues(keyValues, descs));
+        }
+    }
+
+    @Override
+    protected boolean appendSql(StringBuilder sql, List<QueryTable> queryTables, IDialect dialect) {
+        if (!checkEffective()) {
+            return false;
+        }
+        String[] columnSqls = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            columnSqls[i] = columns[i].toConditionSql(queryTables, dialect);
+        }
+        sql.append(" ").append(dialect.forKeysetCondition(columnSqls, descs)).append(" ");
+        return true;
+    }
+
+    boolean isSameKeys(QueryColumn[] columns, boolean[] descs) {
+        if (this.columns.length != columns.length) {
+            return false;
+        }
+        for (int i = 0; i < columns.length; i++) {
+            if (this.columns[i] != columns[i] || this.descs[i] != descs[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,7 +1,7 @@
 package com.mybatisflex.core.querywrapper;
 
 import com.mybatisflex.core.dialect.IDialect;
-import com.mybatisflex.core.util.StringUtil;
+import com.mybatisflex.core.util.SqlArgsBuilder;
 
 import java.util.List;
 
@@ -20,26 +20,39 @@ public class OperatorQueryCondition extends QueryCondition {
     }
 
     @Override
-    public String toSql(List<QueryTable> queryTables, IDialect dialect) {
-        StringBuilder sql = new StringBuilder();
+    protected QueryCondition copy() {
+        OperatorQueryCondition copy = (OperatorQueryCondition) super.copy();
+        copy.child = child.copyChain();
+        return copy;
+    }
 
+    @Override
+    protected boolean appendSql(StringBuilder sql, List<QueryTable> queryTables, IDialect dialect) {
         //检测是否生效
-        if (checkEffective()) {
-            String childSql = child.toSql(queryTables, dialect);
-            if (StringUtil.isNotBlank(childSql)) {
-                QueryCondition effectiveBefore = getEffectiveBefore();
-                if (effectiveBefore != null) {
-                    sql.append(effectiveBefore.connector);
-                }
-                sql.append(operator).append("(").append(childSql).append(")");
-            }
+        if (!checkEffective()) {
+            return false;
         }
-
-        if (this.next != null) {
-            return sql + next.toSql(queryTables, dialect);
+        int length = sql.length();
+        sql.append(operator).append("(");
+        //子条件都不生效时，当前条件也不生效
+        if (!child.appendChainSql(sql, queryTables, dialect)) {
+            sql.setLength(length);
+            return false;
         }
+        sql.append(")");
+        return true;
+    }
 
-        return sql.toString();
+    @Override
+    protected int countValues() {
+        return checkEffective() ? child.countChainValues() : 0;
+    }
+
+    @Override
+    protected void appendValues(SqlArgsBuilder values) {
+        if (checkEffective()) {
+            child.appendChainValues(values);
+        }
     }
 
     @Override
@@ -1,6 +1,7 @@
 package com.mybatisflex.core.querywrapper;
 
 import com.mybatisflex.core.dialect.IDialect;
+import com.mybatisflex.core.util.SqlArgsBuilder;
 import com.mybatisflex.core.util.StringUtil;
 
 import java.util.List;
@@ -21,27 +22,36 @@ public class OperatorSelectCondition extends QueryCondition {
     }
 
     @Override
-    public String toSql(List<QueryTable> queryTables, IDialect dialect) {
-        StringBuilder sql = new StringBuilder();
+    protected QueryCondition copy() {
+        OperatorSelectCondition copy = (OperatorSelectCondition) super.copy();
+        copy.queryWrapper = queryWrapper.copy();
+        return copy;
+    }
 
+    @Override
+    protected boolean appendSql(StringBuilder sql, List<QueryTable> queryTables, IDialect dialect) {
         //检测是否生效
-        if (checkEffective()) {
-            String childSql = dialect.buildSelectSql(queryWrapper);
-            if (StringUtil.isNotBlank(childSql)) {
-
-                QueryCondition effectiveBefore = getEffectiveBefore();
-                if (effectiveBefore != null) {
-                    sql.append(effectiveBefore.connector);
-                }
-                sql.append(operator).append("(").append(childSql).append(")");
-            }
+        if (!checkEffective()) {
+            return false;
         }
-
-        if (this.next != null) {
-            return sql + next.toSql(queryTables, dialect);
+        String childSql = dialect.buildSelectSql(queryWrapper);
+        if (StringUtil.isBlank(childSql)) {
+            return false;
         }
+        sql.append(operator).append("(").append(childSql).append(")");
+        return true;
+    }
 
-        return sql.toString();
+    @Override
+    protected int countValues() {
+        return checkEffective() ? queryWrapper.getValueCount() : 0;
+    }
+
+    @Override
+    protected void appendValues(SqlArgsBuilder values) {
+        if (checkEffective()) {
+            queryWrapper.appendValues(values);
+        }
     }
 
     @Override
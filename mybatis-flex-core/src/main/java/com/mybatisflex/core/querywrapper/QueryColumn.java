@@ -110,17 +110,27 @@ public class QueryColumn implements Serializable {
 
 
     public QueryCondition like(Object value) {
-        return QueryCondition.create(this, QueryCondition.LOGIC_LIKE, "%" + value + "%");
+        return QueryCondition.create(this, QueryCondition.LOGIC_LIKE, likeValue(value, "%", "%"));
     }
 
 
     public QueryCondition likeLeft(Object value) {
-        return QueryCondition.create(this, QueryCondition.LOGIC_LIKE, "%" + value);
+        return QueryCondition.create(this, QueryCondition.LOGIC_LIKE, likeValue(value, "%", null));
     }
 
 
     public QueryCondition likeRight(Object value) {
-        return QueryCondition.create(this, QueryCondition.LOGIC_LIKE, value + "%");
+        return QueryCondition.create(this, QueryCondition.LOGIC_LIKE, likeValue(value, null, "%"));
+    }
+
+    /**
+     * 命名参数占位符（{@link CompiledQuery#param(String)}）在绑定值的时候才添加 %
+     */
+    private static Object likeValue(Object value, String prefix, String suffix) {
+        if (value instanceof QueryParam) {
+            return ((QueryParam) value).decorate(prefix, suffix);
+        }
+        return (prefix == null ? "" : prefix) + value + (suffix == null ? "" : suffix);
     }
 
     /**
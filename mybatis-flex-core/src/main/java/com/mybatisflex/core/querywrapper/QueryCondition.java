@@ -17,12 +17,14 @@ package com.mybatisflex.core.querywrapper;
 
 
 import com.mybatisflex.core.dialect.IDialect;
+import com.mybatisflex.core.exception.FlexExceptions;
+import com.mybatisflex.core.util.SqlArgsBuilder;
 
 import java.io.Serializable;
 import java.util.List;
 import java.util.function.Supplier;
 
-public class QueryCondition implements Serializable {
+public class QueryCondition implements Serializable, Cloneable {
 
     public static final String LOGIC_LIKE = "LIKE";
     public static final String LOGIC_GT = ">";
@@ -166,54 +168,177 @@ public class QueryCondition implements Serializable {
 
 
     protected void connect(QueryCondition nextCondition, SqlConnector connector) {
-        if (this.next != null) {
-            this.next.connect(nextCondition, connector);
-        } else {
-            this.next = nextCondition;
-            this.connector = connector;
-            nextCondition.before = this;
+        //条件很多时（例如几百个 or 条件），递归查找最后一个条件会导致调用栈过深
+        QueryCondition last = this;
+        while (last.next != null) {
+            last = last.next;
+        }
+        last.next = nextCondition;
+        last.connector = connector;
+        nextCondition.before = last;
+    }
+
+    /**
+     * 复制从当前条件开始的整个条件链（包括括号等子条件），之后对原条件链的修改不会影响复制的条件链
+     */
+    QueryCondition copyChain() {
+        QueryCondition head = null;
+        QueryCondition last = null;
+        for (QueryCondition condition = this; condition != null; condition = condition.next) {
+            QueryCondition copy = condition.copy();
+            copy.before = last;
+            copy.next = null;
+            if (last == null) {
+                head = copy;
+            } else {
+                last.next = copy;
+            }
+            last = copy;
+        }
+        return head;
+    }
+
+
+    /**
+     * 复制当前条件，不包含条件链；子类中有子条件或者子查询时，需要一起复制
+     */
+    protected QueryCondition copy() {
+        try {
+            QueryCondition copy = (QueryCondition) clone();
+            if (value instanceof QueryWrapper) {
+                copy.value = ((QueryWrapper) value).copy();
+            }
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw FlexExceptions.wrap(e);
         }
     }
 
+
+    /**
+     * 构建当前条件以及其后所有条件的 sql
+     */
     public String toSql(List<QueryTable> queryTables, IDialect dialect) {
         StringBuilder sql = new StringBuilder();
-        //检测是否生效
-        if (checkEffective()) {
-            QueryCondition effectiveBefore = getEffectiveBefore();
-            if (effectiveBefore != null) {
-                sql.append(effectiveBefore.connector);
-            }
-            sql.append(getColumn().toConditionSql(queryTables, dialect));
-            sql.append(" ").append(logic).append(" ");
-            if (value instanceof QueryColumn) {
-                sql.append(((QueryColumn) value).toConditionSql(queryTables, dialect));
+        appendChainSql(sql, queryTables, dialect);
+        return sql.toString();
+    }
+
+
+    /**
+     * 从当前条件开始，顺序遍历条件链，把生效的条件追加到同一个 sql 中，
+     * 条件之间使用上一个生效条件的连接符
+     *
+     * @return 是否追加了条件
+     */
+    boolean appendChainSql(StringBuilder sql, List<QueryTable> queryTables, IDialect dialect) {
+        SqlConnector connector = null;
+        boolean appended = false;
+        for (QueryCondition condition = this; condition != null; condition = condition.next) {
+            int length = sql.length();
+            if (appended) {
+                sql.append(connector);
             }
-            //子查询
-            else if (value instanceof QueryWrapper) {
-                sql.append("(").append(dialect.buildSelectSql((QueryWrapper) value)).append(")");
+            if (condition.appendSql(sql, queryTables, dialect)) {
+                connector = condition.connector;
+                appended = true;
+            } else {
+                sql.setLength(length);
             }
-            //正常查询，构建问号
-            else {
-                appendQuestionMark(sql, calculateQuestionMarkCount());
+        }
+        return appended;
+    }
+
+
+    /**
+     * 追加当前条件的 sql，不包含连接符以及之后的条件
+     *
+     * @return 当前条件是否生效
+     */
+    protected boolean appendSql(StringBuilder sql, List<QueryTable> queryTables, IDialect dialect) {
+        //检测是否生效
+        if (!checkEffective()) {
+            return false;
+        }
+        String column = getColumn().toConditionSql(queryTables, dialect);
+
+        //in, not in 超出数据库 IN 列表的长度限制时，拆分为多组
+        if ((LOGIC_IN.equals(logic) || LOGIC_NOT_IN.equals(logic)) && value instanceof Object[]) {
+            int paramsCount = calculateQuestionMarkCount();
+            int maxInListSize = dialect.getMaxInListSize();
+            if (maxInListSize > 0 && paramsCount > maxInListSize) {
+                appendSplitInSql(sql, column, paramsCount, maxInListSize);
+                return true;
             }
         }
 
-        if (this.next != null) {
-            return sql + next.toSql(queryTables, dialect);
+        sql.append(column);
+        sql.append(" ").append(logic).append(" ");
+        if (value instanceof QueryColumn) {
+            sql.append(((QueryColumn) value).toConditionSql(queryTables, dialect));
         }
+        //子查询
+        else if (value instanceof QueryWrapper) {
+            sql.append("(").append(dialect.buildSelectSql((QueryWrapper) value)).append(")");
+        }
+        //in, not in 无论参数有几个，都需要括号
+        else if (LOGIC_IN.equals(logic) || LOGIC_NOT_IN.equals(logic)) {
+            appendInQuestionMark(sql, calculateQuestionMarkCount());
+        }
+        //正常查询，构建问号
+        else {
+            appendQuestionMark(sql, calculateQuestionMarkCount());
+        }
+        return true;
+    }
 
-        return sql.toString();
+
+    /**
+     * 从当前条件开始，计算条件链上生效条件的参数数量
+     */
+    int countChainValues() {
+        int count = 0;
+        for (QueryCondition condition = this; condition != null; condition = condition.next) {
+            count += condition.countValues();
+        }
+        return count;
+    }
+
+
+    /**
+     * 从当前条件开始，顺序收集条件链上生效条件的参数
+     */
+    void appendChainValues(SqlArgsBuilder values) {
+        for (QueryCondition condition = this; condition != null; condition = condition.next) {
+            condition.appendValues(values);
+        }
+    }
+
+
+    /**
+     * 当前条件的参数数量，需要和 {@link #appendValues(SqlArgsBuilder)} 保持一致
+     */
+    protected int countValues() {
+        return checkEffective() ? WrapperUtil.countValue(getValue()) : 0;
+    }
+
+
+    /**
+     * 收集当前条件的参数，不生效的条件没有参数，和 sql 保持一致
+     */
+    protected void appendValues(SqlArgsBuilder values) {
+        if (checkEffective()) {
+            WrapperUtil.addValue(values, getValue());
+        }
     }
 
 
     protected QueryCondition getEffectiveBefore() {
-        if (before != null && before.checkEffective()) {
-            return before;
-        } else if (before != null) {
-            return before.getEffectiveBefore();
-        } else {
-            return null;
+        QueryCondition condition = before;
+        while (condition != null && !condition.checkEffective()) {
+            condition = condition.before;
         }
+        return condition;
     }
 
 
@@ -227,19 +352,40 @@ public class QueryCondition implements Serializable {
         }
         //in, not in
         else if (paramsCount > 0) {
-            sqlBuilder.append('(');
-            for (int i = 0; i < paramsCount; i++) {
-                sqlBuilder.append('?');
-                if (i != paramsCount - 1) {
-                    sqlBuilder.append(',');
-                }
-            }
-            sqlBuilder.append(')');
+            appendInQuestionMark(sqlBuilder, paramsCount);
         } else {
             // paramsCount == 0, ignore
         }
     }
 
+    /**
+     * IN 列表超出数据库的长度限制时，拆分为 (id IN (?, ?) OR id IN (?, ?))，
+     * NOT IN 拆分为 (id NOT IN (?, ?) AND id NOT IN (?, ?))，参数的顺序不变
+     */
+    private void appendSplitInSql(StringBuilder sql, String column, int paramsCount, int maxInListSize) {
+        String connector = LOGIC_IN.equals(logic) ? " OR " : " AND ";
+        sql.append('(');
+        for (int offset = 0; offset < paramsCount; offset += maxInListSize) {
+            if (offset > 0) {
+                sql.append(connector);
+            }
+            sql.append(column).append(" ").append(logic).append(" ");
+            appendInQuestionMark(sql, Math.min(maxInListSize, paramsCount - offset));
+        }
+        sql.append(')');
+    }
+
+    protected static void appendInQuestionMark(StringBuilder sqlBuilder, int paramsCount) {
+        sqlBuilder.append('(');
+        for (int i = 0; i < paramsCount; i++) {
+            sqlBuilder.append('?');
+            if (i != paramsCount - 1) {
+                sqlBuilder.append(',');
+            }
+        }
+        sqlBuilder.append(')');
+    }
+
     @Override
     public String toString() {
         return "QueryCondition{" +
@@ -61,6 +61,14 @@ public class QueryOrderBy implements Serializable {
     }
 
 
+    QueryColumn getQueryColumn() {
+        return queryColumn;
+    }
+
+    boolean isDesc() {
+        return "DESC".equalsIgnoreCase(orderType);
+    }
+
     public String toSql(List<QueryTable> queryTables, IDialect dialect) {
         String sql = queryColumn.toConditionSql(queryTables, dialect) + " " + orderType;
         if (nullsFirst) {
@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.querywrapper;
+
+import java.io.Serializable;
+
+/**
+ * 命名参数占位符，用于构建 {@link CompiledQuery}，例如：
+ * <pre>
+ * ACCOUNT.AGE.ge(CompiledQuery.param("minAge"))
+ * </pre>
+ * 每个占位符对应 sql 中的一个问号（?），同一个名称可以出现多次
+ */
+public class QueryParam implements Serializable {
+
+    private final String name;
+    private final String prefix;
+    private final String suffix;
+
+    public QueryParam(String name) {
+        this(name, null, null);
+    }
+
+    private QueryParam(String name, String prefix, String suffix) {
+        this.name = name;
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * like 查询时，绑定的值需要添加 % 前后缀
+     */
+    QueryParam decorate(String prefix, String suffix) {
+        return new QueryParam(name, prefix, suffix);
+    }
+
+    Object apply(Object value) {
+        if (value == null || (prefix == null && suffix == null)) {
+            return value;
+        }
+        return (prefix == null ? "" : prefix) + value + (suffix == null ? "" : suffix);
+    }
+
+    @Override
+    public String toString() {
+        return "QueryParam{" +
+                "name='" + name + '\'' +
+                '}';
+    }
+}
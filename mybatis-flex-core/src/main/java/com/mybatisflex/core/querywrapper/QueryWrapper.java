@@ -15,10 +15,11 @@
  */
 package com.mybatisflex.core.querywrapper;
 
+import com.mybatisflex.core.dialect.IDialect;
 import com.mybatisflex.core.exception.FlexExceptions;
 import com.mybatisflex.core.table.TableDef;
-import com.mybatisflex.core.util.ArrayUtil;
 import com.mybatisflex.core.util.CollectionUtil;
+import com.mybatisflex.core.util.SqlArgsBuilder;
 
 import java.util.ArrayList;
 import java.util.Map;
@@ -280,6 +281,67 @@ public class QueryWrapper extends BaseQueryWrapper<QueryWrapper> {
     }
 
 
+    /**
+     * keyset（seek）分页，根据 orderBy 的字段和上一页最后一条数据的排序字段值来查询下一页数据，
+     * 避免 offset 过大时数据库需要扫描并丢弃前面的数据
+     * <p>
+     * 多次调用时会替换之前的值，传入 null 时取消 keyset 条件；keyset 条件和之前的所有 where 条件是 AND 的关系，
+     * 因此需要在添加完 where 条件之后再调用；
+     * 排序字段的值不能为 null，并且最后一个排序字段应该是唯一的（例如主键）
+     *
+     * @param keyValues 上一页最后一条数据的排序字段值，顺序和数量需要与 orderBy 一致
+     */
+    public QueryWrapper seekAfter(Object... keyValues) {
+        KeysetQueryCondition condition = getKeysetQueryCondition();
+        if (keyValues == null || keyValues.length == 0) {
+            if (condition != null) {
+                condition.setKeyValues(null);
+            }
+            return this;
+        }
+
+        if (orderBys == null || orderBys.size() != keyValues.length) {
+            throw FlexExceptions.wrap("The count of keyValues must be equal to the count of orderBy columns.");
+        }
+
+        QueryColumn[] columns = new QueryColumn[keyValues.length];
+        boolean[] descs = new boolean[keyValues.length];
+        for (int i = 0; i < keyValues.length; i++) {
+            QueryOrderBy orderBy = orderBys.get(i);
+            if (orderBy.getQueryColumn() == null) {
+                throw FlexExceptions.wrap("The orderBy of keyset pagination must be created by QueryColumn.");
+            }
+            columns[i] = orderBy.getQueryColumn();
+            descs[i] = orderBy.isDesc();
+        }
+
+        if (condition == null || !condition.isSameKeys(columns, descs)) {
+            if (condition != null) {
+                condition.setKeyValues(null);
+            }
+            condition = new KeysetQueryCondition(columns, descs);
+            //已有的条件中可能包含 OR，需要先添加括号，例如：(a OR b) AND (k) > (?)
+            if (whereQueryCondition != null) {
+                whereQueryCondition = new Brackets(whereQueryCondition);
+            }
+            addWhereQueryCondition(condition, SqlConnector.AND);
+        }
+        condition.setKeyValues(keyValues);
+        return this;
+    }
+
+    private KeysetQueryCondition getKeysetQueryCondition() {
+        QueryCondition condition = whereQueryCondition;
+        while (condition != null) {
+            if (condition instanceof KeysetQueryCondition) {
+                return (KeysetQueryCondition) condition;
+            }
+            condition = condition.next;
+        }
+        return null;
+    }
+
+
     public QueryWrapper limit(Integer rows) {
         setLimitRows(rows);
         return this;
@@ -301,14 +363,60 @@ public class QueryWrapper extends BaseQueryWrapper<QueryWrapper> {
         return this;
     }
 
+    /**
+     * 复制 queryWrapper，用于并发执行多个查询，例如分页时同时查询总量和数据
+     * 副本的 where 和 having 复制了整个条件链，之后对副本或者原 queryWrapper 添加条件、from 等操作互不影响
+     */
+    QueryWrapper copy() {
+        QueryWrapper copy = new QueryWrapper();
+        copy.queryTables = queryTables == null ? null : new ArrayList<>(queryTables);
+        copy.datasource = datasource;
+        copy.selectColumns = selectColumns == null ? null : new ArrayList<>(selectColumns);
+        copy.joins = joins == null ? null : new ArrayList<>(joins);
+        copy.joinTables = joinTables == null ? null : new ArrayList<>(joinTables);
+        copy.whereQueryCondition = whereQueryCondition == null ? null : whereQueryCondition.copyChain();
+        copy.groupByColumns = groupByColumns == null ? null : new ArrayList<>(groupByColumns);
+        copy.havingQueryCondition = havingQueryCondition == null ? null : havingQueryCondition.copyChain();
+        copy.orderBys = orderBys == null ? null : new ArrayList<>(orderBys);
+        copy.limitOffset = limitOffset;
+        copy.limitRows = limitRows;
+        return copy;
+    }
+
+
     /**
      * 获取 queryWrapper 的参数
      * 在构建 sql 的时候，需要保证 where 在 having 的前面
      */
     Object[] getValueArray() {
-        Object[] whereValues = WrapperUtil.getValues(whereQueryCondition);
-        Object[] havingValues = WrapperUtil.getValues(havingQueryCondition);
-        return ArrayUtil.concat(whereValues, havingValues);
+        return getValueArray(null);
+    }
+
+    /**
+     * 获取 queryWrapper 的参数，dialect 需要和构建 sql 的方言一致
+     */
+    Object[] getValueArray(IDialect dialect) {
+        int count = getValueCount();
+        if (count == 0) {
+            return WrapperUtil.NULL_PARA_ARRAY;
+        }
+        SqlArgsBuilder values = new SqlArgsBuilder(count, dialect);
+        appendValues(values);
+        return values.build();
+    }
+
+    int getValueCount() {
+        return (whereQueryCondition == null ? 0 : whereQueryCondition.countChainValues())
+                + (havingQueryCondition == null ? 0 : havingQueryCondition.countChainValues());
+    }
+
+    void appendValues(SqlArgsBuilder values) {
+        if (whereQueryCondition != null) {
+            whereQueryCondition.appendChainValues(values);
+        }
+        if (havingQueryCondition != null) {
+            havingQueryCondition.appendChainValues(values);
+        }
     }
 
 
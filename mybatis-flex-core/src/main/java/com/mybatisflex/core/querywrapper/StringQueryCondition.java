@@ -38,22 +38,12 @@ public class StringQueryCondition extends QueryCondition {
     }
 
     @Override
-    public String toSql(List<QueryTable> queryTables, IDialect dialect) {
-        StringBuilder sql = new StringBuilder();
-
+    protected boolean appendSql(StringBuilder sql, List<QueryTable> queryTables, IDialect dialect) {
         //检测是否生效
-        if (checkEffective()) {
-            QueryCondition effectiveBefore = getEffectiveBefore();
-            if (effectiveBefore != null) {
-                sql.append(effectiveBefore.connector);
-            }
-            sql.append(" ").append(sqlContent).append(" ");
-        }
-
-        if (this.next != null) {
-            return sql + next.toSql(queryTables, dialect);
+        if (!checkEffective()) {
+            return false;
         }
-
-        return sql.toString();
+        sql.append(" ").append(sqlContent).append(" ");
+        return true;
     }
 }
@@ -17,10 +17,9 @@ package com.mybatisflex.core.querywrapper;
 
 
 import com.mybatisflex.core.util.CollectionUtil;
+import com.mybatisflex.core.util.SqlArgsBuilder;
 import com.mybatisflex.core.util.StringUtil;
 
-import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
 
 class WrapperUtil {
@@ -37,60 +36,80 @@ class WrapperUtil {
             return NULL_PARA_ARRAY;
         }
 
-        List<Object> paras = new LinkedList<>();
-        getValues(condition, paras);
+        int count = condition.countChainValues();
+        if (count == 0) {
+            return NULL_PARA_ARRAY;
+        }
 
-        return paras.isEmpty() ? NULL_PARA_ARRAY : paras.toArray();
+        SqlArgsBuilder paras = new SqlArgsBuilder(count);
+        condition.appendChainValues(paras);
+        return paras.build();
     }
 
 
-    private static void getValues(QueryCondition condition, List<Object> paras) {
-        if (condition == null) {
-            return;
+    /**
+     * 计算条件值的参数数量，需要和 {@link #addValue(SqlArgsBuilder, Object)} 保持一致
+     */
+    static int countValue(Object value) {
+        if (value == null || value instanceof QueryColumn) {
+            return 0;
         }
-        Object value = condition.getValue();
-        if (value != null) {
-            if (value.getClass().isArray()) {
-                Object[] values = (Object[]) value;
-                for (Object v : values) {
-                    if (v.getClass() == int[].class) {
-                        addAll(paras, (int[]) v);
-                    } else if (v.getClass() == long[].class) {
-                        addAll(paras, (long[]) v);
-                    } else if (v.getClass() == short[].class) {
-                        addAll(paras, (short[]) v);
-                    } else {
-                        paras.add(v);
-                    }
+        if (value.getClass().isArray()) {
+            int count = 0;
+            for (Object v : (Object[]) value) {
+                if (v == null) {
+                    count++;
+                } else if (v.getClass() == int[].class) {
+                    count += ((int[]) v).length;
+                } else if (v.getClass() == long[].class) {
+                    count += ((long[]) v).length;
+                } else if (v.getClass() == short[].class) {
+                    count += ((short[]) v).length;
+                } else {
+                    count++;
                 }
-            } else if (value instanceof QueryWrapper) {
-                Object[] valueArray = ((QueryWrapper) value).getValueArray();
-                paras.addAll(Arrays.asList(valueArray));
-            } else {
-                paras.add(value);
             }
+            return count;
+        } else if (value instanceof QueryWrapper) {
+            return ((QueryWrapper) value).getValueCount();
+        } else {
+            return 1;
         }
-
-        getValues(condition.next, paras);
     }
 
 
-    private static void addAll(List<Object> paras, int[] ints) {
-        for (int i : ints) {
-            paras.add(i);
-        }
-    }
-
-    private static void addAll(List<Object> paras, long[] longs) {
-        for (long i : longs) {
-            paras.add(i);
+    /**
+     * 添加条件的值，数组会被展开；QueryColumn 作为值时不生成问号，因此没有参数
+     */
+    static void addValue(SqlArgsBuilder paras, Object value) {
+        if (value == null || value instanceof QueryColumn) {
+            return;
         }
-    }
-
-
-    private static void addAll(List<Object> paras, short[] shorts) {
-        for (short i : shorts) {
-            paras.add(i);
+        if (value.getClass().isArray()) {
+            Object[] values = (Object[]) value;
+            for (Object v : values) {
+                if (v == null) {
+                    paras.add(null);
+                } else if (v.getClass() == int[].class) {
+                    for (int i : (int[]) v) {
+                        paras.add(i);
+                    }
+                } else if (v.getClass() == long[].class) {
+                    for (long i : (long[]) v) {
+                        paras.add(i);
+                    }
+                } else if (v.getClass() == short[].class) {
+                    for (short i : (short[]) v) {
+                        paras.add(i);
+                    }
+                } else {
+                    paras.add(v);
+                }
+            }
+        } else if (value instanceof QueryWrapper) {
+            ((QueryWrapper) value).appendValues(paras);
+        } else {
+            paras.add(value);
         }
     }
 
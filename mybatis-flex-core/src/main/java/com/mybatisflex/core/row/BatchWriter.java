@@ -0,0 +1,235 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.row;
+
+import com.mybatisflex.core.dialect.DbType;
+import com.mybatisflex.core.dialect.DialectFactory;
+import com.mybatisflex.core.exception.FlexExceptions;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+import java.sql.Statement;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * 流式的批量写入，通过 jdbc 批处理（ExecutorType.BATCH）把 Row 插入到数据库，适用于大数据量的导入
+ * 例如：
+ * <pre>
+ * long count = Db.batchWriter("tb_account")
+ *         .batchSize(1000)
+ *         .batchBytes(4 * 1024 * 1024)
+ *         .listener((rowCount, updateCount) -> log.info("inserted: " + rowCount))
+ *         .write(rowIterator);
+ * </pre>
+ * <p>
+ * 每一批数据中，列相同的 Row 会放在一起执行，从而复用同一个 PreparedStatement，
+ * 因此同一批内的插入顺序可能与数据源的顺序不一致。
+ * 内存中最多只保留一批数据，不会缓存全部数据和 BatchResult。
+ * <p>
+ * 在 Db.session、Db.tx 中写入时，使用当前 session 的 connection，加入当前事务。
+ */
+public class BatchWriter {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final SqlSessionFactory sqlSessionFactory;
+    private final DbType dbType;
+    private final RowSessionManager rowSessionManager;
+    private final String tableName;
+
+    //每批的数据条数
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    //每批参数的字节数（估算值），小于等于 0 时不限制
+    private long batchBytes;
+
+    private ProgressListener listener;
+
+    private long rowCount;
+    private long updateCount;
+    private long flushCount;
+
+
+    BatchWriter(SqlSessionFactory sqlSessionFactory, DbType dbType, RowSessionManager rowSessionManager, String tableName) {
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.dbType = dbType;
+        this.rowSessionManager = rowSessionManager;
+        this.tableName = tableName;
+    }
+
+
+    public BatchWriter batchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw FlexExceptions.wrap("batchSize must be greater than 0.");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public BatchWriter batchBytes(long batchBytes) {
+        this.batchBytes = batchBytes;
+        return this;
+    }
+
+    public BatchWriter listener(ProgressListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+
+    public long write(Stream<Row> rows) {
+        try (Stream<Row> stream = rows) {
+            return write(stream.iterator());
+        }
+    }
+
+    public long write(Iterable<Row> rows) {
+        return write(rows.iterator());
+    }
+
+    /**
+     * 写入数据
+     *
+     * @param rows 数据
+     * @return 本次写入影响的行数
+     */
+    public long write(Iterator<Row> rows) {
+        long startUpdateCount = updateCount;
+        RowSessionScope scope = RowSessionScope.get(sqlSessionFactory);
+        SqlSession sqlSession = scope != null ? scope.openBatchSession() : rowSessionManager.getSqlSession(sqlSessionFactory, ExecutorType.BATCH);
+        try {
+            DialectFactory.setHintDbType(dbType);
+            RowMapper mapper = sqlSession.getMapper(RowMapper.class);
+
+            //按照列分组，列相同时生成的 sql 相同，执行时复用同一个 PreparedStatement
+            Map<List<String>, List<Row>> groups = new LinkedHashMap<>();
+            int counter = 0;
+            long bytes = 0;
+            while (rows.hasNext()) {
+                Row row = rows.next();
+                groups.computeIfAbsent(new ArrayList<>(row.obtainModifyAttrs()), key -> new ArrayList<>()).add(row);
+                counter++;
+                if (batchBytes > 0) {
+                    bytes += estimateBytes(row);
+                }
+                if (counter >= batchSize || (batchBytes > 0 && bytes >= batchBytes)) {
+                    flush(sqlSession, mapper, groups, counter);
+                    counter = 0;
+                    bytes = 0;
+                }
+            }
+            if (counter > 0) {
+                flush(sqlSession, mapper, groups, counter);
+            }
+            if (scope != null) {
+                scope.afterBatch();
+            }
+        } finally {
+            DialectFactory.clearHintDbType();
+            if (scope != null) {
+                sqlSession.close();
+            } else {
+                rowSessionManager.releaseSqlSession(sqlSession, sqlSessionFactory);
+            }
+        }
+        return updateCount - startUpdateCount;
+    }
+
+
+    private void flush(SqlSession sqlSession, RowMapper mapper, Map<List<String>, List<Row>> groups, int counter) {
+        for (List<Row> group : groups.values()) {
+            for (Row row : group) {
+                mapper.insertRow(tableName, row);
+            }
+        }
+        groups.clear();
+
+        for (BatchResult batchResult : sqlSession.flushStatements()) {
+            for (int count : batchResult.getUpdateCounts()) {
+                //部分驱动（例如 oracle）批处理时不返回具体的行数
+                updateCount += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+            }
+        }
+        rowCount += counter;
+        flushCount++;
+
+        if (listener != null) {
+            listener.onFlush(rowCount, updateCount);
+        }
+    }
+
+
+    /**
+     * 估算 row 参数的字节数
+     */
+    private static long estimateBytes(Row row) {
+        long bytes = 0;
+        for (Object value : row.values()) {
+            if (value == null) {
+                bytes += 1;
+            } else if (value instanceof CharSequence) {
+                bytes += ((CharSequence) value).length() * 2L;
+            } else if (value instanceof byte[]) {
+                bytes += ((byte[]) value).length;
+            } else {
+                bytes += 8;
+            }
+        }
+        return bytes;
+    }
+
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * 已写入的数据条数
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * 已写入数据影响的行数
+     */
+    public long getUpdateCount() {
+        return updateCount;
+    }
+
+    /**
+     * 已提交批处理的次数
+     */
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+
+    /**
+     * 每提交一批数据后回调
+     */
+    public interface ProgressListener {
+
+        /**
+         * @param rowCount    已写入的数据条数
+         * @param updateCount 已写入数据影响的行数
+         */
+        void onFlush(long rowCount, long updateCount);
+    }
+}
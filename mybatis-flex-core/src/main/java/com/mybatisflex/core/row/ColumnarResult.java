@@ -0,0 +1,324 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.row;
+
+import com.mybatisflex.core.exception.FlexExceptions;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+
+/**
+ * 按列存储的查询结果，适用于大数据量的统计、分析类查询
+ * <p>
+ * 整数、浮点数类型的列直接通过 ResultSet.getInt/getLong/getDouble 读取到 int[]、long[]、double[] 中，不会创建包装对象；
+ * 其他类型的列保存在 Object[] 中。值为 null 的行通过 {@link #isNull(int, int)} 判断，此时数组中对应的值为 0
+ */
+public class ColumnarResult {
+
+    public enum ColumnType {
+        INT, LONG, DOUBLE, OBJECT
+    }
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private final String[] columnNames;
+    private final ColumnType[] columnTypes;
+    private final Object[] columns;
+    //每一列的 null 值位图，只有出现 null 值时才创建
+    private final long[][] nulls;
+    private int rowCount;
+
+
+    private ColumnarResult(String[] columnNames, ColumnType[] columnTypes, int capacity) {
+        this.columnNames = columnNames;
+        this.columnTypes = columnTypes;
+        this.columns = new Object[columnNames.length];
+        this.nulls = new long[columnNames.length][];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = newColumn(columnTypes[i], capacity);
+        }
+    }
+
+
+    /**
+     * 读取 ResultSet 剩余的全部数据
+     *
+     * @param rs       ResultSet
+     * @param useLabel 是否使用列的别名作为列名
+     */
+    public static ColumnarResult read(ResultSet rs, boolean useLabel) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        String[] columnNames = new String[columnCount];
+        ColumnType[] columnTypes = new ColumnType[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columnNames[i] = useLabel ? metaData.getColumnLabel(i + 1) : metaData.getColumnName(i + 1);
+            columnTypes[i] = getColumnType(metaData, i + 1);
+        }
+
+        int fetchSize = rs.getFetchSize();
+        ColumnarResult result = new ColumnarResult(columnNames, columnTypes, fetchSize > 0 ? fetchSize : DEFAULT_CAPACITY);
+        while (rs.next()) {
+            result.readRow(rs);
+        }
+        result.trim();
+        return result;
+    }
+
+
+    private static ColumnType getColumnType(ResultSetMetaData metaData, int column) throws SQLException {
+        switch (metaData.getColumnType(column)) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return ColumnType.INT;
+            case Types.BIGINT:
+                return ColumnType.LONG;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return ColumnType.DOUBLE;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                //没有小数位的 decimal 在 long 的范围内时，使用 long 存储，其他的 decimal 保留 BigDecimal 避免精度丢失
+                int precision = metaData.getPrecision(column);
+                return metaData.getScale(column) == 0 && precision > 0 && precision <= 18 ? ColumnType.LONG : ColumnType.OBJECT;
+            default:
+                return ColumnType.OBJECT;
+        }
+    }
+
+
+    private static Object newColumn(ColumnType columnType, int capacity) {
+        switch (columnType) {
+            case INT:
+                return new int[capacity];
+            case LONG:
+                return new long[capacity];
+            case DOUBLE:
+                return new double[capacity];
+            default:
+                return new Object[capacity];
+        }
+    }
+
+
+    private void readRow(ResultSet rs) throws SQLException {
+        if (columns.length > 0 && rowCount == capacity()) {
+            grow();
+        }
+        int row = rowCount++;
+        for (int i = 0; i < columns.length; i++) {
+            int column = i + 1;
+            switch (columnTypes[i]) {
+                case INT: {
+                    int value = rs.getInt(column);
+                    if (value == 0 && rs.wasNull()) {
+                        markNull(i, row);
+                    }
+                    ((int[]) columns[i])[row] = value;
+                    break;
+                }
+                case LONG: {
+                    long value = rs.getLong(column);
+                    if (value == 0 && rs.wasNull()) {
+                        markNull(i, row);
+                    }
+                    ((long[]) columns[i])[row] = value;
+                    break;
+                }
+                case DOUBLE: {
+                    double value = rs.getDouble(column);
+                    if (value == 0 && rs.wasNull()) {
+                        markNull(i, row);
+                    }
+                    ((double[]) columns[i])[row] = value;
+                    break;
+                }
+                default: {
+                    Object value = rs.getObject(column);
+                    if (value == null) {
+                        markNull(i, row);
+                    }
+                    ((Object[]) columns[i])[row] = value;
+                }
+            }
+        }
+    }
+
+    private int capacity() {
+        switch (columnTypes[0]) {
+            case INT:
+                return ((int[]) columns[0]).length;
+            case LONG:
+                return ((long[]) columns[0]).length;
+            case DOUBLE:
+                return ((double[]) columns[0]).length;
+            default:
+                return ((Object[]) columns[0]).length;
+        }
+    }
+
+    private void grow() {
+        resize(Math.max(DEFAULT_CAPACITY, capacity() * 2));
+    }
+
+    private void trim() {
+        if (columns.length > 0 && rowCount < capacity()) {
+            resize(rowCount);
+        }
+    }
+
+    private void resize(int capacity) {
+        for (int i = 0; i < columns.length; i++) {
+            Object column = columns[i];
+            if (column instanceof int[]) {
+                columns[i] = Arrays.copyOf((int[]) column, capacity);
+            } else if (column instanceof long[]) {
+                columns[i] = Arrays.copyOf((long[]) column, capacity);
+            } else if (column instanceof double[]) {
+                columns[i] = Arrays.copyOf((double[]) column, capacity);
+            } else {
+                columns[i] = Arrays.copyOf((Object[]) column, capacity);
+            }
+            if (nulls[i] != null) {
+                nulls[i] = Arrays.copyOf(nulls[i], (capacity + 63) >>> 6);
+            }
+        }
+    }
+
+    private void markNull(int column, int row) {
+        long[] bits = nulls[column];
+        if (bits == null) {
+            bits = nulls[column] = new long[(capacity() + 63) >>> 6];
+        }
+        bits[row >>> 6] |= 1L << row;
+    }
+
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    public ColumnType getColumnType(int column) {
+        return columnTypes[column];
+    }
+
+    /**
+     * @return 列的位置，从 0 开始，不存在时返回 -1
+     */
+    public int indexOf(String columnName) {
+        for (int i = 0; i < columnNames.length; i++) {
+            if (columnNames[i].equals(columnName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean isNull(int column, int row) {
+        long[] bits = nulls[column];
+        return bits != null && (bits[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * 该列是否存在 null 值
+     */
+    public boolean hasNull(int column) {
+        return nulls[column] != null;
+    }
+
+    public int[] getInts(int column) {
+        return (int[]) getColumn(column, ColumnType.INT);
+    }
+
+    public int[] getInts(String columnName) {
+        return getInts(requireIndex(columnName));
+    }
+
+    public long[] getLongs(int column) {
+        return (long[]) getColumn(column, ColumnType.LONG);
+    }
+
+    public long[] getLongs(String columnName) {
+        return getLongs(requireIndex(columnName));
+    }
+
+    public double[] getDoubles(int column) {
+        return (double[]) getColumn(column, ColumnType.DOUBLE);
+    }
+
+    public double[] getDoubles(String columnName) {
+        return getDoubles(requireIndex(columnName));
+    }
+
+    public Object[] getObjects(int column) {
+        return (Object[]) getColumn(column, ColumnType.OBJECT);
+    }
+
+    public Object[] getObjects(String columnName) {
+        return getObjects(requireIndex(columnName));
+    }
+
+    /**
+     * 获取某一行某一列的值，整数、浮点数会被装箱，null 值返回 null
+     */
+    public Object getValue(int column, int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("row: " + row + ", rowCount: " + rowCount);
+        }
+        if (isNull(column, row)) {
+            return null;
+        }
+        Object values = columns[column];
+        switch (columnTypes[column]) {
+            case INT:
+                return ((int[]) values)[row];
+            case LONG:
+                return ((long[]) values)[row];
+            case DOUBLE:
+                return ((double[]) values)[row];
+            default:
+                return ((Object[]) values)[row];
+        }
+    }
+
+    private Object getColumn(int column, ColumnType columnType) {
+        if (columnTypes[column] != columnType) {
+            throw FlexExceptions.wrap("The type of column \"%s\" is %s, not %s.", columnNames[column], columnTypes[column], columnType);
+        }
+        return columns[column];
+    }
+
+    private int requireIndex(String columnName) {
+        int index = indexOf(columnName);
+        if (index < 0) {
+            throw FlexExceptions.wrap("The column \"%s\" not exists.", columnName);
+        }
+        return index;
+    }
+}
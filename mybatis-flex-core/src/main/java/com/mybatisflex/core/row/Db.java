@@ -17,14 +17,21 @@ package com.mybatisflex.core.row;
 
 import com.mybatisflex.core.FlexGlobalConfig;
 import com.mybatisflex.core.paginate.Page;
+import com.mybatisflex.core.querywrapper.BoundQuery;
 import com.mybatisflex.core.querywrapper.QueryWrapper;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.util.MapUtil;
 
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * 针对 RowMapper 的静态方法进行封装
@@ -49,6 +56,63 @@ public class Db {
         });
     }
 
+    /**
+     * 在同一个 sqlSession 中执行多次调用，function 中默认数据源的 Db 调用都会复用该 sqlSession 及其 connection
+     *
+     * @param function 执行的内容
+     */
+    public static <R> R session(Function<RowMapperInvoker, R> function) {
+        return invoker().session(function);
+    }
+
+    /**
+     * 在指定数据源的同一个 sqlSession 中执行多次调用
+     *
+     * @param environmentId 数据源的 environmentId
+     * @param function      执行的内容
+     */
+    public static <R> R session(String environmentId, Function<RowMapperInvoker, R> function) {
+        return invoker(environmentId).session(function);
+    }
+
+    /**
+     * 在同一个只读的 sqlSession 中执行多次查询，connection 会被设置为 readOnly
+     *
+     * @param function 执行的内容
+     */
+    public static <R> R sessionReadOnly(Function<RowMapperInvoker, R> function) {
+        return invoker().sessionReadOnly(function);
+    }
+
+    /**
+     * 在指定数据源的同一个只读的 sqlSession 中执行多次查询
+     *
+     * @param environmentId 数据源的 environmentId
+     * @param function      执行的内容
+     */
+    public static <R> R sessionReadOnly(String environmentId, Function<RowMapperInvoker, R> function) {
+        return invoker(environmentId).sessionReadOnly(function);
+    }
+
+    /**
+     * 在同一个事务中执行多次调用，执行成功后提交，出现异常时回滚
+     *
+     * @param function 执行的内容
+     */
+    public static <R> R tx(Function<RowMapperInvoker, R> function) {
+        return invoker().tx(function);
+    }
+
+    /**
+     * 在指定数据源的同一个事务中执行多次调用
+     *
+     * @param environmentId 数据源的 environmentId
+     * @param function      执行的内容
+     */
+    public static <R> R tx(String environmentId, Function<RowMapperInvoker, R> function) {
+        return invoker(environmentId).tx(function);
+    }
+
     /**
      * 直接编写 sql 插入数据
      *
@@ -90,6 +154,44 @@ public class Db {
         return invoker().insertBatch(tableName, rows, batchSize);
     }
 
+    /**
+     * 流式批量插入数据，适用于大数据量的导入，不会一次性把数据加载到内存
+     *
+     * @param tableName 表名
+     * @param rows      数据
+     * @param batchSize 每次提交的数据量
+     * @return 影响的行数
+     */
+    public static long insertBatch(String tableName, Iterator<Row> rows, int batchSize) {
+        return batchWriter(tableName).batchSize(batchSize).write(rows);
+    }
+
+    /**
+     * 创建流式批量写入的 BatchWriter，可以设置每批的数据量、字节数以及进度回调
+     *
+     * @param tableName 表名
+     */
+    public static BatchWriter batchWriter(String tableName) {
+        return invoker().batchWriter(tableName);
+    }
+
+    /**
+     * 使用 jdbc 的批处理（ExecutorType.BATCH）执行 mapper 的方法，sql 相同的语句会复用同一个 PreparedStatement
+     * 例如：
+     * <pre>
+     * Db.executeBatch(accounts, 1000, AccountMapper.class, AccountMapper::insert);
+     * </pre>
+     *
+     * @param datas       数据
+     * @param batchSize   每批执行的数量，达到该数量后会提交一次批处理
+     * @param mapperClass mapper 类
+     * @param consumer    执行 mapper 方法
+     * @return 每条语句影响的行数
+     */
+    public static <M, E> int[] executeBatch(Collection<E> datas, int batchSize, Class<M> mapperClass, BiConsumer<M, E> consumer) {
+        return invoker().executeBatch(datas, batchSize, mapperClass, consumer);
+    }
+
     /**
      * 批量插入数据，根据第一条内容来构建插入的字段，效率比 {@link #insertBatch(String, Collection, int)} 高
      *
@@ -307,6 +409,35 @@ public class Db {
         return invoker().selectListByQuery(tableName, queryWrapper);
     }
 
+    /**
+     * 通过预编译的查询来查询数据列表
+     *
+     * @param boundQuery 绑定了参数的查询，通过 {@link com.mybatisflex.core.querywrapper.CompiledQuery#bind()} 创建
+     */
+    public static List<Row> selectListByCompiledQuery(BoundQuery boundQuery) {
+        return invoker().selectListByCompiledQuery(boundQuery);
+    }
+
+    /**
+     * 通过 sql 按列查询数据，适用于大数据量的统计、分析类查询，整数、浮点数类型的列直接读取为 int[]、long[]、double[]
+     *
+     * @param sql  sql 语句
+     * @param args sql 参数
+     */
+    public static ColumnarResult selectColumnsBySql(String sql, Object... args) {
+        return invoker().selectColumnsBySql(sql, args);
+    }
+
+    /**
+     * 通过 query 按列查询数据，适用于大数据量的统计、分析类查询，整数、浮点数类型的列直接读取为 int[]、long[]、double[]
+     *
+     * @param tableName    表名
+     * @param queryWrapper query 条件
+     */
+    public static ColumnarResult selectColumnsByQuery(String tableName, QueryWrapper queryWrapper) {
+        return invoker().selectColumnsByQuery(tableName, queryWrapper);
+    }
+
     /**
      * 查询某张表的所有数据
      *
@@ -316,6 +447,57 @@ public class Db {
         return invoker().selectAll(tableName);
     }
 
+    /**
+     * 通过 sql 流式查询数据，适用于导出等大数据量的查询，使用完毕后需要关闭 stream
+     * 例如：
+     * <pre>
+     * try (Stream&lt;Row&gt; rows = Db.selectRowStream("select * from tb_account")) {
+     *     rows.forEach(row -> ...);
+     * }
+     * </pre>
+     * fetchSize 可以通过 {@link FlexGlobalConfig#setCursorFetchSize(int)} 配置
+     *
+     * @param sql  sql 语句
+     * @param args sql 参数
+     * @return row 的 stream
+     */
+    public static Stream<Row> selectRowStream(String sql, Object... args) {
+        return invoker().selectRowStream(sql, args);
+    }
+
+    /**
+     * 根据 queryWrapper 流式查询数据，使用完毕后需要关闭 stream
+     *
+     * @param tableName    表名
+     * @param queryWrapper queryWrapper
+     * @return row 的 stream
+     */
+    public static Stream<Row> selectRowStream(String tableName, QueryWrapper queryWrapper) {
+        return invoker().selectRowStream(tableName, queryWrapper);
+    }
+
+    /**
+     * 根据 queryWrapper 流式查询数据，并逐条处理
+     *
+     * @param tableName    表名
+     * @param queryWrapper queryWrapper
+     * @param consumer     每条数据的处理
+     */
+    public static void forEachRow(String tableName, QueryWrapper queryWrapper, Consumer<Row> consumer) {
+        invoker().forEachRow(tableName, queryWrapper, consumer);
+    }
+
+    /**
+     * 通过 sql 流式查询数据，并逐条处理
+     *
+     * @param consumer 每条数据的处理
+     * @param sql      sql 语句
+     * @param args     sql 参数
+     */
+    public static void forEachRow(Consumer<Row> consumer, String sql, Object... args) {
+        invoker().forEachRow(consumer, sql, args);
+    }
+
     /**
      * 查询某个内容，数据返回的应该只有 1 行 1 列
      *
@@ -384,4 +566,16 @@ public class Db {
     public static Page<Row> paginate(String tableName, Page<Row> page, QueryWrapper queryWrapper) {
         return invoker().paginate(tableName, page, queryWrapper);
     }
+
+
+    /**
+     * 异步分页查询，数据总量和数据在不同的连接中同时查询，线程池可以通过 {@link com.mybatisflex.core.paginate.PaginateExecutor} 配置
+     *
+     * @param tableName    表名
+     * @param page         page 对象，若 page 有 totalCount 值，则不会再去查询分类的数据总量
+     * @param queryWrapper 条件
+     */
+    public static CompletableFuture<Page<Row>> paginateAsync(String tableName, Page<Row> page, QueryWrapper queryWrapper) {
+        return invoker().paginateAsync(tableName, page, queryWrapper);
+    }
 }
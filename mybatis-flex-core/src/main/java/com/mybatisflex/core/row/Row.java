@@ -15,13 +15,25 @@
  */
 package com.mybatisflex.core.row;
 
+import com.mybatisflex.core.javassist.ModifyAttrs;
 import com.mybatisflex.core.javassist.ModifyAttrsRecord;
 import com.mybatisflex.core.table.TableInfo;
 import com.mybatisflex.core.table.TableInfos;
 import com.mybatisflex.core.util.ArrayUtil;
+import com.mybatisflex.core.util.SqlArgsBuilder;
 
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 public class Row extends HashMap<String, Object> implements ModifyAttrsRecord {
     private static final Object[] NULL_ARGS = new Object[0];
@@ -29,6 +41,14 @@ public class Row extends HashMap<String, Object> implements ModifyAttrsRecord {
     //主键，多个主键用英文逗号隔开
     private RowKey[] primaryKeys;
 
+    //修改过的字段，只在需要时才创建
+    private ModifyAttrs modifyAttrs;
+
+    //紧凑存储：查询结果的 row 共享同一个 schema，只保存值数组；添加 schema 中不存在的列时才转换为 HashMap 存储
+    private transient RowSchema schema;
+    private transient Object[] values;
+    private transient int compactSize;
+
     public static Row of(String key, Object value) {
         Row row = new Row();
         return row.set(key, value);
@@ -66,6 +86,25 @@ public class Row extends HashMap<String, Object> implements ModifyAttrsRecord {
     }
 
 
+    /**
+     * 创建紧凑存储的 row，用于查询结果
+     *
+     * @param schema 结果集的列信息，同一个结果集的所有 row 共享
+     * @param values 通过 {@link RowSchema#newValues()} 创建并填充的值
+     */
+    public static Row ofSchema(RowSchema schema, Object[] values) {
+        Row row = new Row();
+        row.schema = schema;
+        row.values = values;
+        for (Object value : values) {
+            if (value != RowSchema.ABSENT) {
+                row.compactSize++;
+            }
+        }
+        return row;
+    }
+
+
     public static Row ofKey(RowKey rowKey, Object value) {
         Row row = new Row();
         row.primaryKeys = new RowKey[]{rowKey};
@@ -105,18 +144,55 @@ public class Row extends HashMap<String, Object> implements ModifyAttrsRecord {
 
 
     public Object get(Object key, Object defaultValue) {
-        Object result = super.get(key);
+        Object result = get(key);
         return result != null ? result : defaultValue;
     }
 
 
     @Override
     public Object remove(Object key) {
-        removeModifyAttr(key.toString());
+        if (modifyAttrs != null) {
+            modifyAttrs.remove(key);
+        }
+        if (schema != null) {
+            int index = schema.indexOf(key);
+            if (index < 0 || values[index] == RowSchema.ABSENT) {
+                return null;
+            }
+            Object oldValue = values[index];
+            values[index] = RowSchema.ABSENT;
+            compactSize--;
+            return oldValue;
+        }
         return super.remove(key);
     }
 
 
+    @Override
+    public Row clone() {
+        Row row = (Row) super.clone();
+        if (schema != null) {
+            //HashMap.clone() 会把当前 row 的值复制到新 row 的 HashMap 中，新 row 依然使用紧凑存储
+            row.superClear();
+            row.values = values.clone();
+        }
+        if (modifyAttrs != null) {
+            row.modifyAttrs = new ModifyAttrs();
+            row.modifyAttrs.addAll(modifyAttrs);
+        }
+        return row;
+    }
+
+
+    @Override
+    public Set<String> obtainModifyAttrs() {
+        if (modifyAttrs == null) {
+            modifyAttrs = new ModifyAttrs();
+        }
+        return modifyAttrs;
+    }
+
+
     public <T> T toEntity(Class<T> entityClass) {
         TableInfo tableInfo = TableInfos.ofEntityClass(entityClass);
         return tableInfo.newInstanceByRow(this);
@@ -128,7 +204,11 @@ public class Row extends HashMap<String, Object> implements ModifyAttrsRecord {
             throw new NullPointerException("attrs is null.");
         }
 
-        clearModifyFlag();
+        Set<String> modifyAttrs = obtainModifyAttrs();
+        if (attrs == modifyAttrs) {
+            return;
+        }
+        modifyAttrs.clear();
         modifyAttrs.addAll(attrs);
     }
 
@@ -139,6 +219,7 @@ public class Row extends HashMap<String, Object> implements ModifyAttrsRecord {
      * @return values 数组
      */
     public Object[] obtainModifyValues() {
+        Set<String> modifyAttrs = obtainModifyAttrs();
         Object[] values = new Object[modifyAttrs.size()];
         int index = 0;
         for (String modifyAttr : modifyAttrs) {
@@ -178,4 +259,357 @@ public class Row extends HashMap<String, Object> implements ModifyAttrsRecord {
         return ArrayUtil.concat(obtainModifyValues(), obtainsPrimaryValues());
     }
 
+
+    /**
+     * 修改的值和主键值的数量，和 {@link #obtainModifyValuesAndPrimaryValues()} 的长度一致
+     */
+    public int obtainModifyValuesAndPrimaryValuesCount() {
+        return obtainModifyAttrs().size() + (primaryKeys == null ? 0 : primaryKeys.length);
+    }
+
+
+    /**
+     * 把修改的值直接添加到 args 中，值的顺序和 {@link #obtainModifyValues()} 一致
+     */
+    public void appendModifyValues(SqlArgsBuilder args) {
+        for (String modifyAttr : obtainModifyAttrs()) {
+            args.add(get(modifyAttr));
+        }
+    }
+
+
+    /**
+     * 把修改的值和主键值直接添加到 args 中，值的顺序和 {@link #obtainModifyValuesAndPrimaryValues()} 一致
+     */
+    public void appendModifyValuesAndPrimaryValues(SqlArgsBuilder args) {
+        appendModifyValues(args);
+        if (primaryKeys != null) {
+            for (RowKey primaryKey : primaryKeys) {
+                args.add(get(primaryKey.keyColumn));
+            }
+        }
+    }
+
+
+
+    // 紧凑存储 ///////
+
+    private void superClear() {
+        super.clear();
+    }
+
+    /**
+     * 转换为 HashMap 存储，之后所有的操作都由 HashMap 完成
+     */
+    private void inflate() {
+        if (schema == null) {
+            return;
+        }
+        RowSchema oldSchema = schema;
+        Object[] oldValues = values;
+        schema = null;
+        values = null;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != RowSchema.ABSENT) {
+                super.put(oldSchema.getColumn(i), oldValues[i]);
+            }
+        }
+    }
+
+    private Object writeReplace() {
+        if (schema == null) {
+            return this;
+        }
+        Row row = clone();
+        row.inflate();
+        return row;
+    }
+
+    @Override
+    public int size() {
+        return schema != null ? compactSize : super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (schema != null) {
+            int index = schema.indexOf(key);
+            return index < 0 || values[index] == RowSchema.ABSENT ? null : values[index];
+        }
+        return super.get(key);
+    }
+
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        if (schema != null) {
+            int index = schema.indexOf(key);
+            return index < 0 || values[index] == RowSchema.ABSENT ? defaultValue : values[index];
+        }
+        return super.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (schema != null) {
+            int index = schema.indexOf(key);
+            return index >= 0 && values[index] != RowSchema.ABSENT;
+        }
+        return super.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        if (schema != null) {
+            for (Object v : values) {
+                if (v != RowSchema.ABSENT && (value == null ? v == null : value.equals(v))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return super.containsValue(value);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        if (schema != null) {
+            int index = schema.indexOf(key);
+            if (index >= 0) {
+                Object oldValue = values[index];
+                values[index] = value;
+                if (oldValue == RowSchema.ABSENT) {
+                    compactSize++;
+                    return null;
+                }
+                return oldValue;
+            }
+            inflate();
+        }
+        return super.put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ?> m) {
+        if (schema != null) {
+            m.forEach(this::put);
+            return;
+        }
+        super.putAll(m);
+    }
+
+    @Override
+    public void clear() {
+        if (schema != null) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = RowSchema.ABSENT;
+            }
+            compactSize = 0;
+            return;
+        }
+        super.clear();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        if (schema != null) {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != RowSchema.ABSENT) {
+                    action.accept(schema.getColumn(i), values[i]);
+                }
+            }
+            return;
+        }
+        super.forEach(action);
+    }
+
+    @Override
+    public Object putIfAbsent(String key, Object value) {
+        inflate();
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        inflate();
+        return super.remove(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, Object oldValue, Object newValue) {
+        inflate();
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public Object replace(String key, Object value) {
+        inflate();
+        return super.replace(key, value);
+    }
+
+    @Override
+    public Object computeIfAbsent(String key, Function<? super String, ?> mappingFunction) {
+        inflate();
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public Object computeIfPresent(String key, BiFunction<? super String, ? super Object, ?> remappingFunction) {
+        inflate();
+        return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public Object compute(String key, BiFunction<? super String, ? super Object, ?> remappingFunction) {
+        inflate();
+        return super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public Object merge(String key, Object value, BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+        inflate();
+        return super.merge(key, value, remappingFunction);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super Object, ?> function) {
+        inflate();
+        super.replaceAll(function);
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return schema != null ? new EntrySet() : super.entrySet();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return schema != null ? new KeySet() : super.keySet();
+    }
+
+    @Override
+    public Collection<Object> values() {
+        return schema != null ? new Values() : super.values();
+    }
+
+
+    /**
+     * 紧凑存储的迭代器，row 转换为 HashMap 存储后不再可用
+     */
+    private abstract class CompactIterator<E> implements Iterator<E> {
+        private int next = advance(0);
+        private int last = -1;
+
+        private int advance(int from) {
+            while (from < values.length && values[from] == RowSchema.ABSENT) {
+                from++;
+            }
+            return from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < values.length;
+        }
+
+        int nextIndex() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = advance(next + 1);
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            Row.this.remove(schema.getColumn(last));
+            last = -1;
+        }
+    }
+
+    private class EntrySet extends AbstractSet<Map.Entry<String, Object>> {
+        @Override
+        public Iterator<Map.Entry<String, Object>> iterator() {
+            if (schema == null) {
+                return Row.super.entrySet().iterator();
+            }
+            return new CompactIterator<Map.Entry<String, Object>>() {
+                @Override
+                public Map.Entry<String, Object> next() {
+                    int index = nextIndex();
+                    return new Entry(schema.getColumn(index), values[index]);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return Row.this.size();
+        }
+    }
+
+    private class KeySet extends AbstractSet<String> {
+        @Override
+        public Iterator<String> iterator() {
+            if (schema == null) {
+                return Row.super.keySet().iterator();
+            }
+            return new CompactIterator<String>() {
+                @Override
+                public String next() {
+                    return schema.getColumn(nextIndex());
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return Row.this.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return containsKey(o);
+        }
+    }
+
+    private class Values extends AbstractCollection<Object> {
+        @Override
+        public Iterator<Object> iterator() {
+            if (schema == null) {
+                return Row.super.values().iterator();
+            }
+            return new CompactIterator<Object>() {
+                @Override
+                public Object next() {
+                    return values[nextIndex()];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return Row.this.size();
+        }
+    }
+
+    private class Entry extends AbstractMap.SimpleEntry<String, Object> {
+        private Entry(String key, Object value) {
+            super(key, value);
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            super.setValue(value);
+            return put(getKey(), value);
+        }
+    }
 }
@@ -17,13 +17,15 @@ package com.mybatisflex.core.row;
 
 import com.mybatisflex.core.FlexConsts;
 import com.mybatisflex.core.exception.FlexExceptions;
+import com.mybatisflex.core.paginate.CountCache;
 import com.mybatisflex.core.paginate.Page;
 import com.mybatisflex.core.provider.RowSqlProvider;
+import com.mybatisflex.core.querywrapper.BoundQuery;
 import com.mybatisflex.core.querywrapper.CPI;
-import com.mybatisflex.core.querywrapper.QueryColumn;
 import com.mybatisflex.core.querywrapper.QueryWrapper;
 import com.mybatisflex.core.util.StringUtil;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.exceptions.TooManyResultsException;
 
 import java.util.Collection;
@@ -302,6 +304,28 @@ public interface RowMapper {
     List<Row> selectListBySql(@Param(FlexConsts.SQL) String sql, @Param(FlexConsts.SQL_ARGS) Object... args);
 
 
+    /**
+     * 通过自定义 sql 来查询，使用 cursor 流式读取数据
+     *
+     * @param sql  自定义的 sql
+     * @param args sql 参数
+     * @return row 的 cursor
+     */
+    @SelectProvider(value = RowSqlProvider.class, method = RowSqlProvider.METHOD_RAW_SQL)
+    Cursor<Row> selectCursorBySql(@Param(FlexConsts.SQL) String sql, @Param(FlexConsts.SQL_ARGS) Object... args);
+
+
+    /**
+     * 通过自定义 sql 来查询，按列读取全部数据，整数、浮点数类型的列不会装箱
+     *
+     * @param sql  自定义的 sql
+     * @param args sql 参数
+     * @return 按列存储的查询结果
+     */
+    @SelectProvider(value = RowSqlProvider.class, method = RowSqlProvider.METHOD_RAW_SQL)
+    ColumnarResult selectColumnsBySql(@Param(FlexConsts.SQL) String sql, @Param(FlexConsts.SQL_ARGS) Object... args);
+
+
     /**
      * 根据 map 来查询一个 Row 列表
      *
@@ -326,6 +350,41 @@ public interface RowMapper {
     List<Row> selectListByQuery(@Param(FlexConsts.TABLE_NAME) String tableName, @Param(FlexConsts.QUERY) QueryWrapper queryWrapper);
 
 
+    /**
+     * 通过预编译的查询来查询 row 列表，查询的表需要在编译时通过 QueryWrapper.from 指定
+     *
+     * @param boundQuery 绑定了参数的查询，通过 {@link com.mybatisflex.core.querywrapper.CompiledQuery#bind()} 创建
+     * @return row 列表
+     * @see RowSqlProvider#selectListByCompiledQuery(Map)
+     */
+    @SelectProvider(value = RowSqlProvider.class, method = "selectListByCompiledQuery")
+    List<Row> selectListByCompiledQuery(@Param(FlexConsts.QUERY) BoundQuery boundQuery);
+
+
+    /**
+     * 根据 queryWrapper 来查询，使用 cursor 流式读取数据
+     *
+     * @param tableName    表名
+     * @param queryWrapper queryWrapper
+     * @return row 的 cursor
+     * @see RowSqlProvider#selectListByQuery(Map)
+     */
+    @SelectProvider(value = RowSqlProvider.class, method = "selectListByQuery")
+    Cursor<Row> selectCursorByQuery(@Param(FlexConsts.TABLE_NAME) String tableName, @Param(FlexConsts.QUERY) QueryWrapper queryWrapper);
+
+
+    /**
+     * 根据 queryWrapper 来查询，按列读取全部数据，整数、浮点数类型的列不会装箱
+     *
+     * @param tableName    表名
+     * @param queryWrapper queryWrapper
+     * @return 按列存储的查询结果
+     * @see RowSqlProvider#selectListByQuery(Map)
+     */
+    @SelectProvider(value = RowSqlProvider.class, method = "selectListByQuery")
+    ColumnarResult selectColumnsByQuery(@Param(FlexConsts.TABLE_NAME) String tableName, @Param(FlexConsts.QUERY) QueryWrapper queryWrapper);
+
+
     /**
      * 查询某张表的全部数据
      *
@@ -414,17 +473,16 @@ public interface RowMapper {
      */
     default Page<Row> paginate(String tableName, Page<Row> page, QueryWrapper queryWrapper) {
 
-
-        List<QueryColumn> groupByColumns = CPI.getGroupByColumns(queryWrapper);
-
         // 只有 totalRow 小于 0 的时候才会去查询总量
         // 这样方便用户做总数缓存，而非每次都要去查询总量
         // 一般的分页场景中，只有第一页的时候有必要去查询总量，第二页以后是不需要的
         if (page.getTotalRow() < 0) {
 
-            //清除group by 去查询数据
-            CPI.setGroupByColumns(queryWrapper, null);
-            long count = selectCountByQuery(tableName, queryWrapper);
+            //数量查询使用 queryWrapper 的副本，清除 group by 和 keyset 条件，不修改调用方的 queryWrapper
+            QueryWrapper countWrapper = CPI.copy(queryWrapper);
+            CPI.setGroupByColumns(countWrapper, null);
+            countWrapper.seekAfter((Object[]) null);
+            long count = CountCache.getCount(tableName, countWrapper, () -> selectCountByQuery(tableName, countWrapper));
             page.setTotalRow(count);
         }
 
@@ -432,11 +490,16 @@ public interface RowMapper {
             return page;
         }
 
-        //恢复数量查询清除的 groupBy
-        CPI.setGroupByColumns(queryWrapper, groupByColumns);
-        int offset = page.getPageSize() * (page.getPageNumber() - 1);
-        queryWrapper.limit(offset, page.getPageSize());
-        List<Row> rows = selectListByQuery(tableName, queryWrapper);
+        //afterKeys 不为空时使用 keyset 分页，通过上一页最后一条数据定位，无需扫描 offset 之前的数据
+        QueryWrapper listWrapper = CPI.copy(queryWrapper);
+        listWrapper.seekAfter(page.getAfterKeys());
+        if (page.getAfterKeys() != null) {
+            listWrapper.limit(null, page.getPageSize());
+        } else {
+            int offset = page.getPageSize() * (page.getPageNumber() - 1);
+            listWrapper.limit(offset, page.getPageSize());
+        }
+        List<Row> rows = selectListByQuery(tableName, listWrapper);
         page.setList(rows);
         return page;
     }
@@ -16,19 +16,35 @@
 package com.mybatisflex.core.row;
 
 import com.mybatisflex.core.FlexGlobalConfig;
+import com.mybatisflex.core.datasource.DataSourceKey;
 import com.mybatisflex.core.dialect.DbType;
 import com.mybatisflex.core.dialect.DialectFactory;
+import com.mybatisflex.core.exception.FlexExceptions;
+import com.mybatisflex.core.paginate.CountCache;
 import com.mybatisflex.core.paginate.Page;
+import com.mybatisflex.core.paginate.PaginateExecutor;
+import com.mybatisflex.core.querywrapper.BoundQuery;
+import com.mybatisflex.core.querywrapper.CPI;
 import com.mybatisflex.core.querywrapper.QueryWrapper;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class RowMapperInvoker {
 
@@ -50,14 +66,78 @@ public class RowMapperInvoker {
     }
 
     private <R> R execute(Function<RowMapper, R> function) {
-        SqlSession sqlSession = rowSessionManager.getSqlSession(sqlSessionFactory);
+        RowSessionScope scope = RowSessionScope.get(sqlSessionFactory);
+        SqlSession sqlSession = scope != null ? scope.getSqlSession() : rowSessionManager.getSqlSession(sqlSessionFactory);
         try {
             DialectFactory.setHintDbType(dbType);
             RowMapper mapper = sqlSession.getMapper(RowMapper.class);
-            return function.apply(mapper);
+            R result = function.apply(mapper);
+            if (scope != null) {
+                scope.afterExecute();
+            }
+            return result;
         } finally {
             DialectFactory.clearHintDbType();
+            if (scope == null) {
+                rowSessionManager.releaseSqlSession(sqlSession, sqlSessionFactory);
+            }
+        }
+    }
+
+
+    /**
+     * 在同一个 sqlSession 中执行多次调用，function 中当前数据源的 Db 调用都会复用该 sqlSession 及其 connection
+     * 每次修改数据后立即提交，没有修改数据时不会执行 commit
+     */
+    public <R> R session(Function<RowMapperInvoker, R> function) {
+        return executeInScope(false, false, function);
+    }
+
+    /**
+     * 在同一个只读的 sqlSession 中执行多次调用，connection 会被设置为 readOnly，不会执行 commit
+     */
+    public <R> R sessionReadOnly(Function<RowMapperInvoker, R> function) {
+        return executeInScope(false, true, function);
+    }
+
+    /**
+     * 在同一个 sqlSession 的事务中执行多次调用，执行成功后提交，出现异常时回滚
+     * 嵌套调用时加入外层的 session 或事务；已经处于 spring 事务中时，由 spring 负责提交和回滚
+     * executeBatch、insertBatch、batchWriter 等批量方法在当前 session 的 connection 上执行，同样加入当前事务
+     */
+    public <R> R tx(Function<RowMapperInvoker, R> function) {
+        return executeInScope(true, false, function);
+    }
+
+    private <R> R executeInScope(boolean transactional, boolean readOnly, Function<RowMapperInvoker, R> function) {
+        RowSessionScope scope = RowSessionScope.get(sqlSessionFactory);
+        if (scope != null) {
+            return transactional && !scope.isTransactional()
+                    ? scope.transaction(() -> function.apply(this))
+                    : function.apply(this);
+        }
+
+        //使用 FlexDataSource 时，session 中可能存在写入，固定使用主库；只读的 session 使用从库
+        if (readOnly) {
+            DataSourceKey.useReplica();
+        } else {
+            DataSourceKey.usePrimary();
+        }
+        SqlSession sqlSession = rowSessionManager.getSqlSession(sqlSessionFactory);
+        try {
+            scope = RowSessionScope.open(sqlSessionFactory, sqlSession, readOnly);
+            try {
+                return transactional ? scope.transaction(() -> function.apply(this)) : function.apply(this);
+            } finally {
+                scope.close();
+            }
+        } finally {
             rowSessionManager.releaseSqlSession(sqlSession, sqlSessionFactory);
+            if (readOnly) {
+                DataSourceKey.clearReplica();
+            } else {
+                DataSourceKey.clearPrimary();
+            }
         }
     }
 
@@ -71,30 +151,67 @@ public class RowMapperInvoker {
     }
 
     public int[] insertBatch(String tableName, Collection<Row> rows, int batchSize) {
-        int[] results = new int[rows.size()];
-        SqlSession sqlSession = rowSessionManager.getSqlSession(sqlSessionFactory, ExecutorType.BATCH);
+        return executeBatch(rows, batchSize, RowMapper.class, (mapper, row) -> mapper.insertRow(tableName, row));
+    }
+
+    public BatchWriter batchWriter(String tableName) {
+        return new BatchWriter(sqlSessionFactory, dbType, rowSessionManager, tableName);
+    }
+
+    public <M, E> int[] executeBatch(Collection<E> datas, int batchSize, Class<M> mapperClass, BiConsumer<M, E> consumer) {
+        if (batchSize <= 0) {
+            throw FlexExceptions.wrap("batchSize must be greater than 0.");
+        }
+        List<int[]> updateCountsList = new ArrayList<>();
+        RowSessionScope scope = RowSessionScope.get(sqlSessionFactory);
+        SqlSession sqlSession = scope != null ? scope.openBatchSession() : rowSessionManager.getSqlSession(sqlSessionFactory, ExecutorType.BATCH);
         try {
             DialectFactory.setHintDbType(dbType);
-            RowMapper mapper = sqlSession.getMapper(RowMapper.class);
+            M mapper = sqlSession.getMapper(mapperClass);
             int counter = 0;
-            int resultsPos = 0;
-            for (Row row : rows) {
+            for (E data : datas) {
+                consumer.accept(mapper, data);
                 if (++counter >= batchSize) {
                     counter = 0;
-                    List<BatchResult> batchResults = sqlSession.flushStatements();
-                    for (BatchResult batchResult : batchResults) {
-                        int[] updateCounts = batchResult.getUpdateCounts();
-                        for (int updateCount : updateCounts) {
-                            results[resultsPos++] = updateCount;
-                        }
-                    }
-                } else {
-                    mapper.insertRow(tableName, row);
+                    addUpdateCounts(updateCountsList, sqlSession.flushStatements());
                 }
             }
+            if (counter > 0) {
+                addUpdateCounts(updateCountsList, sqlSession.flushStatements());
+            }
+            if (scope != null) {
+                scope.afterBatch();
+            }
         } finally {
             DialectFactory.clearHintDbType();
-            rowSessionManager.releaseSqlSession(sqlSession, sqlSessionFactory);
+            if (scope != null) {
+                sqlSession.close();
+            } else {
+                rowSessionManager.releaseSqlSession(sqlSession, sqlSessionFactory);
+            }
+        }
+        return concatUpdateCounts(updateCountsList);
+    }
+
+    /**
+     * 只保留 BatchResult 的 updateCounts，避免 BatchResult 持有的参数在整个批量执行期间无法释放
+     */
+    private static void addUpdateCounts(List<int[]> updateCountsList, List<BatchResult> batchResults) {
+        for (BatchResult batchResult : batchResults) {
+            updateCountsList.add(batchResult.getUpdateCounts());
+        }
+    }
+
+    private static int[] concatUpdateCounts(List<int[]> updateCountsList) {
+        int length = 0;
+        for (int[] updateCounts : updateCountsList) {
+            length += updateCounts.length;
+        }
+        int[] results = new int[length];
+        int pos = 0;
+        for (int[] updateCounts : updateCountsList) {
+            System.arraycopy(updateCounts, 0, results, pos, updateCounts.length);
+            pos += updateCounts.length;
         }
         return results;
     }
@@ -179,10 +296,131 @@ public class RowMapperInvoker {
         return execute(mapper -> mapper.selectListByQuery(tableName, queryWrapper));
     }
 
+    public List<Row> selectListByCompiledQuery(BoundQuery boundQuery) {
+        return execute(mapper -> mapper.selectListByCompiledQuery(boundQuery));
+    }
+
+    public ColumnarResult selectColumnsBySql(String sql, Object... args) {
+        return execute(mapper -> mapper.selectColumnsBySql(sql, args));
+    }
+
+    public ColumnarResult selectColumnsByQuery(String tableName, QueryWrapper queryWrapper) {
+        return execute(mapper -> mapper.selectColumnsByQuery(tableName, queryWrapper));
+    }
+
     public List<Row> selectAll(String tableName) {
         return execute(mapper -> mapper.selectAll(tableName));
     }
 
+    /**
+     * 异步分页，count 和 list 分别在 {@link PaginateExecutor} 中使用各自的 sqlSession 执行
+     */
+    public CompletableFuture<Page<Row>> paginateAsync(String tableName, Page<Row> page, QueryWrapper queryWrapper) {
+        QueryWrapper listWrapper = CPI.copy(queryWrapper);
+        listWrapper.seekAfter(page.getAfterKeys());
+        if (page.getAfterKeys() != null) {
+            listWrapper.limit(null, page.getPageSize());
+        } else {
+            listWrapper.limit(page.getPageSize() * (page.getPageNumber() - 1), page.getPageSize());
+        }
+
+        Executor executor = PaginateExecutor.getExecutor();
+        CompletableFuture<List<Row>> listFuture = CompletableFuture.supplyAsync(
+                () -> execute(mapper -> mapper.selectListByQuery(tableName, listWrapper)), executor);
+        if (page.getTotalRow() >= 0) {
+            return listFuture.thenApply(list -> {
+                page.setList(list);
+                return page;
+            });
+        }
+
+        QueryWrapper countWrapper = CPI.copy(queryWrapper);
+        CPI.setGroupByColumns(countWrapper, null);
+        countWrapper.seekAfter((Object[]) null);
+        CompletableFuture<Long> countFuture = CompletableFuture.supplyAsync(() -> CountCache.getCount(tableName, countWrapper,
+                () -> execute(mapper -> mapper.selectCountByQuery(tableName, countWrapper))), executor);
+        return countFuture.thenCombine(listFuture, (count, list) -> {
+            page.setTotalRow(count);
+            page.setList(list);
+            return page;
+        });
+    }
+
+    public Stream<Row> selectRowStream(String sql, Object... args) {
+        return stream(mapper -> mapper.selectCursorBySql(sql, args));
+    }
+
+    public Stream<Row> selectRowStream(String tableName, QueryWrapper queryWrapper) {
+        return stream(mapper -> mapper.selectCursorByQuery(tableName, queryWrapper));
+    }
+
+    public void forEachRow(String tableName, QueryWrapper queryWrapper, Consumer<Row> consumer) {
+        try (Stream<Row> stream = selectRowStream(tableName, queryWrapper)) {
+            stream.forEach(consumer);
+        }
+    }
+
+    public void forEachRow(Consumer<Row> consumer, String sql, Object... args) {
+        try (Stream<Row> stream = selectRowStream(sql, args)) {
+            stream.forEach(consumer);
+        }
+    }
+
+    /**
+     * 通过 cursor 查询数据，stream 关闭时才会关闭 cursor 以及释放 sqlSession
+     */
+    private Stream<Row> stream(Function<RowMapper, Cursor<Row>> function) {
+        RowSessionScope scope = RowSessionScope.get(sqlSessionFactory);
+        SqlSession sqlSession = scope != null ? scope.getSqlSession() : rowSessionManager.getSqlSession(sqlSessionFactory);
+        boolean release = scope == null;
+        Connection connection = null;
+        Cursor<Row> cursor = null;
+        try {
+            DialectFactory.setHintDbType(dbType);
+
+            //postgresql 等数据库需要关闭 autoCommit，fetchSize 才会生效
+            if (DialectFactory.getDialect().isCursorRequireTransaction()) {
+                Connection conn = sqlSession.getConnection();
+                if (conn.getAutoCommit()) {
+                    conn.setAutoCommit(false);
+                    connection = conn;
+                }
+            }
+
+            cursor = function.apply(sqlSession.getMapper(RowMapper.class));
+            Cursor<Row> finalCursor = cursor;
+            Connection finalConnection = connection;
+            return StreamSupport.stream(cursor.spliterator(), false)
+                    .onClose(() -> closeStream(finalCursor, finalConnection, sqlSession, release));
+        } catch (RuntimeException e) {
+            closeStream(cursor, connection, sqlSession, release);
+            throw e;
+        } catch (SQLException e) {
+            closeStream(cursor, connection, sqlSession, release);
+            throw FlexExceptions.wrap(e);
+        } finally {
+            DialectFactory.clearHintDbType();
+        }
+    }
+
+    private void closeStream(Cursor<Row> cursor, Connection autoCommitConnection, SqlSession sqlSession, boolean release) {
+        try {
+            if (cursor != null) {
+                cursor.close();
+            }
+            if (autoCommitConnection != null) {
+                autoCommitConnection.rollback();
+                autoCommitConnection.setAutoCommit(true);
+            }
+        } catch (Exception e) {
+            throw FlexExceptions.wrap(e);
+        } finally {
+            if (release) {
+                rowSessionManager.releaseSqlSession(sqlSession, sqlSessionFactory);
+            }
+        }
+    }
+
     public Object selectObject(String sql, Object... args) {
         return execute(mapper -> mapper.selectObject(sql, args));
     }
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.row;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 查询结果的列信息，同一个结果集的所有 {@link Row} 共享同一个 RowSchema，每个 Row 只保存列的值
+ * <p>
+ * RowSchema 创建后不可修改，列名相同的多个列共用同一个位置，和 Map 中后面的值覆盖前面的值保持一致
+ */
+public final class RowSchema {
+
+    /**
+     * 值不存在的标记，和 HashMap 中不存在的 key 对应，例如：未开启 callSettersOnNulls 时值为 null 的列
+     */
+    static final Object ABSENT = new Object();
+
+    private final String[] columns;
+    private final Map<String, Integer> indexes;
+
+
+    public RowSchema(String[] labels) {
+        Map<String, Integer> indexes = new HashMap<>(labels.length * 4 / 3 + 1);
+        String[] columns = new String[labels.length];
+        int size = 0;
+        for (String label : labels) {
+            if (!indexes.containsKey(label)) {
+                String column = label.intern();
+                indexes.put(column, size);
+                columns[size++] = column;
+            }
+        }
+        this.columns = size == labels.length ? columns : Arrays.copyOf(columns, size);
+        this.indexes = indexes;
+    }
+
+
+    public int size() {
+        return columns.length;
+    }
+
+    public String getColumn(int index) {
+        return columns[index];
+    }
+
+    /**
+     * @return 列的位置，不存在时返回 -1
+     */
+    public int indexOf(Object column) {
+        Integer index = indexes.get(column);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * 创建一个所有列都不存在的值数组，通过 {@link #indexOf(Object)} 填充值后用于 {@link Row#ofSchema(RowSchema, Object[])}
+     */
+    public Object[] newValues() {
+        Object[] values = new Object[columns.length];
+        Arrays.fill(values, ABSENT);
+        return values;
+    }
+}
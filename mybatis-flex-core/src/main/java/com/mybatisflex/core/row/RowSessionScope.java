@@ -0,0 +1,251 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.row;
+
+import com.mybatisflex.core.exception.FlexExceptions;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.defaults.DefaultSqlSession;
+import org.apache.ibatis.transaction.Transaction;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 当前线程中 Db.session、Db.tx 等方法所固定的 sqlSession，同一个 sqlSessionFactory 的 Db 调用都会加入该 sqlSession
+ */
+class RowSessionScope {
+
+    private static final ThreadLocal<Map<SqlSessionFactory, RowSessionScope>> SCOPES = new ThreadLocal<>();
+
+    private final SqlSessionFactory sqlSessionFactory;
+    private final SqlSession sqlSession;
+    private final boolean readOnly;
+    private boolean transactional;
+    private boolean resetReadOnly;
+
+
+    private RowSessionScope(SqlSessionFactory sqlSessionFactory, SqlSession sqlSession, boolean readOnly) {
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.sqlSession = sqlSession;
+        this.readOnly = readOnly;
+    }
+
+
+    static RowSessionScope get(SqlSessionFactory sqlSessionFactory) {
+        Map<SqlSessionFactory, RowSessionScope> scopes = SCOPES.get();
+        return scopes == null ? null : scopes.get(sqlSessionFactory);
+    }
+
+
+    static RowSessionScope open(SqlSessionFactory sqlSessionFactory, SqlSession sqlSession, boolean readOnly) {
+        RowSessionScope scope = new RowSessionScope(sqlSessionFactory, sqlSession, readOnly);
+        if (readOnly) {
+            scope.markReadOnly();
+        }
+        Map<SqlSessionFactory, RowSessionScope> scopes = SCOPES.get();
+        if (scopes == null) {
+            scopes = new HashMap<>(2);
+            SCOPES.set(scopes);
+        }
+        scopes.put(sqlSessionFactory, scope);
+        return scope;
+    }
+
+
+    SqlSession getSqlSession() {
+        return sqlSession;
+    }
+
+    boolean isTransactional() {
+        return transactional;
+    }
+
+
+    /**
+     * 每次执行完成后调用，非事务的 session 中立即提交，没有数据修改时 mybatis 不会真正的执行 commit
+     */
+    void afterExecute() {
+        if (!transactional && !readOnly) {
+            sqlSession.commit();
+        }
+    }
+
+
+    /**
+     * 批量方法（executeBatch、batchWriter）执行完成后调用，非事务的 session 中立即提交
+     * 批量执行使用的是单独的 sqlSession，当前 sqlSession 没有被标记为已修改，因此需要强制提交
+     */
+    void afterBatch() {
+        if (!transactional && !readOnly) {
+            sqlSession.commit(true);
+        }
+    }
+
+
+    /**
+     * 在当前 session 的 connection 上打开一个 BATCH 类型的 sqlSession，用于批量方法加入当前 session（事务）
+     * <p>
+     * 返回的 sqlSession 不会提交、回滚或者关闭 connection，由当前 session 负责；使用完成后需要调用其 close() 方法
+     */
+    SqlSession openBatchSession() {
+        //先执行当前 sqlSession 中未执行的语句，保证执行顺序
+        sqlSession.flushStatements();
+        Configuration configuration = sqlSessionFactory.getConfiguration();
+        Executor executor = configuration.newExecutor(new ScopeTransaction(sqlSession.getConnection()), ExecutorType.BATCH);
+        return new DefaultSqlSession(configuration, executor, false);
+    }
+
+
+    /**
+     * 在当前 session 中执行事务，执行成功后提交，出现异常时回滚
+     * 若 connection 已经处于其他事务中（例如 spring 的事务），则由外部的事务负责提交和回滚
+     */
+    <R> R transaction(Supplier<R> supplier) {
+        Connection connection = sqlSession.getConnection();
+        boolean resetAutoCommit;
+        try {
+            resetAutoCommit = connection.getAutoCommit();
+            if (resetAutoCommit) {
+                connection.setAutoCommit(false);
+            }
+        } catch (SQLException e) {
+            throw FlexExceptions.wrap(e);
+        }
+
+        transactional = true;
+        try {
+            R result;
+            try {
+                result = supplier.get();
+            } catch (RuntimeException | Error e) {
+                rollback(connection, resetAutoCommit, e);
+                throw e;
+            }
+            commit(connection, resetAutoCommit);
+            return result;
+        } finally {
+            transactional = false;
+            if (resetAutoCommit) {
+                try {
+                    connection.setAutoCommit(true);
+                } catch (SQLException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+
+    private void commit(Connection connection, boolean ownTransaction) {
+        //批量方法的写入不会把当前 sqlSession 标记为已修改，需要强制提交
+        sqlSession.commit(true);
+        if (ownTransaction) {
+            try {
+                connection.commit();
+            } catch (SQLException e) {
+                throw FlexExceptions.wrap(e);
+            }
+        }
+    }
+
+
+    private void rollback(Connection connection, boolean ownTransaction, Throwable cause) {
+        try {
+            sqlSession.rollback(true);
+            if (ownTransaction) {
+                connection.rollback();
+            }
+        } catch (Exception e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+
+    private void markReadOnly() {
+        try {
+            Connection connection = sqlSession.getConnection();
+            if (!connection.isReadOnly()) {
+                connection.setReadOnly(true);
+                resetReadOnly = true;
+            }
+        } catch (SQLException e) {
+            //部分驱动在事务中不允许修改 readOnly，此时只是不做优化
+        }
+    }
+
+
+    void close() {
+        Map<SqlSessionFactory, RowSessionScope> scopes = SCOPES.get();
+        if (scopes != null) {
+            scopes.remove(sqlSessionFactory);
+            if (scopes.isEmpty()) {
+                SCOPES.remove();
+            }
+        }
+        if (resetReadOnly) {
+            try {
+                sqlSession.getConnection().setReadOnly(false);
+            } catch (SQLException e) {
+                throw FlexExceptions.wrap(e);
+            }
+        }
+    }
+
+
+    /**
+     * 使用当前 session 的 connection 的事务，提交、回滚和关闭由当前 session 负责
+     */
+    private static class ScopeTransaction implements Transaction {
+
+        private final Connection connection;
+
+        private ScopeTransaction(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Connection getConnection() {
+            return connection;
+        }
+
+        @Override
+        public void commit() {
+            //由当前 session 提交
+        }
+
+        @Override
+        public void rollback() {
+            //由当前 session 回滚
+        }
+
+        @Override
+        public void close() {
+            //connection 由当前 session 关闭
+        }
+
+        @Override
+        public Integer getTimeout() {
+            return null;
+        }
+    }
+}
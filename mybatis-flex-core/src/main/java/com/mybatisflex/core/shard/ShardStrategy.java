@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.shard;
+
+import com.mybatisflex.core.exception.FlexExceptions;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAccessor;
+import java.util.Date;
+
+/**
+ * 分表策略，根据分片字段的值计算分片的序号，物理表的名称为：表名 + "_" + 序号
+ */
+public interface ShardStrategy {
+
+    /**
+     * 按年分表，序号为 yyyy
+     */
+    ShardStrategy YEAR = value -> toLocalDate(value).getYear();
+
+    /**
+     * 按月分表，序号为 yyyyMM
+     */
+    ShardStrategy MONTH = value -> {
+        LocalDate date = toLocalDate(value);
+        return date.getYear() * 100L + date.getMonthValue();
+    };
+
+    /**
+     * 按天分表，序号为 yyyyMMdd
+     */
+    ShardStrategy DAY = value -> {
+        LocalDate date = toLocalDate(value);
+        return date.getYear() * 10000L + date.getMonthValue() * 100L + date.getDayOfMonth();
+    };
+
+
+    /**
+     * 计算分片的序号
+     *
+     * @param shardValue 分片字段的值，不为 null
+     * @return 分片的序号
+     */
+    long getShardIndex(Object shardValue);
+
+
+    /**
+     * 取模分表，整数以及整数形式的字符串（例如 "123"）使用其数值取模，其他类型使用 hashCode 取模
+     * <p>
+     * 因此主键为 String "123" 和 Long 123 时定位到同一个分片
+     *
+     * @param count 分表数量
+     */
+    static ShardStrategy hashMod(int count) {
+        if (count <= 0) {
+            throw FlexExceptions.wrap("The count of shards must be greater than 0.");
+        }
+        BigInteger bigCount = BigInteger.valueOf(count);
+        return value -> {
+            Number number = toInteger(value);
+            if (number instanceof Long) {
+                return Math.floorMod(number.longValue(), (long) count);
+            }
+            if (number instanceof BigInteger) {
+                return ((BigInteger) number).mod(bigCount).longValue();
+            }
+            return Math.floorMod(value.hashCode(), count);
+        };
+    }
+
+
+    /**
+     * 按范围分表
+     *
+     * @param range 每张表的数据范围
+     */
+    static ShardStrategy range(long range) {
+        if (range <= 0) {
+            throw FlexExceptions.wrap("The range of shards must be greater than 0.");
+        }
+        return value -> {
+            Number number = toInteger(value);
+            if (!(number instanceof Long)) {
+                throw FlexExceptions.wrap("Range shard value must be an integer within the range of long, but got: %s", value);
+            }
+            return Math.floorDiv(number.longValue(), range);
+        };
+    }
+
+
+    /**
+     * 整数以及整数形式的字符串转换为 Long，超出 long 范围时为 BigInteger，其他值返回 null
+     */
+    static Number toInteger(Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof BigInteger) {
+            return narrow((BigInteger) value);
+        }
+        if (value instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) value;
+            if (decimal.signum() == 0) {
+                return 0L;
+            }
+            decimal = decimal.stripTrailingZeros();
+            return decimal.scale() <= 0 ? narrow(decimal.toBigIntegerExact()) : null;
+        }
+        if (value instanceof CharSequence) {
+            String text = value.toString().trim();
+            return isIntegerText(text) ? narrow(new BigInteger(text)) : null;
+        }
+        return null;
+    }
+
+
+    static Number narrow(BigInteger value) {
+        return value.bitLength() < 64 ? (Number) value.longValue() : value;
+    }
+
+
+    static boolean isIntegerText(String text) {
+        int start = !text.isEmpty() && (text.charAt(0) == '-' || text.charAt(0) == '+') ? 1 : 0;
+        if (start == text.length()) {
+            return false;
+        }
+        for (int i = start; i < text.length(); i++) {
+            if (text.charAt(i) < '0' || text.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    static LocalDate toLocalDate(Object value) {
+        if (value instanceof LocalDate) {
+            return (LocalDate) value;
+        }
+        if (value instanceof Date) {
+            return Instant.ofEpochMilli(((Date) value).getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+        }
+        if (value instanceof Instant) {
+            return ((Instant) value).atZone(ZoneId.systemDefault()).toLocalDate();
+        }
+        if (value instanceof TemporalAccessor) {
+            return LocalDate.from((TemporalAccessor) value);
+        }
+        if (value instanceof Long) {
+            return Instant.ofEpochMilli((Long) value).atZone(ZoneId.systemDefault()).toLocalDate();
+        }
+        throw FlexExceptions.wrap("Can not get date from shard value of type: %s", value.getClass().getName());
+    }
+}
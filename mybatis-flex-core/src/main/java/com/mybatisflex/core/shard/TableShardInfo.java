@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.shard;
+
+import com.mybatisflex.annotation.TableShard;
+import com.mybatisflex.core.enums.KeyType;
+import com.mybatisflex.core.exception.FlexExceptions;
+import com.mybatisflex.core.key.SequenceKeyGenerator;
+import com.mybatisflex.core.table.IdInfo;
+import com.mybatisflex.core.table.TableInfo;
+import com.mybatisflex.core.util.CollectionUtil;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 表的分片信息，根据 entity 或者主键的值定位到物理表，以及物理表所在的数据源
+ */
+public class TableShardInfo {
+
+    private final TableInfo tableInfo;
+    private final String column;
+    private final ShardStrategy strategy;
+    private final String[] dataSources;
+    //分片字段在主键中的位置，不是主键时为 -1
+    private final int primaryKeyIndex;
+
+    private final Map<Long, TableInfo> shardTableInfos = new ConcurrentHashMap<>();
+
+
+    public TableShardInfo(TableInfo tableInfo, String column, ShardStrategy strategy, String... dataSources) {
+        this.tableInfo = tableInfo;
+        this.column = column;
+        this.strategy = strategy;
+        this.dataSources = dataSources == null ? new String[0] : dataSources;
+
+        int index = -1;
+        String[] primaryKeys = tableInfo.getPrimaryKeys();
+        for (int i = 0; i < primaryKeys.length; i++) {
+            if (primaryKeys[i].equals(column)) {
+                index = i;
+                break;
+            }
+        }
+        List<IdInfo> primaryKeyList = tableInfo.getPrimaryKeyList();
+        //自增主键以及 insert 之后才执行的序列，在 insert 时还没有值，无法用来分片
+        if (index >= 0 && isGeneratedAfterInsert(primaryKeyList.get(index))) {
+            throw FlexExceptions.wrap("The shard column \"%s\" of table \"%s\" can not be a primary key generated by the database after insert."
+                    , column, tableInfo.getTableName());
+        }
+        //insert 之前执行的序列在定位到分片的数据源之前就获取了连接，会在默认数据源上执行
+        if (this.dataSources.length > 0) {
+            for (IdInfo idInfo : primaryKeyList) {
+                if (isGeneratedBeforeInsert(idInfo)) {
+                    throw FlexExceptions.wrap("The primary key \"%s\" of table \"%s\" is generated by a sequence before the shard data source is resolved, " +
+                                    "use KeyType.Generator or KeyType.None when @TableShard(dataSources) is configured."
+                            , idInfo.getColumn(), tableInfo.getTableName());
+                }
+            }
+        }
+        this.primaryKeyIndex = index;
+    }
+
+
+    private static boolean isGeneratedAfterInsert(IdInfo idInfo) {
+        return idInfo.getKeyType() == KeyType.Auto
+                || (idInfo.getKeyType() == KeyType.Sequence && !isGeneratedBeforeInsert(idInfo));
+    }
+
+    private static boolean isGeneratedBeforeInsert(IdInfo idInfo) {
+        if (idInfo.getKeyType() != KeyType.Sequence) {
+            return false;
+        }
+        //配置序列名称时，总是在 insert 之前预取序列值
+        return idInfo.isBefore() || (idInfo.getValue() != null && SequenceKeyGenerator.isSequenceName(idInfo.getValue()));
+    }
+
+
+    public static TableShardInfo of(TableInfo tableInfo, TableShard tableShard) {
+        ShardStrategy strategy;
+        switch (tableShard.type()) {
+            case Range:
+                strategy = ShardStrategy.range(tableShard.range());
+                break;
+            case Year:
+                strategy = ShardStrategy.YEAR;
+                break;
+            case Month:
+                strategy = ShardStrategy.MONTH;
+                break;
+            case Day:
+                strategy = ShardStrategy.DAY;
+                break;
+            default:
+                strategy = ShardStrategy.hashMod(tableShard.count());
+                break;
+        }
+        return new TableShardInfo(tableInfo, tableShard.column(), strategy, tableShard.dataSources());
+    }
+
+
+    public String getColumn() {
+        return column;
+    }
+
+    public ShardStrategy getStrategy() {
+        return strategy;
+    }
+
+    public String[] getDataSources() {
+        return dataSources;
+    }
+
+
+    public long getShardIndex(Object shardValue) {
+        if (shardValue == null) {
+            throw FlexExceptions.wrap("The value of shard column \"%s\" in table \"%s\" can not be null.", column, tableInfo.getTableName());
+        }
+        return strategy.getShardIndex(shardValue);
+    }
+
+    public String getShardTableName(long shardIndex) {
+        return tableInfo.getTableName() + "_" + shardIndex;
+    }
+
+    /**
+     * 物理表的 TableInfo，与逻辑表只有表名不同
+     */
+    public TableInfo getShardTableInfo(long shardIndex) {
+        return CollectionUtil.computeIfAbsent(shardTableInfos, shardIndex
+                , index -> tableInfo.copyWithTableName(getShardTableName(index)));
+    }
+
+    /**
+     * 物理表所在的数据源，未配置时返回 null
+     */
+    public String getDataSource(long shardIndex) {
+        return dataSources.length == 0 ? null : dataSources[(int) Math.floorMod(shardIndex, (long) dataSources.length)];
+    }
+
+
+    /**
+     * 根据 entity 中分片字段的值计算分片的序号
+     */
+    public long routeByEntity(Object entity) {
+        return getShardIndex(tableInfo.getColumnValue(entity, column));
+    }
+
+    /**
+     * 批量操作的 entity 必须在同一个分片中
+     */
+    public long routeByEntities(List<?> entities) {
+        Long shardIndex = null;
+        for (Object entity : entities) {
+            shardIndex = checkSameShard(shardIndex, routeByEntity(entity));
+        }
+        return shardIndex;
+    }
+
+    /**
+     * 根据主键的值计算分片的序号，多个主键值（或多主键）按主键的顺序展开，且必须在同一个分片中
+     */
+    public long routeByPrimaryValues(Object[] primaryValues) {
+        int keyCount = tableInfo.getPrimaryKeys().length;
+        Long shardIndex = null;
+        for (int offset = 0; offset < primaryValues.length; offset += keyCount) {
+            shardIndex = checkSameShard(shardIndex, getShardIndex(getPrimaryShardValue(primaryValues, offset)));
+        }
+        return shardIndex;
+    }
+
+    private Object getPrimaryShardValue(Object[] primaryValues, int offset) {
+        if (primaryKeyIndex < 0) {
+            throw FlexExceptions.wrap("The shard column \"%s\" of table \"%s\" is not a primary key, can not route by primary key."
+                    , column, tableInfo.getTableName());
+        }
+        return primaryValues[offset + primaryKeyIndex];
+    }
+
+    private Long checkSameShard(Long shardIndex, long current) {
+        if (shardIndex != null && shardIndex != current) {
+            throw FlexExceptions.wrap("The batch operation of table \"%s\" spans multiple shards: %s and %s."
+                    , tableInfo.getTableName(), getShardTableName(shardIndex), getShardTableName(current));
+        }
+        return current;
+    }
+}
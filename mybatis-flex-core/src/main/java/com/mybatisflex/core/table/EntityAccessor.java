@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.table;
+
+/**
+ * entity 属性的访问器，用于替代 MetaObject 通过属性名称反射读写 entity 的方式
+ * <p>
+ * index 为属性在 {@link TableInfo#getProperties()} 中的下标（先主键，后普通字段）
+ *
+ * @see EntityAccessorFactory
+ */
+public interface EntityAccessor {
+
+    /**
+     * 读取 entity 中第 index 个属性的值
+     *
+     * @param entity entity
+     * @param index  属性下标
+     * @return 属性值
+     */
+    Object get(Object entity, int index);
+
+    /**
+     * 设置 entity 中第 index 个属性的值，当属性为基本数据类型且 value 为 null 时，忽略设置
+     *
+     * @param entity entity
+     * @param index  属性下标
+     * @param value  属性值
+     */
+    void set(Object entity, int index, Object value);
+
+    /**
+     * 按照 indexes 的顺序批量读取 entity 属性的值
+     *
+     * @param entity  entity
+     * @param indexes 属性下标
+     * @return 属性值
+     */
+    default Object[] readValues(Object entity, int[] indexes) {
+        Object[] values = new Object[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            values[i] = get(entity, indexes[i]);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.table;
+
+/**
+ * EntityAccessor 的创建工厂，可以通过 {@link TableInfos#setEntityAccessorFactory(EntityAccessorFactory)} 替换
+ * <p>
+ * 默认使用 {@link com.mybatisflex.core.javassist.JavassistEntityAccessorFactory}，
+ * 在运行时为每个 entity 生成访问器，无法生成时降级为 {@link ReflectorEntityAccessor}
+ */
+public interface EntityAccessorFactory {
+
+    /**
+     * 为 tableInfo 对应的 entity 创建访问器
+     *
+     * @param tableInfo 表信息，此时 columnInfoList 和 primaryKeyList 已经初始化完成
+     * @return EntityAccessor
+     */
+    EntityAccessor create(TableInfo tableInfo);
+}
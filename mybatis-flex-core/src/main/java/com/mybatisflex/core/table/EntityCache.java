@@ -0,0 +1,287 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.table;
+
+import com.mybatisflex.core.util.ClassUtil;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * entity 缓存，只对 {@code @Table(useCached = true)} 的 entity 生效
+ * <p>
+ * 每张表一个缓存区域，key 为主键的值，缓存在 ttl 之后过期，每张表最多缓存 maxSize 个 entity，
+ * 超出时按存入的顺序淘汰最早存入（也是最早过期）的 entity。
+ * 存入和读取时都会复制 entity，调用方修改返回的 entity 不会影响缓存。
+ * <p>
+ * 每次清除缓存时，区域的版本号都会先递增，再移除 entity；查询前记录版本号，存入前后版本号不一致则放弃存入，
+ * 避免并发的更新之后，又把查询到的旧数据存入缓存。
+ */
+public class EntityCache {
+
+    private static final Map<String, Region> regions = new ConcurrentHashMap<>();
+
+    private static final LongAdder hitCount = new LongAdder();
+    private static final LongAdder missCount = new LongAdder();
+
+    private static volatile boolean enable = true;
+    private static volatile long ttl = 60 * 1000L;
+    private static volatile int maxSize = 1024;
+
+    private EntityCache() {
+    }
+
+
+    /**
+     * 当前表是否使用缓存
+     *
+     * @param tableInfo TableInfo
+     * @return true 使用缓存
+     */
+    public static boolean isCached(TableInfo tableInfo) {
+        return enable && tableInfo != null && tableInfo.isUseCached();
+    }
+
+
+    /**
+     * 获取缓存区域当前的版本号，用于 {@link #put(TableInfo, Object, Object, long)}
+     */
+    public static long getVersion(TableInfo tableInfo) {
+        return getRegion(tableInfo.getTableName()).version.get();
+    }
+
+
+    /**
+     * 获取缓存的 entity
+     *
+     * @param tableInfo    TableInfo
+     * @param primaryValue 主键的值，多主键时为数组
+     * @return entity 的副本，不存在或者已过期时返回 null
+     */
+    public static <T> T get(TableInfo tableInfo, Object primaryValue) {
+        Region region = getRegion(tableInfo.getTableName());
+        String key = buildKey(primaryValue);
+        Entry entry = region.entities.get(key);
+        //不同的 entity 可能映射到同一张表
+        if (entry != null && entry.entity.getClass() == tableInfo.getEntityClass()) {
+            if (entry.expireAt > System.currentTimeMillis()) {
+                hitCount.increment();
+                return (T) copy(tableInfo, entry.entity);
+            }
+            region.entities.remove(key, entry);
+        }
+        missCount.increment();
+        return null;
+    }
+
+
+    /**
+     * 缓存 entity
+     *
+     * @param tableInfo    TableInfo
+     * @param primaryValue 主键的值，多主键时为数组
+     * @param entity       entity
+     * @param version      查询前通过 {@link #getVersion(TableInfo)} 获取的版本号
+     */
+    public static void put(TableInfo tableInfo, Object primaryValue, Object entity, long version) {
+        if (entity == null) {
+            return;
+        }
+        Region region = getRegion(tableInfo.getTableName());
+        if (region.version.get() != version) {
+            return;
+        }
+
+        String key = buildKey(primaryValue);
+        Entry entry = new Entry(key, copy(tableInfo, entity), System.currentTimeMillis() + ttl);
+        Entry old = region.entities.put(key, entry);
+        //清除缓存时先递增版本号再移除 entity，存入之后再次检查版本号，
+        //避免在检查和存入之间执行的清除（例如事务提交）之后，查询到的旧数据仍然留在缓存中
+        if (region.version.get() != version) {
+            region.entities.remove(key, entry);
+            return;
+        }
+        region.offer(entry);
+        if (old == null) {
+            while (region.entities.size() > maxSize && region.evictEldest()) {
+                //每次只淘汰一个最早存入的 entity
+            }
+        }
+    }
+
+
+    /**
+     * 清除某张表中，某些主键的缓存
+     *
+     * @param tableInfo     TableInfo
+     * @param primaryValues 主键的值
+     */
+    public static void evict(TableInfo tableInfo, Object... primaryValues) {
+        Region region = getRegion(tableInfo.getTableName());
+        region.version.incrementAndGet();
+        for (Object primaryValue : primaryValues) {
+            region.entities.remove(buildKey(primaryValue));
+        }
+    }
+
+
+    /**
+     * 清除某张表的所有缓存
+     *
+     * @param tableName 表名
+     */
+    public static void invalidate(String tableName) {
+        Region region = regions.get(tableName);
+        if (region != null) {
+            region.clear();
+        }
+    }
+
+
+    public static void clear() {
+        regions.values().forEach(Region::clear);
+    }
+
+
+    /**
+     * 主键的值统一转换为字符串，避免 Integer 和 Long 等类型不一致导致无法命中或者无法清除
+     */
+    private static String buildKey(Object primaryValue) {
+        if (primaryValue instanceof Object[]) {
+            Object[] values = (Object[]) primaryValue;
+            return values.length == 1 ? String.valueOf(values[0]) : Arrays.deepToString(values);
+        }
+        return String.valueOf(primaryValue);
+    }
+
+
+    private static Region getRegion(String tableName) {
+        Region region = regions.get(tableName);
+        return region != null ? region : regions.computeIfAbsent(tableName, key -> new Region());
+    }
+
+
+    private static Object copy(TableInfo tableInfo, Object entity) {
+        EntityAccessor accessor = tableInfo.getEntityAccessor();
+        Object newEntity = ClassUtil.newInstance(tableInfo.getEntityClass());
+        for (int i = 0; i < tableInfo.getProperties().length; i++) {
+            accessor.set(newEntity, i, accessor.get(entity, i));
+        }
+        return newEntity;
+    }
+
+
+    public static int size() {
+        return regions.values().stream().mapToInt(region -> region.entities.size()).sum();
+    }
+
+    public static long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public static long getMissCount() {
+        return missCount.sum();
+    }
+
+    public static boolean isEnable() {
+        return enable;
+    }
+
+    public static void setEnable(boolean enable) {
+        EntityCache.enable = enable;
+        if (!enable) {
+            clear();
+        }
+    }
+
+    public static long getTtl() {
+        return ttl;
+    }
+
+    public static void setTtl(long ttl) {
+        EntityCache.ttl = ttl;
+    }
+
+    public static int getMaxSize() {
+        return maxSize;
+    }
+
+    public static void setMaxSize(int maxSize) {
+        EntityCache.maxSize = maxSize;
+    }
+
+
+    private static class Region {
+        private final Map<String, Entry> entities = new ConcurrentHashMap<>();
+        private final AtomicLong version = new AtomicLong();
+
+        /**
+         * 按存入顺序排列的 entry，已被移除或者替换的 entry 在淘汰时跳过，数量过多时统一清理
+         */
+        private final Queue<Entry> order = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger orderSize = new AtomicInteger();
+
+        private void offer(Entry entry) {
+            order.offer(entry);
+            if (orderSize.incrementAndGet() > Math.max(maxSize, 16) * 2) {
+                order.removeIf(e -> entities.get(e.key) != e);
+                orderSize.set(order.size());
+            }
+        }
+
+        /**
+         * 淘汰最早存入的 entity
+         *
+         * @return false 表示没有可以淘汰的 entity
+         */
+        private boolean evictEldest() {
+            Entry entry;
+            while ((entry = order.poll()) != null) {
+                orderSize.decrementAndGet();
+                if (entities.remove(entry.key, entry)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void clear() {
+            version.incrementAndGet();
+            entities.clear();
+            order.clear();
+            orderSize.set(0);
+        }
+    }
+
+
+    private static class Entry {
+        private final String key;
+        private final Object entity;
+        private final long expireAt;
+
+        private Entry(String key, Object entity, long expireAt) {
+            this.key = key;
+            this.entity = entity;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.table;
+
+import com.mybatisflex.core.exception.FlexExceptions;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * 基于 mybatis {@link Reflector} 的 EntityAccessor 实现，在无法生成访问器类（例如：GraalVM native image）时使用
+ * <p>
+ * Invoker 在创建时已经按下标解析好，读写属性时无需再通过属性名称查找
+ */
+public class ReflectorEntityAccessor implements EntityAccessor {
+
+    private final Invoker[] getInvokers;
+    private final Invoker[] setInvokers;
+    private final boolean[] primitives;
+
+    public ReflectorEntityAccessor(TableInfo tableInfo) {
+        Reflector reflector = tableInfo.getReflector();
+        String[] properties = tableInfo.getProperties();
+        Class<?>[] propertyTypes = tableInfo.getPropertyTypes();
+
+        this.getInvokers = new Invoker[properties.length];
+        this.setInvokers = new Invoker[properties.length];
+        this.primitives = new boolean[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            if (reflector.hasGetter(properties[i])) {
+                getInvokers[i] = reflector.getGetInvoker(properties[i]);
+            }
+            if (reflector.hasSetter(properties[i])) {
+                setInvokers[i] = reflector.getSetInvoker(properties[i]);
+            }
+            primitives[i] = propertyTypes[i].isPrimitive();
+        }
+    }
+
+    @Override
+    public Object get(Object entity, int index) {
+        Invoker invoker = getInvokers[index];
+        if (invoker == null) {
+            return null;
+        }
+        try {
+            return invoker.invoke(entity, null);
+        } catch (Exception e) {
+            throw FlexExceptions.wrap(e);
+        }
+    }
+
+    /**
+     * 与 {@link java.lang.reflect.Method#invoke(Object, Object...)} 一致，基本类型只允许拓宽转换，类型不匹配时抛出异常；
+     * 基本类型的属性设置 null 时忽略
+     */
+    @Override
+    public void set(Object entity, int index, Object value) {
+        Invoker invoker = setInvokers[index];
+        if (invoker == null || (value == null && primitives[index])) {
+            return;
+        }
+        try {
+            invoker.invoke(entity, new Object[]{value});
+        } catch (Exception e) {
+            throw FlexExceptions.wrap(e);
+        }
+    }
+}
@@ -19,6 +19,7 @@ import com.mybatisflex.core.FlexConsts;
 import com.mybatisflex.core.enums.KeyType;
 import com.mybatisflex.core.javassist.ModifyAttrsRecord;
 import com.mybatisflex.core.row.Row;
+import com.mybatisflex.core.shard.TableShardInfo;
 import com.mybatisflex.core.util.ArrayUtil;
 import com.mybatisflex.core.util.ClassUtil;
 import com.mybatisflex.core.util.CollectionUtil;
@@ -26,14 +27,14 @@ import com.mybatisflex.core.util.StringUtil;
 import org.apache.ibatis.mapping.ResultFlag;
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultMapping;
-import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.Reflector;
-import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.session.Configuration;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.*;
 
-public class TableInfo {
+public class TableInfo implements Cloneable {
 
     private String schema; //schema
     private String tableName; //表名
@@ -73,13 +74,22 @@ public class TableInfo {
     private Map<String, String> columnPropertyMapping = new HashMap<>();
     private Map<String, String> propertyColumnMapping = new HashMap<>();
 
-    private final ReflectorFactory reflectorFactory = new BaseReflectorFactory() {
-        @Override
-        public Reflector findForClass(Class<?> type) {
-            return getReflector();
-        }
-    };
-    private Reflector reflector; //反射工具
+    //所有的属性（先主键，后普通字段），其下标即为 EntityAccessor 读写属性时使用的 index
+    private String[] properties = new String[0];
+    private Class<?>[] propertyTypes = new Class<?>[0];
+    private Map<String, Integer> columnIndexMapping = new HashMap<>();
+    private Map<String, Integer> propertyIndexMapping = new HashMap<>();
+
+    //entity 属性访问器
+    private EntityAccessor entityAccessor;
+
+    //插入数据时，需要设置参数的属性下标
+    private volatile int[] insertValueIndexes;
+
+    private volatile Reflector reflector; //反射工具
+
+    //分表信息
+    private TableShardInfo shardInfo;
 
     public String getSchema() {
         return schema;
@@ -97,6 +107,28 @@ public class TableInfo {
         this.tableName = tableName;
     }
 
+    public TableShardInfo getShardInfo() {
+        return shardInfo;
+    }
+
+    public void setShardInfo(TableShardInfo shardInfo) {
+        this.shardInfo = shardInfo;
+    }
+
+    /**
+     * 复制一个只有表名不同的 TableInfo，用于分表的物理表
+     */
+    public TableInfo copyWithTableName(String tableName) {
+        try {
+            TableInfo copy = (TableInfo) super.clone();
+            copy.tableName = tableName;
+            copy.shardInfo = null;
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     public Class<?> getEntityClass() {
         return entityClass;
     }
@@ -143,6 +175,7 @@ public class TableInfo {
 
     public void setOnInsertColumns(Map<String, String> onInsertColumns) {
         this.onInsertColumns = onInsertColumns;
+        this.insertValueIndexes = null;
     }
 
     public Map<String, String> getOnUpdateColumns() {
@@ -167,16 +200,19 @@ public class TableInfo {
 
     public void setInsertPrimaryKeys(String[] insertPrimaryKeys) {
         this.insertPrimaryKeys = insertPrimaryKeys;
+        this.insertValueIndexes = null;
     }
 
     public Reflector getReflector() {
+        Reflector reflector = this.reflector;
+        if (reflector == null) {
+            //通过 TableInfoDescriptor 创建的 TableInfo，只有在需要的时候才去反射
+            reflector = new Reflector(entityClass);
+            this.reflector = reflector;
+        }
         return reflector;
     }
 
-    public ReflectorFactory getReflectorFactory() {
-        return reflectorFactory;
-    }
-
     public void setReflector(Reflector reflector) {
         this.reflector = reflector;
     }
@@ -213,6 +249,7 @@ public class TableInfo {
             columnPropertyMapping.put(columnInfo.column, columnInfo.property);
             propertyColumnMapping.put(columnInfo.property, columnInfo.column);
         }
+        initPropertyIndexes();
     }
 
     public List<IdInfo> getPrimaryKeyList() {
@@ -236,6 +273,80 @@ public class TableInfo {
             propertyColumnMapping.put(idInfo.property, idInfo.column);
         }
         this.insertPrimaryKeys = insertIdFields.toArray(new String[0]);
+        initPropertyIndexes();
+    }
+
+
+    private void initPropertyIndexes() {
+        List<ColumnInfo> allColumns = new ArrayList<>();
+        if (primaryKeyList != null) {
+            allColumns.addAll(primaryKeyList);
+        }
+        if (columnInfoList != null) {
+            allColumns.addAll(columnInfoList);
+        }
+
+        String[] properties = new String[allColumns.size()];
+        Class<?>[] propertyTypes = new Class<?>[allColumns.size()];
+        Map<String, Integer> columnIndexMapping = new HashMap<>();
+        Map<String, Integer> propertyIndexMapping = new HashMap<>();
+        for (int i = 0; i < allColumns.size(); i++) {
+            ColumnInfo columnInfo = allColumns.get(i);
+            properties[i] = columnInfo.property;
+            propertyTypes[i] = columnInfo.propertyType;
+            columnIndexMapping.put(columnInfo.column, i);
+            propertyIndexMapping.put(columnInfo.property, i);
+        }
+
+        this.properties = properties;
+        this.propertyTypes = propertyTypes;
+        this.columnIndexMapping = columnIndexMapping;
+        this.propertyIndexMapping = propertyIndexMapping;
+        this.insertValueIndexes = null;
+    }
+
+
+    /**
+     * 获取所有的属性，先主键，后普通字段
+     *
+     * @return 属性列表
+     */
+    public String[] getProperties() {
+        return properties;
+    }
+
+    public Class<?>[] getPropertyTypes() {
+        return propertyTypes;
+    }
+
+    /**
+     * 获取列在 {@link #getProperties()} 中的下标
+     *
+     * @param column 列名
+     * @return 下标，不存在时返回 -1
+     */
+    public int getColumnIndex(String column) {
+        Integer index = columnIndexMapping.get(column);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * 获取属性在 {@link #getProperties()} 中的下标
+     *
+     * @param property 属性名
+     * @return 下标，不存在时返回 -1
+     */
+    public int getPropertyIndex(String property) {
+        Integer index = property != null ? propertyIndexMapping.get(property) : null;
+        return index != null ? index : -1;
+    }
+
+    public EntityAccessor getEntityAccessor() {
+        return entityAccessor;
+    }
+
+    public void setEntityAccessor(EntityAccessor entityAccessor) {
+        this.entityAccessor = entityAccessor;
     }
 
 
@@ -255,17 +366,37 @@ public class TableInfo {
      * @return 数组
      */
     public Object[] obtainInsertValues(Object entity) {
-        MetaObject metaObject = EntityMetaObject.forObject(entity, reflectorFactory);
-        String[] insertColumns = obtainInsertColumns();
+        return entityAccessor.readValues(entity, obtainInsertValueIndexes());
+    }
 
-        List<Object> values = new ArrayList<>(insertColumns.length);
-        for (String insertColumn : insertColumns) {
-            if (onInsertColumns == null || !onInsertColumns.containsKey(insertColumn)) {
-                Object value = getColumnValue(metaObject, insertColumn);
-                values.add(value);
+
+    /**
+     * 插入一条数据时，需要设置的参数数量
+     *
+     * @return 参数数量
+     */
+    public int getInsertValueCount() {
+        return obtainInsertValueIndexes().length;
+    }
+
+
+    private int[] obtainInsertValueIndexes() {
+        int[] indexes = insertValueIndexes;
+        if (indexes == null) {
+            String[] insertColumns = obtainInsertColumns();
+            List<Integer> indexList = new ArrayList<>(insertColumns.length);
+            for (String insertColumn : insertColumns) {
+                if (onInsertColumns == null || !onInsertColumns.containsKey(insertColumn)) {
+                    indexList.add(getColumnIndex(insertColumn));
+                }
+            }
+            indexes = new int[indexList.size()];
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = indexList.get(i);
             }
+            insertValueIndexes = indexes;
         }
-        return values.toArray();
+        return indexes;
     }
 
 
@@ -277,7 +408,6 @@ public class TableInfo {
      * @return
      */
     public Set<String> obtainUpdateColumns(Object entity, boolean ignoreNulls, boolean includePrimary) {
-        MetaObject metaObject = EntityMetaObject.forObject(entity, reflectorFactory);
         Set<String> columns = new LinkedHashSet<>(); //需使用 LinkedHashSet 保证 columns 的顺序
         if (entity instanceof ModifyAttrsRecord) {
             Set<String> properties = ((ModifyAttrsRecord) entity).obtainModifyAttrs();
@@ -298,7 +428,7 @@ public class TableInfo {
                 if (!includePrimary && ArrayUtil.contains(primaryKeys, column)) {
                     continue;
                 }
-                Object value = getPropertyValue(metaObject, property);
+                Object value = getPropertyValue(entity, property);
                 if (ignoreNulls && value == null) {
                     continue;
                 }
@@ -317,7 +447,7 @@ public class TableInfo {
                     continue;
                 }
 
-                Object value = getColumnValue(metaObject, column);
+                Object value = getColumnValue(entity, column);
                 if (ignoreNulls && value == null) {
                     continue;
                 }
@@ -327,7 +457,7 @@ public class TableInfo {
             // 普通 entity（非 ModifyAttrsRecord） 忽略 includePrimary 的设置
 //            if (includePrimary) {
 //                for (String column : this.primaryKeys) {
-//                    Object value = getColumnValue(metaObject, column);
+//                    Object value = getColumnValue(entity, column);
 //                    if (ignoreNulls && value == null) {
 //                        continue;
 //                    }
@@ -338,6 +468,26 @@ public class TableInfo {
         return columns;
     }
 
+    /**
+     * 根据已经计算好的 update 列获取 update 的参数：列的值 + 主键的值
+     *
+     * @param entity        entity
+     * @param updateColumns {@link #obtainUpdateColumns(Object, boolean, boolean)} 的结果
+     * @return 参数
+     */
+    public Object[] obtainUpdateValues(Object entity, Collection<String> updateColumns) {
+        Object[] values = new Object[updateColumns.size() + primaryKeys.length];
+        int i = 0;
+        for (String column : updateColumns) {
+            values[i++] = getColumnValue(entity, column);
+        }
+        for (String primaryKey : primaryKeys) {
+            values[i++] = getColumnValue(entity, primaryKey);
+        }
+        return values;
+    }
+
+
     /**
      * 获取所有要修改的值，默认为全部除了主键以外的字段
      *
@@ -345,7 +495,6 @@ public class TableInfo {
      * @return 数组
      */
     public Object[] obtainUpdateValues(Object entity, boolean ignoreNulls, boolean includePrimary) {
-        MetaObject metaObject = EntityMetaObject.forObject(entity, reflectorFactory);
         List<Object> values = new ArrayList<>();
         if (entity instanceof ModifyAttrsRecord) {
             Set<String> properties = ((ModifyAttrsRecord) entity).obtainModifyAttrs();
@@ -365,7 +514,7 @@ public class TableInfo {
                 if (!includePrimary && ArrayUtil.contains(primaryKeys, column)) {
                     continue;
                 }
-                Object value = getPropertyValue(metaObject, property);
+                Object value = getPropertyValue(entity, property);
                 if (ignoreNulls && value == null) {
                     continue;
                 }
@@ -384,7 +533,7 @@ public class TableInfo {
                     continue;
                 }
 
-                Object value = getColumnValue(metaObject, column);
+                Object value = getColumnValue(entity, column);
                 if (ignoreNulls && value == null) {
                     continue;
                 }
@@ -400,10 +549,9 @@ public class TableInfo {
 
 
     public Object[] obtainPrimaryValues(Object entity) {
-        MetaObject metaObject = EntityMetaObject.forObject(entity, reflectorFactory);
         Object[] values = new Object[primaryKeys.length];
         for (int i = 0; i < primaryKeys.length; i++) {
-            values[i] = getColumnValue(metaObject, primaryKeys[i]);
+            values[i] = getColumnValue(entity, primaryKeys[i]);
         }
         return values;
     }
@@ -449,21 +597,15 @@ public class TableInfo {
     }
 
 
-    private Object getColumnValue(MetaObject metaObject, String column) {
-        return getPropertyValue(metaObject, columnPropertyMapping.get(column));
-    }
-
     public Object getColumnValue(Object entityObject, String column) {
-        MetaObject metaObject = EntityMetaObject.forObject(entityObject, reflectorFactory);
-        return getPropertyValue(metaObject, columnPropertyMapping.get(column));
+        int index = getColumnIndex(column);
+        return index >= 0 ? entityAccessor.get(entityObject, index) : null;
     }
 
 
-    private Object getPropertyValue(MetaObject metaObject, String property) {
-        if (property != null && metaObject.hasGetter(property)) {
-            return metaObject.getValue(property);
-        }
-        return null;
+    private Object getPropertyValue(Object entityObject, String property) {
+        int index = getPropertyIndex(property);
+        return index >= 0 ? entityAccessor.get(entityObject, index) : null;
     }
 
 
@@ -479,11 +621,10 @@ public class TableInfo {
      */
     public <T> T newInstanceByRow(Row row) {
         Object instance = ClassUtil.newInstance(entityClass);
-        MetaObject metaObject = EntityMetaObject.forObject(instance, reflectorFactory);
-        for (String column : row.keySet()) {
-            String property = columnPropertyMapping.get(column);
-            if (metaObject.hasSetter(property)) {
-                metaObject.setValue(property, row.get(column));
+        for (Map.Entry<String, Object> entry : row.entrySet()) {
+            int index = getColumnIndex(entry.getKey());
+            if (index >= 0) {
+                entityAccessor.set(instance, index, entry.getValue());
             }
         }
         return (T) instance;
@@ -499,10 +640,23 @@ public class TableInfo {
             return;
         }
 
-        MetaObject metaObject = EntityMetaObject.forObject(entityObject, reflectorFactory);
-        Object columnValue = getColumnValue(entityObject, versionColumn);
-        if (columnValue == null) {
-            metaObject.setValue(columnPropertyMapping.get(versionColumn), 0);
+        int index = getColumnIndex(versionColumn);
+        if (entityAccessor.get(entityObject, index) == null) {
+            entityAccessor.set(entityObject, index, zeroValue(propertyTypes[index]));
+        }
+    }
+
+    //与属性类型一致的 0，属性 setter 不会对参数做收窄转换
+    private static Object zeroValue(Class<?> type) {
+        if (type == Long.class || type == long.class) {
+            return 0L;
+        } else if (type == Short.class || type == short.class) {
+            return (short) 0;
+        } else if (type == BigInteger.class) {
+            return BigInteger.ZERO;
+        } else if (type == BigDecimal.class) {
+            return BigDecimal.ZERO;
         }
+        return 0;
     }
 }
@@ -0,0 +1,245 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.table;
+
+import com.mybatisflex.core.FlexConsts;
+import com.mybatisflex.core.enums.KeyType;
+import com.mybatisflex.core.exception.FlexExceptions;
+
+import java.util.*;
+
+/**
+ * TableInfo 的描述信息，用于创建 TableInfo
+ * <p>
+ * mybatis-flex-annotation 的 APT 会为每个 @Table 的 entity 生成一个 TableInfoDescriptor，
+ * 并注册到 META-INF/services/com.mybatisflex.core.table.TableInfoDescriptor 中，
+ * {@link TableInfos} 会优先通过它来创建 TableInfo，并使用生成的访问器读写 entity 的属性；
+ * 没有生成 TableInfoDescriptor 的 entity，则通过反射来构建 TableInfoDescriptor。
+ * <p>
+ * 生成的描述信息中带有 entity 字段的摘要，运行时只比较摘要，不一致时（例如：entity 修改后未重新编译）使用反射的结果；
+ * 没有摘要的描述信息（旧版本生成的代码）会与反射的结果做完整的校验
+ */
+public abstract class TableInfoDescriptor {
+
+    private final Class<?> entityClass;
+    private final String tableName;
+    private final String schema;
+    private final boolean useCached;
+    private final boolean camelToUnderline;
+
+    private final List<ColumnInfo> columnInfoList = new ArrayList<>();
+    private final List<IdInfo> idInfoList = new ArrayList<>();
+
+    private String logicDeleteColumn;
+    private String versionColumn;
+
+    private final Map<String, String> onInsertColumns = new HashMap<>();
+    private final Map<String, String> onUpdateColumns = new HashMap<>();
+    private final Set<String> largeColumns = new LinkedHashSet<>();
+
+    private Integer fieldsHash;
+
+
+    protected TableInfoDescriptor(Class<?> entityClass, String tableName, String schema, boolean useCached, boolean camelToUnderline) {
+        this.entityClass = entityClass;
+        this.tableName = tableName;
+        this.schema = schema;
+        this.useCached = useCached;
+        this.camelToUnderline = camelToUnderline;
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    public boolean isCamelToUnderline() {
+        return camelToUnderline;
+    }
+
+    /**
+     * 生成代码时 entity 的 @Table 以及字段（包括 @Column、@Id 的属性）的摘要，计算方式与 {@link TableInfos} 一致
+     */
+    protected void fields(int fieldsHash) {
+        this.fieldsHash = fieldsHash;
+    }
+
+    Integer getFieldsHash() {
+        return fieldsHash;
+    }
+
+    protected void column(String column, String property, Class<?> propertyType) {
+        ColumnInfo columnInfo = new ColumnInfo();
+        columnInfo.setColumn(column);
+        columnInfo.setProperty(property);
+        columnInfo.setPropertyType(propertyType);
+        columnInfoList.add(columnInfo);
+    }
+
+    protected void id(String column, String property, Class<?> propertyType, KeyType keyType, String value, boolean before) {
+        idInfoList.add(new IdInfo(column, property, propertyType, keyType, value, before));
+    }
+
+    protected void logicDelete(String column) {
+        if (logicDeleteColumn != null) {
+            throw FlexExceptions.wrap("The logic delete column of entity[%s] must be less then 2.", entityClass.getName());
+        }
+        logicDeleteColumn = column;
+    }
+
+    protected void version(String column) {
+        if (versionColumn != null) {
+            throw FlexExceptions.wrap("The version column of entity[%s] must be less then 2.", entityClass.getName());
+        }
+        versionColumn = column;
+    }
+
+    protected void onInsert(String column, String value) {
+        onInsertColumns.put(column, value);
+    }
+
+    protected void onUpdate(String column, String value) {
+        onUpdateColumns.put(column, value);
+    }
+
+    protected void large(String column) {
+        largeColumns.add(column);
+    }
+
+
+    /**
+     * 创建 entity 的属性访问器，返回 null 时使用 {@link TableInfos#getEntityAccessorFactory()} 创建
+     *
+     * @param tableInfo 已初始化完成字段信息的 TableInfo
+     * @return EntityAccessor
+     */
+    protected EntityAccessor createEntityAccessor(TableInfo tableInfo) {
+        return null;
+    }
+
+
+    /**
+     * 生成代码时的属性顺序与运行时的不一致时（例如：entity 修改后未重新编译），不能使用生成的访问器
+     *
+     * @param tableInfo  TableInfo
+     * @param properties 生成代码时的属性顺序
+     * @return true 表示可以使用
+     */
+    protected static boolean isMatched(TableInfo tableInfo, String[] properties) {
+        return Arrays.equals(tableInfo.getProperties(), properties);
+    }
+
+
+    /**
+     * 与另一个描述信息（通常是反射的结果）的列信息是否一致
+     *
+     * @param other 另一个描述信息
+     * @return true 表示一致
+     */
+    boolean isSameAs(TableInfoDescriptor other) {
+        return entityClass == other.entityClass && signature().equals(other.signature());
+    }
+
+    private List<String> signature() {
+        List<String> signature = new ArrayList<>();
+        signature.add(tableName + "|" + schema + "|" + useCached + "|" + camelToUnderline);
+        signature.add(logicDeleteColumn + "|" + versionColumn);
+        signature.add(String.valueOf(new TreeMap<>(onInsertColumns)));
+        signature.add(String.valueOf(new TreeMap<>(onUpdateColumns)));
+        signature.add(String.valueOf(largeColumns));
+        for (IdInfo idInfo : idInfoList) {
+            signature.add("id|" + idInfo.getColumn() + "|" + idInfo.getProperty() + "|" + idInfo.getPropertyType().getName()
+                    + "|" + idInfo.getKeyType() + "|" + idInfo.getValue() + "|" + idInfo.isBefore());
+        }
+        for (ColumnInfo columnInfo : columnInfoList) {
+            signature.add(columnInfo.getColumn() + "|" + columnInfo.getProperty() + "|" + columnInfo.getPropertyType().getName());
+        }
+        return signature;
+    }
+
+
+    public TableInfo createTableInfo() {
+        TableInfo tableInfo = new TableInfo();
+        tableInfo.setEntityClass(entityClass);
+        tableInfo.setTableName(tableName);
+        tableInfo.setSchema(schema);
+        tableInfo.setUseCached(useCached);
+        tableInfo.setCamelToUnderline(camelToUnderline);
+
+        List<ColumnInfo> columnInfos = new ArrayList<>(columnInfoList);
+        List<IdInfo> idInfos = new ArrayList<>(idInfoList);
+
+        //未配置 @Id 时，使用名称为 id 的属性作为主键
+        if (idInfos.isEmpty()) {
+            for (int i = 0; i < columnInfos.size(); i++) {
+                if (FlexConsts.DEFAULT_PRIMARY_FIELD.equals(columnInfos.get(i).getProperty())) {
+                    idInfos.add(new IdInfo(columnInfos.remove(i)));
+                    break;
+                }
+            }
+        }
+
+        tableInfo.setLogicDeleteColumn(logicDeleteColumn);
+        tableInfo.setVersionColumn(versionColumn);
+
+        if (!onInsertColumns.isEmpty()) {
+            tableInfo.setOnInsertColumns(new HashMap<>(onInsertColumns));
+        }
+
+        if (!onUpdateColumns.isEmpty()) {
+            tableInfo.setOnUpdateColumns(new HashMap<>(onUpdateColumns));
+        }
+
+        if (!largeColumns.isEmpty()) {
+            tableInfo.setLargeColumns(largeColumns.toArray(new String[0]));
+        }
+
+        tableInfo.setColumnInfoList(columnInfos);
+        tableInfo.setPrimaryKeyList(idInfos);
+
+        EntityAccessor entityAccessor = createEntityAccessor(tableInfo);
+        if (entityAccessor == null) {
+            entityAccessor = TableInfos.getEntityAccessorFactory().create(tableInfo);
+        }
+        tableInfo.setEntityAccessor(entityAccessor);
+
+        return tableInfo;
+    }
+
+
+    /**
+     * APT 生成的 EntityAccessor 的基类
+     * <p>
+     * 生成的代码直接调用 entity 的 getter 和 setter，没有 getter 或 setter 的属性交由 {@link ReflectorEntityAccessor} 处理
+     */
+    public abstract static class GeneratedEntityAccessor implements EntityAccessor {
+
+        private final TableInfo tableInfo;
+        private volatile EntityAccessor fallback;
+
+        protected GeneratedEntityAccessor(TableInfo tableInfo) {
+            this.tableInfo = tableInfo;
+        }
+
+        protected EntityAccessor fallback() {
+            EntityAccessor accessor = fallback;
+            if (accessor == null) {
+                accessor = new ReflectorEntityAccessor(tableInfo);
+                fallback = accessor;
+            }
+            return accessor;
+        }
+    }
+}
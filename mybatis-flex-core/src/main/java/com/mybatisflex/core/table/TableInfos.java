@@ -18,15 +18,17 @@ package com.mybatisflex.core.table;
 import com.mybatisflex.annotation.Column;
 import com.mybatisflex.annotation.Id;
 import com.mybatisflex.annotation.Table;
-import com.mybatisflex.core.FlexConsts;
-import com.mybatisflex.core.exception.FlexExceptions;
+import com.mybatisflex.annotation.TableShard;
+import com.mybatisflex.core.javassist.JavassistEntityAccessorFactory;
+import com.mybatisflex.core.shard.TableShardInfo;
 import com.mybatisflex.core.util.ClassUtil;
 import com.mybatisflex.core.util.CollectionUtil;
 import com.mybatisflex.core.util.StringUtil;
-import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.util.MapUtil;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
@@ -58,9 +60,34 @@ public class TableInfos {
 
     private static Map<Class<?>, TableInfo> tableInfoMap = new ConcurrentHashMap<>();
 
+    /**
+     * mapper 和 TableInfo 的映射，不能和 tableInfoMap 共用，
+     * 否则在 computeIfAbsent 中再次修改同一个 ConcurrentHashMap 时可能出现 Recursive update 的错误
+     */
+    private static Map<Class<?>, TableInfo> mapperTableInfoMap = new ConcurrentHashMap<>();
+
+    /**
+     * APT 生成的 TableInfoDescriptor，通过 ServiceLoader 加载
+     */
+    private static volatile Map<Class<?>, TableInfoDescriptor> descriptorMap;
+
+    /**
+     * entity 属性访问器的创建工厂
+     */
+    private static EntityAccessorFactory entityAccessorFactory = new JavassistEntityAccessorFactory();
+
+
+    public static EntityAccessorFactory getEntityAccessorFactory() {
+        return entityAccessorFactory;
+    }
+
+    public static void setEntityAccessorFactory(EntityAccessorFactory entityAccessorFactory) {
+        TableInfos.entityAccessorFactory = entityAccessorFactory;
+    }
+
 
     public static TableInfo ofMapperClass(Class<?> mapperClass) {
-        return MapUtil.computeIfAbsent(tableInfoMap, mapperClass, key -> {
+        return MapUtil.computeIfAbsent(mapperTableInfoMap, mapperClass, key -> {
             Class<?> entityClass = getEntityClass(key);
             return entityClass != null ? ofEntityClass(entityClass) : null;
         });
@@ -88,45 +115,130 @@ public class TableInfos {
 
 
     private static TableInfo createTableInfo(Class<?> entityClass) {
-        TableInfo tableInfo = new TableInfo();
-        tableInfo.setEntityClass(entityClass);
-        tableInfo.setReflector(new Reflector(entityClass));
+        TableInfoDescriptor descriptor = getDescriptors().get(entityClass);
+        if (descriptor != null) {
+            //生成的描述信息与 entity 不一致时，使用反射的结果
+            TableInfoDescriptor reflectionDescriptor = null;
+            boolean matched;
+            if (descriptor.getFieldsHash() != null) {
+                matched = descriptor.getFieldsHash() == fieldsHash(entityClass);
+            } else {
+                reflectionDescriptor = createDescriptorByReflection(entityClass);
+                matched = descriptor.isSameAs(reflectionDescriptor);
+            }
+            if (!matched) {
+                LogFactory.getLog(TableInfos.class).warn("The generated " + descriptor.getClass().getName()
+                        + " does not match entity " + entityClass.getName() + ", please recompile it. Use reflection instead.");
+                descriptor = reflectionDescriptor;
+            }
+        }
+        if (descriptor == null) {
+            descriptor = createDescriptorByReflection(entityClass);
+        }
+        TableInfo tableInfo = descriptor.createTableInfo();
 
+        TableShard tableShard = entityClass.getAnnotation(TableShard.class);
+        if (tableShard != null) {
+            tableInfo.setShardInfo(TableShardInfo.of(tableInfo, tableShard));
+        }
+        return tableInfo;
+    }
 
-        //初始化表名
-        Table table = entityClass.getAnnotation(Table.class);
-        if (table != null) {
-            tableInfo.setTableName(table.value());
-            tableInfo.setSchema(table.schema());
-            tableInfo.setUseCached(table.useCached());
-            tableInfo.setCamelToUnderline(table.camelToUnderline());
-        } else {
-            //默认为类名转驼峰下划线
-            tableInfo.setTableName(StringUtil.camelToUnderline(entityClass.getSimpleName()));
+
+    /**
+     * 注册 TableInfoDescriptor，一般情况下无需手动注册，APT 生成的 TableInfoDescriptor 会通过 ServiceLoader 自动加载
+     *
+     * @param descriptor TableInfoDescriptor
+     */
+    public static void registerDescriptor(TableInfoDescriptor descriptor) {
+        getDescriptors().put(descriptor.getEntityClass(), descriptor);
+    }
+
+
+    private static Map<Class<?>, TableInfoDescriptor> getDescriptors() {
+        if (descriptorMap == null) {
+            synchronized (TableInfos.class) {
+                if (descriptorMap == null) {
+                    descriptorMap = loadDescriptors();
+                }
+            }
         }
+        return descriptorMap;
+    }
 
-        //初始化字段相关
-        List<ColumnInfo> columnInfoList = new ArrayList<>();
-        List<IdInfo> idInfos = new ArrayList<>();
 
-        Field idField = null;
+    private static Map<Class<?>, TableInfoDescriptor> loadDescriptors() {
+        Map<Class<?>, TableInfoDescriptor> descriptors = new ConcurrentHashMap<>();
+        Iterator<TableInfoDescriptor> iterator = ServiceLoader.load(TableInfoDescriptor.class, ClassUtil.getClassLoader()).iterator();
+        while (true) {
+            try {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                TableInfoDescriptor descriptor = iterator.next();
+                descriptors.put(descriptor.getEntityClass(), descriptor);
+            } catch (ServiceConfigurationError e) {
+                //生成的 TableInfoDescriptor 已经不存在或者不可用时，忽略，之后通过反射创建 TableInfo
+                LogFactory.getLog(TableInfos.class).debug(e.toString());
+            }
+        }
+        return descriptors;
+    }
 
-        String logicDeleteColumn = null;
-        String versionColumn = null;
 
-        //数据插入时，默认插入数据字段
-        Map<String, String> onInsertColumns = new HashMap<>();
+    /**
+     * entity 的摘要：@Table 的属性，加上所有可映射的非静态字段的名称、类型和 @Column、@Id 的属性，与字段顺序无关，
+     * 不需要构建 TableInfo，用于快速校验 APT 生成的 TableInfoDescriptor 是否过期
+     */
+    static int fieldsHash(Class<?> entityClass) {
+        int hash = tableHash(entityClass.getAnnotation(Table.class));
+        for (Class<?> clazz = entityClass; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()
+                        && defaultSupportColumnTypes.contains(field.getType())) {
+                    hash += fieldHash(field.getName(), field.getType().getTypeName(), field.getAnnotation(Column.class), field.getAnnotation(Id.class));
+                }
+            }
+        }
+        return hash;
+    }
 
-        //数据更新时，默认更新内容的字段
-        Map<String, String> onUpdateColumns = new HashMap<>();
+    private static int tableHash(Table table) {
+        return table == null ? 0 : ("@Table:" + table.value() + "," + table.schema() + "," + table.useCached() + "," + table.camelToUnderline()).hashCode();
+    }
+
+    private static int fieldHash(String name, String type, Column column, Id id) {
+        StringBuilder sb = new StringBuilder(name).append(':').append(type);
+        if (column != null) {
+            sb.append("@Column:").append(column.value()).append(',').append(column.onUpdateValue()).append(',').append(column.onInsertValue())
+                    .append(',').append(column.ignore()).append(',').append(column.isLarge()).append(',').append(column.isLogicDelete())
+                    .append(',').append(column.version());
+        }
+        if (id != null) {
+            sb.append("@Id:").append(id.keyType().name()).append(',').append(id.value()).append(',').append(id.before());
+        }
+        return sb.toString().hashCode();
+    }
 
-        //大字段列
-        Set<String> largeColumns = new LinkedHashSet<>();
 
+    private static TableInfoDescriptor createDescriptorByReflection(Class<?> entityClass) {
+        Table table = entityClass.getAnnotation(Table.class);
+
+        //默认为类名转驼峰下划线
+        TableInfoDescriptor descriptor = table != null
+                ? new TableInfoDescriptor(entityClass, table.value(), table.schema(), table.useCached(), table.camelToUnderline()) {
+        }
+                : new TableInfoDescriptor(entityClass, StringUtil.camelToUnderline(entityClass.getSimpleName()), null, false, true) {
+        };
 
         List<Field> entityFields = ClassUtil.getAllFields(entityClass);
         for (Field field : entityFields) {
 
+            //静态字段不属于 entity 的数据
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+
             //只支持基本数据类型，不支持比如 list set 或者自定义的类等
             if (!defaultSupportColumnTypes.contains(field.getType())) {
                 continue;
@@ -140,95 +252,40 @@ public class TableInfos {
             //列名
             String columnName = column != null && StringUtil.isNotBlank(column.value())
                     ? column.value()
-                    : (tableInfo.isCamelToUnderline() ? StringUtil.camelToUnderline(field.getName()) : field.getName());
-
-            //逻辑删除字段
-            if (column != null && column.isLogicDelete()) {
-                if (logicDeleteColumn == null) {
-                    logicDeleteColumn = columnName;
-                } else {
-                    throw FlexExceptions.wrap("The logic delete column of entity[%s] must be less then 2.", entityClass.getName());
-                }
-            }
+                    : (descriptor.isCamelToUnderline() ? StringUtil.camelToUnderline(field.getName()) : field.getName());
 
-            //乐观锁版本字段
-            if (column != null && column.version()) {
-                if (versionColumn == null) {
-                    versionColumn = columnName;
-                } else {
-                    throw FlexExceptions.wrap("The version column of entity[%s] must be less then 2.", entityClass.getName());
+            if (column != null) {
+                //逻辑删除字段
+                if (column.isLogicDelete()) {
+                    descriptor.logicDelete(columnName);
                 }
-            }
-
-            if (column != null && StringUtil.isNotBlank(column.onInsertValue())) {
-                onInsertColumns.put(columnName, column.onInsertValue().trim());
-            }
 
+                //乐观锁版本字段
+                if (column.version()) {
+                    descriptor.version(columnName);
+                }
 
-            if (column != null && StringUtil.isNotBlank(column.onUpdateValue())) {
-                onUpdateColumns.put(columnName, column.onUpdateValue().trim());
-            }
+                if (StringUtil.isNotBlank(column.onInsertValue())) {
+                    descriptor.onInsert(columnName, column.onInsertValue().trim());
+                }
 
+                if (StringUtil.isNotBlank(column.onUpdateValue())) {
+                    descriptor.onUpdate(columnName, column.onUpdateValue().trim());
+                }
 
-            if (column != null && column.isLarge()) {
-                largeColumns.add(columnName);
+                if (column.isLarge()) {
+                    descriptor.large(columnName);
+                }
             }
 
-
             Id id = field.getAnnotation(Id.class);
-            ColumnInfo columnInfo;
             if (id != null) {
-                columnInfo = new IdInfo(columnName, field.getName(), field.getType(), id);
-                idInfos.add((IdInfo) columnInfo);
+                descriptor.id(columnName, field.getName(), field.getType(), id.keyType(), id.value(), id.before());
             } else {
-                columnInfo = new ColumnInfo();
-                columnInfoList.add(columnInfo);
-            }
-
-            columnInfo.setColumn(columnName);
-            columnInfo.setProperty(field.getName());
-            columnInfo.setPropertyType(field.getType());
-
-            if (FlexConsts.DEFAULT_PRIMARY_FIELD.equals(field.getName())) {
-                idField = field;
-            }
-        }
-
-
-        if (idInfos.isEmpty() && idField != null) {
-            int index = -1;
-            for (int i = 0; i < columnInfoList.size(); i++) {
-                ColumnInfo columnInfo = columnInfoList.get(i);
-                if (FlexConsts.DEFAULT_PRIMARY_FIELD.equals(columnInfo.getProperty())) {
-                    index = i;
-                    break;
-                }
-            }
-            if (index >= 0) {
-                ColumnInfo removedColumnInfo = columnInfoList.remove(index);
-                idInfos.add(new IdInfo(removedColumnInfo));
+                descriptor.column(columnName, field.getName(), field.getType());
             }
         }
 
-        tableInfo.setLogicDeleteColumn(logicDeleteColumn);
-        tableInfo.setVersionColumn(versionColumn);
-
-        if (!onInsertColumns.isEmpty()) {
-            tableInfo.setOnInsertColumns(onInsertColumns);
-        }
-
-        if (!onUpdateColumns.isEmpty()) {
-            tableInfo.setOnUpdateColumns(onUpdateColumns);
-        }
-
-        if (!largeColumns.isEmpty()) {
-            tableInfo.setLargeColumns(largeColumns.toArray(new String[0]));
-        }
-
-        tableInfo.setColumnInfoList(columnInfoList);
-        tableInfo.setPrimaryKeyList(idInfos);
-
-
-        return tableInfo;
+        return descriptor;
     }
 }
@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2022-2023, Mybatis-Flex (fuhai999@gmail.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mybatisflex.core.util;
+
+import com.mybatisflex.core.dialect.IDialect;
+
+import java.util.Arrays;
+
+/**
+ * sql 参数构建器
+ * <p>
+ * 在构建之前先计算好参数的数量，之后所有参数都直接写入同一个数组，避免循环中使用 {@link ArrayUtil#concat(Object[], Object[])}
+ * 反复复制数组；数量计算不准确时会自动扩容，保证结果正确
+ */
+public class SqlArgsBuilder {
+
+    private static final Object[] EMPTY_ARGS = new Object[0];
+
+    private Object[] args;
+    private int size;
+    private final IDialect dialect;
+
+    /**
+     * @param expectedSize 预计的参数数量
+     */
+    public SqlArgsBuilder(int expectedSize) {
+        this(expectedSize, null);
+    }
+
+    /**
+     * @param expectedSize 预计的参数数量
+     * @param dialect      构建 sql 所使用的方言，部分条件（例如：keyset 分页）的参数和方言有关
+     */
+    public SqlArgsBuilder(int expectedSize, IDialect dialect) {
+        this.args = expectedSize > 0 ? new Object[expectedSize] : EMPTY_ARGS;
+        this.dialect = dialect;
+    }
+
+    /**
+     * 构建 sql 所使用的方言，未指定时返回 null
+     */
+    public IDialect getDialect() {
+        return dialect;
+    }
+
+    public SqlArgsBuilder add(Object value) {
+        ensureCapacity(size + 1);
+        args[size++] = value;
+        return this;
+    }
+
+    public SqlArgsBuilder addAll(Object[] values) {
+        if (values != null && values.length > 0) {
+            ensureCapacity(size + values.length);
+            System.arraycopy(values, 0, args, size, values.length);
+            size += values.length;
+        }
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 返回参数数组，当参数数量和预计的数量一致时，不会产生新的数组
+     */
+    public Object[] build() {
+        return size == args.length ? args : Arrays.copyOf(args, size);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > args.length) {
+            args = Arrays.copyOf(args, Math.max(capacity, args.length * 2));
+        }
+    }
+}
@@ -1,12 +1,25 @@
 package com.mybatisflex.test;
 
-import com.mybatisflex.core.dialect.IDialect;
 import com.mybatisflex.core.dialect.CommonsDialectImpl;
+import com.mybatisflex.core.dialect.DbType;
+import com.mybatisflex.core.dialect.DialectFactory;
+import com.mybatisflex.core.dialect.IDialect;
+import com.mybatisflex.core.exception.MybatisFlexException;
+import com.mybatisflex.core.provider.SqlTemplateCache;
+import com.mybatisflex.core.querywrapper.BoundQuery;
 import com.mybatisflex.core.querywrapper.CPI;
+import com.mybatisflex.core.querywrapper.CompiledQuery;
 import com.mybatisflex.core.querywrapper.QueryWrapper;
+import com.mybatisflex.core.table.TableInfo;
+import com.mybatisflex.core.table.TableInfos;
+import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 
 import static com.mybatisflex.core.querywrapper.QueryMethods.*;
 import static com.mybatisflex.test.table.Tables.ACCOUNT;
@@ -159,6 +172,330 @@ public class AccountSqlTester {
     }
 
 
+    @Test
+    public void testKeysetWithOrSql() {
+        QueryWrapper queryWrapper = QueryWrapper.create()
+                .select()
+                .from(ACCOUNT)
+                .where(ACCOUNT.ID.ge(1))
+                .or(ACCOUNT.USER_NAME.like("x"))
+                .orderBy(ACCOUNT.ID.asc())
+                .seekAfter(5);
+
+        IDialect dialect = new CommonsDialectImpl();
+        String sql = dialect.forSelectListByQuery(queryWrapper);
+        System.out.println(sql);
+        assertSql("SELECT * FROM `tb_account` WHERE (`id` >= ? OR `user_name` LIKE ? ) AND (`id`) > (?) ORDER BY `id` ASC", sql);
+        Assert.assertArrayEquals(new Object[]{1, "%x%", 5}, CPI.getValueArray(queryWrapper, dialect));
+    }
+
+    @Test
+    public void testKeysetExpandedSql() {
+        QueryWrapper queryWrapper = QueryWrapper.create()
+                .select()
+                .from(ACCOUNT)
+                .where(ACCOUNT.SEX.eq(1))
+                .orderBy(ACCOUNT.AGE.desc(), ACCOUNT.ID.asc())
+                .seekAfter(18, 100);
+
+        IDialect dialect = DialectFactory.getDialect(DbType.ORACLE);
+        String sql = dialect.forSelectListByQuery(queryWrapper);
+        System.out.println(sql);
+        Object[] values = CPI.getValueArray(queryWrapper, dialect);
+        Assert.assertTrue(sql.contains("(\"age\" < ? OR (\"age\" = ? AND \"id\" > ?))"));
+        Assert.assertArrayEquals(new Object[]{1, 18, 18, 100}, values);
+        Assert.assertEquals(countQuestionMarks(sql), values.length);
+
+        //重新设置 keyset 的值时，不会重复添加条件
+        queryWrapper.seekAfter(20, 200);
+        Assert.assertEquals(sql, dialect.forSelectListByQuery(queryWrapper));
+        Assert.assertArrayEquals(new Object[]{1, 20, 20, 200}, CPI.getValueArray(queryWrapper, dialect));
+
+        //取消 keyset 条件
+        queryWrapper.seekAfter((Object[]) null);
+        Assert.assertArrayEquals(new Object[]{1}, CPI.getValueArray(queryWrapper, dialect));
+    }
+
+    /**
+     * 比较 sql 时忽略多余的空格
+     */
+    @Test
+    public void testSelectListByIdsSql() {
+        IDialect dialect = new CommonsDialectImpl();
+        TableInfo tableInfo = TableInfos.ofEntityClass(Account.class);
+
+        String sql = dialect.forSelectEntityListByIds(tableInfo, new Object[]{1, 2, 3});
+        System.out.println(sql);
+        assertSql("SELECT * FROM `tb_account` WHERE `id` IN (?, ?, ?)", sql);
+
+        sql = dialect.forSelectEntityListByIds(tableInfo, new Object[]{1});
+        assertSql("SELECT * FROM `tb_account` WHERE `id` = ?", sql);
+    }
+
+    @Test
+    public void testDeleteBatchByIdsSql() {
+        IDialect dialect = new CommonsDialectImpl();
+        String sql = dialect.forDeleteBatchByIds("tb_account", new String[]{"id"}, new Object[]{1, 2});
+        System.out.println(sql);
+        assertSql("DELETE FROM `tb_account` WHERE `id` IN (?, ?)", sql);
+
+        //多主键，支持行值比较
+        sql = dialect.forDeleteBatchByIds("tb_account", new String[]{"id", "type"}, new Object[]{1, "a", 2, "b"});
+        assertSql("DELETE FROM `tb_account` WHERE (`id`, `type`) IN ((?, ?), (?, ?))", sql);
+
+        //多主键，不支持行值比较
+        sql = DialectFactory.getDialect(DbType.ORACLE).forDeleteBatchByIds("tb_account", new String[]{"id", "type"}, new Object[]{1, "a", 2, "b"});
+        assertSql("DELETE FROM \"tb_account\" WHERE (\"id\" = ? AND \"type\" = ?) OR (\"id\" = ? AND \"type\" = ?)", sql);
+    }
+
+    @Test
+    public void testDeleteBatchByIdsSplitSql() {
+        Object[] ids = new Object[2500];
+        Arrays.fill(ids, 1);
+
+        IDialect dialect = DialectFactory.getDialect(DbType.ORACLE);
+        Assert.assertEquals(1000, dialect.getMaxInListSize());
+        String sql = dialect.forDeleteBatchByIds("tb_account", new String[]{"id"}, ids);
+        Assert.assertTrue(sql.startsWith("DELETE FROM \"tb_account\" WHERE (\"id\" IN (?, "));
+        Assert.assertTrue(sql.endsWith("?))"));
+        Assert.assertEquals(3, sql.split("\"id\" IN \\(").length - 1);
+        Assert.assertEquals(2, sql.split(" OR ").length - 1);
+        Assert.assertEquals(2500, countQuestionMarks(sql));
+
+        //不限制 IN 列表长度的数据库不拆分
+        sql = new CommonsDialectImpl().forDeleteBatchByIds("tb_account", new String[]{"id"}, ids);
+        Assert.assertEquals(1, sql.split("`id` IN \\(").length - 1);
+        Assert.assertEquals(2500, countQuestionMarks(sql));
+    }
+
+    @Test
+    public void testInSql() {
+        QueryWrapper query = QueryWrapper.create()
+                .select()
+                .from(ACCOUNT)
+                .where(ACCOUNT.ID.in(1, 2, 3))
+                .and(ACCOUNT.AGE.notIn(18, 19));
+
+        String sql = new CommonsDialectImpl().forSelectListByQuery(query);
+        System.out.println(sql);
+        assertSql("SELECT * FROM `tb_account` WHERE `id` IN (?,?,?) AND `age` NOT IN (?,?)", sql);
+        Assert.assertArrayEquals(new Object[]{1, 2, 3, 18, 19}, CPI.getValueArray(query));
+    }
+
+    @Test
+    public void testInSplitSql() {
+        Object[] ids = new Object[1500];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+        }
+        QueryWrapper query = QueryWrapper.create()
+                .select()
+                .from(ACCOUNT)
+                .where(ACCOUNT.ID.in(ids))
+                .and(ACCOUNT.USER_NAME.notIn(ids))
+                .and(ACCOUNT.AGE.ge(18));
+
+        IDialect dialect = DialectFactory.getDialect(DbType.ORACLE);
+        String sql = dialect.forSelectListByQuery(query);
+        Assert.assertTrue(sql.contains("WHERE (\"id\" IN (?,"));
+        Assert.assertTrue(sql.contains("?) OR \"id\" IN (?,"));
+        Assert.assertTrue(sql.contains("AND (\"user_name\" NOT IN (?,"));
+        Assert.assertTrue(sql.contains("?) AND \"user_name\" NOT IN (?,"));
+        Assert.assertTrue(sql.contains("?)) AND \"age\" >="));
+
+        Object[] values = CPI.getValueArray(query);
+        Assert.assertEquals(3001, values.length);
+        Assert.assertEquals(countQuestionMarks(sql), values.length);
+        Assert.assertEquals(999, values[999]);
+        Assert.assertEquals(1000, values[1000]);
+        Assert.assertEquals(18, values[3000]);
+    }
+
+    @Test
+    public void testCompiledQuerySql() {
+        QueryWrapper queryWrapper = QueryWrapper.create()
+                .where(ACCOUNT.AGE.ge(CompiledQuery.param("minAge")))
+                .and(ACCOUNT.USER_NAME.like(CompiledQuery.param("name")))
+                .and(ACCOUNT.SEX.eq(1))
+                .or(ACCOUNT.ID.eq(CompiledQuery.param("minAge")));
+        CompiledQuery compiledQuery = CompiledQuery.compile(Account.class, queryWrapper);
+
+        //编译时复制了 queryWrapper，之后的修改不影响已编译的查询
+        queryWrapper.and(ACCOUNT.ID.gt(100));
+
+        IDialect dialect = new CommonsDialectImpl();
+        BoundQuery boundQuery = compiledQuery.bind()
+                .set("minAge", 18)
+                .set("name", "michael");
+        String sql = boundQuery.getSql(dialect);
+        System.out.println(sql);
+        assertSql("SELECT * FROM `tb_account` WHERE `age` >= ? AND `user_name` LIKE ? AND `sex` = ? OR `id` = ?", sql);
+        Assert.assertEquals(Arrays.asList("minAge", "name"), compiledQuery.getParamNames());
+        Assert.assertArrayEquals(new Object[]{18, "%michael%", 1, 18}, boundQuery.getArgs(dialect));
+
+        //每次绑定互不影响，sql 只构建一次
+        Map<String, Object> values = new HashMap<>();
+        values.put("minAge", 20);
+        values.put("name", null);
+        BoundQuery otherQuery = compiledQuery.bind(values);
+        Assert.assertArrayEquals(new Object[]{20, null, 1, 20}, otherQuery.getArgs(dialect));
+        Assert.assertArrayEquals(new Object[]{18, "%michael%", 1, 18}, boundQuery.getArgs(dialect));
+        Assert.assertSame(sql, otherQuery.getSql(dialect));
+
+        //每种方言单独构建
+        assertSql("SELECT * FROM \"tb_account\" WHERE \"age\" >= ? AND \"user_name\" LIKE ? AND \"sex\" = ? OR \"id\" = ?"
+                , boundQuery.getSql(DialectFactory.getDialect(DbType.ORACLE)));
+    }
+
+    @Test
+    public void testCopySql() {
+        QueryWrapper queryWrapper = QueryWrapper.create()
+                .select()
+                .from(ACCOUNT)
+                .where(ACCOUNT.AGE.ge(18).or(ACCOUNT.SEX.eq(1)))
+                .and(not(ACCOUNT.ID.in(1, 2)))
+                .orderBy(ACCOUNT.ID.asc());
+        QueryWrapper copy = CPI.copy(queryWrapper);
+
+        queryWrapper.and(ACCOUNT.ID.gt(100));
+        copy.and(ACCOUNT.USER_NAME.like("michael")).seekAfter(5);
+
+        IDialect dialect = new CommonsDialectImpl();
+        assertSql("SELECT * FROM `tb_account` WHERE (`age` >= ? OR `sex` = ? ) AND NOT (`id` IN (?,?)) AND `id` > ? ORDER BY `id` ASC"
+                , dialect.forSelectListByQuery(queryWrapper));
+        assertSql("SELECT * FROM `tb_account` WHERE ((`age` >= ? OR `sex` = ? ) AND NOT (`id` IN (?,?)) AND `user_name` LIKE ? ) AND (`id`) > (?) ORDER BY `id` ASC"
+                , dialect.forSelectListByQuery(copy));
+        Assert.assertArrayEquals(new Object[]{18, 1, 1, 2, 100}, CPI.getValueArray(queryWrapper));
+        Assert.assertArrayEquals(new Object[]{18, 1, 1, 2, "%michael%", 5}, CPI.getValueArray(copy));
+    }
+
+    @Test
+    public void testCompiledQueryBindError() {
+        CompiledQuery compiledQuery = CompiledQuery.compile(Account.class, QueryWrapper.create()
+                .where(ACCOUNT.AGE.ge(CompiledQuery.param("minAge"))));
+
+        try {
+            compiledQuery.bind().set("maxAge", 18);
+            Assert.fail("undefined param must be rejected");
+        } catch (MybatisFlexException e) {
+            Assert.assertTrue(e.getMessage().contains("maxAge"));
+        }
+
+        try {
+            compiledQuery.bind().getArgs(new CommonsDialectImpl());
+            Assert.fail("unbound param must be rejected");
+        } catch (MybatisFlexException e) {
+            Assert.assertTrue(e.getMessage().contains("minAge"));
+        }
+    }
+
+    @Test
+    public void testInSingleValueSql() {
+        QueryWrapper query = QueryWrapper.create()
+                .select()
+                .from(ACCOUNT)
+                .where(ACCOUNT.ID.in(1))
+                .and(ACCOUNT.AGE.in(18, 19))
+                .and(ACCOUNT.SEX.notIn(2));
+
+        String sql = new CommonsDialectImpl().forSelectListByQuery(query);
+        System.out.println(sql);
+        assertSql("SELECT * FROM `tb_account` WHERE `id` IN (?) AND `age` IN (?,?) AND `sex` NOT IN (?)", sql);
+        Assert.assertArrayEquals(new Object[]{1, 18, 19, 2}, CPI.getValueArray(query));
+    }
+
+    @Test
+    public void testWhenFalseSql() {
+        QueryWrapper query = QueryWrapper.create()
+                .select()
+                .from(ACCOUNT)
+                .where(ACCOUNT.ID.ge(100).when(false))
+                .and(ACCOUNT.AGE.ge(18))
+                .and(ACCOUNT.USER_NAME.like("michael").when(false))
+                .or(ACCOUNT.SEX.eq(1))
+                .and(ACCOUNT.BIRTHDAY.le("2020-01-01").when(false).or(ACCOUNT.AGE.le(20).when(false)))
+                .and(not(ACCOUNT.ID.in(1, 2).when(false)));
+
+        String sql = new CommonsDialectImpl().forSelectListByQuery(query);
+        System.out.println(sql);
+        //不生效的条件连同其连接符一起忽略，使用上一个生效条件的连接符
+        assertSql("SELECT * FROM `tb_account` WHERE `age` >= ? AND `sex` = ?", sql);
+        Object[] values = CPI.getValueArray(query);
+        Assert.assertArrayEquals(new Object[]{18, 1}, values);
+        Assert.assertEquals(countQuestionMarks(sql), values.length);
+    }
+
+    @Test
+    public void testBracketsSql() {
+        QueryWrapper query = QueryWrapper.create()
+                .select()
+                .from(ACCOUNT)
+                .where(ACCOUNT.AGE.ge(18).or(ACCOUNT.SEX.eq(1).when(false)).or(ACCOUNT.ID.lt(5)))
+                .and(ACCOUNT.USER_NAME.eq("michael"));
+
+        String sql = new CommonsDialectImpl().forSelectListByQuery(query);
+        System.out.println(sql);
+        assertSql("SELECT * FROM `tb_account` WHERE (`age` >= ? OR `id` < ? ) AND `user_name` = ?", sql);
+        Assert.assertArrayEquals(new Object[]{18, 5, "michael"}, CPI.getValueArray(query));
+    }
+
+    @Test
+    public void testLargeOrChainSql() {
+        QueryWrapper query = QueryWrapper.create()
+                .select()
+                .from(ACCOUNT)
+                .where(ACCOUNT.AGE.ge(18));
+        for (int i = 0; i < 20000; i++) {
+            query.or(ACCOUNT.ID.eq(i));
+        }
+
+        String sql = new CommonsDialectImpl().forSelectListByQuery(query);
+        Assert.assertTrue(sql.replaceAll("\\s+", " ").startsWith("SELECT * FROM `tb_account` WHERE `age` >= ? OR `id` = ? OR `id` = ?"));
+
+        Object[] values = CPI.getValueArray(query);
+        Assert.assertEquals(20001, values.length);
+        Assert.assertEquals(countQuestionMarks(sql), values.length);
+        Assert.assertEquals(18, values[0]);
+        Assert.assertEquals(19999, values[20000]);
+    }
+
+    @Test
+    public void testUpdateColumnsShape() {
+        TableInfo tableInfo = TableInfos.ofEntityClass(Account.class);
+        Account account = new Account();
+        account.setId(1L);
+        account.setUserName("michael");
+
+        Set<String> columns = tableInfo.obtainUpdateColumns(account, true, false);
+        String sql = new CommonsDialectImpl().forUpdateEntity(tableInfo, account, true, columns);
+        assertSql("UPDATE `tb_account` SET `user_name` = ?, `sex` = ?, `is_normal` = ? WHERE `id` = ?", sql);
+        Assert.assertEquals(Arrays.asList("michael", 0, false, 1L), Arrays.asList(tableInfo.obtainUpdateValues(account, columns)));
+
+        Object shape = SqlTemplateCache.columnsShape(tableInfo, columns);
+        Assert.assertEquals(shape, SqlTemplateCache.columnsShape(tableInfo, new LinkedHashSet<>(columns)));
+
+        account.setAge(18);
+        Assert.assertNotEquals(shape, SqlTemplateCache.columnsShape(tableInfo, tableInfo.obtainUpdateColumns(account, true, false)));
+
+        //不按下标顺序排列的列使用其副本作为形状
+        Assert.assertEquals(Arrays.asList("sex", "user_name"), SqlTemplateCache.columnsShape(tableInfo, new LinkedHashSet<>(Arrays.asList("sex", "user_name"))));
+    }
+
+    static void assertSql(String expected, String sql) {
+        Assert.assertEquals(expected, sql.replaceAll("\\s+", " ").trim());
+    }
+
+    static int countQuestionMarks(String sql) {
+        int count = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+
     @Test
     public void testrSelectLimitSql() {
         QueryWrapper queryWrapper = QueryWrapper.create()
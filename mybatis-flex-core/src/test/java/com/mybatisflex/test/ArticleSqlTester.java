@@ -68,6 +68,7 @@ public class ArticleSqlTester {
         TableInfo tableInfo = TableInfos.ofEntityClass(Article.class);
         String sql = dialect.forDeleteEntityBatchByIds(tableInfo, new Object[]{1, 2, 3});
         System.out.println(sql);
+        AccountSqlTester.assertSql("UPDATE `tb_article` SET `is_delete` = 1 WHERE (`id` IN (?, ?, ?)) AND `is_delete` = 0", sql);
     }
 
 
@@ -0,0 +1,198 @@
+package com.mybatisflex.test;
+
+import com.mybatisflex.core.FlexGlobalConfig;
+import com.mybatisflex.core.dialect.DbType;
+import com.mybatisflex.core.mybatis.FlexConfiguration;
+import com.mybatisflex.core.row.BatchWriter;
+import com.mybatisflex.core.row.Row;
+import com.mybatisflex.core.row.RowMapperInvoker;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class BatchWriterTester {
+
+    private final List<String> insertedNames = new ArrayList<>();
+    private final List<Integer> batchSizes = new ArrayList<>();
+    private int commitCount;
+
+
+    @Test
+    public void testInsertBatchWithUnevenBatchSize() {
+        RowMapperInvoker invoker = new RowMapperInvoker(newSqlSessionFactory("insertBatchUneven"));
+        List<Row> rows = newRows(10, "user");
+
+        int[] updateCounts = invoker.insertBatch("tb_account", rows, 3);
+
+        //最后不足一批的数据也需要执行
+        Assert.assertEquals(Arrays.asList(3, 3, 3, 1), batchSizes);
+        Assert.assertEquals(10, updateCounts.length);
+        Assert.assertEquals(names(rows), insertedNames);
+    }
+
+    @Test
+    public void testInsertBatchWithUnevenBatchSizeInTx() {
+        RowMapperInvoker invoker = new RowMapperInvoker(newSqlSessionFactory("insertBatchUnevenTx"));
+        List<Row> rows = newRows(7, "user");
+
+        int[] updateCounts = invoker.tx(db -> db.insertBatch("tb_account", rows, 5));
+
+        Assert.assertEquals(Arrays.asList(5, 2), batchSizes);
+        Assert.assertEquals(7, updateCounts.length);
+        Assert.assertEquals(names(rows), insertedNames);
+        Assert.assertEquals(1, commitCount);
+    }
+
+    @Test
+    public void testBatchWriterWithUnevenBatchSize() {
+        RowMapperInvoker invoker = new RowMapperInvoker(newSqlSessionFactory("batchWriterUneven"));
+        List<Row> rows = newRows(10, "user");
+        List<Long> flushedRowCounts = new ArrayList<>();
+
+        BatchWriter writer = invoker.batchWriter("tb_account")
+                .batchSize(4)
+                .listener((rowCount, updateCount) -> flushedRowCounts.add(rowCount));
+        long updateCount = writer.write(rows);
+
+        Assert.assertEquals(10, updateCount);
+        Assert.assertEquals(Arrays.asList(4, 4, 2), batchSizes);
+        Assert.assertEquals(Arrays.asList(4L, 8L, 10L), flushedRowCounts);
+        Assert.assertEquals(10, writer.getRowCount());
+        Assert.assertEquals(10, writer.getUpdateCount());
+        Assert.assertEquals(3, writer.getFlushCount());
+        Assert.assertEquals(names(rows), insertedNames);
+    }
+
+    @Test
+    public void testBatchWriterWithBatchBytes() {
+        RowMapperInvoker invoker = new RowMapperInvoker(newSqlSessionFactory("batchWriterBytes"));
+        //每条数据的 user_name 为 10 个字符，估算为 20 个字节
+        List<Row> rows = newRows(7, "user-name");
+
+        //达到 50 个字节时提交，即每 3 条提交一次，与 batchSize 无关
+        BatchWriter writer = invoker.batchWriter("tb_account")
+                .batchSize(1000)
+                .batchBytes(50);
+        long updateCount = writer.write(rows.stream());
+
+        Assert.assertEquals(7, updateCount);
+        Assert.assertEquals(Arrays.asList(3, 3, 1), batchSizes);
+        Assert.assertEquals(3, writer.getFlushCount());
+        Assert.assertEquals(names(rows), insertedNames);
+
+        //batchSize 先达到时按 batchSize 提交
+        batchSizes.clear();
+        insertedNames.clear();
+        invoker.batchWriter("tb_account")
+                .batchSize(2)
+                .batchBytes(50)
+                .write(rows);
+        Assert.assertEquals(Arrays.asList(2, 2, 2, 1), batchSizes);
+        Assert.assertEquals(names(rows), insertedNames);
+    }
+
+
+    private static List<Row> newRows(int count, String prefix) {
+        List<Row> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Row row = new Row();
+            row.set("user_name", prefix + i);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static List<Object> names(List<Row> rows) {
+        List<Object> names = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            names.add(row.get("user_name"));
+        }
+        return names;
+    }
+
+    private SqlSessionFactory newSqlSessionFactory(String environmentId) {
+        DataSource dataSource = proxy(DataSource.class, (proxy, method, args) -> "getConnection".equals(method.getName()) ? connection() : null);
+        FlexConfiguration configuration = new FlexConfiguration(new Environment(environmentId, new JdbcTransactionFactory(), dataSource));
+        configuration.setDbType(DbType.MYSQL);
+        FlexGlobalConfig globalConfig = new FlexGlobalConfig();
+        globalConfig.setDbType(DbType.MYSQL);
+        FlexGlobalConfig.setConfig(environmentId, globalConfig);
+        return new DefaultSqlSessionFactory(configuration);
+    }
+
+
+    /**
+     * 模拟数据库连接，记录每次批处理的数据条数以及每条数据的 user_name
+     */
+    private Connection connection() {
+        boolean[] autoCommit = {true};
+        return proxy(Connection.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return statement();
+                case "getAutoCommit":
+                    return autoCommit[0];
+                case "setAutoCommit":
+                    autoCommit[0] = (Boolean) args[0];
+                    return null;
+                case "commit":
+                    commitCount++;
+                    return null;
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    private PreparedStatement statement() {
+        Object[] parameter = new Object[1];
+        int[] added = new int[1];
+        return proxy(PreparedStatement.class, (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && Integer.valueOf(1).equals(args[0])) {
+                parameter[0] = args[1];
+                return null;
+            }
+            switch (name) {
+                case "addBatch":
+                    insertedNames.add((String) parameter[0]);
+                    added[0]++;
+                    return null;
+                case "executeBatch":
+                    batchSizes.add(added[0]);
+                    int[] counts = new int[added[0]];
+                    Arrays.fill(counts, 1);
+                    added[0] = 0;
+                    return counts;
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    private static <T> T proxy(Class<T> type, java.lang.reflect.InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(BatchWriterTester.class.getClassLoader(), new Class[]{type}, handler));
+    }
+}
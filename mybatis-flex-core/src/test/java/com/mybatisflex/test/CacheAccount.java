@@ -0,0 +1,29 @@
+package com.mybatisflex.test;
+
+import com.mybatisflex.annotation.Id;
+import com.mybatisflex.annotation.Table;
+
+@Table(value = "tb_cache_account", useCached = true)
+public class CacheAccount {
+
+    @Id
+    private Long id;
+
+    private String userName;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public void setUserName(String userName) {
+        this.userName = userName;
+    }
+}
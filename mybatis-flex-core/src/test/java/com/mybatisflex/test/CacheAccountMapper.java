@@ -0,0 +1,6 @@
+package com.mybatisflex.test;
+
+import com.mybatisflex.core.BaseMapper;
+
+public interface CacheAccountMapper extends BaseMapper<CacheAccount> {
+}
@@ -0,0 +1,178 @@
+package com.mybatisflex.test;
+
+import com.mybatisflex.core.exception.MybatisFlexException;
+import com.mybatisflex.core.row.ColumnarResult;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class ColumnarResultTester {
+
+    private static final String[] LABELS = {"id", "age", "score", "amount", "price", "name"};
+    private static final int[] TYPES = {Types.BIGINT, Types.INTEGER, Types.DOUBLE, Types.DECIMAL, Types.DECIMAL, Types.VARCHAR};
+    private static final int[] SCALES = {0, 0, 0, 0, 2, 0};
+
+
+    @Test
+    public void testColumnTypes() throws Exception {
+        ColumnarResult result = ColumnarResult.read(newResultSet(new ArrayList<>(), 0), true);
+        Assert.assertEquals(0, result.getRowCount());
+        Assert.assertEquals(6, result.getColumnCount());
+        Assert.assertEquals(ColumnarResult.ColumnType.LONG, result.getColumnType(0));
+        Assert.assertEquals(ColumnarResult.ColumnType.INT, result.getColumnType(1));
+        Assert.assertEquals(ColumnarResult.ColumnType.DOUBLE, result.getColumnType(2));
+        //没有小数位的 decimal 使用 long，有小数位的保留 BigDecimal
+        Assert.assertEquals(ColumnarResult.ColumnType.LONG, result.getColumnType(3));
+        Assert.assertEquals(ColumnarResult.ColumnType.OBJECT, result.getColumnType(4));
+        Assert.assertEquals(ColumnarResult.ColumnType.OBJECT, result.getColumnType(5));
+        Assert.assertEquals(0, result.getInts("age").length);
+    }
+
+
+    @Test
+    public void testNullBitmap() throws Exception {
+        testNullBitmap(200, 0);
+        //初始容量不是 64 的倍数，读取过程中扩容
+        testNullBitmap(75, 10);
+    }
+
+    private void testNullBitmap(int rowCount, int fetchSize) throws Exception {
+        //跨越 long 的边界
+        Set<Integer> nullRows = new HashSet<>(Arrays.asList(0, 1, 63, 64, 65, 70, 127, 128, rowCount - 1));
+
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < rowCount; i++) {
+            boolean isNull = nullRows.contains(i);
+            rows.add(new Object[]{(long) i
+                    , isNull ? null : i % 3
+                    , isNull ? null : i / 2.0
+                    , 0L
+                    , isNull ? null : new BigDecimal("1.25")
+                    , i % 2 == 0 ? null : "name" + i});
+        }
+        ColumnarResult result = ColumnarResult.read(newResultSet(rows, fetchSize), true);
+        Assert.assertEquals(rowCount, result.getRowCount());
+
+        //数组在读取完之后截断为实际的行数
+        Assert.assertEquals(rowCount, result.getLongs("id").length);
+        Assert.assertEquals(rowCount, result.getInts("age").length);
+        Assert.assertEquals(rowCount, result.getDoubles("score").length);
+        Assert.assertEquals(rowCount, result.getObjects("name").length);
+
+        //没有 null 值的列不创建位图，值为 0 的行不是 null
+        Assert.assertFalse(result.hasNull(0));
+        Assert.assertFalse(result.hasNull(3));
+        Assert.assertFalse(result.isNull(3, 5));
+        Assert.assertEquals(0L, result.getValue(3, 5));
+
+        Assert.assertTrue(result.hasNull(1));
+        for (int i = 0; i < rowCount; i++) {
+            boolean isNull = nullRows.contains(i);
+            Assert.assertEquals("row " + i, isNull, result.isNull(1, i));
+            Assert.assertEquals("row " + i, isNull, result.isNull(2, i));
+            Assert.assertEquals("row " + i, isNull, result.isNull(4, i));
+            Assert.assertEquals("row " + i, i % 2 == 0, result.isNull(5, i));
+
+            Assert.assertEquals((long) i, result.getValue(0, i));
+            Assert.assertEquals(isNull ? null : i % 3, result.getValue(1, i));
+            Assert.assertEquals(isNull ? 0 : i % 3, result.getInts(1)[i]);
+            Assert.assertEquals(isNull ? null : i / 2.0, result.getValue(2, i));
+            Assert.assertEquals(isNull ? null : new BigDecimal("1.25"), result.getValue(4, i));
+        }
+    }
+
+
+    @Test
+    public void testColumnError() throws Exception {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{1L, 1, 1.0, 1L, null, "a"});
+        ColumnarResult result = ColumnarResult.read(newResultSet(rows, 0), true);
+
+        Assert.assertEquals(5, result.indexOf("name"));
+        Assert.assertEquals(-1, result.indexOf("birthday"));
+        try {
+            result.getLongs("age");
+            Assert.fail("the type of column must be checked");
+        } catch (MybatisFlexException e) {
+            Assert.assertTrue(e.getMessage().contains("age"));
+        }
+        try {
+            result.getInts("birthday");
+            Assert.fail("the column must exist");
+        } catch (MybatisFlexException e) {
+            Assert.assertTrue(e.getMessage().contains("birthday"));
+        }
+        try {
+            result.getValue(0, 1);
+            Assert.fail("the row must be checked");
+        } catch (IndexOutOfBoundsException e) {
+            //ignore
+        }
+    }
+
+
+    /**
+     * 按照 jdbc 驱动的行为模拟 ResultSet：getInt/getLong/getDouble 读取到 null 时返回 0，通过 wasNull 判断
+     */
+    private static ResultSet newResultSet(List<Object[]> rows, int fetchSize) {
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(ColumnarResultTester.class.getClassLoader()
+                , new Class[]{ResultSetMetaData.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getColumnCount":
+                            return LABELS.length;
+                        case "getColumnLabel":
+                        case "getColumnName":
+                            return LABELS[(int) args[0] - 1];
+                        case "getColumnType":
+                            return TYPES[(int) args[0] - 1];
+                        case "getPrecision":
+                            return 10;
+                        case "getScale":
+                            return SCALES[(int) args[0] - 1];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+
+        int[] cursor = {-1};
+        boolean[] wasNull = {false};
+        return (ResultSet) Proxy.newProxyInstance(ColumnarResultTester.class.getClassLoader()
+                , new Class[]{ResultSet.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getMetaData":
+                            return metaData;
+                        case "getFetchSize":
+                            return fetchSize;
+                        case "next":
+                            return ++cursor[0] < rows.size();
+                        case "wasNull":
+                            return wasNull[0];
+                        case "getInt":
+                        case "getLong":
+                        case "getDouble":
+                        case "getObject": {
+                            Object value = rows.get(cursor[0])[(int) args[0] - 1];
+                            wasNull[0] = value == null;
+                            if (method.getName().equals("getObject")) {
+                                return value;
+                            }
+                            Number number = value == null ? 0 : (Number) value;
+                            return method.getName().equals("getInt") ? (Object) number.intValue()
+                                    : method.getName().equals("getLong") ? (Object) number.longValue() : (Object) number.doubleValue();
+                        }
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,105 @@
+package com.mybatisflex.test;
+
+import com.mybatisflex.core.BaseMapper;
+import com.mybatisflex.core.FlexGlobalConfig;
+import com.mybatisflex.core.dialect.DbType;
+import com.mybatisflex.core.dialect.DialectFactory;
+import com.mybatisflex.core.mybatis.FlexConfiguration;
+import com.mybatisflex.core.row.RowMapper;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CursorStatementTester {
+
+    public interface AccountCursorMapper extends BaseMapper<Account> {
+
+        @Select("select * from tb_account")
+        List<Account> selectCursorLikeList();
+
+        @Select("select * from tb_account")
+        Cursor<Account> streamAll();
+    }
+
+
+    @Test
+    public void testCursorStatementByReturnType() {
+        FlexConfiguration configuration = new FlexConfiguration();
+        configuration.addMapper(AccountCursorMapper.class);
+
+        String namespace = AccountCursorMapper.class.getName();
+        Assert.assertTrue(configuration.isCursorStatement(namespace + ".selectCursorByQuery"));
+        Assert.assertTrue(configuration.isCursorStatement(namespace + ".streamAll"));
+        Assert.assertTrue(configuration.isCursorStatement(RowMapper.class.getName() + ".selectCursorBySql"));
+
+        //方法名以 selectCursor 开头但返回 List，不能按流式查询设置 fetchSize
+        Assert.assertFalse(configuration.isCursorStatement(namespace + ".selectCursorLikeList"));
+        Assert.assertFalse(configuration.isCursorStatement(namespace + ".selectListByQuery"));
+    }
+
+    @Test
+    public void testHintDbTypeOverridesConfigurationDialect() {
+        FlexConfiguration configuration = new FlexConfiguration();
+        configuration.setDbType(DbType.MYSQL);
+        Assert.assertSame(DialectFactory.getDialect(DbType.MYSQL), configuration.getDialect());
+
+        //设置了 hint 时，Mapper 的 SQL 使用 hint 的方言
+        DialectFactory.setHintDbType(DbType.ORACLE);
+        try {
+            Assert.assertSame(DialectFactory.getDialect(DbType.ORACLE), configuration.getDialect());
+        } finally {
+            DialectFactory.clearHintDbType();
+        }
+        Assert.assertSame(DialectFactory.getDialect(DbType.MYSQL), configuration.getDialect());
+    }
+
+    @Test
+    public void testCursorFetchSizePerConfiguration() throws Exception {
+        //两个配置使用相同的 environmentId，各自使用自己的 cursorFetchSize
+        Assert.assertEquals(Integer.valueOf(100), prepareCursorStatement(newConfiguration(100)));
+        Assert.assertEquals(Integer.valueOf(500), prepareCursorStatement(newConfiguration(500)));
+    }
+
+
+    private static FlexConfiguration newConfiguration(int cursorFetchSize) {
+        FlexConfiguration configuration = new FlexConfiguration(new Environment("default", new JdbcTransactionFactory(), new UnpooledDataSource()));
+        configuration.setDbType(DbType.H2);
+        FlexGlobalConfig globalConfig = new FlexGlobalConfig();
+        globalConfig.setCursorFetchSize(cursorFetchSize);
+        configuration.setGlobalConfig(globalConfig);
+        configuration.addMapper(AccountCursorMapper.class);
+        return configuration;
+    }
+
+    private static Integer prepareCursorStatement(FlexConfiguration configuration) throws Exception {
+        Integer[] fetchSize = new Integer[1];
+        PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(CursorStatementTester.class.getClassLoader(), new Class[]{PreparedStatement.class}, (proxy, method, args) -> {
+            if ("setFetchSize".equals(method.getName())) {
+                fetchSize[0] = (Integer) args[0];
+            }
+            return null;
+        });
+        Connection connection = (Connection) Proxy.newProxyInstance(CursorStatementTester.class.getClassLoader(), new Class[]{Connection.class}
+                , (proxy, method, args) -> method.getName().startsWith("prepareStatement") ? statement : null);
+
+        MappedStatement ms = configuration.getMappedStatement(AccountCursorMapper.class.getName() + ".streamAll");
+        BoundSql boundSql = new BoundSql(configuration, "select * from tb_account", new ArrayList<>(), null);
+        StatementHandler handler = configuration.newStatementHandler(null, ms, null, RowBounds.DEFAULT, null, boundSql);
+        handler.prepare(connection, null);
+        return fetchSize[0];
+    }
+}
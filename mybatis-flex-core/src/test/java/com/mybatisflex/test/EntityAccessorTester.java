@@ -0,0 +1,156 @@
+package com.mybatisflex.test;
+
+import com.mybatisflex.annotation.Column;
+import com.mybatisflex.annotation.Id;
+import com.mybatisflex.annotation.Table;
+import com.mybatisflex.core.enums.KeyType;
+import com.mybatisflex.core.javassist.JavassistEntityAccessorFactory;
+import com.mybatisflex.core.table.EntityAccessor;
+import com.mybatisflex.core.table.ReflectorEntityAccessor;
+import com.mybatisflex.core.table.TableInfo;
+import com.mybatisflex.core.table.TableInfoDescriptor;
+import com.mybatisflex.core.table.TableInfos;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class EntityAccessorTester {
+
+    @Table("tb_legacy")
+    public static class Legacy {
+        @Id
+        private Long id;
+        private String userName;
+    }
+
+    @Table("tb_stale")
+    public static class Stale {
+        @Id
+        private Long id;
+        private String userName;
+    }
+
+    @Table("tb_renamed")
+    public static class Renamed {
+        @Id
+        private Long id;
+        @Column("login_name")
+        private String userName;
+    }
+
+    private final TableInfo tableInfo = TableInfos.ofEntityClass(Account.class);
+    private final int sexIndex = tableInfo.getColumnIndex("sex");
+    private final int ageIndex = tableInfo.getColumnIndex("age");
+
+
+    @Test
+    public void testGeneratedAccessor() {
+        Assert.assertTrue(tableInfo.getEntityAccessor().getClass().getName().startsWith(AccountTableInfoDescriptor.class.getName()));
+        assertPrimitiveConversions(tableInfo.getEntityAccessor());
+    }
+
+    @Test
+    public void testJavassistAccessor() {
+        assertPrimitiveConversions(new JavassistEntityAccessorFactory().create(tableInfo));
+    }
+
+    @Test
+    public void testReflectorAccessor() {
+        assertPrimitiveConversions(new ReflectorEntityAccessor(tableInfo));
+    }
+
+    @Test
+    public void testTypeUseAnnotatedColumns() {
+        TableInfo memberTableInfo = TableInfos.ofEntityClass(Member.class);
+        Assert.assertEquals(Arrays.asList("name", "age"), Arrays.asList(memberTableInfo.getColumns()));
+        Assert.assertTrue(memberTableInfo.getEntityAccessor().getClass().getName().startsWith(MemberTableInfoDescriptor.class.getName()));
+
+        Member member = new Member();
+        memberTableInfo.getEntityAccessor().set(member, memberTableInfo.getColumnIndex("age"), 18);
+        Assert.assertEquals(Integer.valueOf(18), member.getAge());
+    }
+
+    @Test
+    public void testMismatchedDescriptor() {
+        //生成的描述信息缺少了 user_name 列，使用反射的结果
+        TableInfos.registerDescriptor(new TableInfoDescriptor(Legacy.class, "tb_legacy", "", false, true) {
+            {
+                id("id", "id", Long.class, KeyType.Auto, "", true);
+            }
+        });
+        TableInfo legacyTableInfo = TableInfos.ofEntityClass(Legacy.class);
+        Assert.assertEquals(Arrays.asList("user_name"), Arrays.asList(legacyTableInfo.getColumns()));
+        Assert.assertArrayEquals(new String[]{"id"}, legacyTableInfo.getPrimaryKeys());
+    }
+
+    @Test
+    public void testStaleFieldsHash() {
+        //生成代码时 entity 还没有 userName 字段，摘要不一致，使用反射的结果
+        TableInfos.registerDescriptor(new TableInfoDescriptor(Stale.class, "tb_stale", "", false, true) {
+            {
+                fields("id:java.lang.Long".hashCode());
+                id("id", "id", Long.class, KeyType.Auto, "", true);
+            }
+        });
+        TableInfo staleTableInfo = TableInfos.ofEntityClass(Stale.class);
+        Assert.assertEquals(Arrays.asList("user_name"), Arrays.asList(staleTableInfo.getColumns()));
+    }
+
+    @Test
+    public void testStaleAnnotationHash() {
+        //字段的名称和类型没有变化，但生成代码之后 userName 的列名改为了 login_name，摘要不一致，使用反射的结果
+        TableInfos.registerDescriptor(new TableInfoDescriptor(Renamed.class, "tb_renamed", "", false, true) {
+            {
+                fields("id:java.lang.Long@Id:Auto,,true".hashCode() + "userName:java.lang.String".hashCode()
+                        + "@Table:tb_renamed,,false,true".hashCode());
+                id("id", "id", Long.class, KeyType.Auto, "", true);
+                column("user_name", "userName", String.class);
+            }
+        });
+        TableInfo renamedTableInfo = TableInfos.ofEntityClass(Renamed.class);
+        Assert.assertEquals(Arrays.asList("login_name"), Arrays.asList(renamedTableInfo.getColumns()));
+    }
+
+    @Test
+    public void testInitVersionValue() {
+        Article article = new Article();
+        TableInfos.ofEntityClass(Article.class).initVersionValueIfNecessary(article);
+        Assert.assertEquals(Long.valueOf(0L), article.getVersion());
+    }
+
+
+    private void assertPrimitiveConversions(EntityAccessor accessor) {
+        Account account = new Account();
+
+        accessor.set(account, sexIndex, 1);
+        Assert.assertEquals(1, account.getSex());
+
+        //拓宽转换
+        accessor.set(account, sexIndex, (short) 2);
+        Assert.assertEquals(2, account.getSex());
+
+        //基本类型设置 null 时忽略
+        accessor.set(account, sexIndex, null);
+        Assert.assertEquals(2, account.getSex());
+
+        //收窄转换抛出异常，而不是截断
+        assertFails(() -> accessor.set(account, sexIndex, 1L << 33));
+        assertFails(() -> accessor.set(account, sexIndex, "3"));
+        assertFails(() -> accessor.set(account, ageIndex, 18L));
+        Assert.assertEquals(2, account.getSex());
+        Assert.assertNull(account.getAge());
+
+        accessor.set(account, ageIndex, 18);
+        Assert.assertEquals(Integer.valueOf(18), accessor.get(account, ageIndex));
+    }
+
+    private static void assertFails(Runnable runnable) {
+        try {
+            runnable.run();
+        } catch (RuntimeException e) {
+            return;
+        }
+        Assert.fail("expected failure");
+    }
+}
@@ -0,0 +1,241 @@
+package com.mybatisflex.test;
+
+import com.mybatisflex.core.FlexConsts;
+import com.mybatisflex.core.dialect.DbType;
+import com.mybatisflex.core.mybatis.EntityCacheExecutor;
+import com.mybatisflex.core.mybatis.FlexConfiguration;
+import com.mybatisflex.core.row.RowMapper;
+import com.mybatisflex.core.table.EntityCache;
+import org.apache.ibatis.binding.MapperMethod;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class EntityCacheTester {
+
+    private final Map<Long, String> database = new HashMap<>();
+    private int queryCount;
+
+    private FlexConfiguration configuration;
+    private EntityCacheExecutor executor;
+
+
+    @Before
+    public void init() {
+        EntityCache.clear();
+        database.put(1L, "michael");
+        database.put(2L, "joy");
+        database.put(3L, "jack");
+
+        configuration = new FlexConfiguration();
+        configuration.setDbType(DbType.MYSQL);
+        configuration.addMapper(CacheAccountMapper.class);
+
+        Executor delegate = (Executor) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Executor.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "query":
+                    queryCount++;
+                    return load((Map<?, ?>) args[1]);
+                case "update":
+                    return 1;
+                default:
+                    return null;
+            }
+        });
+        executor = new EntityCacheExecutor(delegate, configuration);
+    }
+
+
+    @Test
+    public void testSelectOneByIdHit() throws Exception {
+        Assert.assertEquals("michael", selectOneById(1L).getUserName());
+        Assert.assertEquals(1, queryCount);
+
+        //Integer 和 Long 的主键命中同一个缓存
+        Assert.assertEquals("michael", selectOneById(1).getUserName());
+        Assert.assertEquals(1, queryCount);
+
+        //修改返回的 entity 不影响缓存
+        selectOneById(1L).setUserName("changed");
+        Assert.assertEquals("michael", selectOneById(1L).getUserName());
+        Assert.assertEquals(1, queryCount);
+    }
+
+
+    @Test
+    public void testSelectListByIdsQueryMissOnly() throws Exception {
+        selectOneById(1L);
+        Assert.assertEquals(1, queryCount);
+
+        List<CacheAccount> accounts = selectListByIds(1L, 2L, 3L);
+        Assert.assertEquals(3, accounts.size());
+        Assert.assertEquals(2, queryCount);
+
+        Assert.assertEquals(3, selectListByIds(1L, 2L, 3L).size());
+        Assert.assertEquals(2, queryCount);
+    }
+
+
+    @Test
+    public void testEvictOnUpdate() throws Exception {
+        selectOneById(1L);
+        selectOneById(2L);
+
+        CacheAccount account = new CacheAccount();
+        account.setId(1L);
+        account.setUserName("michael2");
+        database.put(1L, "michael2");
+        update(CacheAccountMapper.class.getName() + ".update", FlexConsts.ENTITY, account);
+        executor.commit(true);
+
+        Assert.assertEquals("michael2", selectOneById(1L).getUserName());
+        Assert.assertEquals(3, queryCount);
+
+        //其他主键的缓存不受影响
+        selectOneById(2L);
+        Assert.assertEquals(3, queryCount);
+    }
+
+
+    @Test
+    public void testEvictOnDeleteBatchByIds() throws Exception {
+        selectListByIds(1L, 2L, 3L);
+        Assert.assertEquals(1, queryCount);
+
+        database.remove(1L);
+        database.remove(2L);
+        update(CacheAccountMapper.class.getName() + ".deleteBatchByIds", FlexConsts.PRIMARY_VALUE, Arrays.asList(1L, 2L));
+        executor.commit(true);
+
+        Assert.assertNull(selectOneById(1L));
+        Assert.assertNull(selectOneById(2L));
+        Assert.assertEquals(3, queryCount);
+
+        Assert.assertEquals("jack", selectOneById(3L).getUserName());
+        Assert.assertEquals(3, queryCount);
+    }
+
+
+    @Test
+    public void testInvalidateOnRawSql() throws Exception {
+        selectOneById(1L);
+
+        //SQL 中没有出现缓存的表，不清除缓存
+        rawSql("UPDATE tb_account SET user_name = ?", "x");
+        selectOneById(1L);
+        Assert.assertEquals(1, queryCount);
+
+        //SQL 中出现了缓存的表名，但只是其他表名的一部分
+        rawSql("UPDATE tb_cache_account_log SET user_name = ?", "x");
+        selectOneById(1L);
+        Assert.assertEquals(1, queryCount);
+
+        rawSql("UPDATE `tb_cache_account` SET user_name = ?", "x");
+        executor.commit(true);
+        selectOneById(1L);
+        Assert.assertEquals(2, queryCount);
+    }
+
+
+    @Test
+    public void testBypassCacheUntilCommit() throws Exception {
+        selectOneById(1L);
+
+        database.remove(2L);
+        update(CacheAccountMapper.class.getName() + ".deleteById", FlexConsts.PRIMARY_VALUE, 2L);
+
+        //当前 session 修改过该表，提交之前不读写缓存
+        selectOneById(1L);
+        selectOneById(1L);
+        Assert.assertEquals(3, queryCount);
+
+        //提交之后，只清除了被删除的主键
+        executor.commit(true);
+        selectOneById(1L);
+        Assert.assertEquals(3, queryCount);
+        Assert.assertNull(selectOneById(2L));
+        Assert.assertEquals(4, queryCount);
+    }
+
+
+    @Test
+    public void testEvictEldestWhenFull() throws Exception {
+        int maxSize = EntityCache.getMaxSize();
+        EntityCache.setMaxSize(2);
+        try {
+            selectOneById(1L);
+            selectOneById(2L);
+            selectOneById(3L);
+            Assert.assertEquals(3, queryCount);
+
+            //超出数量时只淘汰最早存入的 1，而不是清空整个区域
+            Assert.assertEquals(2, EntityCache.size());
+            selectOneById(2L);
+            selectOneById(3L);
+            Assert.assertEquals(3, queryCount);
+            selectOneById(1L);
+            Assert.assertEquals(4, queryCount);
+            Assert.assertEquals(2, EntityCache.size());
+        } finally {
+            EntityCache.setMaxSize(maxSize);
+        }
+    }
+
+
+    private CacheAccount selectOneById(Object id) throws Exception {
+        List<CacheAccount> list = query(".selectOneById", id);
+        return list.isEmpty() ? null : list.get(0);
+    }
+
+    private List<CacheAccount> selectListByIds(Long... ids) throws Exception {
+        return query(".selectListByIds", Arrays.asList(ids));
+    }
+
+    private List<CacheAccount> query(String method, Object primaryValue) throws Exception {
+        MappedStatement ms = configuration.getMappedStatement(CacheAccountMapper.class.getName() + method);
+        MapperMethod.ParamMap<Object> params = new MapperMethod.ParamMap<>();
+        params.put(FlexConsts.PRIMARY_VALUE, primaryValue);
+        return executor.query(ms, params, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+    }
+
+    private void update(String statementId, String key, Object value) throws Exception {
+        MapperMethod.ParamMap<Object> params = new MapperMethod.ParamMap<>();
+        params.put(key, value);
+        executor.update(configuration.getMappedStatement(statementId), params);
+    }
+
+    private void rawSql(String sql, Object... args) throws Exception {
+        MapperMethod.ParamMap<Object> params = new MapperMethod.ParamMap<>();
+        params.put(FlexConsts.SQL, sql);
+        params.put(FlexConsts.SQL_ARGS, args);
+        executor.update(configuration.getMappedStatement(RowMapper.class.getName() + ".updateBySql"), params);
+    }
+
+    private List<CacheAccount> load(Map<?, ?> params) {
+        Object primaryValue = params.get(FlexConsts.PRIMARY_VALUE);
+        Collection<?> ids = primaryValue instanceof Collection ? (Collection<?>) primaryValue : Collections.singleton(primaryValue);
+        List<CacheAccount> list = new ArrayList<>();
+        for (Object id : ids) {
+            String userName = database.get(((Number) id).longValue());
+            if (userName != null) {
+                CacheAccount account = new CacheAccount();
+                account.setId(((Number) id).longValue());
+                account.setUserName(userName);
+                list.add(account);
+            }
+        }
+        return list;
+    }
+}
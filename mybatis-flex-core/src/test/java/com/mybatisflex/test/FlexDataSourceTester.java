@@ -0,0 +1,410 @@
+package com.mybatisflex.test;
+
+import com.mybatisflex.annotation.UseDataSource;
+import com.mybatisflex.core.BaseMapper;
+import com.mybatisflex.core.FlexGlobalConfig;
+import com.mybatisflex.core.datasource.DataSourceKey;
+import com.mybatisflex.core.datasource.FlexDataSource;
+import com.mybatisflex.core.dialect.DbType;
+import com.mybatisflex.core.mybatis.FlexConfiguration;
+import com.mybatisflex.core.querywrapper.QueryWrapper;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class FlexDataSourceTester {
+
+    public interface AccountMapper extends BaseMapper<Account> {
+    }
+
+    @UseDataSource("ds1")
+    public interface Ds1AccountMapper extends BaseMapper<Account> {
+
+        @UseDataSource("ds2")
+        @Select("select * from tb_account")
+        List<Account> selectAllFromDs2();
+    }
+
+    public interface ShardOrderMapper extends BaseMapper<ShardOrder> {
+    }
+
+
+    private final Database primary = new Database("primary");
+    private final Database replica1 = new Database("replica1");
+    private final Database replica2 = new Database("replica2");
+
+
+    @After
+    public void clearDataSourceKey() {
+        DataSourceKey.clear();
+    }
+
+
+    @Test
+    public void testReplicaSelection() throws SQLException {
+        FlexDataSource dataSource = newDataSource();
+        dataSource.addReplica("replica1", replica1.dataSource(), 1)
+                .addReplica("replica2", replica2.dataSource(), 3);
+        Assert.assertEquals(Arrays.asList("replica1", "replica2"), dataSource.getReplicaNames());
+
+        //查询使用从库，两个从库都会被选中，主库不参与读取
+        DataSourceKey.useReplica();
+        try {
+            for (int i = 0; i < 200; i++) {
+                dataSource.getConnection().close();
+            }
+        } finally {
+            DataSourceKey.clearReplica();
+        }
+        Assert.assertEquals(0, primary.connectionCount);
+        Assert.assertTrue(replica1.connectionCount > 0);
+        Assert.assertTrue(replica2.connectionCount > replica1.connectionCount);
+
+        //未指定时使用主库
+        dataSource.getConnection().close();
+        Assert.assertEquals(1, primary.connectionCount);
+
+        assertFails(() -> dataSource.addReplica("replica3", new Database("replica3").dataSource(), 0), "must be greater than 0");
+        assertFails(() -> dataSource.addReplica("replica1", replica1.dataSource()), "already exists");
+    }
+
+    @Test
+    public void testReplicaSelectionThroughMapper() {
+        FlexDataSource dataSource = newDataSource();
+        dataSource.addReplica("replica1", replica1.dataSource());
+
+        execute(newSqlSessionFactory("flexDataSourceReadWrite", dataSource), AccountMapper.class
+                , mapper -> mapper.selectListByQuery(QueryWrapper.create()));
+        Assert.assertEquals(1, replica1.queryCount);
+        Assert.assertEquals(0, primary.queryCount);
+
+        execute(newSqlSessionFactory("flexDataSourceReadWrite", dataSource), AccountMapper.class
+                , mapper -> mapper.deleteById(1L));
+        Assert.assertEquals(1, replica1.queryCount);
+        Assert.assertEquals(1, primary.queryCount);
+    }
+
+    @Test
+    public void testEjectionAndBackoff() throws Exception {
+        FlexDataSource dataSource = newDataSource();
+        dataSource.addReplica("replica1", replica1.dataSource());
+        dataSource.setFailureThreshold(2);
+        dataSource.setEjectMillis(200);
+        dataSource.setMaxEjectMillis(10000);
+        replica1.failing = true;
+
+        //连续失败 2 次后被摘除，失败时使用主库
+        openReplicaConnection(dataSource);
+        Assert.assertEquals(Collections.singletonList("replica1"), dataSource.getAvailableReplicaNames());
+        openReplicaConnection(dataSource);
+        Assert.assertTrue(dataSource.getAvailableReplicaNames().isEmpty());
+        Assert.assertEquals(2, replica1.connectionCount);
+        Assert.assertEquals(2, primary.connectionCount);
+
+        //摘除期间不再尝试获取连接
+        openReplicaConnection(dataSource);
+        Assert.assertEquals(2, replica1.connectionCount);
+        Assert.assertEquals(3, primary.connectionCount);
+
+        //第一次摘除 200 毫秒，再次被摘除时时间翻倍
+        Thread.sleep(300);
+        Assert.assertEquals(Collections.singletonList("replica1"), dataSource.getAvailableReplicaNames());
+        openReplicaConnection(dataSource);
+        openReplicaConnection(dataSource);
+        Assert.assertEquals(4, replica1.connectionCount);
+        Thread.sleep(300);
+        Assert.assertTrue(dataSource.getAvailableReplicaNames().isEmpty());
+
+        //恢复后获取连接成功，摘除时间重新计算
+        Thread.sleep(200);
+        replica1.failing = false;
+        openReplicaConnection(dataSource);
+        Assert.assertEquals(5, replica1.connectionCount);
+        Assert.assertEquals(5, primary.connectionCount);
+
+        replica1.failing = true;
+        openReplicaConnection(dataSource);
+        openReplicaConnection(dataSource);
+        Assert.assertTrue(dataSource.getAvailableReplicaNames().isEmpty());
+        Thread.sleep(300);
+        Assert.assertEquals(Collections.singletonList("replica1"), dataSource.getAvailableReplicaNames());
+    }
+
+    @Test
+    public void testStickyAfterWrite() throws Exception {
+        FlexDataSource dataSource = newDataSource();
+        dataSource.addReplica("replica1", replica1.dataSource());
+        dataSource.setStickyMillis(300);
+        SqlSessionFactory sqlSessionFactory = newSqlSessionFactory("flexDataSourceSticky", dataSource);
+
+        execute(sqlSessionFactory, AccountMapper.class, mapper -> mapper.deleteById(1L));
+
+        //写入后 stickyMillis 内，当前线程的查询仍然使用主库
+        execute(sqlSessionFactory, AccountMapper.class, mapper -> mapper.selectListByQuery(QueryWrapper.create()));
+        Assert.assertEquals(2, primary.queryCount);
+        Assert.assertEquals(0, replica1.queryCount);
+
+        Thread.sleep(400);
+        execute(sqlSessionFactory, AccountMapper.class, mapper -> mapper.selectListByQuery(QueryWrapper.create()));
+        Assert.assertEquals(2, primary.queryCount);
+        Assert.assertEquals(1, replica1.queryCount);
+
+        //同一个 session 中写入后再查询，使用的是写入时的主库连接
+        execute(sqlSessionFactory, AccountMapper.class, mapper -> {
+            mapper.deleteById(1L);
+            mapper.selectListByQuery(QueryWrapper.create());
+        });
+        Assert.assertEquals(4, primary.queryCount);
+        Assert.assertEquals(1, replica1.queryCount);
+    }
+
+    @Test
+    public void testCheckRouteFailFast() {
+        FlexDataSource dataSource = newDataSource();
+        dataSource.addReplica("replica1", replica1.dataSource());
+        dataSource.addDataSource("ds1", new Database("ds1").dataSource());
+        SqlSessionFactory sqlSessionFactory = newSqlSessionFactory("flexDataSourceCheckRoute", dataSource);
+
+        //先查询后写入，session 的连接已经在从库上，写入时立即失败
+        assertFails(() -> execute(sqlSessionFactory, AccountMapper.class, mapper -> {
+            mapper.selectListByQuery(QueryWrapper.create());
+            mapper.deleteById(1L);
+        }), "can not write with it");
+        Assert.assertEquals(1, replica1.queryCount);
+        Assert.assertEquals(0, primary.queryCount);
+
+        //指定了其他数据源的 sql，不能在当前 session 的连接上执行
+        assertFails(() -> execute(sqlSessionFactory, AccountMapper.class, mapper -> {
+            mapper.deleteById(1L);
+            mapper.selectListByQuery(QueryWrapper.create().datasource("ds1"));
+        }), "belongs to datasource \"primary\"");
+        Assert.assertEquals(1, primary.queryCount);
+
+        //打开 session 之前指定主库，先查询后写入都在主库上执行
+        DataSourceKey.usePrimary();
+        try {
+            execute(sqlSessionFactory, AccountMapper.class, mapper -> {
+                mapper.selectListByQuery(QueryWrapper.create());
+                mapper.deleteById(1L);
+            });
+        } finally {
+            DataSourceKey.clearPrimary();
+        }
+        Assert.assertEquals(3, primary.queryCount);
+        Assert.assertEquals(1, replica1.queryCount);
+    }
+
+    @Test
+    public void testDataSourcePrecedence() {
+        Database ds1 = new Database("ds1");
+        Database ds2 = new Database("ds2");
+        Database ds3 = new Database("ds3");
+        FlexDataSource dataSource = newDataSource();
+        dataSource.addDataSource("ds1", ds1.dataSource())
+                .addDataSource("ds2", ds2.dataSource())
+                .addDataSource("ds3", ds3.dataSource());
+        SqlSessionFactory sqlSessionFactory = newSqlSessionFactory("flexDataSourcePrecedence", dataSource);
+
+        //Mapper 上的 @UseDataSource
+        execute(sqlSessionFactory, Ds1AccountMapper.class, mapper -> mapper.selectListByQuery(QueryWrapper.create()));
+        Assert.assertEquals(1, ds1.queryCount);
+
+        //方法上的 @UseDataSource 优先于 Mapper 上的
+        execute(sqlSessionFactory, Ds1AccountMapper.class, Ds1AccountMapper::selectAllFromDs2);
+        Assert.assertEquals(1, ds2.queryCount);
+
+        //QueryWrapper.datasource(...) 优先于注解
+        execute(sqlSessionFactory, Ds1AccountMapper.class, mapper -> mapper.selectListByQuery(QueryWrapper.create().datasource("ds3")));
+        Assert.assertEquals(1, ds3.queryCount);
+        Assert.assertEquals(1, ds1.queryCount);
+
+        //注解优先于 DataSourceKey.use(...)，没有注解时使用 DataSourceKey.use(...)
+        DataSourceKey.use("ds2");
+        execute(sqlSessionFactory, Ds1AccountMapper.class, mapper -> mapper.selectListByQuery(QueryWrapper.create()));
+        Assert.assertEquals(2, ds1.queryCount);
+        execute(sqlSessionFactory, AccountMapper.class, mapper -> mapper.selectListByQuery(QueryWrapper.create()));
+        Assert.assertEquals(2, ds2.queryCount);
+        DataSourceKey.clear();
+
+        Assert.assertEquals(0, primary.queryCount);
+        assertFails(() -> execute(sqlSessionFactory, AccountMapper.class
+                , mapper -> mapper.selectListByQuery(QueryWrapper.create().datasource("ds4"))), "\"ds4\" not exists");
+    }
+
+    @Test
+    public void testShardDataSource() {
+        Database ds0 = new Database("ds0");
+        Database ds1 = new Database("ds1");
+        FlexDataSource dataSource = newDataSource();
+        dataSource.addDataSource("ds0", ds0.dataSource())
+                .addDataSource("ds1", ds1.dataSource());
+        SqlSessionFactory sqlSessionFactory = newSqlSessionFactory("flexDataSourceShard", dataSource);
+
+        //id 为 6 的分片为 tb_shard_order_2，位于 ds0；id 为 5 的分片为 tb_shard_order_1，位于 ds1
+        execute(sqlSessionFactory, ShardOrderMapper.class, mapper -> mapper.selectOneById(6L));
+        execute(sqlSessionFactory, ShardOrderMapper.class, mapper -> mapper.deleteById(5L));
+
+        Assert.assertEquals(1, ds0.sqls.size());
+        Assert.assertTrue(ds0.sqls.get(0), ds0.sqls.get(0).contains("tb_shard_order_2"));
+        Assert.assertEquals(1, ds1.sqls.size());
+        Assert.assertTrue(ds1.sqls.get(0), ds1.sqls.get(0).contains("tb_shard_order_1"));
+        Assert.assertEquals(0, primary.queryCount);
+    }
+
+
+    private FlexDataSource newDataSource() {
+        FlexDataSource dataSource = new FlexDataSource("primary", primary.dataSource());
+        dataSource.setStickyMillis(0);
+        return dataSource;
+    }
+
+    private static SqlSessionFactory newSqlSessionFactory(String environmentId, FlexDataSource dataSource) {
+        FlexConfiguration configuration = new FlexConfiguration(new Environment(environmentId, new JdbcTransactionFactory(), dataSource));
+        configuration.setDbType(DbType.MYSQL);
+        configuration.addMapper(AccountMapper.class);
+        configuration.addMapper(Ds1AccountMapper.class);
+        configuration.addMapper(ShardOrderMapper.class);
+        FlexGlobalConfig globalConfig = new FlexGlobalConfig();
+        globalConfig.setDbType(DbType.MYSQL);
+        FlexGlobalConfig.setConfig(environmentId, globalConfig);
+        return new DefaultSqlSessionFactory(configuration);
+    }
+
+    private static <M> void execute(SqlSessionFactory sqlSessionFactory, Class<M> mapperClass, Consumer<M> consumer) {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+            consumer.accept(sqlSession.getMapper(mapperClass));
+        }
+    }
+
+    private static void openReplicaConnection(FlexDataSource dataSource) throws SQLException {
+        DataSourceKey.useReplica();
+        try {
+            dataSource.getConnection().close();
+        } finally {
+            DataSourceKey.clearReplica();
+        }
+    }
+
+    private static void assertFails(Runnable runnable, String message) {
+        try {
+            runnable.run();
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains(message));
+            return;
+        }
+        Assert.fail("expected failure: " + message);
+    }
+
+
+    /**
+     * 模拟一个数据库，记录获取连接的次数以及执行的 sql；查询不返回数据，写入返回 1
+     */
+    private static class Database {
+        private final String name;
+        private final List<String> sqls = new ArrayList<>();
+        private volatile boolean failing;
+        private int connectionCount;
+        private int queryCount;
+
+        private Database(String name) {
+            this.name = name;
+        }
+
+        private DataSource dataSource() {
+            return proxy(DataSource.class, (proxy, method, args) -> {
+                if ("getConnection".equals(method.getName())) {
+                    connectionCount++;
+                    if (failing) {
+                        throw new SQLException("Can not connect to " + name);
+                    }
+                    return connection();
+                }
+                return defaultValue(method.getReturnType());
+            });
+        }
+
+        private Connection connection() {
+            return proxy(Connection.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "prepareStatement":
+                        return statement((String) args[0]);
+                    case "getAutoCommit":
+                        return true;
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            });
+        }
+
+        private PreparedStatement statement(String sql) {
+            return proxy(PreparedStatement.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "execute":
+                        queryCount++;
+                        sqls.add(sql);
+                        return sql.trim().toLowerCase().startsWith("select");
+                    case "getResultSet":
+                        return emptyResultSet();
+                    case "getUpdateCount":
+                        return sql.trim().toLowerCase().startsWith("select") ? -1 : 1;
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            });
+        }
+
+        private ResultSet emptyResultSet() {
+            ResultSetMetaData metaData = proxy(ResultSetMetaData.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getColumnCount":
+                        return 1;
+                    case "getColumnLabel":
+                    case "getColumnName":
+                        return "id";
+                    case "getColumnType":
+                        return Types.BIGINT;
+                    case "getColumnClassName":
+                        return Long.class.getName();
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            });
+            return proxy(ResultSet.class, (proxy, method, args) -> "getMetaData".equals(method.getName()) ? metaData : defaultValue(method.getReturnType()));
+        }
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    private static <T> T proxy(Class<T> type, java.lang.reflect.InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(FlexDataSourceTester.class.getClassLoader(), new Class[]{type}, handler));
+    }
+}
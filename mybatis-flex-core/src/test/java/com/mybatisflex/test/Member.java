@@ -0,0 +1,39 @@
+package com.mybatisflex.test;
+
+import com.mybatisflex.annotation.Id;
+import com.mybatisflex.annotation.Table;
+
+@Table("tb_member")
+public class Member {
+
+    @Id
+    private Long id;
+
+    private @Nullable String name;
+
+    private java.lang.@Nullable Integer age;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public @Nullable String getName() {
+        return name;
+    }
+
+    public void setName(@Nullable String name) {
+        this.name = name;
+    }
+
+    public java.lang.@Nullable Integer getAge() {
+        return age;
+    }
+
+    public void setAge(java.lang.@Nullable Integer age) {
+        this.age = age;
+    }
+}
@@ -0,0 +1,63 @@
+package com.mybatisflex.test;
+
+import com.mybatisflex.core.javassist.ModifyAttrsRecord;
+import com.mybatisflex.core.util.UpdateEntity;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+public class ModifyAttrsRecordTester {
+
+    public static class DefaultStatusAccount {
+        private Long id;
+        private Integer status;
+        private String userName;
+
+        public DefaultStatusAccount() {
+            setStatus(1);
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public Integer getStatus() {
+            return status;
+        }
+
+        public void setStatus(Integer status) {
+            this.status = status;
+        }
+
+        public String getUserName() {
+            return userName;
+        }
+
+        public void setUserName(String userName) {
+            this.userName = userName;
+        }
+    }
+
+
+    @Test
+    public void testSetterInConstructor() {
+        DefaultStatusAccount account = UpdateEntity.wrap(DefaultStatusAccount.class);
+        Assert.assertNotNull(account);
+        Assert.assertEquals(Integer.valueOf(1), account.getStatus());
+
+        //构造方法中设置的默认值不属于修改
+        ModifyAttrsRecord record = (ModifyAttrsRecord) account;
+        Assert.assertEquals(Collections.emptySet(), record.obtainModifyAttrs());
+
+        account.setUserName("michael");
+        account.setStatus(2);
+        Assert.assertEquals(new HashSet<>(Arrays.asList("userName", "status")), new HashSet<>(record.obtainModifyAttrs()));
+    }
+}
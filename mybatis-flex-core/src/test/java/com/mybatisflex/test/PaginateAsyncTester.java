@@ -0,0 +1,196 @@
+package com.mybatisflex.test;
+
+import com.mybatisflex.core.BaseMapper;
+import com.mybatisflex.core.FlexGlobalConfig;
+import com.mybatisflex.core.dialect.DbType;
+import com.mybatisflex.core.mybatis.FlexConfiguration;
+import com.mybatisflex.core.paginate.Page;
+import com.mybatisflex.core.querywrapper.QueryWrapper;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.mybatisflex.test.table.Tables.ACCOUNT;
+
+public class PaginateAsyncTester {
+
+    public interface AccountMapper extends BaseMapper<Account> {
+    }
+
+
+    private final List<Database> connections = new CopyOnWriteArrayList<>();
+
+
+    @Test
+    public void testPaginateAsyncOpensSessionPerQuery() {
+        SqlSessionFactory sqlSessionFactory = newSqlSessionFactory("paginateAsync");
+
+        //和 MybatisFlexBootstrap.execute 一样，mapper 绑定在一个 sqlSession 上，并且在异步查询完成之前关闭
+        CompletableFuture<Page<Account>> future;
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            AccountMapper mapper = sqlSession.getMapper(AccountMapper.class);
+            future = mapper.paginateAsync(sqlSessionFactory, new Page<>(1, 10), QueryWrapper.create().where(ACCOUNT.ID.ge(1)));
+        }
+
+        Page<Account> page = future.join();
+        Assert.assertEquals(5, page.getTotalRow());
+        Assert.assertTrue(page.getList().isEmpty());
+
+        //count 和 list 各自使用一个连接，执行完成后关闭
+        Assert.assertEquals(2, connections.size());
+        for (Database database : connections) {
+            Assert.assertEquals(1, database.queryCount);
+            Assert.assertTrue(database.closed);
+        }
+    }
+
+    @Test
+    public void testSelectListByIdsOpensSessionPerChunk() {
+        SqlSessionFactory sqlSessionFactory = newSqlSessionFactory("selectListByIdsParallel");
+
+        List<Account> accounts;
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            AccountMapper mapper = sqlSession.getMapper(AccountMapper.class);
+            accounts = mapper.selectListByIds(sqlSessionFactory, Arrays.asList(1L, 2L, 3L, 4L, 5L), 2);
+        }
+        Assert.assertTrue(accounts.isEmpty());
+
+        //每批主键使用各自的连接
+        Assert.assertEquals(3, connections.size());
+        for (Database database : connections) {
+            Assert.assertEquals(1, database.queryCount);
+            Assert.assertTrue(database.closed);
+        }
+    }
+
+
+    private SqlSessionFactory newSqlSessionFactory(String environmentId) {
+        DataSource dataSource = proxy(DataSource.class, (proxy, method, args) -> {
+            if ("getConnection".equals(method.getName())) {
+                Database database = new Database();
+                connections.add(database);
+                return database.connection();
+            }
+            return null;
+        });
+        FlexConfiguration configuration = new FlexConfiguration(new Environment(environmentId, new JdbcTransactionFactory(), dataSource));
+        configuration.setDbType(DbType.MYSQL);
+        configuration.addMapper(AccountMapper.class);
+        FlexGlobalConfig globalConfig = new FlexGlobalConfig();
+        globalConfig.setDbType(DbType.MYSQL);
+        FlexGlobalConfig.setConfig(environmentId, globalConfig);
+        return new DefaultSqlSessionFactory(configuration);
+    }
+
+
+    /**
+     * 模拟数据库连接，count 查询返回 5，数据查询不返回数据
+     */
+    private static class Database {
+        private volatile boolean closed;
+        private volatile int queryCount;
+
+        private Connection connection() {
+            return proxy(Connection.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "prepareStatement":
+                        return statement((String) args[0]);
+                    case "getAutoCommit":
+                        return true;
+                    case "close":
+                        closed = true;
+                        return null;
+                    case "isClosed":
+                        return closed;
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            });
+        }
+
+        private PreparedStatement statement(String sql) {
+            boolean count = sql.toLowerCase().contains("count(");
+            return proxy(PreparedStatement.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "execute":
+                        queryCount++;
+                        return true;
+                    case "getResultSet":
+                        return resultSet(count);
+                    case "getUpdateCount":
+                        return -1;
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            });
+        }
+
+        private ResultSet resultSet(boolean count) {
+            ResultSetMetaData metaData = proxy(ResultSetMetaData.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getColumnCount":
+                        return 1;
+                    case "getColumnLabel":
+                    case "getColumnName":
+                        return count ? "count" : "id";
+                    case "getColumnType":
+                        return Types.BIGINT;
+                    case "getColumnClassName":
+                        return Long.class.getName();
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            });
+            boolean[] read = new boolean[1];
+            return proxy(ResultSet.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getMetaData":
+                        return metaData;
+                    case "next":
+                        if (!count || read[0]) {
+                            return false;
+                        }
+                        read[0] = true;
+                        return true;
+                    case "getLong":
+                        return 5L;
+                    case "getObject":
+                        return 5L;
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            });
+        }
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    private static <T> T proxy(Class<T> type, java.lang.reflect.InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(PaginateAsyncTester.class.getClassLoader(), new Class[]{type}, handler));
+    }
+}
@@ -0,0 +1,166 @@
+package com.mybatisflex.test;
+
+import com.mybatisflex.core.BaseMapper;
+import com.mybatisflex.core.FlexGlobalConfig;
+import com.mybatisflex.core.dialect.DbType;
+import com.mybatisflex.core.mybatis.FlexConfiguration;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ParameterLimitExecutorTester {
+
+    public interface AccountMapper extends BaseMapper<Account> {
+    }
+
+
+    private final List<Integer> parameterCounts = new ArrayList<>();
+
+
+    @Test
+    public void testSelectListByIdsInChunks() {
+        //sqlite 最多支持 999 个参数，2500 个主键拆分为 3 次查询
+        try (SqlSession sqlSession = newSqlSessionFactory("parameterLimitSelect", DbType.SQLITE).openSession()) {
+            List<Account> accounts = sqlSession.getMapper(AccountMapper.class).selectListByIds(newIds(2500));
+            Assert.assertTrue(accounts.isEmpty());
+        }
+        Assert.assertEquals(Arrays.asList(999, 999, 502), parameterCounts);
+    }
+
+    @Test
+    public void testDeleteBatchByIdsInChunks() {
+        try (SqlSession sqlSession = newSqlSessionFactory("parameterLimitDelete", DbType.SQLITE).openSession()) {
+            int deleted = sqlSession.getMapper(AccountMapper.class).deleteBatchByIds(newIds(2500));
+            Assert.assertEquals(2500, deleted);
+        }
+        Assert.assertEquals(Arrays.asList(999, 999, 502), parameterCounts);
+    }
+
+    @Test
+    public void testSqlArgsInCacheKey() {
+        //sql 相同而主键不同的两次查询，不能命中一级缓存
+        try (SqlSession sqlSession = newSqlSessionFactory("parameterLimitCacheKey", DbType.MYSQL).openSession()) {
+            AccountMapper mapper = sqlSession.getMapper(AccountMapper.class);
+            mapper.selectListByIds(Arrays.asList(1L, 2L));
+            mapper.selectListByIds(Arrays.asList(3L, 4L));
+            mapper.selectListByIds(Arrays.asList(3L, 4L));
+        }
+        Assert.assertEquals(Arrays.asList(2, 2), parameterCounts);
+    }
+
+    @Test
+    public void testUnlimitedDialect() {
+        try (SqlSession sqlSession = newSqlSessionFactory("parameterLimitMysql", DbType.MYSQL).openSession()) {
+            sqlSession.getMapper(AccountMapper.class).deleteBatchByIds(newIds(2500));
+        }
+        Assert.assertEquals(Arrays.asList(2500), parameterCounts);
+    }
+
+
+    private static List<Long> newIds(int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (long i = 1; i <= count; i++) {
+            ids.add(i);
+        }
+        return ids;
+    }
+
+    private SqlSessionFactory newSqlSessionFactory(String environmentId, DbType dbType) {
+        DataSource dataSource = proxy(DataSource.class, (proxy, method, args) -> "getConnection".equals(method.getName()) ? connection() : null);
+        FlexConfiguration configuration = new FlexConfiguration(new Environment(environmentId, new JdbcTransactionFactory(), dataSource));
+        configuration.setDbType(dbType);
+        configuration.addMapper(AccountMapper.class);
+        FlexGlobalConfig globalConfig = new FlexGlobalConfig();
+        globalConfig.setDbType(dbType);
+        FlexGlobalConfig.setConfig(environmentId, globalConfig);
+        return new DefaultSqlSessionFactory(configuration);
+    }
+
+
+    /**
+     * 模拟数据库连接，记录每条语句设置的参数数量；查询不返回数据，删除返回参数的数量
+     */
+    private Connection connection() {
+        return proxy(Connection.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return statement();
+                case "getAutoCommit":
+                    return true;
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    private PreparedStatement statement() {
+        int[] maxIndex = new int[1];
+        return proxy(PreparedStatement.class, (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                maxIndex[0] = Math.max(maxIndex[0], (Integer) args[0]);
+                return null;
+            }
+            switch (name) {
+                case "execute":
+                    parameterCounts.add(maxIndex[0]);
+                    return true;
+                case "getResultSet":
+                    return emptyResultSet();
+                case "getUpdateCount":
+                    return maxIndex[0];
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    private ResultSet emptyResultSet() {
+        ResultSetMetaData metaData = proxy(ResultSetMetaData.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getColumnCount":
+                    return 1;
+                case "getColumnLabel":
+                case "getColumnName":
+                    return "id";
+                case "getColumnType":
+                    return Types.BIGINT;
+                case "getColumnClassName":
+                    return Long.class.getName();
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+        return proxy(ResultSet.class, (proxy, method, args) -> "getMetaData".equals(method.getName()) ? metaData : defaultValue(method.getReturnType()));
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    private static <T> T proxy(Class<T> type, java.lang.reflect.InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(ParameterLimitExecutorTester.class.getClassLoader(), new Class[]{type}, handler));
+    }
+}
@@ -0,0 +1,185 @@
+package com.mybatisflex.test;
+
+import com.mybatisflex.core.FlexGlobalConfig;
+import com.mybatisflex.core.dialect.DbType;
+import com.mybatisflex.core.mybatis.FlexConfiguration;
+import com.mybatisflex.core.row.Row;
+import com.mybatisflex.core.row.RowMapperInvoker;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class RowSessionScopeTester {
+
+    private final List<Database> connections = new ArrayList<>();
+
+
+    @Test
+    public void testInsertBatchRollbackInTx() {
+        RowMapperInvoker invoker = new RowMapperInvoker(newSqlSessionFactory("rowSessionScopeRollback"));
+
+        try {
+            invoker.tx(db -> {
+                db.insertBatch("tb_account", Arrays.asList(newRow("michael"), newRow("joy")), 1);
+                throw new IllegalStateException("rollback");
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("rollback", e.getMessage());
+        }
+
+        //批量写入使用事务的 connection，随事务一起回滚
+        Assert.assertEquals(1, connections.size());
+        Database database = connections.get(0);
+        Assert.assertEquals(2, database.batchCount);
+        Assert.assertEquals(0, database.commitCount);
+        Assert.assertEquals(1, database.rollbackCount);
+        Assert.assertTrue(database.closed);
+    }
+
+    @Test
+    public void testInsertBatchOnlyCommitInTx() {
+        RowMapperInvoker invoker = new RowMapperInvoker(newSqlSessionFactory("rowSessionScopeBatchOnly"));
+
+        //事务中只有批量写入时，当前 sqlSession 没有被标记为已修改，也需要提交 connection
+        invoker.tx(db -> db.insertBatch("tb_account", Arrays.asList(newRow("michael"), newRow("joy")), 10));
+
+        Assert.assertEquals(1, connections.size());
+        Database database = connections.get(0);
+        Assert.assertEquals(2, database.batchCount);
+        Assert.assertEquals(1, database.commitCount);
+        Assert.assertEquals(0, database.rollbackCount);
+    }
+
+    @Test
+    public void testInsertBatchCommitInTx() {
+        RowMapperInvoker invoker = new RowMapperInvoker(newSqlSessionFactory("rowSessionScopeCommit"));
+
+        int[] updateCounts = invoker.tx(db -> {
+            db.insertRow("tb_account", newRow("michael"));
+            return db.insertBatch("tb_account", Arrays.asList(newRow("joy"), newRow("jack")), 10);
+        });
+
+        Assert.assertEquals(2, updateCounts.length);
+        Assert.assertEquals(1, connections.size());
+        Database database = connections.get(0);
+        Assert.assertEquals(1, database.updateCount);
+        Assert.assertEquals(2, database.batchCount);
+        Assert.assertEquals(1, database.commitCount);
+        Assert.assertEquals(0, database.rollbackCount);
+    }
+
+
+    private SqlSessionFactory newSqlSessionFactory(String environmentId) {
+        DataSource dataSource = proxy(DataSource.class, (proxy, method, args) -> {
+            if ("getConnection".equals(method.getName())) {
+                Database database = new Database();
+                connections.add(database);
+                return database.connection();
+            }
+            return null;
+        });
+        FlexConfiguration configuration = new FlexConfiguration(new Environment(environmentId, new JdbcTransactionFactory(), dataSource));
+        configuration.setDbType(DbType.MYSQL);
+        FlexGlobalConfig globalConfig = new FlexGlobalConfig();
+        globalConfig.setDbType(DbType.MYSQL);
+        FlexGlobalConfig.setConfig(environmentId, globalConfig);
+        return new DefaultSqlSessionFactory(configuration);
+    }
+
+    private static Row newRow(String userName) {
+        Row row = new Row();
+        row.set("user_name", userName);
+        return row;
+    }
+
+
+    /**
+     * 模拟数据库连接，记录执行的语句、提交和回滚的次数
+     */
+    private static class Database {
+        private boolean autoCommit = true;
+        private boolean closed;
+        private int batchCount;
+        private int updateCount;
+        private int commitCount;
+        private int rollbackCount;
+
+        private Connection connection() {
+            return proxy(Connection.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "prepareStatement":
+                        return statement();
+                    case "getAutoCommit":
+                        return autoCommit;
+                    case "setAutoCommit":
+                        autoCommit = (Boolean) args[0];
+                        return null;
+                    case "commit":
+                        commitCount++;
+                        return null;
+                    case "rollback":
+                        rollbackCount++;
+                        return null;
+                    case "close":
+                        closed = true;
+                        return null;
+                    case "isClosed":
+                        return closed;
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            });
+        }
+
+        private PreparedStatement statement() {
+            int[] added = new int[1];
+            return proxy(PreparedStatement.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "addBatch":
+                        added[0]++;
+                        return null;
+                    case "executeBatch":
+                        batchCount += added[0];
+                        int[] counts = new int[added[0]];
+                        Arrays.fill(counts, 1);
+                        added[0] = 0;
+                        return counts;
+                    case "execute":
+                        updateCount++;
+                        return false;
+                    case "getUpdateCount":
+                        return 1;
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            });
+        }
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    private static <T> T proxy(Class<T> type, java.lang.reflect.InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(RowSessionScopeTester.class.getClassLoader(), new Class[]{type}, handler));
+    }
+}
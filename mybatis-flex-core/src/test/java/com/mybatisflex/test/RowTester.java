@@ -0,0 +1,175 @@
+package com.mybatisflex.test;
+
+import com.mybatisflex.core.row.Row;
+import com.mybatisflex.core.row.RowSchema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+public class RowTester {
+
+    private static final RowSchema SCHEMA = new RowSchema(new String[]{"id", "user_name", "age", "id"});
+
+
+    /**
+     * id = 1，user_name 不存在（未开启 callSettersOnNulls 时为 null 的列），age = null
+     */
+    private static Row newRow() {
+        Object[] values = SCHEMA.newValues();
+        values[SCHEMA.indexOf("id")] = 1L;
+        values[SCHEMA.indexOf("age")] = null;
+        return Row.ofSchema(SCHEMA, values);
+    }
+
+    private static Map<String, Object> newMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", 1L);
+        map.put("age", null);
+        return map;
+    }
+
+
+    @Test
+    public void testSchema() {
+        //重复的列名共用同一个位置
+        Assert.assertEquals(3, SCHEMA.size());
+        Assert.assertEquals(0, SCHEMA.indexOf("id"));
+        Assert.assertEquals(-1, SCHEMA.indexOf("birthday"));
+    }
+
+
+    @Test
+    public void testRead() {
+        Row row = newRow();
+        Assert.assertEquals(2, row.size());
+        Assert.assertFalse(row.isEmpty());
+        Assert.assertEquals(1L, row.get("id"));
+        Assert.assertNull(row.get("user_name"));
+        Assert.assertFalse(row.containsKey("user_name"));
+        Assert.assertTrue(row.containsKey("age"));
+        Assert.assertEquals("none", row.getOrDefault("user_name", "none"));
+        Assert.assertNull(row.getOrDefault("age", "none"));
+        Assert.assertTrue(row.containsValue(null));
+        Assert.assertFalse(row.containsValue("michael"));
+        Assert.assertEquals(Arrays.asList("id", "age"), new ArrayList<>(row.keySet()));
+        Assert.assertEquals(Arrays.asList(1L, null), new ArrayList<>(row.values()));
+
+        //和 HashMap 互相 equals，hashCode 一致
+        Assert.assertEquals(newMap(), row);
+        Assert.assertEquals(row, newMap());
+        Assert.assertEquals(newMap().hashCode(), row.hashCode());
+    }
+
+
+    @Test
+    public void testWrite() {
+        Row row = newRow();
+        Assert.assertNull(row.put("user_name", "michael"));
+        Assert.assertEquals(3, row.size());
+        Assert.assertEquals(1L, row.put("id", 2L));
+        Assert.assertEquals(2L, row.remove("id"));
+        Assert.assertNull(row.remove("id"));
+        Assert.assertEquals(2, row.size());
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("user_name", "michael");
+        expected.put("age", null);
+        Assert.assertEquals(expected, row);
+
+        //schema 中不存在的列，转换为 HashMap 存储，已有的值保留
+        row.put("birthday", "2020-01-01");
+        expected.put("birthday", "2020-01-01");
+        Assert.assertEquals(expected, row);
+        Assert.assertEquals(3, row.size());
+
+        row.clear();
+        Assert.assertTrue(row.isEmpty());
+    }
+
+
+    @Test
+    public void testIterator() {
+        Row row = newRow();
+        Iterator<Map.Entry<String, Object>> iterator = row.entrySet().iterator();
+        Map.Entry<String, Object> entry = iterator.next();
+        Assert.assertEquals("id", entry.getKey());
+        entry.setValue(5L);
+        Assert.assertEquals(5L, row.get("id"));
+
+        iterator.next();
+        iterator.remove();
+        Assert.assertFalse(iterator.hasNext());
+        Assert.assertFalse(row.containsKey("age"));
+        Assert.assertEquals(1, row.size());
+    }
+
+
+    @Test
+    public void testComputeInflate() {
+        Row row = newRow();
+        row.compute("id", (key, value) -> (Long) value + 1);
+        row.merge("score", 10, (a, b) -> b);
+        row.computeIfAbsent("user_name", key -> "michael");
+
+        Map<String, Object> expected = newMap();
+        expected.put("id", 2L);
+        expected.put("score", 10);
+        expected.put("user_name", "michael");
+        Assert.assertEquals(expected, row);
+    }
+
+
+    @Test
+    public void testClone() {
+        Row row = newRow();
+        Row clone = row.clone();
+        clone.put("id", 2L);
+        clone.put("birthday", "2020-01-01");
+
+        Assert.assertEquals(newMap(), row);
+        Assert.assertEquals(2L, clone.get("id"));
+        Assert.assertEquals(3, clone.size());
+    }
+
+
+    @Test
+    public void testSerialize() throws Exception {
+        Row row = newRow();
+        row.set("user_name", "michael");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(row);
+        }
+        Row copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (Row) in.readObject();
+        }
+
+        Assert.assertEquals(row, copy);
+        Assert.assertEquals(3, copy.size());
+        Assert.assertTrue(copy.obtainModifyAttrs().contains("user_name"));
+    }
+
+
+    @Test
+    public void testToEntity() {
+        Row row = newRow();
+        row.put("user_name", "michael");
+        row.put("age", 18);
+
+        Account account = row.toEntity(Account.class);
+        Assert.assertEquals(Long.valueOf(1L), account.getId());
+        Assert.assertEquals("michael", account.getUserName());
+        Assert.assertEquals(Integer.valueOf(18), account.getAge());
+    }
+}
@@ -0,0 +1,139 @@
+package com.mybatisflex.test;
+
+import com.mybatisflex.annotation.Id;
+import com.mybatisflex.annotation.Table;
+import com.mybatisflex.core.FlexConsts;
+import com.mybatisflex.core.FlexGlobalConfig;
+import com.mybatisflex.core.dialect.DbType;
+import com.mybatisflex.core.enums.KeyType;
+import com.mybatisflex.core.key.SequenceKeyGenerator;
+import com.mybatisflex.core.mybatis.FlexConfiguration;
+import com.mybatisflex.core.table.TableInfo;
+import com.mybatisflex.core.table.TableInfos;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SequenceKeyGeneratorTester {
+
+    @Table("tb_sequence_account")
+    public static class SequenceAccount {
+        @Id(keyType = KeyType.Sequence, value = "SEQ_ACCOUNT")
+        private Long id;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+    }
+
+
+    @Test
+    public void testCachePerConfiguration() {
+        //两个 SqlSessionFactory 使用相同的 environmentId，但连接的是不同的数据库
+        Database database1 = new Database(1);
+        Database database2 = new Database(1000);
+        SequenceKeyGenerator generator1 = newGenerator(newConfiguration(5));
+        SequenceKeyGenerator generator2 = newGenerator(newConfiguration(3));
+
+        Assert.assertEquals(Long.valueOf(1), insert(generator1, database1));
+        Assert.assertEquals(Long.valueOf(1000), insert(generator2, database2));
+        Assert.assertEquals(Long.valueOf(2), insert(generator1, database1));
+        Assert.assertEquals(Long.valueOf(1001), insert(generator2, database2));
+
+        //每个配置使用自己的预取数量
+        Assert.assertEquals(5, database1.lastCount.get());
+        Assert.assertEquals(3, database2.lastCount.get());
+        Assert.assertEquals(1, database1.fetchCount.get());
+        Assert.assertEquals(1, database2.fetchCount.get());
+    }
+
+
+    private static FlexConfiguration newConfiguration(int sequenceCacheSize) {
+        FlexConfiguration configuration = new FlexConfiguration(new Environment("default", new JdbcTransactionFactory(), new UnpooledDataSource()));
+        configuration.setDbType(DbType.ORACLE);
+        FlexGlobalConfig globalConfig = new FlexGlobalConfig();
+        globalConfig.setSequenceCacheSize(sequenceCacheSize);
+        configuration.setGlobalConfig(globalConfig);
+        return configuration;
+    }
+
+    private static SequenceKeyGenerator newGenerator(FlexConfiguration configuration) {
+        TableInfo tableInfo = TableInfos.ofEntityClass(SequenceAccount.class);
+        return new SequenceKeyGenerator(configuration, tableInfo, tableInfo.getPrimaryKeyList().get(0));
+    }
+
+    private static Long insert(SequenceKeyGenerator generator, Database database) {
+        SequenceAccount account = new SequenceAccount();
+        generator.processBefore(database.executor(), null, null, Collections.singletonMap(FlexConsts.ENTITY, account));
+        return account.getId();
+    }
+
+
+    /**
+     * 模拟数据库中的序列，每次查询返回 sql 中 level &lt;= count 的数量个值
+     */
+    private static class Database {
+        private final AtomicLong next;
+        private final AtomicInteger fetchCount = new AtomicInteger();
+        private final AtomicInteger lastCount = new AtomicInteger();
+
+        private Database(long start) {
+            this.next = new AtomicLong(start);
+        }
+
+        private Executor executor() {
+            Connection connection = proxy(Connection.class, (proxy, method, args) -> {
+                if ("prepareStatement".equals(method.getName())) {
+                    String sql = (String) args[0];
+                    int count = Integer.parseInt(sql.replaceAll(".*<=\\s*(\\d+).*", "$1"));
+                    fetchCount.incrementAndGet();
+                    lastCount.set(count);
+                    return statement(count);
+                }
+                return null;
+            });
+            Transaction transaction = proxy(Transaction.class, (proxy, method, args) -> "getConnection".equals(method.getName()) ? connection : null);
+            return proxy(Executor.class, (proxy, method, args) -> "getTransaction".equals(method.getName()) ? transaction : null);
+        }
+
+        private PreparedStatement statement(int count) {
+            AtomicInteger remaining = new AtomicInteger(count);
+            AtomicLong current = new AtomicLong();
+            ResultSet resultSet = proxy(ResultSet.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "next":
+                        if (remaining.getAndDecrement() <= 0) {
+                            return false;
+                        }
+                        current.set(next.getAndIncrement());
+                        return true;
+                    case "getLong":
+                        return current.get();
+                    default:
+                        return null;
+                }
+            });
+            return proxy(PreparedStatement.class, (proxy, method, args) -> "executeQuery".equals(method.getName()) ? resultSet : null);
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, java.lang.reflect.InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(SequenceKeyGeneratorTester.class.getClassLoader(), new Class[]{type}, handler));
+    }
+}
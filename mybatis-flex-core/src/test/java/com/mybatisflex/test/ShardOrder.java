@@ -0,0 +1,39 @@
+package com.mybatisflex.test;
+
+import com.mybatisflex.annotation.Id;
+import com.mybatisflex.annotation.Table;
+import com.mybatisflex.annotation.TableShard;
+import com.mybatisflex.core.enums.KeyType;
+
+@Table("tb_shard_order")
+@TableShard(column = "id", count = 4, dataSources = {"ds0", "ds1"})
+public class ShardOrder {
+
+    @Id(keyType = KeyType.None)
+    private Long id;
+
+    private Long userId;
+
+    public ShardOrder() {
+    }
+
+    public ShardOrder(Long id) {
+        this.id = id;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+}
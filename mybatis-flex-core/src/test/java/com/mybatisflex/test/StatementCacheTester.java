@@ -0,0 +1,108 @@
+package com.mybatisflex.test;
+
+import com.mybatisflex.core.mybatis.StatementCache;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.Map;
+
+public class StatementCacheTester {
+
+    private int createCount;
+
+    @Before
+    public void init() {
+        StatementCache.setEnable(true);
+    }
+
+    @After
+    public void destroy() {
+        StatementCache.setEnable(false);
+    }
+
+
+    @Test
+    public void testReuseStatement() throws Exception {
+        Connection connection = newConnection();
+        PreparedStatement first = prepare(connection, "select * from tb_account");
+        first.close();
+        PreparedStatement second = prepare(connection, "select * from tb_account");
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, createCount);
+
+        //不同的连接使用各自的缓存
+        prepare(newConnection(), "select * from tb_account").close();
+        Assert.assertEquals(2, createCount);
+    }
+
+    @Test
+    public void testResetSettings() throws Exception {
+        Connection connection = newConnection();
+        PreparedStatement statement = prepare(connection, "select * from tb_account");
+        statement.setQueryTimeout(5);
+        statement.setFetchSize(Integer.MIN_VALUE);
+        statement.setMaxRows(10);
+        statement.setFetchDirection(ResultSet.FETCH_REVERSE);
+        statement.close();
+
+        //相同 sql 的其他 MappedStatement 不受上一次设置的影响
+        statement = prepare(connection, "select * from tb_account");
+        Assert.assertEquals(0, statement.getQueryTimeout());
+        Assert.assertEquals(0, statement.getFetchSize());
+        Assert.assertEquals(0, statement.getMaxRows());
+        Assert.assertEquals(ResultSet.FETCH_FORWARD, statement.getFetchDirection());
+        Assert.assertEquals(1, createCount);
+    }
+
+
+    private PreparedStatement prepare(Connection connection, String sql) throws Exception {
+        return StatementCache.prepareStatement(connection, sql, false, null, null, () -> connection.prepareStatement(sql));
+    }
+
+    private Connection newConnection() {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    createCount++;
+                    return newStatement();
+                case "isWrapperFor":
+                case "isClosed":
+                    return false;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private PreparedStatement newStatement() {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("QueryTimeout", 0);
+        settings.put("FetchSize", 0);
+        settings.put("MaxRows", 0);
+        settings.put("FetchDirection", ResultSet.FETCH_FORWARD);
+        settings.put("MaxFieldSize", 0);
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{PreparedStatement.class}, (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("get") && settings.containsKey(name.substring(3))) {
+                return settings.get(name.substring(3));
+            } else if (name.startsWith("set") && settings.containsKey(name.substring(3))) {
+                settings.put(name.substring(3), args[0]);
+                return null;
+            } else if ("isClosed".equals(name)) {
+                return false;
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,157 @@
+package com.mybatisflex.test;
+
+import com.mybatisflex.annotation.Id;
+import com.mybatisflex.annotation.Table;
+import com.mybatisflex.annotation.TableShard;
+import com.mybatisflex.core.enums.KeyType;
+import com.mybatisflex.core.shard.ShardStrategy;
+import com.mybatisflex.core.shard.TableShardInfo;
+import com.mybatisflex.core.table.TableInfos;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+public class TableShardTester {
+
+    @Table("tb_shard_item")
+    @TableShard(column = "order_id", count = 4)
+    public static class ShardItem {
+        @Id(keyType = KeyType.None)
+        private Long itemId;
+        @Id(keyType = KeyType.None)
+        private Long orderId;
+    }
+
+    @Table("tb_shard_user")
+    @TableShard(column = "user_id", count = 4)
+    public static class ShardByColumn {
+        @Id(keyType = KeyType.None)
+        private Long id;
+        private Long userId;
+    }
+
+    @Table("tb_shard_auto")
+    @TableShard(column = "id", count = 4)
+    public static class ShardByAutoKey {
+        @Id
+        private Long id;
+    }
+
+    @Table("tb_shard_after_sequence")
+    @TableShard(column = "id", count = 4)
+    public static class ShardByAfterSequence {
+        @Id(keyType = KeyType.Sequence, value = "select last_insert_id()", before = false)
+        private Long id;
+    }
+
+    @Table("tb_shard_sequence")
+    @TableShard(column = "user_id", count = 4, dataSources = {"ds0", "ds1"})
+    public static class SequenceWithDataSources {
+        @Id(keyType = KeyType.Sequence, value = "SEQ_SHARD")
+        private Long id;
+        private Long userId;
+    }
+
+    @Table("tb_shard_sequence_single")
+    @TableShard(column = "user_id", count = 4)
+    public static class SequenceWithoutDataSources {
+        @Id(keyType = KeyType.Sequence, value = "SEQ_SHARD")
+        private Long id;
+        private Long userId;
+    }
+
+
+    @Test
+    public void testHashMod() {
+        ShardStrategy strategy = ShardStrategy.hashMod(4);
+        Assert.assertEquals(3, strategy.getShardIndex(123L));
+        Assert.assertEquals(3, strategy.getShardIndex(123));
+        Assert.assertEquals(3, strategy.getShardIndex("123"));
+        Assert.assertEquals(3, strategy.getShardIndex(" +123 "));
+        Assert.assertEquals(3, strategy.getShardIndex(new BigDecimal("123.00")));
+        Assert.assertEquals(3, strategy.getShardIndex(-5L));
+        Assert.assertEquals(3, strategy.getShardIndex("-5"));
+
+        //超出 long 范围：2^64 + 5
+        Assert.assertEquals(1, strategy.getShardIndex(new BigInteger("18446744073709551621")));
+        Assert.assertEquals(1, strategy.getShardIndex("18446744073709551621"));
+
+        Assert.assertEquals(Math.floorMod("12a".hashCode(), 4), strategy.getShardIndex("12a"));
+        Assert.assertEquals(Math.floorMod("-".hashCode(), 4), strategy.getShardIndex("-"));
+    }
+
+    @Test
+    public void testRange() {
+        ShardStrategy strategy = ShardStrategy.range(1000);
+        Assert.assertEquals(0, strategy.getShardIndex(999));
+        Assert.assertEquals(2, strategy.getShardIndex(2500L));
+        Assert.assertEquals(2, strategy.getShardIndex("2500"));
+        Assert.assertEquals(-1, strategy.getShardIndex(-1L));
+        assertFails(() -> strategy.getShardIndex("abc"), "must be an integer");
+        assertFails(() -> ShardStrategy.range(0), "greater than 0");
+        assertFails(() -> ShardStrategy.hashMod(0), "greater than 0");
+    }
+
+    @Test
+    public void testDate() {
+        LocalDate date = LocalDate.of(2023, 10, 17);
+        Assert.assertEquals(2023, ShardStrategy.YEAR.getShardIndex(date));
+        Assert.assertEquals(202310, ShardStrategy.MONTH.getShardIndex(date));
+        Assert.assertEquals(20231017, ShardStrategy.DAY.getShardIndex(date.atStartOfDay()));
+    }
+
+    @Test
+    public void testRouteByEntity() {
+        TableShardInfo shardInfo = TableInfos.ofEntityClass(ShardOrder.class).getShardInfo();
+
+        long shardIndex = shardInfo.routeByEntity(new ShardOrder(6L));
+        Assert.assertEquals(2, shardIndex);
+        Assert.assertEquals("tb_shard_order_2", shardInfo.getShardTableName(shardIndex));
+        Assert.assertEquals("tb_shard_order_2", shardInfo.getShardTableInfo(shardIndex).getTableName());
+        Assert.assertEquals("ds0", shardInfo.getDataSource(shardIndex));
+        Assert.assertEquals("ds1", shardInfo.getDataSource(shardInfo.routeByEntity(new ShardOrder(5L))));
+
+        Assert.assertEquals(1, shardInfo.routeByEntities(Arrays.asList(new ShardOrder(1L), new ShardOrder(5L))));
+        assertFails(() -> shardInfo.routeByEntities(Arrays.asList(new ShardOrder(1L), new ShardOrder(2L))), "spans multiple shards");
+        assertFails(() -> shardInfo.routeByEntity(new ShardOrder()), "can not be null");
+    }
+
+    @Test
+    public void testRouteByPrimaryValues() {
+        TableShardInfo shardInfo = TableInfos.ofEntityClass(ShardOrder.class).getShardInfo();
+        Assert.assertEquals(1, shardInfo.routeByPrimaryValues(new Object[]{5L, "9"}));
+        assertFails(() -> shardInfo.routeByPrimaryValues(new Object[]{1L, 2L}), "spans multiple shards");
+
+        //多主键时按主键的顺序展开：item_id, order_id
+        TableShardInfo itemShardInfo = TableInfos.ofEntityClass(ShardItem.class).getShardInfo();
+        Assert.assertEquals(3, itemShardInfo.routeByPrimaryValues(new Object[]{100L, 7L, 200L, 3L}));
+        assertFails(() -> itemShardInfo.routeByPrimaryValues(new Object[]{100L, 7L, 200L, 4L}), "spans multiple shards");
+        Assert.assertNull(itemShardInfo.getDataSource(3));
+
+        TableShardInfo columnShardInfo = TableInfos.ofEntityClass(ShardByColumn.class).getShardInfo();
+        assertFails(() -> columnShardInfo.routeByPrimaryValues(new Object[]{1L}), "is not a primary key");
+    }
+
+    @Test
+    public void testGeneratedKeys() {
+        assertFails(() -> TableInfos.ofEntityClass(ShardByAutoKey.class), "generated by the database after insert");
+        assertFails(() -> TableInfos.ofEntityClass(ShardByAfterSequence.class), "generated by the database after insert");
+        assertFails(() -> TableInfos.ofEntityClass(SequenceWithDataSources.class), "generated by a sequence before the shard data source is resolved");
+        Assert.assertNotNull(TableInfos.ofEntityClass(SequenceWithoutDataSources.class).getShardInfo());
+    }
+
+
+    private static void assertFails(Runnable runnable, String message) {
+        try {
+            runnable.run();
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains(message));
+            return;
+        }
+        Assert.fail("expected failure: " + message);
+    }
+}